@@ -22,8 +22,9 @@
 package org.fidata.gradle
 
 import static org.fidata.testfixtures.TestFixtures.initEmptyGitRepository
+import static org.fidata.testfixtures.gradle.SharedTestKit.createRunner
+import static org.fidata.testfixtures.gradle.SharedTestKit.warmUp
 import com.google.common.collect.ImmutableMap
-import org.gradle.testkit.runner.GradleRunner
 import spock.lang.Specification
 
 /**
@@ -47,10 +48,18 @@ class JvmBasePluginCompatSpec extends Specification {
     'gpgKeyId': 'ABCD1234',
   ])
 
+  /**
+   * Memory used by unit test fork in addition to heap,
+   * see {@link org.fidata.gradle.utils.TestForkPolicy#UNIT}
+   */
+  static final long UNIT_TEST_OVERHEAD_MB = 256L
+
   // fixture methods
 
   // run before the first feature method
-  // void setupSpec() { }
+  void setupSpec() {
+    warmUp()
+  }
 
   // run before every feature method
   void setup() {
@@ -105,11 +114,8 @@ class JvmBasePluginCompatSpec extends Specification {
     """.stripIndent().getBytes('UTF-8')
 
     when:
-    GradleRunner.create()
-      .withGradleVersion(System.getProperty('compat.gradle.version'))
-      .withProjectDir(testProjectDir)
+    createRunner(testProjectDir)
       .withArguments('compileJava', '-Dfile.encoding=Windows-1251', '--full-stacktrace')
-      .withPluginClasspath()
       .forwardOutput()
       .build()
 
@@ -131,11 +137,8 @@ class JvmBasePluginCompatSpec extends Specification {
     new File(testProjectDir, license).text = 'Dummy license file'
 
     when:
-    GradleRunner.create()
-      .withGradleVersion(System.getProperty('compat.gradle.version'))
-      .withProjectDir(testProjectDir)
+    createRunner(testProjectDir)
       .withArguments('processResources', '--full-stacktrace')
-      .withPluginClasspath()
       .forwardOutput()
       .build()
 
@@ -145,5 +148,190 @@ class JvmBasePluginCompatSpec extends Specification {
     (success = true) != null
   }
 
+  void 'runs only tests affected by changes when testImpact property is set'() {
+    given: 'Java project with two classes and their tests'
+    buildFile << '''\
+      apply plugin: 'java'
+    '''.stripIndent()
+    writeClass 'Foo', 1
+    writeClass 'Bar', 1
+    writeTest 'Foo'
+    writeTest 'Bar'
+
+    when: 'test task is run for the first time'
+    createRunner(testProjectDir)
+      .withArguments('test', '-PtestImpact=true', '--full-stacktrace')
+      .forwardOutput()
+      .build()
+
+    then: 'all tests are run'
+    ranTests == ['BarTest', 'FooTest'].toSet()
+    impactReport.text.startsWith('All tests are run')
+
+    when: 'one class is changed'
+    new File(testProjectDir, 'build/ran').deleteDir()
+    writeClass 'Bar', 2
+    and: 'test task is run once again'
+    createRunner(testProjectDir)
+      .withArguments('test', '-PtestImpact=true', '--full-stacktrace')
+      .forwardOutput()
+      .build()
+
+    then: 'only test of changed class is run'
+    ranTests == ['BarTest'].toSet()
+    impactReport.readLines().contains('  BarTest')
+    !impactReport.readLines().contains('  FooTest')
+
+    (success = true) != null
+  }
+
+  void 'determines number of test forks from heap size set in build script'() {
+    given: 'Java project with test task heap size set in build script'
+    buildFile << """\
+      apply plugin: 'java'
+      test {
+        maxHeapSize = '${ maxHeapSize }'
+      }
+    """.stripIndent()
+    writeClass 'Foo', 1
+    writeTest 'Foo'
+
+    when: 'test task is run'
+    createRunner(testProjectDir)
+      .withArguments('test', '--full-stacktrace')
+      .forwardOutput()
+      .build()
+
+    then: 'heap size set in build script is kept'
+    Map<String, String> report = new File(testProjectDir, 'build/reports/txt/testForks/test.txt').readLines().findAll { String line -> line.contains(': ') }.collectEntries { String line ->
+      List<String> parts = line.split(': ', 2).toList()
+      [(parts[0]): parts[1]]
+    }
+    report['Max heap size'] == maxHeapSize
+    and: 'number of forks is determined by this heap size'
+    int availableProcessors = report['Available processors'].toInteger()
+    long physicalMemoryMb = (report['Physical memory'] - ' MB').toLong()
+    long reservedMemoryMb = (report['Reserved memory'] - ' MB').toLong()
+    int byMemory = physicalMemoryMb > 0L ? (int)Math.max(1L, (physicalMemoryMb - reservedMemoryMb).intdiv(heapMb + UNIT_TEST_OVERHEAD_MB)) : availableProcessors
+    report['Max parallel forks'].split(' ', 2)[0].toInteger() == Math.min(Math.max(1, availableProcessors), byMemory)
+
+    (success = true) != null
+
+    where:
+    maxHeapSize = '6g'
+    heapMb = 6144L
+  }
+
+  void 'runs specs concurrently on JUnit Platform when spockJUnitPlatform property is set'() {
+    given: 'Groovy project with two specs and isolated spec'
+    buildFile << '''\
+      apply plugin: 'groovy'
+    '''.stripIndent()
+    writeSpec 'FooSpec', ''
+    writeSpec 'BarSpec', ''
+    writeSpec 'IsolatedSpec', '@Isolated'
+
+    when: 'functionalTest task is run'
+    createRunner(testProjectDir)
+      .withArguments('functionalTest', '-PspockJUnitPlatform=true', '-PspockParallelism=4', '--full-stacktrace')
+      .forwardOutput()
+      .build()
+
+    then: 'specs are run concurrently'
+    List<Long> foo = getSpecInterval('FooSpec')
+    List<Long> bar = getSpecInterval('BarSpec')
+    foo[0] < bar[1] && bar[0] < foo[1]
+    and: 'isolated spec is run alone'
+    List<Long> isolated = getSpecInterval('IsolatedSpec')
+    [foo, bar].every { List<Long> other -> isolated[1] <= other[0] || other[1] <= isolated[0] }
+    and: 'JUnit XML reports are written to ProjectConvention directory'
+    ['FooSpec', 'BarSpec', 'IsolatedSpec'].every { String name -> new File(testProjectDir, "build/reports/xml/functionalTest/TEST-${ name }.xml").file }
+    and: 'spock reports are written to ProjectConvention directories'
+    ['FooSpec', 'BarSpec', 'IsolatedSpec'].every { String name -> new File(testProjectDir, "build/reports/html/functionalTest/${ name }.html").file }
+    new File(testProjectDir, 'build/reports/json/functionalTest').list()?.length > 0
+
+    (success = true) != null
+  }
+
   // helper methods
+
+  private void writeClass(String name, int value) {
+    File file = new File(testProjectDir, "src/main/java/${ name }.java")
+    file.parentFile.mkdirs()
+    file.text = """\
+      public final class $name {
+        public static int value() {
+          return $value;
+        }
+      }
+    """.stripIndent()
+  }
+
+  private void writeTest(String name) {
+    File file = new File(testProjectDir, "src/test/java/${ name }Test.java")
+    file.parentFile.mkdirs()
+    file.text = """\
+      import java.io.File;
+      import org.junit.Test;
+      import static org.junit.Assert.assertTrue;
+
+      public class ${ name }Test {
+        @Test
+        public void test() throws Exception {
+          File ranDir = new File("build/ran");
+          ranDir.mkdirs();
+          new File(ranDir, "${ name }Test").createNewFile();
+          assertTrue(${ name }.value() > 0);
+        }
+      }
+    """.stripIndent()
+  }
+
+  /**
+   * Writes spec which takes some time,
+   * uses JUnit 4 rule and records when it was run
+   * @param name spec name
+   * @param annotation spec annotation
+   */
+  private void writeSpec(String name, String annotation) {
+    File file = new File(testProjectDir, "src/functionalTest/groovy/${ name }.groovy")
+    file.parentFile.mkdirs()
+    file.text = """\
+      import org.junit.Rule
+      import org.junit.rules.TemporaryFolder
+      import spock.lang.Isolated
+      import spock.lang.Specification
+
+      $annotation
+      class $name extends Specification {
+        @Rule
+        TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+        void 'takes some time'() {
+          when:
+          long start = System.currentTimeMillis()
+          Thread.sleep(3000)
+          long end = System.currentTimeMillis()
+          File ranDir = new File('build/ran')
+          ranDir.mkdirs()
+          new File(ranDir, '$name').text = "\$start \$end"
+
+          then:
+          temporaryFolder.root.directory
+        }
+      }
+    """.stripIndent()
+  }
+
+  private List<Long> getSpecInterval(String name) {
+    new File(testProjectDir, "build/ran/$name").text.tokenize(' ')*.toLong()
+  }
+
+  private Set<String> getRanTests() {
+    (new File(testProjectDir, 'build/ran').list() ?: new String[0]).toList().toSet()
+  }
+
+  private File getImpactReport() {
+    new File(testProjectDir, 'build/reports/txt/testImpact/test.txt')
+  }
 }
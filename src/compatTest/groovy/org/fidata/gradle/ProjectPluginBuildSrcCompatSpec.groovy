@@ -23,8 +23,9 @@
 package org.fidata.gradle
 
 import static org.fidata.testfixtures.TestFixtures.initEmptyGitRepository
+import static org.fidata.testfixtures.gradle.SharedTestKit.createRunner
+import static org.fidata.testfixtures.gradle.SharedTestKit.warmUp
 import com.google.common.collect.ImmutableMap
-import org.gradle.testkit.runner.GradleRunner
 import spock.lang.Specification
 
 /**
@@ -57,7 +58,9 @@ class ProjectPluginBuildSrcCompatSpec extends Specification {
   // fixture methods
 
   // run before the first feature method
-  // void setupSpec() { }
+  void setupSpec() {
+    warmUp()
+  }
 
   // run before every feature method
   void setup() {
@@ -105,11 +108,8 @@ class ProjectPluginBuildSrcCompatSpec extends Specification {
     given: 'buildSrc does\'t have its own gradle.properties'
 
     when: 'Gradle task is being run for main project'
-    GradleRunner.create()
-      .withGradleVersion(System.getProperty('compat.gradle.version'))
-      .withProjectDir(testProjectDir)
+    createRunner(testProjectDir)
       .withArguments('--full-stacktrace')
-      .withPluginClasspath()
       .forwardOutput()
       .build()
 
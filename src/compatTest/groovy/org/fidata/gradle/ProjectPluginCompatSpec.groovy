@@ -22,8 +22,13 @@
 package org.fidata.gradle
 
 import static org.fidata.testfixtures.TestFixtures.initEmptyGitRepository
+import static org.fidata.testfixtures.gradle.SharedTestKit.createRunner
+import static org.fidata.testfixtures.gradle.SharedTestKit.warmUp
 import com.google.common.collect.ImmutableMap
+import groovy.json.JsonSlurper
+import org.gradle.testkit.runner.BuildResult
 import org.gradle.testkit.runner.GradleRunner
+import org.gradle.testkit.runner.TaskOutcome
 import spock.lang.Specification
 import spock.lang.Unroll
 
@@ -48,10 +53,18 @@ class ProjectPluginCompatSpec extends Specification {
     'gpgKeyId'            : 'ABCD1234',
   ])
 
+  /**
+   * Version put into the cache instead of inferred one
+   * to tell whether the cache is used
+   */
+  static final String CACHED_VERSION = '0.0.0-cached'
+
   // fixture methods
 
   // run before the first feature method
-  // void setupSpec() { }
+  void setupSpec() {
+    warmUp()
+  }
 
   // run before every feature method
   void setup() {
@@ -97,22 +110,16 @@ class ProjectPluginCompatSpec extends Specification {
     ].each { List<String> it -> it.execute((List)null, testProjectDir).waitFor() }
 
     when: 'generateChangelog task is run'
-    GradleRunner.create()
-      .withGradleVersion(System.getProperty('compat.gradle.version'))
-      .withProjectDir(testProjectDir)
+    createRunner(testProjectDir)
       .withArguments('generateChangelog', '--full-stacktrace')
-      .withPluginClasspath()
       .build()
 
     then: 'CHANGELOG.md is generated inside build/changelog directory'
     new File(testProjectDir, 'build/changelog/CHANGELOG.md').exists()
 
     when: 'generateChangelogTxt task is run'
-    GradleRunner.create()
-      .withGradleVersion(System.getProperty('compat.gradle.version'))
-      .withProjectDir(testProjectDir)
+    createRunner(testProjectDir)
       .withArguments('generateChangelogTxt', '--full-stacktrace')
-      .withPluginClasspath()
       .forwardOutput()
       .build()
 
@@ -155,11 +162,8 @@ class ProjectPluginCompatSpec extends Specification {
     if (shouldRelease != null) {
       gradleArguments << "-PshouldRelease=$shouldRelease".toString()
     }
-    GradleRunner.create()
-      .withGradleVersion(System.getProperty('compat.gradle.version'))
-      .withProjectDir(testProjectDir)
+    createRunner(testProjectDir)
       .withArguments(gradleArguments)
-      .withPluginClasspath()
       .forwardOutput()
       .build()
 
@@ -182,5 +186,149 @@ class ProjectPluginCompatSpec extends Specification {
     shouldReleaseState = shouldRelease == null ? 'is not provided' : "is set to $shouldRelease"
   }
 
+  void 'records build trace when buildTrace property is set'() {
+    given: 'tasks with different outcomes'
+    buildFile << '''\
+      tasks.register('executedTask') {
+        doLast { }
+      }
+      tasks.register('skippedTask') {
+        onlyIf { false }
+        doLast { }
+      }
+      tasks.register('traceTask') {
+        dependsOn 'executedTask', 'skippedTask'
+      }
+    '''.stripIndent()
+
+    when: 'traceTask task is run without buildTrace property'
+    createRunner(testProjectDir)
+      .withArguments('traceTask', '--offline', '--full-stacktrace')
+      .build()
+
+    then: 'trace is not recorded'
+    !traceFile.exists()
+
+    when: 'traceTask task is run with buildTrace property set to true'
+    createRunner(testProjectDir)
+      .withArguments('traceTask', '-PbuildTrace=true', '--offline', '--full-stacktrace')
+      .build()
+    Map<String, Object> trace = (Map<String, Object>)new JsonSlurper().parse(traceFile)
+    List<Map<String, Object>> traceEvents = (List<Map<String, Object>>)trace['traceEvents']
+    Map<Object, String> laneNames = traceEvents.findAll { Map<String, Object> event -> event['ph'] == 'M' }.collectEntries { Map<String, Object> event ->
+      [(event['tid']): ((Map<String, Object>)event['args'])['name']]
+    }
+    Map<String, Map<String, Object>> events = traceEvents.findAll { Map<String, Object> event -> event['ph'] == 'X' }.collectEntries { Map<String, Object> event ->
+      [(event['name']): event]
+    }
+
+    then: 'configuration phase of root project is recorded in configuration lane'
+    events[':']['cat'] == 'configuration'
+    laneNames[events[':']['tid']] == 'Configuration'
+    ((Map<String, Object>)events[':']['args'])['outcome'] == 'EXECUTED'
+
+    and: 'each executed task is recorded with its outcome'
+    ((Map<String, Object>)events[':executedTask']['args'])['outcome'] == 'EXECUTED'
+    ((Map<String, Object>)events[':skippedTask']['args'])['outcome'] == 'SKIPPED'
+    ((Map<String, Object>)events[':traceTask']['args'])['outcome'] == 'UP-TO-DATE'
+    ['executedTask', 'skippedTask', 'traceTask'].every { String taskName ->
+      Map<String, Object> event = events[":$taskName".toString()]
+      event['cat'] == 'task' && event['tid'] != events[':']['tid'] && laneNames.containsKey(event['tid']) && (long)event['dur'] >= 0
+    }
+
+    and: 'tasks are recorded in execution order'
+    (long)events[':executedTask']['ts'] <= (long)events[':traceTask']['ts']
+
+    (success = true) != null
+  }
+
+  @Unroll
+  void 'verifyReproducibleArchives task #verb when archive #isReproducible'() {
+    given: 'archive task'
+    new File(testProjectDir, 'src/dist').mkdirs()
+    new File(testProjectDir, 'src/dist/file.txt').text = 'content\n'
+    buildFile << """\
+      tasks.register('dist', Zip) {
+        from 'src/dist'
+        archiveFileName = 'dist.zip'
+        destinationDirectory = file("\$buildDir/dist")
+        ${ reproducible ? '' : 'filter { String line -> "\$line \${ System.nanoTime() }".toString() }' }
+      }
+    """.stripIndent()
+
+    when: 'verifyReproducibleArchives task is run'
+    GradleRunner runner = createRunner(testProjectDir)
+      .withArguments('verifyReproducibleArchives', '--offline', '--full-stacktrace')
+    BuildResult result = reproducible ? runner.build() : runner.buildAndFail()
+
+    then: 'archive is rebuilt into separate directory'
+    result.task(':distRebuild').outcome == TaskOutcome.SUCCESS
+    new File(testProjectDir, 'build/tmp/distRebuild/dist.zip').exists()
+
+    and: 'archives are compared'
+    result.task(':distVerifyReproducible').outcome == (reproducible ? TaskOutcome.SUCCESS : TaskOutcome.FAILED)
+    reproducible || result.output.contains('is not reproducible')
+
+    (success = true) != null
+
+    where:
+    reproducible << [true, false]
+    verb = reproducible ? 'succeeds' : 'fails'
+    isReproducible = reproducible ? 'is reproducible' : 'is not reproducible'
+  }
+
+  void 'reuses cached version while repository state is not changed'() {
+    given: 'committed build script printing version'
+    buildFile << '''\
+      task printVersion {
+        doLast {
+          println "version=$version"
+        }
+      }
+    '''.stripIndent()
+    [
+      ['git', 'add', 'build.gradle'],
+      ['git', 'commit', '--message', 'feat: build script', '--no-gpg-sign'],
+    ].each { List<String> it -> it.execute((List)null, testProjectDir).waitFor() }
+    and: 'version is inferred and cached'
+    runPrintVersion()
+    File cacheFile = new File(testProjectDir, '.gradle/versionInference.properties')
+    and: 'cached version is replaced with marker'
+    Properties cache = new Properties()
+    cacheFile.withReader('UTF-8') { Reader reader -> cache.load reader }
+    cache.setProperty 'version', CACHED_VERSION
+    cacheFile.withWriter('UTF-8') { Writer writer -> cache.store writer, null }
+
+    when: 'build is run once again'
+    BuildResult result = runPrintVersion()
+
+    then: 'cached version is used'
+    result.output.contains("version=$CACHED_VERSION")
+
+    when: 'tracked file is changed without staging'
+    buildFile << '// Change\n'
+    and: 'build is run once again'
+    result = runPrintVersion()
+
+    then: 'version is inferred again'
+    !result.output.contains("version=$CACHED_VERSION")
+    and: 'version inferred for dirty working tree is cached'
+    cacheFile.withReader('UTF-8') { Reader reader -> cache.load reader }
+    cache.getProperty('version') != CACHED_VERSION
+
+    (success = true) != null
+  }
+
   // helper methods
+
+  private BuildResult runPrintVersion() {
+    createRunner(testProjectDir)
+      .withArguments('printVersion', '--full-stacktrace')
+      .forwardOutput()
+      .build()
+  }
+
+  private File getTraceFile() {
+    new File(testProjectDir, 'build/reports/json/buildTrace.json')
+  }
 }
@@ -26,6 +26,7 @@ import com.google.common.collect.ImmutableMap
 import org.gradle.api.Project
 import org.gradle.api.Task
 import org.gradle.api.plugins.quality.CodeNarc
+import org.gradle.api.provider.Provider
 import org.gradle.testfixtures.ProjectBuilder
 import org.junit.Rule
 import org.junit.rules.TemporaryFolder
@@ -231,6 +232,101 @@ class ProjectPluginFunctionalSpec extends Specification {
     project.tasks.getByName('taskTree')
   }
 
+  @Unroll
+  void 'doesn\'t apply #pluginId plugin when none of its tasks is requested'() {
+    when: 'plugin is applied'
+    project.apply plugin: 'org.fidata.project'
+
+    then: '#pluginId plugin is not applied'
+    !project.pluginManager.hasPlugin(pluginId)
+
+    when: '#taskName task is looked up by name, e.g. as a dependency'
+    project.tasks.getByName(taskName)
+
+    then: '#pluginId plugin is applied'
+    project.pluginManager.hasPlugin(pluginId)
+
+    where:
+    pluginId                        | taskName
+    'com.dorongold.task-tree'       | 'taskTree'
+    'org.gradle.project-report'     | 'projectReport'
+    'com.github.ben-manes.versions' | 'dependencyUpdates'
+  }
+
+  @Unroll
+  void 'applies #pluginId plugin when #requestedTask task is requested'() {
+    given: '#requestedTask task is requested'
+    project.gradle.startParameter.taskNames = [requestedTask]
+
+    when: 'plugin is applied'
+    project.apply plugin: 'org.fidata.project'
+
+    then: '#pluginId plugin is applied'
+    project.pluginManager.hasPlugin(pluginId)
+
+    where:
+    pluginId                        | requestedTask
+    'com.dorongold.task-tree'       | ':build:taskTree'
+    'org.gradle.project-report'     | 'pR'
+    'com.github.ben-manes.versions' | 'outdatedDependencies'
+  }
+
+  void 'provides aggregateDependencyUpdates task in root project only'() {
+    given: 'subproject'
+    Project subproject = ProjectBuilder.builder().withParent(project).withName('sub').build()
+
+    when: 'plugin is applied'
+    project.apply plugin: 'org.fidata.project'
+
+    then: 'aggregateDependencyUpdates task exists in root project'
+    project.tasks.getByName('aggregateDependencyUpdates')
+    and: 'aggregateDependencyUpdates task doesn\'t exist in subproject'
+    !subproject.tasks.findByName('aggregateDependencyUpdates')
+  }
+
+  void 'provides prefetchDependencies task resolving configurations of all projects'() {
+    given: 'local file repository'
+    File repositoryDir = testProjectDir.newFolder('repository')
+    File moduleDir = new File(repositoryDir, 'com/example/lib/1.0')
+    moduleDir.mkdirs()
+    new File(moduleDir, 'lib-1.0.pom').text = """\
+      <project>
+        <modelVersion>4.0.0</modelVersion>
+        <groupId>com.example</groupId>
+        <artifactId>lib</artifactId>
+        <version>1.0</version>
+      </project>
+    """.stripIndent()
+    File jarFile = new File(moduleDir, 'lib-1.0.jar')
+    jarFile.bytes = new byte[1024]
+    and: 'subproject'
+    Project subproject = ProjectBuilder.builder().withParent(project).withName('sub').build()
+
+    when: 'plugin is applied'
+    project.apply plugin: 'org.fidata.project'
+    and: 'subproject depends on module in local repository only'
+    subproject.repositories.maven { url = repositoryDir.toURI() }
+    subproject.configurations.create('prefetched')
+    subproject.dependencies.add 'prefetched', 'com.example:lib:[1.0, 2['
+
+    then: 'prefetchDependencies task exists in root project'
+    Task prefetchDependencies = project.tasks.getByName('prefetchDependencies')
+    and: 'prefetchDependencies task depends on prefetchProjectDependencies tasks of all projects'
+    Task subprojectPrefetch = subproject.tasks.getByName('prefetchProjectDependencies')
+    prefetchDependencies.taskDependencies.getDependencies(prefetchDependencies).containsAll([project.tasks.getByName('prefetchProjectDependencies'), subprojectPrefetch])
+
+    when: 'subproject dependencies are prefetched'
+    prefetchDependencies.recorder.get().start project.allprojects
+    subprojectPrefetch.prefetch()
+    prefetchDependencies.generate()
+
+    then: 'report contains bytes read from local repository'
+    String report = prefetchDependencies.reportFile.get().asFile.text
+    report.contains("(${ repositoryDir.toURI() }): 1 requests, ${ jarFile.length() } bytes")
+    and: 'report contains resolved configuration'
+    report.contains(":sub:prefetched: 1 artifacts, ${ jarFile.length() } bytes")
+  }
+
   void 'sets project group by default'() {
     when: 'plugin is applied'
     project.apply plugin: 'org.fidata.project'
@@ -276,15 +372,22 @@ class ProjectPluginFunctionalSpec extends Specification {
     then: 'no exception is thrown'
     noExceptionThrown()
 
+    when: 'license property is being set with SPDX license identifier in different case'
+    project.license = 'apache-2.0'
+
+    then: 'license property is normalized'
+    project.license == 'Apache-2.0'
+
     /*
-     * WORKAROUND:
-     * Standard exception still requires its text provided,
-     * otherwise we got validation error: Missing required license exception text.
-     * See https://github.com/spdx/tools/issues/186
-     * <grv87 2019-04-09>
+     * Expression is validated against SPDX License List index,
+     * so standard exception doesn't require its text
+     * (see https://github.com/spdx/tools/issues/186)
      */
-    /*when: 'license property is being set with valid SPDX license identifier with exception'
-    project.license = 'GPL-2.0-only WITH Classpath-exception-2.0'*/
+    when: 'license property is being set with valid SPDX license identifier with exception'
+    project.license = 'GPL-2.0-only WITH Classpath-exception-2.0'
+
+    then: 'no exception is thrown'
+    noExceptionThrown()
 
     when: 'spdxLicenseInfo property is being set with valid SPDX license info with exception and exception text'
     AnyLicenseInfo spdxLicenseInfo = LicenseInfoFactory.parseSPDXLicenseString('GPL-2.0-only WITH Classpath-exception-2.0')
@@ -362,5 +465,33 @@ class ProjectPluginFunctionalSpec extends Specification {
     noExceptionThrown()
   }
 
+  void 'memoizes isRelease property only after version is inferred'() {
+    given: 'plugin is applied'
+    project.apply plugin: 'org.fidata.project'
+    Object delayedVersion = project.version
+    Provider<Boolean> isRelease = project.convention.getPlugin(RootProjectConvention).isRelease
+
+    when: 'version is not inferred yet'
+    project.version = '1.0.0-SNAPSHOT'
+
+    then: 'isRelease reflects current version'
+    !isRelease.get()
+
+    when: 'version is changed'
+    project.version = '1.0.0'
+
+    then: 'isRelease reflects changed version'
+    isRelease.get()
+
+    when: 'version is inferred'
+    project.version = delayedVersion
+    boolean inferredIsRelease = isRelease.get()
+    and: 'version is changed once again'
+    project.version = inferredIsRelease ? '1.0.0-SNAPSHOT' : '1.0.0'
+
+    then: 'isRelease is not changed'
+    isRelease.get() == inferredIsRelease
+  }
+
   // helper methods
 }
@@ -0,0 +1,164 @@
+#!/usr/bin/env groovy
+/*
+ * Specification for AggregateDependencyUpdates class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import groovy.util.slurpersupport.GPathResult
+import org.gradle.api.Action
+import org.gradle.api.Project
+import org.gradle.api.Task
+import org.gradle.testfixtures.ProjectBuilder
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+/**
+ * Specification for {@link AggregateDependencyUpdates} class.
+ * Local file Maven repository is used
+ */
+class AggregateDependencyUpdatesSpec extends Specification {
+  // fields
+  @Rule
+  final TemporaryFolder testDir = new TemporaryFolder()
+
+  Project project
+
+  File repoDir
+
+  // fixture methods
+
+  // run before the first feature method
+  // void setupSpec() { }
+
+  // run before every feature method
+  void setup() {
+    project = ProjectBuilder.builder().withProjectDir(testDir.newFolder('project')).build()
+    repoDir = testDir.newFolder('repo')
+    writeMetadata 'foo', ['1.0.0', '1.1.0', '2.0.0-rc1']
+    writeMetadata 'bar', ['1.0.0', '1.5.0']
+    writeMetadata 'baz', ['2.0.0']
+    new File(repoDir, 'com/example/malformed').mkdirs()
+    new File(repoDir, 'com/example/malformed/maven-metadata.xml').text = '<metadata><versioning>'
+    project.repositories.maven { it.url = repoDir.toURI() }
+  }
+
+  // run after every feature method
+  // void cleanup() { }
+
+  // run after the last feature method
+  // void cleanupSpec() { }
+
+  // feature methods
+
+  void 'reports status of declared dependencies'() {
+    given: 'dependencies declared in several configurations'
+    project.configurations.create('first')
+    project.configurations.create('second')
+    project.dependencies.with {
+      add 'first', 'com.example:foo:1.0.0'
+      add 'second', 'com.example:foo:1.1.0'
+      add 'first', 'com.example:bar:[1.0,2.0)'
+      add 'first', 'com.example:baz:3.0.0'
+      add 'first', 'com.example:missing:1.0.0'
+      add 'first', 'com.example:malformed:1.0.0'
+    }
+    and: 'aggregateDependencyUpdates task'
+    AggregateDependencyUpdates task = createTask()
+
+    when: 'task is run'
+    execute task
+
+    then: 'report contains status of each declared version'
+    getReport(task) == [
+      'com.example:bar:[1.0,2.0)': ['current', '1.5.0'],
+      'com.example:baz:3.0.0': ['exceeded', '2.0.0'],
+      'com.example:foo:1.0.0': ['outdated', '1.1.0'],
+      'com.example:foo:1.1.0': ['current', '1.1.0'],
+      'com.example:malformed:1.0.0': ['unresolved', null],
+      'com.example:missing:1.0.0': ['unresolved', null],
+    ]
+  }
+
+  void 'reports pre-release versions when revision is not release'() {
+    given: 'dependency'
+    project.configurations.create('first')
+    project.dependencies.add 'first', 'com.example:foo:1.1.0'
+    and: 'aggregateDependencyUpdates task looking for any versions'
+    AggregateDependencyUpdates task = createTask()
+    task.revision.set 'milestone'
+
+    when: 'task is run'
+    execute task
+
+    then: 'pre-release version is reported as the latest'
+    getReport(task) == ['com.example:foo:1.1.0': ['outdated', '2.0.0-rc1']]
+  }
+
+  // helper methods
+
+  private void writeMetadata(String name, List<String> versions) {
+    File dir = new File(repoDir, "com/example/$name")
+    dir.mkdirs()
+    new File(dir, 'maven-metadata.xml').text = """\
+      <?xml version="1.0" encoding="UTF-8"?>
+      <metadata>
+        <groupId>com.example</groupId>
+        <artifactId>$name</artifactId>
+        <versioning>
+          <versions>
+            ${ versions.collect { String version -> "<version>$version</version>" }.join('\n') }
+          </versions>
+        </versioning>
+      </metadata>
+    """.stripIndent().trim()
+  }
+
+  private AggregateDependencyUpdates createTask() {
+    project.tasks.create('aggregateDependencyUpdates', AggregateDependencyUpdates) { AggregateDependencyUpdates task ->
+      task.outputFile.set project.layout.buildDirectory.file('dependencyUpdates/aggregate.xml')
+      task.cacheDir.set testDir.newFolder('cache')
+      task.maxParallelism.set 2
+    }
+  }
+
+  /**
+   * Reads report
+   * @param task task
+   * @return map of dependency coordinates to status and the latest version
+   */
+  private static Map<String, List<String>> getReport(AggregateDependencyUpdates task) {
+    GPathResult response = new XmlSlurper().parse(task.outputFile.get().asFile)
+    response.'dependency'.collectEntries { GPathResult dependency ->
+      [
+        ("${ dependency.@group }:${ dependency.@name }:${ dependency.@version }".toString()): [
+          dependency.@status.toString(),
+          dependency.@latest.size() > 0 ? dependency.@latest.toString() : null,
+        ]
+      ]
+    }
+  }
+
+  private static void execute(Task task) {
+    task.actions.each { Action<? super Task> action ->
+      action.execute task
+    }
+  }
+}
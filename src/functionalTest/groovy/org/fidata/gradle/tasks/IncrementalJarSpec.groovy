@@ -0,0 +1,135 @@
+#!/usr/bin/env groovy
+/*
+ * Specification for IncrementalJar class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import org.gradle.api.Action
+import org.gradle.api.Project
+import org.gradle.api.Task
+import org.gradle.testfixtures.ProjectBuilder
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+/**
+ * Specification for {@link IncrementalJar} class
+ */
+class IncrementalJarSpec extends Specification {
+  // fields
+  @Rule
+  final TemporaryFolder testDir = new TemporaryFolder()
+
+  Project project
+
+  File sourceDir
+
+  // fixture methods
+
+  // run before the first feature method
+  // void setupSpec() { }
+
+  // run before every feature method
+  void setup() {
+    project = ProjectBuilder.builder().withProjectDir(testDir.newFolder('project')).build()
+    sourceDir = project.file('src')
+    writeSource 'a.txt', 'a'
+    writeSource 'b.txt', 'b'
+    writeSource 'dir/c.txt', 'c'
+  }
+
+  // run after every feature method
+  // void cleanup() { }
+
+  // run after the last feature method
+  // void cleanupSpec() { }
+
+  // feature methods
+
+  void 'builds the same archive as from scratch reusing unchanged entries'() {
+    given: 'incremental jar task'
+    IncrementalJar incrementalJar = createJar('incrementalJar', true)
+
+    when: 'archive is built for the first time'
+    execute incrementalJar
+
+    then: 'all file entries are compressed'
+    incrementalJar.reusedEntries == 0
+    incrementalJar.compressedEntries == 4 // 3 files and manifest
+
+    when: 'one file is changed, one is added and one is removed'
+    writeSource 'b.txt', 'changed b'
+    writeSource 'dir/d.txt', 'd'
+    new File(sourceDir, 'dir/c.txt').delete()
+    and: 'archive is built incrementally'
+    execute incrementalJar
+    and: 'the same archive is built from scratch'
+    IncrementalJar scratchJar = createJar('scratchJar', false)
+    execute scratchJar
+
+    then: 'unchanged entries are copied from the previous archive'
+    incrementalJar.reusedEntries == 2 // a.txt and manifest
+    incrementalJar.compressedEntries == 2 // b.txt and dir/d.txt
+    scratchJar.reusedEntries == 0
+    and: 'archives are byte-identical'
+    incrementalJar.archiveFile.get().asFile.bytes == scratchJar.archiveFile.get().asFile.bytes
+  }
+
+  void 'doesn\'t reuse archive changed outside of the task'() {
+    given: 'archive built incrementally'
+    IncrementalJar incrementalJar = createJar('incrementalJar', true)
+    execute incrementalJar
+
+    when: 'archive is changed'
+    incrementalJar.archiveFile.get().asFile.append([0] as byte[])
+    and: 'archive is built once again'
+    execute incrementalJar
+
+    then: 'all entries are compressed'
+    incrementalJar.reusedEntries == 0
+    incrementalJar.compressedEntries == 4
+  }
+
+  // helper methods
+
+  private void writeSource(String path, String content) {
+    File file = new File(sourceDir, path)
+    file.parentFile.mkdirs()
+    // Content is repeated so that it is really compressed
+    file.text = content * 1000
+  }
+
+  private IncrementalJar createJar(String name, boolean incremental) {
+    project.tasks.create(name, IncrementalJar) { IncrementalJar jar ->
+      jar.from sourceDir
+      jar.archiveFileName.set 'test.jar'
+      jar.destinationDirectory.set project.layout.buildDirectory.dir(name)
+      jar.preserveFileTimestamps = false
+      jar.reproducibleFileOrder = true
+      jar.incremental.set incremental
+    }
+  }
+
+  private static void execute(Task task) {
+    task.actions.each { Action<? super Task> action ->
+      action.execute task
+    }
+  }
+}
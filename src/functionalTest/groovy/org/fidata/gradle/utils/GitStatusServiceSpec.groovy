@@ -0,0 +1,126 @@
+#!/usr/bin/env groovy
+/*
+ * Specification for GitStatusService class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import static org.fidata.testfixtures.TestFixtures.initEmptyGitRepository
+import com.google.common.collect.ImmutableMap
+import org.ajoberstar.grgit.Status
+import org.gradle.api.Project
+import org.gradle.api.Task
+import org.gradle.testfixtures.ProjectBuilder
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+/**
+ * Specification for {@link GitStatusService} class.
+ * Version inference cache is turned off
+ * since it gets status during configuration
+ */
+class GitStatusServiceSpec extends Specification {
+  // fields
+  @Rule
+  final TemporaryFolder testProjectDir = new TemporaryFolder()
+
+  Project project
+
+  static final Map<String, String> EXTRA_PROPERTIES = ImmutableMap.copyOf([
+    'artifactoryUser'    : 'dummyArtifactoryUser',
+    'artifactoryPassword': 'dummyArtifactoryPassword',
+    'gitUsername': 'dummyGitUser',
+    'gitPassword': 'dummyGitPassword',
+    'ghToken': 'dummyGhToken',
+    'gpgKeyId': 'ABCD1234',
+    'versionInferenceCache': 'false',
+  ])
+
+  // fixture methods
+
+  // run before the first feature method
+  // void setupSpec() { }
+
+  // run before every feature method
+  void setup() {
+    initEmptyGitRepository(testProjectDir.root)
+    project = ProjectBuilder.builder().withProjectDir(testProjectDir.root).build()
+    EXTRA_PROPERTIES.each { String key, String value ->
+      project.ext.setProperty key, value
+    }
+    project.apply plugin: 'org.fidata.project'
+    project.evaluate()
+  }
+
+  // run after every feature method
+  // void cleanup() { }
+
+  // run after the last feature method
+  // void cleanupSpec() { }
+
+  // feature methods
+
+  void 'doesn\'t get status when no publish task is executed'() {
+    expect: 'status is not got'
+    cachedStatus == null
+  }
+
+  void 'gets status once when publish task is executed'() {
+    given: 'publish task'
+    Task gitPublishCommit = project.tasks.getByName('gitPublishCommit')
+
+    when: 'task is about to be executed'
+    gitPublishCommit.onlyIf.isSatisfiedBy(gitPublishCommit)
+
+    then: 'status is got'
+    Status status = cachedStatus
+    status != null
+
+    when: 'other publish tasks are about to be executed'
+    Task gitPublishPush = project.tasks.getByName('gitPublishPush')
+    gitPublishPush.onlyIf.isSatisfiedBy(gitPublishPush)
+
+    then: 'status is not got once again'
+    cachedStatus.is(status)
+  }
+
+  void 'gets status once again when git index is changed'() {
+    given: 'status is got'
+    GitStatusService gitStatus = GitStatusService.getInstance(project)
+    Status status = gitStatus.status
+
+    when: 'new file is staged'
+    new File(testProjectDir.root, 'new.txt').text = 'new'
+    ['git', 'add', 'new.txt'].execute((List)null, testProjectDir.root).waitFor()
+
+    then: 'status is got once again'
+    !gitStatus.status.is(status)
+    and: 'it contains staged file'
+    gitStatus.status.staged.added.contains('new.txt')
+    and: 'working tree is not clean'
+    !gitStatus.clean
+  }
+
+  // helper methods
+
+  private Status getCachedStatus() {
+    GitStatusService.getInstance(project).@cachedStatus
+  }
+}
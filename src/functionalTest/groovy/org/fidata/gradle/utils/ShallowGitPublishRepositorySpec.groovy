@@ -0,0 +1,229 @@
+#!/usr/bin/env groovy
+/*
+ * Specification for ShallowGitPublishRepository class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import org.gradle.api.GradleException
+import org.gradle.api.Project
+import org.gradle.api.specs.Spec
+import org.gradle.testfixtures.ProjectBuilder
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+/**
+ * Specification for {@link ShallowGitPublishRepository} class.
+ * Local bare repository is used as remote one
+ */
+class ShallowGitPublishRepositorySpec extends Specification {
+  // fields
+  @Rule
+  final TemporaryFolder testDir = new TemporaryFolder()
+
+  static final String BRANCH = 'gh-pages'
+
+  static final String AUTHOR_NAME = 'Publisher'
+
+  static final String AUTHOR_EMAIL = 'publisher@example.com'
+
+  static final String AUTHOR = "$AUTHOR_NAME <$AUTHOR_EMAIL>"
+
+  static final Spec<String> SNAPSHOTS = new Spec<String>() {
+    @Override
+    boolean isSatisfiedBy(String dirName) {
+      dirName.endsWith('-SNAPSHOT')
+    }
+  }
+
+  Project project
+
+  File remoteDir
+
+  File repoDir
+
+  // fixture methods
+
+  // run before the first feature method
+  // void setupSpec() { }
+
+  // run before every feature method
+  void setup() {
+    project = ProjectBuilder.builder().withProjectDir(testDir.newFolder('project')).build()
+    remoteDir = testDir.newFolder('remote.git')
+    git remoteDir, 'init', '--quiet', '--bare'
+    repoDir = new File(testDir.root, 'repo')
+  }
+
+  // run after every feature method
+  // void cleanup() { }
+
+  // run after the last feature method
+  // void cleanupSpec() { }
+
+  // feature methods
+
+  void 'checks out only top-level files and directories to change'() {
+    given: 'remote branch with several versions'
+    pushInitialBranch()
+    ShallowGitPublishRepository repository = createRepository()
+
+    when: 'repository is reset'
+    repository.reset remoteDir.absolutePath, BRANCH, ['2.0.0'], SNAPSHOTS
+
+    then: 'top-level files are checked out'
+    new File(repoDir, 'index.html').file
+    and: 'current version and obsolete snapshot directories are checked out'
+    new File(repoDir, '2.0.0/javadoc/index.html').file
+    new File(repoDir, '1.1.0-SNAPSHOT/javadoc/index.html').file
+    and: 'other directories are not checked out'
+    !new File(repoDir, '1.0.0').exists()
+    and: 'only the tip commit is fetched'
+    new File(repoDir, '.git/shallow').file
+  }
+
+  void 'publishes changes without removing directories not checked out'() {
+    given: 'remote branch with several versions'
+    pushInitialBranch()
+    ShallowGitPublishRepository repository = createRepository()
+    repository.reset remoteDir.absolutePath, BRANCH, ['2.0.0'], SNAPSHOTS
+
+    when: 'obsolete snapshot is removed and new version is written'
+    new File(repoDir, '1.1.0-SNAPSHOT').deleteDir()
+    new File(repoDir, '2.0.0/javadoc/index.html').text = 'new'
+    boolean committed = repository.commit('docs: publish documentation')
+    and: 'branch is pushed'
+    repository.push BRANCH
+
+    then: 'commit is made'
+    committed
+    and: 'commit is made with provided identity'
+    git(remoteDir, 'log', '-1', '--format=%an <%ae>|%cn <%ce>', BRANCH).trim() == "$AUTHOR|$AUTHOR"
+    and: 'remote branch contains all other directories'
+    git(remoteDir, 'ls-tree', '-r', '--name-only', BRANCH).readLines() == [
+      '1.0.0/javadoc/index.html',
+      '2.0.0/javadoc/index.html',
+      'index.html',
+    ]
+
+    when: 'repository is reset once again'
+    repository.reset remoteDir.absolutePath, BRANCH, ['2.0.0'], SNAPSHOTS
+
+    then: 'there is nothing to commit'
+    !repository.commit('docs: publish documentation')
+  }
+
+  void 'creates branch when it does not exist'() {
+    given: 'empty remote repository'
+    ShallowGitPublishRepository repository = createRepository()
+
+    when: 'repository is reset'
+    repository.reset remoteDir.absolutePath, BRANCH, ['1.0.0'], SNAPSHOTS
+    and: 'documentation is written and published'
+    new File(repoDir, '1.0.0').mkdirs()
+    new File(repoDir, '1.0.0/index.html').text = 'doc'
+    repository.commit('docs: publish documentation')
+    repository.push BRANCH
+
+    then: 'remote branch is created'
+    git(remoteDir, 'ls-tree', '-r', '--name-only', BRANCH).readLines() == ['1.0.0/index.html']
+  }
+
+  void 'fails when remote repository is unavailable and branch exists locally'() {
+    given: 'documentation published once'
+    pushInitialBranch()
+    ShallowGitPublishRepository repository = createRepository()
+    repository.reset remoteDir.absolutePath, BRANCH, ['2.0.0'], SNAPSHOTS
+    new File(repoDir, '2.0.0/javadoc/index.html').text = 'new'
+    repository.commit('docs: publish documentation')
+    repository.push BRANCH
+    String tip = git(remoteDir, 'rev-parse', BRANCH).trim()
+
+    when: 'repository is reset with unavailable remote'
+    repository.reset new File(testDir.root, 'unavailable.git').absolutePath, BRANCH, ['2.0.0'], SNAPSHOTS
+
+    then: 'reset fails'
+    thrown(GradleException)
+    and: 'local branch is kept'
+    git(repoDir, 'rev-parse', "refs/heads/$BRANCH".toString()).trim() == tip
+    and: 'working tree is not cleaned'
+    new File(repoDir, '2.0.0/javadoc/index.html').text == 'new'
+    and: 'remote branch is not changed'
+    git(remoteDir, 'rev-parse', BRANCH).trim() == tip
+  }
+
+  void 'creates branch without history when remote branch was removed'() {
+    given: 'documentation published once'
+    pushInitialBranch()
+    ShallowGitPublishRepository repository = createRepository()
+    repository.reset remoteDir.absolutePath, BRANCH, ['2.0.0'], SNAPSHOTS
+    and: 'remote branch is removed'
+    git remoteDir, 'update-ref', '-d', "refs/heads/$BRANCH".toString()
+
+    when: 'repository is reset'
+    repository.reset remoteDir.absolutePath, BRANCH, ['3.0.0'], SNAPSHOTS
+    and: 'documentation is written and published'
+    new File(repoDir, '3.0.0').mkdirs()
+    new File(repoDir, '3.0.0/index.html').text = 'doc'
+    repository.commit('docs: publish documentation')
+    repository.push BRANCH
+
+    then: 'remote branch has single commit'
+    git(remoteDir, 'rev-list', '--count', BRANCH).trim() == '1'
+    and: 'remote branch contains only new documentation'
+    git(remoteDir, 'ls-tree', '-r', '--name-only', BRANCH).readLines() == ['3.0.0/index.html']
+  }
+
+  // helper methods
+
+  private ShallowGitPublishRepository createRepository() {
+    new ShallowGitPublishRepository(project, repoDir, null, null, project.providers.provider { AUTHOR_NAME }, project.providers.provider { AUTHOR_EMAIL })
+  }
+
+  private void pushInitialBranch() {
+    File workDir = testDir.newFolder('work')
+    git workDir, 'init', '--quiet'
+    git workDir, 'checkout', '--quiet', '-b', BRANCH
+    [
+      'index.html',
+      '1.0.0/javadoc/index.html',
+      '1.1.0-SNAPSHOT/javadoc/index.html',
+      '2.0.0/javadoc/index.html',
+    ].each { String path ->
+      File file = new File(workDir, path)
+      file.parentFile.mkdirs()
+      file.text = path
+    }
+    git workDir, 'add', '--all'
+    git workDir, 'commit', '--quiet', '--message', 'docs: initial', '--no-gpg-sign'
+    git workDir, 'push', '--quiet', remoteDir.absolutePath, BRANCH
+  }
+
+  /*
+   * Identity is provided only for commits of the spec itself,
+   * not for the ones of repository under test
+   */
+  private static String git(File dir, String... args) {
+    Process process = (['git', '-c', 'user.name=Test', '-c', 'user.email=test@example.com'] + args.toList()).execute((List)null, dir)
+    String output = process.inputStream.text
+    assert process.waitFor() == 0
+    output
+  }
+}
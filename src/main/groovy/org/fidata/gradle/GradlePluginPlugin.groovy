@@ -40,6 +40,7 @@ import java.nio.file.Path
 import java.nio.file.Paths
 import java.util.regex.Pattern
 import org.fidata.gradle.internal.AbstractProjectPlugin
+import org.fidata.gradle.tasks.TestImpactAnalysis
 import org.fidata.gradle.utils.PathDirector
 import org.fidata.gradle.utils.PluginDependeesUtils
 import org.fidata.gradle.utils.ReportPathDirectorException
@@ -55,6 +56,7 @@ import org.gradle.api.tasks.TaskProvider
 import org.gradle.api.tasks.bundling.Jar
 import org.gradle.api.tasks.testing.Test
 import org.gradle.plugin.devel.GradlePluginDevelopmentExtension
+import org.gradle.plugin.devel.tasks.PluginUnderTestMetadata
 import org.gradle.plugin.devel.tasks.ValidateTaskProperties
 import org.jfrog.gradle.plugin.artifactory.dsl.ArtifactoryPluginConvention
 import org.ysb33r.gradle.gradletest.TestSet
@@ -127,7 +129,61 @@ final class GradlePluginPlugin extends AbstractProjectPlugin implements Property
     }
   }
 
+  /**
+   * Name of task assembling plugin under test into a single jar
+   */
+  public static final String PLUGIN_UNDER_TEST_JAR_TASK_NAME = 'pluginUnderTestJar'
+
+  /**
+   * Name of system property set for test tasks
+   * pointing to TestKit directory shared between forks and builds
+   */
+  public static final String TEST_KIT_DIR_SYSTEM_PROPERTY_NAME = 'org.fidata.testKitDir'
+
+  /*
+   * CAVEAT:
+   * Plugin classpath provided by java-gradle-plugin contains class directories
+   * which are fingerprinted and loaded by each TestKit build.
+   * Single jar is cheaper, and it is rebuilt only when classes change
+   */
+  private void configurePluginUnderTest() {
+    TaskProvider<Jar> pluginUnderTestJarProvider = project.tasks.register(PLUGIN_UNDER_TEST_JAR_TASK_NAME, Jar) { Jar jar ->
+      jar.with {
+        description = 'Assembles a jar with plugin under test for TestKit'
+        from project.extensions.getByType(GradlePluginDevelopmentExtension).pluginSourceSet.output
+        destinationDirectory.set project.layout.buildDirectory.dir('pluginUnderTest')
+        archiveFileName.set 'plugin-under-test.jar'
+        preserveFileTimestamps = false
+        reproducibleFileOrder = true
+        outputs.cacheIf { true }
+      }
+    }
+
+    project.tasks.withType(PluginUnderTestMetadata).configureEach { PluginUnderTestMetadata pluginUnderTestMetadata ->
+      SourceSet pluginSourceSet = project.extensions.getByType(GradlePluginDevelopmentExtension).pluginSourceSet
+      pluginUnderTestMetadata.pluginClasspath.setFrom pluginUnderTestJarProvider, pluginSourceSet.runtimeClasspath - pluginSourceSet.output
+    }
+
+    File testKitDir = new File(project.gradle.startParameter.projectCacheDir ?: new File(project.rootDir, '.gradle'), 'testKit')
+    project.tasks.withType(Test).matching { Test test -> test.name == FUNCTIONAL_TEST_TASK_NAME || test.name =~ COMPAT_TEST_TASK_NAME_PATTERN || test.name == 'gradleTest' }.configureEach { Test test ->
+      test.systemProperty TEST_KIT_DIR_SYSTEM_PROPERTY_NAME, testKitDir.absolutePath
+    }
+
+    /*
+     * TestKit builds use plugin classes in other process,
+     * so test classes have no bytecode dependencies on them
+     */
+    project.tasks.withType(TestImpactAnalysis).matching { TestImpactAnalysis testImpactAnalysis ->
+      String testName = testImpactAnalysis.name - JvmBasePlugin.TEST_IMPACT_ANALYSIS_TASK_NAME_SUFFIX
+      testName == FUNCTIONAL_TEST_TASK_NAME || testName =~ COMPAT_TEST_TASK_NAME_PATTERN || testName == 'gradleTest'
+    }.configureEach { TestImpactAnalysis testImpactAnalysis ->
+      testImpactAnalysis.indirectClassesDirs.from project.extensions.getByType(GradlePluginDevelopmentExtension).pluginSourceSet.output.classesDirs
+    }
+  }
+
   private void configureTesting() {
+    configurePluginUnderTest()
+
     project.tasks.withType(ValidateTaskProperties).configureEach { ValidateTaskProperties validateTaskProperties ->
       validateTaskProperties.with {
         outputFile.set project.convention.getPlugin(ProjectConvention).getTxtReportFile(VALIDATE_TASK_PROPERTIES_REPORT_DIRECTOR, validateTaskProperties)
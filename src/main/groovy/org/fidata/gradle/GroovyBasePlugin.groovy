@@ -25,14 +25,20 @@ import static java.nio.charset.StandardCharsets.UTF_8
 import groovy.transform.CompileStatic
 import groovy.transform.PackageScope
 import org.fidata.gradle.internal.AbstractProjectPlugin
+import org.fidata.gradle.tasks.IncrementalJar
 import org.fidata.gradle.utils.PluginDependeesUtils
 import org.gradle.api.NamedDomainObjectProvider
+import org.gradle.api.Task
 import org.gradle.api.artifacts.Configuration
+import org.gradle.api.execution.TaskExecutionGraph
+import org.gradle.api.internal.FeaturePreviews
+import org.gradle.api.internal.GradleInternal
 import org.gradle.api.provider.Property
 import org.gradle.api.tasks.TaskProvider
 import org.gradle.api.tasks.bundling.Jar
 import org.gradle.api.tasks.compile.GroovyCompile
 import org.gradle.api.tasks.javadoc.Groovydoc
+import org.gradle.util.GradleVersion
 
 /**
  * Provides tools for Groovy language
@@ -51,6 +57,10 @@ final class GroovyBasePlugin extends AbstractProjectPlugin {
       groovyCompile.options.encoding = UTF_8.name()
     }
 
+    if (project.extensions.extraProperties.has(GROOVY_COMPILE_PERFORMANCE_PROPERTY_NAME) && project.extensions.extraProperties[GROOVY_COMPILE_PERFORMANCE_PROPERTY_NAME].toString().toBoolean()) {
+      configureCompilePerformance()
+    }
+
     if (!isBuildSrc) {
       configureDocumentation()
 
@@ -58,6 +68,92 @@ final class GroovyBasePlugin extends AbstractProjectPlugin {
     }
   }
 
+  /**
+   * Name of property determining whether to apply Groovy compilation performance profile.
+   * False by default
+   */
+  public static final String GROOVY_COMPILE_PERFORMANCE_PROPERTY_NAME = 'groovyCompilePerformance'
+
+  /**
+   * Minimum Gradle version supporting Groovy compilation avoidance
+   * and incremental Groovy compilation
+   */
+  public static final String GROOVY_INCREMENTAL_COMPILATION_MINIMUM_GRADLE_VERSION = '5.6'
+
+  /**
+   * Name of feature preview enabling Groovy compilation avoidance
+   */
+  public static final String GROOVY_COMPILATION_AVOIDANCE_FEATURE_NAME = 'GROOVY_COMPILATION_AVOIDANCE'
+
+  /**
+   * Initial heap size of forked Groovy compiler in performance profile
+   */
+  public static final String GROOVY_COMPILER_MEMORY_INITIAL_SIZE = '256m'
+
+  /**
+   * Maximum heap size of forked Groovy compiler in performance profile
+   */
+  public static final String GROOVY_COMPILER_MEMORY_MAXIMUM_SIZE = '1g'
+
+  private static final String GROOVY_COMPILE_PERFORMANCE_VALIDATED_PROPERTY_NAME = 'org.fidata.groovyCompilePerformanceValidated'
+
+  /**
+   * Turns on incremental Groovy compilation where Gradle supports it,
+   * sets heap size of forked compiler
+   * so that joint compilation of large source sets doesn't thrash GC,
+   * and validates that compilation avoidance is effective
+   */
+  private void configureCompilePerformance() {
+    boolean incrementalSupported = GradleVersion.current() >= GradleVersion.version(GROOVY_INCREMENTAL_COMPILATION_MINIMUM_GRADLE_VERSION)
+
+    project.tasks.withType(GroovyCompile).configureEach { GroovyCompile groovyCompile ->
+      groovyCompile.groovyOptions.fork = true
+      groovyCompile.groovyOptions.forkOptions.memoryInitialSize = GROOVY_COMPILER_MEMORY_INITIAL_SIZE
+      groovyCompile.groovyOptions.forkOptions.memoryMaximumSize = GROOVY_COMPILER_MEMORY_MAXIMUM_SIZE
+      if (incrementalSupported) {
+        groovyCompile.options.incremental = true
+      }
+    }
+
+    /*
+     * Groovy compilation avoidance could be enabled only in settings script,
+     * so we can only check it.
+     * Build-wide problems are reported once per build
+     */
+    if (!project.rootProject.extensions.extraProperties.has(GROOVY_COMPILE_PERFORMANCE_VALIDATED_PROPERTY_NAME)) {
+      project.rootProject.extensions.extraProperties[GROOVY_COMPILE_PERFORMANCE_VALIDATED_PROPERTY_NAME] = true
+      if (!incrementalSupported) {
+        project.logger.warn('Groovy compilation performance profile: Gradle {} supports neither Groovy compilation avoidance nor incremental Groovy compilation. Upgrade to Gradle {} or later', GradleVersion.current().version, GROOVY_INCREMENTAL_COMPILATION_MINIMUM_GRADLE_VERSION)
+      } else if (!isCompilationAvoidanceEnabled()) {
+        project.logger.warn('Groovy compilation performance profile: Groovy compilation avoidance is not enabled. Add `enableFeaturePreview(\'{}\')` to settings.gradle', GROOVY_COMPILATION_AVOIDANCE_FEATURE_NAME)
+      }
+    }
+
+    // Build scripts and other plugins could override the profile after it is applied
+    project.gradle.taskGraph.whenReady { TaskExecutionGraph taskGraph ->
+      taskGraph.allTasks.each { Task task ->
+        if (task.project == project && GroovyCompile.isInstance(task)) {
+          GroovyCompile groovyCompile = (GroovyCompile)task
+          if (!groovyCompile.groovyOptions.fork) {
+            project.logger.warn('Groovy compilation performance profile: {} is not forked, forked compiler settings are not effective', groovyCompile.path)
+          }
+          if (incrementalSupported && !groovyCompile.options.incremental) {
+            project.logger.warn('Groovy compilation performance profile: incremental compilation is turned off for {}', groovyCompile.path)
+          }
+        }
+      }
+    }
+  }
+
+  private boolean isCompilationAvoidanceEnabled() {
+    FeaturePreviews featurePreviews = ((GradleInternal)project.gradle).services.get(FeaturePreviews)
+    try {
+      featurePreviews.isFeatureEnabled(FeaturePreviews.Feature.valueOf(GROOVY_COMPILATION_AVOIDANCE_FEATURE_NAME))
+    } catch (IllegalArgumentException ignored) {
+      false
+    }
+  }
+
   /**
    * Adds groovy to specific configuration
    * @param configuration configuration
@@ -81,11 +177,9 @@ final class GroovyBasePlugin extends AbstractProjectPlugin {
           groovydoc.link value.toString(), "$key."
         }
       }
+      groovydoc.noTimestamp = true
       if (!project.rootProject.convention.getPlugin(RootProjectConvention).isRelease.get()) {
-        groovydoc.with {
-          noTimestamp = true
-          noVersionStamp = true
-        }
+        groovydoc.noVersionStamp = true
       }
     }
   }
@@ -100,10 +194,10 @@ final class GroovyBasePlugin extends AbstractProjectPlugin {
    */
   public static final String GROOVYDOC_JAR_ARTIFACT_CLASSIFIER = 'groovydoc'
 
-  private TaskProvider<Jar> defaultGroovydocJarProvider
+  private TaskProvider<IncrementalJar> defaultGroovydocJarProvider
 
   @PackageScope
-  TaskProvider<Jar> getDefaultGroovydocJarProvider() {
+  TaskProvider<IncrementalJar> getDefaultGroovydocJarProvider() {
     this.@defaultGroovydocJarProvider
   }
 
@@ -116,7 +210,7 @@ final class GroovyBasePlugin extends AbstractProjectPlugin {
   }
 
   private void configureArtifacts() {
-    this.@defaultGroovydocJarProvider = project.tasks.register(GROOVYDOC_JAR_TASK_NAME, Jar) { Jar defaultGroovydocJar ->
+    this.@defaultGroovydocJarProvider = project.tasks.register(GROOVYDOC_JAR_TASK_NAME, IncrementalJar) { IncrementalJar defaultGroovydocJar ->
       defaultGroovydocJar.archiveClassifier.set GROOVYDOC_JAR_ARTIFACT_CLASSIFIER
     }
     this.@groovydocJar = project.objects.property(Jar).convention(defaultGroovydocJarProvider)
@@ -25,13 +25,21 @@ import static org.gradle.api.plugins.GroovyPlugin.GROOVYDOC_TASK_NAME
 import static org.gradle.api.plugins.JavaPlugin.API_CONFIGURATION_NAME
 import static org.gradle.api.plugins.JavaPlugin.API_ELEMENTS_CONFIGURATION_NAME
 import static org.gradle.api.plugins.JavaPlugin.JAVADOC_TASK_NAME
+import static org.gradle.api.tasks.SourceSet.MAIN_SOURCE_SET_NAME
 import groovy.transform.CompileStatic
 import org.ajoberstar.gradle.git.publish.GitPublishExtension
 import org.fidata.gradle.internal.AbstractProjectPlugin
+import org.fidata.gradle.tasks.ComputeApiHash
+import org.fidata.gradle.tasks.SyncApiDocSources
 import org.fidata.gradle.utils.PluginDependeesUtils
 import org.gradle.api.artifacts.Configuration
 import org.gradle.api.artifacts.ConfigurationVariant
 import org.gradle.api.artifacts.type.ArtifactTypeDefinition
+import org.gradle.api.file.SourceDirectorySet
+import org.gradle.api.internal.HasConvention
+import org.gradle.api.plugins.JavaPluginConvention
+import org.gradle.api.tasks.GroovySourceSet
+import org.gradle.api.tasks.SourceSet
 import org.gradle.api.tasks.TaskProvider
 import org.gradle.api.tasks.bundling.Jar
 import org.gradle.api.tasks.compile.GroovyCompile
@@ -77,14 +85,26 @@ final class GroovyProjectPlugin extends AbstractProjectPlugin {
     }
   }
 
+  @SuppressWarnings('UnnecessarySetter')
   private void configureDocumentation() {
     TaskProvider<Javadoc> javadocProvider = project.tasks.withType(Javadoc).named(JAVADOC_TASK_NAME)
     javadocProvider.configure { Javadoc javadoc ->
       javadoc.enabled = false
     }
+    SourceSet mainSourceSet = project.convention.getPlugin(JavaPluginConvention).sourceSets.getByName(MAIN_SOURCE_SET_NAME)
+    SourceDirectorySet groovySource = ((HasConvention)mainSourceSet).convention.getPlugin(GroovySourceSet).groovy
+    project.tasks.withType(ComputeApiHash).named(JvmBasePlugin.COMPUTE_API_HASH_TASK_NAME).configure { ComputeApiHash computeApiHash ->
+      computeApiHash.source.from mainSourceSet.java, groovySource
+    }
+    TaskProvider<SyncApiDocSources> apiDocSourcesProvider = project.tasks.withType(SyncApiDocSources).named(JvmBasePlugin.API_DOC_SOURCES_TASK_NAME)
+    apiDocSourcesProvider.configure { SyncApiDocSources apiDocSources ->
+      apiDocSources.source.from mainSourceSet.java, groovySource
+    }
     TaskProvider groovydocProvider = project.tasks.withType(Groovydoc).named(GROOVYDOC_TASK_NAME)
     groovydocProvider.configure { Groovydoc groovydoc ->
-      groovydoc.source javadocProvider.get().source
+      groovydoc.dependsOn apiDocSourcesProvider
+      groovydoc.setSource apiDocSourcesProvider.get().destinationDir
+      groovydoc.classpath = mainSourceSet.compileClasspath
     }
 
     project.rootProject.extensions.getByType(GitPublishExtension).contents.from(project.tasks.named('groovydoc')).into "$project.version/groovydoc"
@@ -34,7 +34,9 @@ import java.nio.file.Path
 import java.nio.file.Paths
 import org.ajoberstar.gradle.git.publish.GitPublishExtension
 import org.fidata.gradle.internal.AbstractProjectPlugin
+import org.fidata.gradle.tasks.ComputeApiHash
 import org.fidata.gradle.tasks.DelombokExtended
+import org.fidata.gradle.tasks.SyncApiDocSources
 import org.fidata.gradle.utils.PathDirector
 import org.fidata.gradle.utils.PluginDependeesUtils
 import org.fidata.gradle.utils.ReportPathDirectorException
@@ -87,15 +89,6 @@ final class JavaProjectPlugin extends AbstractProjectPlugin {
 
   public static final String DELOMBOK_TASK_NAME = 'delombok'
 
-  /*
-   * WORKAROUND:
-   * We have to use `setSource`, otherwise we got error:
-   * Caused by: org.codehaus.groovy.runtime.typehandling.GroovyCastException: Cannot cast object
-   * 'org.gradle.api.internal.tasks.DefaultTaskOutputs@198bfea7' with class
-   * 'org.gradle.api.internal.tasks.DefaultTaskOutputs' to class 'org.gradle.api.file.FileTree'
-   * <grv87 2018-08-01>
-   */
-  @SuppressWarnings('UnnecessarySetter')
   private void configureDelombok() {
     TaskProvider<DelombokExtended> delombokProvider = project.tasks.register(DELOMBOK_TASK_NAME, DelombokExtended) { DelombokExtended delombok ->
       delombok.with {
@@ -108,11 +101,11 @@ final class JavaProjectPlugin extends AbstractProjectPlugin {
       }
       null
     }
-    project.tasks.withType(Javadoc).named(JAVADOC_TASK_NAME).configure { Javadoc javadoc ->
-      javadoc.with {
-        dependsOn delombokProvider
-        setSource delombokProvider.get().outputs
-      }
+    project.tasks.withType(ComputeApiHash).named(JvmBasePlugin.COMPUTE_API_HASH_TASK_NAME).configure { ComputeApiHash computeApiHash ->
+      computeApiHash.source.from delombokProvider
+    }
+    project.tasks.withType(SyncApiDocSources).named(JvmBasePlugin.API_DOC_SOURCES_TASK_NAME).configure { SyncApiDocSources apiDocSources ->
+      apiDocSources.source.from delombokProvider
     }
   }
 
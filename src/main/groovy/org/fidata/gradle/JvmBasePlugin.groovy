@@ -26,14 +26,17 @@ import static java.nio.charset.StandardCharsets.UTF_8
 import static org.ajoberstar.gradle.git.release.base.BaseReleasePlugin.RELEASE_TASK_NAME
 import static org.gradle.api.plugins.JavaPlugin.API_CONFIGURATION_NAME
 import static org.gradle.api.plugins.JavaPlugin.COMPILE_CONFIGURATION_NAME
+import static org.gradle.api.plugins.JavaPlugin.JAVADOC_TASK_NAME
 import static org.gradle.api.plugins.JavaPlugin.TEST_TASK_NAME
 import static org.gradle.api.tasks.SourceSet.MAIN_SOURCE_SET_NAME
 import static org.gradle.api.tasks.SourceSet.TEST_SOURCE_SET_NAME
 import static org.gradle.initialization.IGradlePropertiesLoader.ENV_PROJECT_PROPERTIES_PREFIX
+import static org.gradle.language.base.plugins.LifecycleBasePlugin.CHECK_TASK_NAME
 import static org.gradle.language.base.plugins.LifecycleBasePlugin.VERIFICATION_GROUP
 import static org.jfrog.gradle.plugin.artifactory.task.ArtifactoryTask.ARTIFACTORY_PUBLISH_TASK_NAME
 import static org.gradle.api.publish.plugins.PublishingPlugin.PUBLISH_LIFECYCLE_TASK_NAME
 import com.google.common.collect.ImmutableSet
+import com.google.common.io.Resources
 import com.jfrog.bintray.gradle.BintrayExtension
 import com.jfrog.bintray.gradle.tasks.BintrayPublishTask
 import de.gliderpilot.gradle.semanticrelease.GitRepo
@@ -44,15 +47,31 @@ import groovy.transform.Memoized
 import groovy.transform.PackageScope
 import java.beans.PropertyChangeEvent
 import java.beans.PropertyChangeListener
+import java.nio.file.Files
 import java.nio.file.InvalidPathException
 import java.nio.file.Path
 import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
 import org.apache.commons.lang3.ArrayUtils
 import org.fidata.gradle.internal.AbstractProjectPlugin
+import org.fidata.gradle.tasks.AuditAnnotationProcessors
+import org.fidata.gradle.tasks.Checksums
+import org.fidata.gradle.tasks.IncrementalJar
 import org.fidata.gradle.tasks.CodeNarcTaskConvention
+import org.fidata.gradle.tasks.CompareJmhResults
+import org.fidata.gradle.tasks.ComputeApiHash
+import org.fidata.gradle.tasks.RenderSpockReports
+import org.fidata.gradle.tasks.SummarizeJfrRecordings
+import org.fidata.gradle.tasks.SyncApiDocSources
+import org.fidata.gradle.tasks.TestImpactAnalysis
 import org.fidata.gradle.utils.PathDirector
 import org.fidata.gradle.utils.PluginDependeesUtils
+import org.fidata.gradle.utils.RecompilationRecorder
 import org.fidata.gradle.utils.ReportPathDirectorException
+import org.fidata.gradle.utils.TestForkPolicy
+import org.fidata.gradle.utils.TestOutputCapture
+import org.gradle.api.GradleException
+import org.gradle.api.JavaVersion
 import org.gradle.api.NamedDomainObjectProvider
 import org.gradle.api.Namer
 import org.gradle.api.Project
@@ -60,7 +79,9 @@ import org.gradle.api.Task
 import org.gradle.api.artifacts.Configuration
 import org.gradle.api.artifacts.ModuleDependency
 import org.gradle.api.artifacts.repositories.MavenArtifactRepository
+import org.gradle.api.file.ConfigurableFileTree
 import org.gradle.api.file.CopySpec
+import org.gradle.api.file.FileCollection
 import org.gradle.api.plugins.JavaPluginConvention
 import org.gradle.api.plugins.quality.CodeNarc
 import org.gradle.api.plugins.quality.FindBugs
@@ -78,12 +99,16 @@ import org.gradle.api.publish.maven.MavenPublication
 import org.gradle.api.publish.maven.internal.publication.MavenPublicationInternal
 import org.gradle.api.publish.maven.internal.publisher.MavenNormalizedPublication
 import org.gradle.api.reporting.ReportingExtension
+import org.gradle.api.tasks.JavaExec
 import org.gradle.api.tasks.SourceSet
+import org.gradle.api.tasks.SourceSetContainer
 import org.gradle.api.tasks.TaskProvider
 import org.gradle.api.tasks.compile.JavaCompile
 import org.gradle.api.tasks.javadoc.Javadoc
 import org.gradle.api.tasks.testing.Test
 import org.gradle.api.tasks.testing.logging.TestExceptionFormat
+import org.gradle.api.tasks.testing.logging.TestLogEvent
+import org.gradle.api.tasks.testing.logging.TestLogging
 import org.gradle.external.javadoc.StandardJavadocDocletOptions
 import org.gradle.api.tasks.bundling.Jar
 import org.gradle.language.jvm.tasks.ProcessResources
@@ -91,6 +116,7 @@ import org.gradle.plugins.signing.Sign
 import org.gradle.plugins.signing.SigningExtension
 import org.jfrog.gradle.plugin.artifactory.dsl.ArtifactoryPluginConvention
 import org.jfrog.gradle.plugin.artifactory.task.ArtifactoryTask
+import org.gradle.util.GradleVersion
 
 /**
  * Provides an environment for a JDK project
@@ -176,9 +202,61 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
           }
         }
       }
-      if (!project.rootProject.convention.getPlugin(RootProjectConvention).isRelease.get()) {
-        ((StandardJavadocDocletOptions)javadoc.options).noTimestamp = true
+      ((StandardJavadocDocletOptions)javadoc.options).noTimestamp = true
+    }
+
+    configureApiDocSources()
+  }
+
+  /**
+   * Name of the task computing hash of public API and its documentation
+   */
+  public static final String COMPUTE_API_HASH_TASK_NAME = 'computeApiHash'
+
+  /**
+   * Name of the task copying documented sources
+   * when public API or its documentation changed
+   */
+  public static final String API_DOC_SOURCES_TASK_NAME = 'apiDocSources'
+
+  /*
+   * CAVEAT:
+   * Documentation tasks get their sources from the copy made by apiDocSources task,
+   * and their classpath doesn't include classes of the project itself.
+   * So they are up-to-date when only implementation changed.
+   * Documented sources are added by language plugins
+   */
+  /*
+   * WORKAROUND:
+   * We have to use `setSource`, otherwise we got error:
+   * Caused by: org.codehaus.groovy.runtime.typehandling.GroovyCastException: Cannot cast object
+   * 'org.gradle.api.internal.tasks.DefaultTaskOutputs@198bfea7' with class
+   * 'org.gradle.api.internal.tasks.DefaultTaskOutputs' to class 'org.gradle.api.file.FileTree'
+   * <grv87 2018-08-01>
+   */
+  @SuppressWarnings('UnnecessarySetter')
+  private void configureApiDocSources() {
+    SourceSet mainSourceSet = project.convention.getPlugin(JavaPluginConvention).sourceSets.getByName(MAIN_SOURCE_SET_NAME)
+    TaskProvider<ComputeApiHash> computeApiHashProvider = project.tasks.register(COMPUTE_API_HASH_TASK_NAME, ComputeApiHash) { ComputeApiHash computeApiHash ->
+      computeApiHash.with {
+        classesDirs.from mainSourceSet.output.classesDirs
+        classpath.from mainSourceSet.compileClasspath
+        hashFile.set new File(project.buildDir, 'apiHash.txt')
       }
+      null
+    }
+    TaskProvider<SyncApiDocSources> apiDocSourcesProvider = project.tasks.register(API_DOC_SOURCES_TASK_NAME, SyncApiDocSources) { SyncApiDocSources apiDocSources ->
+      apiDocSources.with {
+        dependsOn computeApiHashProvider
+        apiHashFile.set computeApiHashProvider.get().hashFile
+        destinationDir.set new File(project.buildDir, 'apiDocSources')
+      }
+      null
+    }
+    project.tasks.withType(Javadoc).named(JAVADOC_TASK_NAME).configure { Javadoc javadoc ->
+      javadoc.dependsOn apiDocSourcesProvider
+      javadoc.setSource apiDocSourcesProvider.get().destinationDir
+      javadoc.classpath = mainSourceSet.compileClasspath
     }
   }
 
@@ -251,6 +329,9 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
   @Internal
   static final String SPOCK_MODULE = 'spock-core'
 
+  @Internal
+  static final String SPOCK_JUNIT4_MODULE = 'spock-junit4'
+
   private static final Set<String> SPOCK_GROOVY_MODULES = ImmutableSet.of(
     'groovy-all',
     'groovy-json',
@@ -263,6 +344,67 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
     'groovy',
   )
 
+  /**
+   * Name of property determining how spock-reports are rendered.
+   * See {@link #SPOCK_REPORTS_MODE_INLINE}, {@link #SPOCK_REPORTS_MODE_DEFERRED}
+   * and {@link #SPOCK_REPORTS_MODE_LAZY}
+   */
+  public static final String SPOCK_REPORTS_MODE_PROPERTY_NAME = 'spockReportsMode'
+
+  /**
+   * HTML and aggregated JSON reports are rendered by test forks
+   * while tests run. This is the default
+   */
+  public static final String SPOCK_REPORTS_MODE_INLINE = 'inline'
+
+  /**
+   * Test forks write only per-spec JSON reports.
+   * HTML and aggregated JSON reports are rendered
+   * by separate task after test task is finished
+   */
+  public static final String SPOCK_REPORTS_MODE_DEFERRED = 'deferred'
+
+  /**
+   * Test forks write only per-spec JSON reports.
+   * HTML and aggregated JSON reports are rendered
+   * only when rendering task is requested
+   */
+  public static final String SPOCK_REPORTS_MODE_LAZY = 'lazy'
+
+  /**
+   * Suffix of name of task rendering spock-reports for test task
+   */
+  public static final String RENDER_SPOCK_REPORTS_TASK_NAME_SUFFIX = 'SpockReports'
+
+  /**
+   * Name of property determining whether to run Spock specs
+   * with Spock 2 on JUnit Platform
+   * instead of Spock 1 on JUnit 4 runner.
+   * False by default
+   */
+  public static final String SPOCK_JUNIT_PLATFORM_PROPERTY_NAME = 'spockJUnitPlatform'
+
+  /**
+   * Name of property with number of specs run concurrently inside one test fork
+   * when Spock runs on JUnit Platform.
+   * By default it is equal to the number of processors available to the fork.
+   * {@code 1} turns parallel execution off
+   */
+  public static final String SPOCK_PARALLELISM_PROPERTY_NAME = 'spockParallelism'
+
+  /**
+   * Name of system property with location of Spock configuration script
+   */
+  public static final String SPOCK_CONFIGURATION_SYSTEM_PROPERTY_NAME = 'spock.configuration'
+
+  private static final String SPOCK_JUNIT_PLATFORM_VERSION = '2.0'
+
+  private static final String SPOCK_REPORTS_JUNIT_PLATFORM_VERSION = '2.0'
+
+  private static final String SPOCK_REPORTS_TEMPLATE_REPORT_CREATOR = 'com.athaydes.spockframework.report.template.TemplateReportCreator'
+
+  private static final String SPOCK_SPEC_REPORT_TEMPLATE = Resources.toString(Resources.getResource(JvmBasePlugin, 'config/spock-reports/spec.json.template'), UTF_8)
+
   /**
    * Adds Spock to specified source set and tasks
    * @param sourceSet source set
@@ -282,12 +424,15 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
 
     project.pluginManager.apply GroovyBasePlugin
 
+    boolean spockJUnitPlatform = project.extensions.extraProperties.has(SPOCK_JUNIT_PLATFORM_PROPERTY_NAME) && project.extensions.extraProperties[SPOCK_JUNIT_PLATFORM_PROPERTY_NAME].toString().toBoolean()
+    String groovyVersion = (GroovySystem.version =~ /^\d+\.\d+/)[0].toString()
+
     sourceSetProvider.configure { SourceSet sourceSet ->
       project.dependencies.with {
         add(sourceSet.implementationConfigurationName, [
           group: SPOCK_GROUP,
           name: SPOCK_MODULE,
-          version: "1.3-groovy-${ (GroovySystem.version =~ /^\d+\.\d+/)[0] }"
+          version: spockJUnitPlatform ? "$SPOCK_JUNIT_PLATFORM_VERSION-groovy-$groovyVersion" : "1.3-groovy-$groovyVersion"
         ]) { ModuleDependency dependency ->
           SPOCK_GROOVY_MODULES.each { String spockGroovyModule ->
             dependency.exclude(
@@ -299,10 +444,31 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
         add(sourceSet.runtimeOnlyConfigurationName, [
           group: 'com.athaydes',
           name: 'spock-reports',
-          version: '[1, 2['
+          version: spockJUnitPlatform ? "$SPOCK_REPORTS_JUNIT_PLATFORM_VERSION-groovy-$groovyVersion" : '[1, 2['
         ]) { ModuleDependency dependency ->
           dependency.transitive = false
         }
+        if (spockJUnitPlatform) {
+          // JUnit 4 tests in the same source set are run by vintage engine
+          add(sourceSet.runtimeOnlyConfigurationName, [
+            group: 'org.junit.vintage',
+            name: 'junit-vintage-engine',
+            version: '[5.7, 6['
+          ])
+          // Spock 2 ignores JUnit 4 rules of specs without this extension
+          add(sourceSet.runtimeOnlyConfigurationName, [
+            group: SPOCK_GROUP,
+            name: SPOCK_JUNIT4_MODULE,
+            version: "$SPOCK_JUNIT_PLATFORM_VERSION-groovy-$groovyVersion"
+          ]) { ModuleDependency dependency ->
+            SPOCK_GROOVY_MODULES.each { String spockGroovyModule ->
+              dependency.exclude(
+                group: 'org.codehaus.groovy',
+                module: spockGroovyModule
+              )
+            }
+          }
+        }
       }
       project.plugins.withType(GroovyBasePlugin).configureEach { GroovyBasePlugin plugin ->
         plugin.addGroovyDependency project.configurations.named(sourceSet.implementationConfigurationName)
@@ -310,19 +476,52 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
     }
 
     ProjectConvention projectConvention = project.convention.getPlugin(ProjectConvention)
+    String spockReportsMode = project.extensions.extraProperties.has(SPOCK_REPORTS_MODE_PROPERTY_NAME) ? project.extensions.extraProperties[SPOCK_REPORTS_MODE_PROPERTY_NAME].toString() : SPOCK_REPORTS_MODE_INLINE
+    if (![SPOCK_REPORTS_MODE_INLINE, SPOCK_REPORTS_MODE_DEFERRED, SPOCK_REPORTS_MODE_LAZY].contains(spockReportsMode)) {
+      throw new GradleException("Unsupported $SPOCK_REPORTS_MODE_PROPERTY_NAME: $spockReportsMode")
+    }
     tasks.each { TaskProvider<Test> taskProvider ->
+      registerTestAnalysisTasks taskProvider
+      File spockHtmlReportDir = projectConvention.getHtmlReportDir(reportDirector, taskProvider)
+      File spockJsonReportDir = projectConvention.getJsonReportDir(reportDirector, taskProvider)
+      File spockSpecReportsDir = project.buildDir.toPath().resolve('spock-reports').resolve(reportDirector.determinePath(taskProvider)).toFile()
       taskProvider.configure { Test test ->
         test.with {
           reports.with {
             html.enabled = false
             junitXml.setDestination projectConvention.getXmlReportDir(reportDirector, taskProvider)
           }
-          File spockHtmlReportDir = projectConvention.getHtmlReportDir(reportDirector, taskProvider)
-          File spockJsonReportDir = projectConvention.getJsonReportDir(reportDirector, taskProvider)
-          systemProperty 'com.athaydes.spockframework.report.outputDir', spockHtmlReportDir.absolutePath
-          systemProperty 'com.athaydes.spockframework.report.aggregatedJsonReportDir', spockJsonReportDir.absolutePath
-          outputs.dir spockHtmlReportDir
-          outputs.dir spockJsonReportDir
+          if (spockJUnitPlatform) {
+            configureSpockJUnitPlatform test
+          }
+          if (spockReportsMode == SPOCK_REPORTS_MODE_INLINE) {
+            systemProperty 'com.athaydes.spockframework.report.outputDir', spockHtmlReportDir.absolutePath
+            systemProperty 'com.athaydes.spockframework.report.aggregatedJsonReportDir', spockJsonReportDir.absolutePath
+            outputs.dir spockHtmlReportDir
+            outputs.dir spockJsonReportDir
+          } else {
+            File specTemplateFile = new File(temporaryDir, 'spec.json.template')
+            File summaryTemplateFile = new File(temporaryDir, 'summary.template')
+            /*
+             * CAVEAT:
+             * Aggregated JSON report directory is not set,
+             * so forks don't contend on the shared aggregated report file.
+             * Summary template is empty, so each fork writes only an empty summary file
+             */
+            systemProperty 'com.athaydes.spockframework.report.IReportCreator', SPOCK_REPORTS_TEMPLATE_REPORT_CREATOR
+            systemProperty 'com.athaydes.spockframework.report.outputDir', spockSpecReportsDir.absolutePath
+            systemProperty "${ SPOCK_REPORTS_TEMPLATE_REPORT_CREATOR }.specTemplateFile".toString(), specTemplateFile.absolutePath
+            systemProperty "${ SPOCK_REPORTS_TEMPLATE_REPORT_CREATOR }.reportFileExtension".toString(), RenderSpockReports.SPEC_REPORT_FILE_EXTENSION
+            systemProperty "${ SPOCK_REPORTS_TEMPLATE_REPORT_CREATOR }.summaryTemplateFile".toString(), summaryTemplateFile.absolutePath
+            systemProperty "${ SPOCK_REPORTS_TEMPLATE_REPORT_CREATOR }.summaryFileName".toString(), 'summary.txt'
+            inputs.property 'spockSpecReportTemplate', SPOCK_SPEC_REPORT_TEMPLATE
+            outputs.dir spockSpecReportsDir
+            doFirst {
+              project.delete spockSpecReportsDir
+              specTemplateFile.setText SPOCK_SPEC_REPORT_TEMPLATE, UTF_8.name()
+              summaryTemplateFile.text = ''
+            }
+          }
         }
         /*
          * WORKAROUND:
@@ -333,6 +532,24 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
          */
         null
       }
+
+      if (spockReportsMode != SPOCK_REPORTS_MODE_INLINE) {
+        TaskProvider<RenderSpockReports> renderSpockReportsProvider = project.tasks.register("${ taskProvider.name }$RENDER_SPOCK_REPORTS_TASK_NAME_SUFFIX", RenderSpockReports) { RenderSpockReports renderSpockReports ->
+          renderSpockReports.with {
+            group = VERIFICATION_GROUP
+            description = "Renders spock-reports for $taskProvider.name task"
+            specReportsDir.set spockSpecReportsDir
+            htmlReportDir.set spockHtmlReportDir
+            jsonReportDir.set spockJsonReportDir
+            mustRunAfter taskProvider
+          }
+        }
+        if (spockReportsMode == SPOCK_REPORTS_MODE_DEFERRED) {
+          taskProvider.configure { Test test ->
+            test.finalizedBy renderSpockReportsProvider
+          }
+        }
+      }
     }
 
     project.plugins.withType(GroovyBasePlugin).configureEach { GroovyBasePlugin plugin -> // TODO: 4.9
@@ -342,6 +559,40 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
     }
   }
 
+  /**
+   * Configures test task to run Spock 2 on JUnit Platform.
+   * Specs are run concurrently,
+   * features of one spec are run in the same thread.
+   * Spock honors {@code @Isolated}, {@code @ResourceLock}
+   * and {@code @Execution} annotations of specs
+   * @param test test task
+   */
+  private void configureSpockJUnitPlatform(Test test) {
+    test.useJUnitPlatform()
+    String parallelism = project.extensions.extraProperties.has(SPOCK_PARALLELISM_PROPERTY_NAME) ? project.extensions.extraProperties[SPOCK_PARALLELISM_PROPERTY_NAME].toString() : null
+    if (parallelism != null && (!parallelism.integer || parallelism.toInteger() < 1)) {
+      throw new GradleException("$SPOCK_PARALLELISM_PROPERTY_NAME should be a positive integer, but is $parallelism")
+    }
+    String spockConfiguration = """\
+      import org.spockframework.runtime.model.parallel.ExecutionMode
+
+      runner {
+        parallel {
+          enabled ${ parallelism != '1' }
+          defaultSpecificationExecutionMode = ExecutionMode.CONCURRENT
+          defaultExecutionMode = ExecutionMode.SAME_THREAD
+          ${ parallelism != null ? "fixed($parallelism)" : 'dynamic(1.0)' }
+        }
+      }
+    """.stripIndent()
+    File spockConfigurationFile = new File(test.temporaryDir, 'SpockConfig.groovy')
+    test.systemProperty SPOCK_CONFIGURATION_SYSTEM_PROPERTY_NAME, spockConfigurationFile.absolutePath
+    test.inputs.property 'spockConfiguration', spockConfiguration
+    test.doFirst {
+      spockConfigurationFile.setText spockConfiguration, UTF_8.name()
+    }
+  }
+
   /**
    * Configures integration test source set classpath
    * See <a href="https://docs.gradle.org/current/userguide/java_testing.html#sec:configuring_java_integration_tests">https://docs.gradle.org/current/userguide/java_testing.html#sec:configuring_java_integration_tests</a>
@@ -406,6 +657,416 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
     addSpockDependency functionalTestSourceSetProvider, functionalTestProvider
   }
 
+  /**
+   * Name of JMH source set
+   */
+  public static final String JMH_SOURCE_SET_NAME = 'jmh'
+  /**
+   * Name of JMH source directory
+   */
+  public static final String JMH_SRC_DIR_NAME = 'jmh'
+  /**
+   * Name of JMH task
+   */
+  public static final String JMH_TASK_NAME = 'jmh'
+  /**
+   * Name of task comparing JMH results against baseline
+   */
+  public static final String JMH_COMPARE_TASK_NAME = 'jmhCompare'
+  /**
+   * Name of task storing JMH results as a new baseline
+   */
+  public static final String JMH_BASELINE_TASK_NAME = 'jmhBaseline'
+  /**
+   * Name of JMH baseline file, relative to JMH source directory
+   */
+  public static final String JMH_BASELINE_FILE_NAME = 'baseline.json'
+
+  /*
+   * WORKAROUND:
+   * Static fields annotated with @PackageScope are not accessible
+   * for inner classes (incl. closures)
+   * https://issues.apache.org/jira/browse/GROOVY-9043
+   * <grv87 2019-03-19>
+   */
+  @Internal
+  static final String JMH_GROUP = 'org.openjdk.jmh'
+
+  @Internal
+  static final String JMH_VERSION = '[1.21, 2['
+
+  private void configureBenchmarks() {
+    NamedDomainObjectProvider<SourceSet> jmhSourceSetProvider = project.convention.getPlugin(JavaPluginConvention).sourceSets.register(JMH_SOURCE_SET_NAME) { SourceSet sourceSet ->
+      sourceSet.java.srcDir project.file("src/$JMH_SRC_DIR_NAME/java")
+      sourceSet.resources.srcDir project.file("src/$JMH_SRC_DIR_NAME/resources")
+
+      configureIntegrationTestSourceSetClasspath sourceSet
+
+      project.dependencies.with {
+        add(sourceSet.implementationConfigurationName, [
+          group: JMH_GROUP,
+          name: 'jmh-core',
+          version: JMH_VERSION
+        ])
+        add(sourceSet.annotationProcessorConfigurationName, [
+          group: JMH_GROUP,
+          name: 'jmh-generator-annprocess',
+          version: JMH_VERSION
+        ])
+      }
+    }
+
+    ProjectConvention projectConvention = project.convention.getPlugin(ProjectConvention)
+    File jmhResultsFile = new File(projectConvention.getJsonReportDir(Paths.get(JMH_TASK_NAME)), 'results.json')
+    File jmhBaselineFile = project.file("src/$JMH_SRC_DIR_NAME/$JMH_BASELINE_FILE_NAME")
+
+    TaskProvider<JavaExec> jmhProvider = project.tasks.register(JMH_TASK_NAME, JavaExec) { JavaExec jmh ->
+      jmh.with {
+        group = VERIFICATION_GROUP
+        description = 'Runs JMH benchmarks'
+        shouldRunAfter project.tasks.named(TEST_TASK_NAME), project.tasks.named(FUNCTIONAL_TEST_TASK_NAME)
+        main = 'org.openjdk.jmh.Main'
+        classpath = jmhSourceSetProvider.get().runtimeClasspath
+        args '-rf', 'json', '-rff', jmhResultsFile.absolutePath
+        outputs.file jmhResultsFile
+        doFirst {
+          jmhResultsFile.parentFile.mkdirs()
+        }
+      }
+    }
+
+    project.tasks.register(JMH_COMPARE_TASK_NAME, CompareJmhResults) { CompareJmhResults compareJmhResults ->
+      compareJmhResults.with {
+        group = VERIFICATION_GROUP
+        description = 'Compares JMH results against stored baseline'
+        dependsOn jmhProvider
+        resultsFile.set jmhResultsFile
+        baselineFile.set jmhBaselineFile
+        reportFile.set new File(projectConvention.getTxtReportDir(Paths.get(JMH_TASK_NAME)), 'compare.txt')
+      }
+    }
+
+    project.tasks.register(JMH_BASELINE_TASK_NAME) { Task task ->
+      task.with {
+        group = VERIFICATION_GROUP
+        description = 'Stores JMH results as a new baseline'
+        dependsOn jmhProvider
+        doLast {
+          Files.copy jmhResultsFile.toPath(), jmhBaselineFile.toPath(), StandardCopyOption.REPLACE_EXISTING
+        }
+      }
+    }
+  }
+
+  /**
+   * Name of project property turning on profiling of test JVMs
+   * with Java Flight Recorder
+   */
+  public static final String PROFILE_TESTS_PROPERTY_NAME = 'profileTests'
+
+  /**
+   * Path director for reports of test tasks
+   * which are not produced by tests themselves
+   */
+  static final PathDirector<Test> TEST_TASK_REPORT_DIRECTOR = new PathDirector<Test>() {
+    @Override
+    Path determinePath(Test object)  {
+      try {
+        Paths.get(object.name)
+      } catch (InvalidPathException e) {
+        throw new ReportPathDirectorException(object, e)
+      }
+    }
+  }
+
+  /**
+   * First JDK version expanding {@code %p} in JFR recording file name
+   * to process id
+   */
+  static final int JFR_PID_FILE_NAME_MIN_JAVA_VERSION = 17
+
+  /**
+   * Determines whether each test fork can write its own JFR recording.
+   * Test JVMs are run by the JVM running the build
+   * unless executable is set explicitly
+   * @return whether each test fork can write its own JFR recording
+   */
+  private static boolean isJfrRecordingPerFork() {
+    Integer.parseInt(JavaVersion.current().majorVersion) >= JFR_PID_FILE_NAME_MIN_JAVA_VERSION
+  }
+
+  /**
+   * Suffix of names of tasks summarizing JFR recordings of test tasks
+   */
+  public static final String JFR_SUMMARY_TASK_NAME_SUFFIX = 'JfrSummary'
+
+  private void configureTestProfiling(TaskProvider<Test> testProvider) {
+    ProjectConvention projectConvention = project.convention.getPlugin(ProjectConvention)
+    boolean forksHaveSeparateRecordings = isJfrRecordingPerFork()
+    TaskProvider<SummarizeJfrRecordings> summarizeJfrRecordingsProvider = project.tasks.register("${ testProvider.name }$JFR_SUMMARY_TASK_NAME_SUFFIX", SummarizeJfrRecordings) { SummarizeJfrRecordings summarizeJfrRecordings ->
+      Test test = testProvider.get()
+      summarizeJfrRecordings.with {
+        group = VERIFICATION_GROUP
+        description = "Summarizes JFR recordings of $test.name task"
+        recordingsDir.set projectConvention.getJfrReportDir(TEST_TASK_REPORT_DIRECTOR, test)
+        txtReportFile.set projectConvention.getTxtReportFile(Paths.get('jfr'), TEST_TASK_REPORT_DIRECTOR, test)
+        jsonReportFile.set projectConvention.getJsonReportFile(Paths.get('jfr'), TEST_TASK_REPORT_DIRECTOR, test)
+      }
+    }
+    testProvider.configure { Test test ->
+      File jfrDir = projectConvention.getJfrReportDir(TEST_TASK_REPORT_DIRECTOR, test)
+      test.with {
+        if (forksHaveSeparateRecordings) {
+          jvmArgs "-XX:StartFlightRecording=settings=profile,dumponexit=true,filename=${ new File(jfrDir, 'fork-%p.jfr').absolutePath }"
+        } else {
+          /*
+           * With earlier JDKs %p is not expanded
+           * and parallel or subsequent forks would overwrite the same file.
+           * So all tests are run in one fork, see configureTestForks
+           */
+          jvmArgs "-XX:StartFlightRecording=settings=profile,dumponexit=true,filename=${ new File(jfrDir, 'fork.jfr').absolutePath }"
+        }
+        outputs.dir jfrDir
+        doFirst {
+          project.delete jfrDir
+          jfrDir.mkdirs()
+        }
+        finalizedBy summarizeJfrRecordingsProvider
+      }
+      /*
+       * WORKAROUND:
+       * Without that we get error:
+       * [Static type checking] - Cannot call org.gradle.api.tasks.TaskProvider <Test>#configure(org.gradle.api.Action
+       * <java.lang.Object extends java.lang.Object>) with arguments [groovy.lang.Closure <org.gradle.api.Task>]
+       * <grv87 2018-07-31>
+       */
+      null
+    }
+  }
+
+  /**
+   * Suffix of project property overriding number of test forks.
+   * Full property name is prefixed with test profile name,
+   * e.g. {@code functionalTestMaxParallelForks}
+   */
+  public static final String MAX_PARALLEL_FORKS_PROPERTY_SUFFIX = 'MaxParallelForks'
+
+  /**
+   * Suffix of project property overriding heap size of test forks
+   */
+  public static final String MAX_HEAP_SIZE_PROPERTY_SUFFIX = 'MaxHeapSize'
+
+  /**
+   * Suffix of project property overriding {@code forkEvery} of test tasks
+   */
+  public static final String FORK_EVERY_PROPERTY_SUFFIX = 'ForkEvery'
+
+  /**
+   * Determines resource profile of test task
+   * @param taskName test task name
+   * @return profile
+   */
+  static TestForkPolicy.Profile getTestForkProfile(String taskName) {
+    if (taskName == FUNCTIONAL_TEST_TASK_NAME) {
+      return TestForkPolicy.FUNCTIONAL
+    }
+    if (taskName.startsWith('compatTest') || taskName == 'gradleTest') {
+      return TestForkPolicy.COMPAT
+    }
+    TestForkPolicy.UNIT
+  }
+
+  private String findTestForkProperty(TestForkPolicy.Profile profile, String suffix) {
+    String propertyName = "${ profile.name }$suffix"
+    project.extensions.extraProperties.has(propertyName) ? project.extensions.extraProperties[propertyName].toString() : null
+  }
+
+  /**
+   * Configures test forks
+   * @param singleFork whether all tests should be run in one fork
+   */
+  private void configureTestForks(boolean singleFork) {
+    ProjectConvention projectConvention = project.convention.getPlugin(ProjectConvention)
+    int availableProcessors = Runtime.runtime.availableProcessors()
+    long physicalMemoryMb = TestForkPolicy.physicalMemoryMb
+    long reservedMemoryMb = Runtime.runtime.maxMemory().intdiv(1024L * 1024L).longValue() + TestForkPolicy.OS_RESERVED_MEMORY_MB
+    project.tasks.withType(Test).configureEach { Test test ->
+      TestForkPolicy.Profile profile = getTestForkProfile(test.name)
+      String maxHeapSizeProperty = findTestForkProperty(profile, MAX_HEAP_SIZE_PROPERTY_SUFFIX)
+      String maxParallelForks = singleFork ? '1' : findTestForkProperty(profile, MAX_PARALLEL_FORKS_PROPERTY_SUFFIX)
+      String forkEvery = singleFork ? '0' : findTestForkProperty(profile, FORK_EVERY_PROPERTY_SUFFIX)
+      File reportFile = projectConvention.getTxtReportFile(Paths.get('testForks'), TEST_TASK_REPORT_DIRECTOR, test)
+      /*
+       * Build script configures test task after this action.
+       * So decision is made just before execution,
+       * when heap size is final
+       */
+      test.doFirst {
+        /*
+         * Null is Gradle's default.
+         * Heap size set in build script is kept unless property is given
+         */
+        String maxHeapSize = maxHeapSizeProperty ?: test.maxHeapSize
+        TestForkPolicy.Decision decision = TestForkPolicy.decide(
+          profile,
+          availableProcessors,
+          physicalMemoryMb,
+          reservedMemoryMb,
+          maxHeapSize != null ? TestForkPolicy.parseMemorySizeMb(maxHeapSize) : null,
+          maxParallelForks != null ? Integer.valueOf(maxParallelForks) : null,
+          forkEvery != null ? Long.valueOf(forkEvery) : null
+        )
+        test.maxParallelForks = decision.maxParallelForks
+        test.maxHeapSize = maxHeapSize ?: decision.maxHeapSize
+        test.forkEvery = decision.forkEvery
+        String report = """\
+          Profile: ${ profile.name }
+          Available processors: $availableProcessors
+          Physical memory: $physicalMemoryMb MB
+          Reserved memory: $reservedMemoryMb MB
+          Max parallel forks: ${ test.maxParallelForks } (${ decision.reason })
+          Max heap size: ${ test.maxHeapSize }
+          Fork every: ${ test.forkEvery }
+        """.stripIndent()
+        test.logger.info report
+        reportFile.parentFile.mkdirs()
+        reportFile.setText report, UTF_8.name()
+      }
+    }
+  }
+
+  /**
+   * Name of project property turning on capture of test output:
+   * output of each test is streamed into its own compressed file,
+   * and only bounded excerpt is logged for failed tests.
+   * False by default
+   */
+  public static final String TEST_OUTPUT_CAPTURE_PROPERTY_NAME = 'testOutputCapture'
+
+  /**
+   * Name of project property setting maximum size of excerpts
+   * of test output and exception messages in characters.
+   * Default is {@link TestOutputCapture#DEFAULT_EXCERPT_SIZE}
+   */
+  public static final String TEST_OUTPUT_EXCERPT_SIZE_PROPERTY_NAME = 'testOutputExcerptSize'
+
+  /*
+   * CAVEAT:
+   * Output is still stored by Gradle in binary test results
+   * and in JUnit XML reports
+   */
+  private void configureTestOutputCapture() {
+    ProjectConvention projectConvention = project.convention.getPlugin(ProjectConvention)
+    int excerptSize = project.extensions.extraProperties.has(TEST_OUTPUT_EXCERPT_SIZE_PROPERTY_NAME) ? project.extensions.extraProperties[TEST_OUTPUT_EXCERPT_SIZE_PROPERTY_NAME].toString().toInteger() : TestOutputCapture.DEFAULT_EXCERPT_SIZE
+    project.tasks.withType(Test).configureEach { Test test ->
+      File outputDir = projectConvention.getTxtReportDir(Paths.get('testOutput'), TEST_TASK_REPORT_DIRECTOR, test)
+      [test.testLogging.lifecycle, test.testLogging.info].each { TestLogging testLogging ->
+        // Failures are logged by TestOutputCapture
+        testLogging.events = testLogging.events - EnumSet.of(TestLogEvent.FAILED, TestLogEvent.STANDARD_OUT, TestLogEvent.STANDARD_ERROR)
+        testLogging.exceptionFormat = TestExceptionFormat.SHORT
+      }
+      TestOutputCapture testOutputCapture = new TestOutputCapture(outputDir, excerptSize, test.logger)
+      test.addTestListener testOutputCapture
+      test.addTestOutputListener testOutputCapture
+      test.outputs.dir outputDir
+      test.doFirst {
+        project.delete outputDir
+      }
+    }
+  }
+
+  /**
+   * Name of project property turning on test impact analysis:
+   * test tasks run only test classes affected by changes.
+   * False by default
+   */
+  public static final String TEST_IMPACT_PROPERTY_NAME = 'testImpact'
+
+  /**
+   * Name of project property setting git ref
+   * to determine changes against in test impact analysis.
+   * When not set, changes since the last successful run are used
+   */
+  public static final String TEST_IMPACT_BASE_REF_PROPERTY_NAME = 'testImpactBaseRef'
+
+  /**
+   * Suffix of names of test impact analysis tasks
+   */
+  public static final String TEST_IMPACT_ANALYSIS_TASK_NAME_SUFFIX = 'ImpactAnalysis'
+
+  /**
+   * Registers tasks analyzing test task
+   * which are turned on by project properties.
+   * Test tasks provided by the plugins are passed here
+   * when they are registered, so they are not realized by that.
+   * Does nothing when analysis tasks are already registered
+   * @param testProvider test task
+   */
+  void registerTestAnalysisTasks(TaskProvider<Test> testProvider) {
+    if (
+      project.extensions.extraProperties.has(TEST_IMPACT_PROPERTY_NAME) && project.extensions.extraProperties[TEST_IMPACT_PROPERTY_NAME].toString().toBoolean() &&
+      !project.tasks.names.contains("${ testProvider.name }$TEST_IMPACT_ANALYSIS_TASK_NAME_SUFFIX".toString())
+    ) {
+      configureTestImpact testProvider
+    }
+    if (
+      project.extensions.extraProperties.has(PROFILE_TESTS_PROPERTY_NAME) && project.extensions.extraProperties[PROFILE_TESTS_PROPERTY_NAME].toString().toBoolean() &&
+      !project.tasks.names.contains("${ testProvider.name }$JFR_SUMMARY_TASK_NAME_SUFFIX".toString())
+    ) {
+      configureTestProfiling testProvider
+    }
+  }
+
+  private void configureTestImpact(TaskProvider<Test> testProvider) {
+    ProjectConvention projectConvention = project.convention.getPlugin(ProjectConvention)
+    SourceSetContainer sourceSets = project.convention.getPlugin(JavaPluginConvention).sourceSets
+    String baseRef = project.extensions.extraProperties.has(TEST_IMPACT_BASE_REF_PROPERTY_NAME) ? project.extensions.extraProperties[TEST_IMPACT_BASE_REF_PROPERTY_NAME].toString() : null
+    TaskProvider<TestImpactAnalysis> testImpactAnalysisProvider = project.tasks.register("${ testProvider.name }$TEST_IMPACT_ANALYSIS_TASK_NAME_SUFFIX", TestImpactAnalysis) { TestImpactAnalysis testImpactAnalysis ->
+      Test test = testProvider.get()
+      FileCollection mainClassesDirs = sourceSets.getByName(MAIN_SOURCE_SET_NAME).output.classesDirs
+      testImpactAnalysis.with {
+        description = "Selects tests of $test.name task affected by changes"
+        testImpactAnalysis.test.set test
+        classesDirs.from mainClassesDirs, test.testClassesDirs
+        testClassesDirs.from test.testClassesDirs
+        sourceDirs.from {
+          sourceSets.collect { SourceSet sourceSet -> sourceSet.allSource.srcDirs - sourceSet.resources.srcDirs }
+        }
+        environmentFiles.from(
+          project.buildFile,
+          project.rootProject.fileTree(project.rootDir) { ConfigurableFileTree fileTree ->
+            fileTree.include '*.gradle', '*.gradle.kts', 'gradle.properties', 'gradle/**'
+          },
+          { sourceSets*.resources*.srcDirs },
+          { test.classpath.filter { File file -> !mainClassesDirs.contains(file) && !test.testClassesDirs.contains(file) } }
+        )
+        if (baseRef != null) {
+          testImpactAnalysis.baseRef.set baseRef
+        }
+        stateDir.set new File(project.buildDir, "testImpact/$test.name")
+        reportFile.set projectConvention.getTxtReportFile(Paths.get('testImpact'), TEST_TASK_REPORT_DIRECTOR, test)
+        dependsOn mainClassesDirs, test.testClassesDirs
+      }
+    }
+    testProvider.configure { Test test ->
+      test.with {
+        dependsOn testImpactAnalysisProvider
+        onlyIf { !testImpactAnalysisProvider.get().noTestsAffected }
+        doLast {
+          testImpactAnalysisProvider.get().recordSuccessfulRun()
+        }
+      }
+      /*
+       * WORKAROUND:
+       * Without that we get error:
+       * [Static type checking] - Cannot call org.gradle.api.tasks.TaskProvider <Test>#configure(org.gradle.api.Action
+       * <java.lang.Object extends java.lang.Object>) with arguments [groovy.lang.Closure <org.gradle.api.Task>]
+       * <grv87 2018-07-31>
+       */
+      null
+    }
+  }
+
   private void configureTesting() {
     project.convention.getPlugin(JavaPluginConvention).with {
       ProjectConvention projectConvention = project.convention.getPlugin(ProjectConvention)
@@ -415,14 +1076,26 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
     project.tasks.withType(Test).configureEach { Test test ->
       test.with {
         environment = environment.findAll { String key, Object value -> key != 'GRADLE_OPTS' && !key.startsWith(ENV_PROJECT_PROPERTIES_PREFIX) }
-        maxParallelForks = Runtime.runtime.availableProcessors().intdiv(2).intValue()
         testLogging.exceptionFormat = TestExceptionFormat.FULL
       }
     }
 
+    boolean profileTests = project.extensions.extraProperties.has(PROFILE_TESTS_PROPERTY_NAME) && project.extensions.extraProperties[PROFILE_TESTS_PROPERTY_NAME].toString().toBoolean()
+
+    configureTestForks(profileTests && !isJfrRecordingPerFork())
+
+    if (project.extensions.extraProperties.has(TEST_OUTPUT_CAPTURE_PROPERTY_NAME) && project.extensions.extraProperties[TEST_OUTPUT_CAPTURE_PROPERTY_NAME].toString().toBoolean()) {
+      configureTestOutputCapture()
+    }
+
     addJUnitDependency project.convention.getPlugin(JavaPluginConvention).sourceSets.named(TEST_SOURCE_SET_NAME)
+    registerTestAnalysisTasks project.tasks.withType(Test).named(TEST_TASK_NAME)
 
     configureFunctionalTests()
+
+    if (!project.rootProject.convention.getPlugin(RootProjectConvention).isBuildSrc) {
+      configureBenchmarks()
+    }
   }
 
   /**
@@ -438,6 +1111,44 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
   private void configureCodeQuality() {
     project.plugins.getPlugin(ProjectPlugin).addCodeQualityCommonTask 'FindBugs', FINDBUGS_TASK_NAME, FindBugs
     project.plugins.getPlugin(ProjectPlugin).addCodeQualityCommonTask 'JDepend', JDEPEND_TASK_NAME, JDepend
+
+    configureAnnotationProcessorsAudit()
+  }
+
+  /**
+   * Name of auditAnnotationProcessors task
+   */
+  public static final String AUDIT_ANNOTATION_PROCESSORS_TASK_NAME = 'auditAnnotationProcessors'
+
+  /**
+   * Name of property determining whether to fail the build
+   * when there are non-incremental annotation processors.
+   * When it is true, auditAnnotationProcessors task is run by check.
+   * False by default
+   */
+  public static final String FAIL_ON_NON_INCREMENTAL_ANNOTATION_PROCESSORS_PROPERTY_NAME = 'failOnNonIncrementalAnnotationProcessors'
+
+  private void configureAnnotationProcessorsAudit() {
+    boolean failOnNonIncremental = project.extensions.extraProperties.has(FAIL_ON_NON_INCREMENTAL_ANNOTATION_PROCESSORS_PROPERTY_NAME) && project.extensions.extraProperties[FAIL_ON_NON_INCREMENTAL_ANNOTATION_PROCESSORS_PROPERTY_NAME].toString().toBoolean()
+    ProjectConvention projectConvention = project.convention.getPlugin(ProjectConvention)
+    TaskProvider<AuditAnnotationProcessors> auditAnnotationProcessorsProvider = project.tasks.register(AUDIT_ANNOTATION_PROCESSORS_TASK_NAME, AuditAnnotationProcessors) { AuditAnnotationProcessors auditAnnotationProcessors ->
+      auditAnnotationProcessors.with {
+        group = ProjectPlugin.DIAGNOSTICS_TASK_GROUP_NAME
+        description = 'Classifies annotation processors of all JavaCompile tasks as isolating, aggregating or non-incremental'
+        auditAnnotationProcessors.failOnNonIncremental.set failOnNonIncremental
+        recompilationsStoreFile.set new File(project.gradle.startParameter.projectCacheDir ?: new File(project.rootDir, '.gradle'), RecompilationRecorder.DEFAULT_STORE_FILE_NAME)
+        reportFile.set new File(projectConvention.txtReportsDir, 'annotationProcessors.txt')
+        // Processor path could contain outputs of other projects
+        dependsOn {
+          project.tasks.withType(JavaCompile).collect { JavaCompile javaCompile -> javaCompile.options.annotationProcessorPath ?: project.files() }
+        }
+      }
+    }
+    if (failOnNonIncremental) {
+      project.tasks.named(CHECK_TASK_NAME).configure { Task check ->
+        check.dependsOn auditAnnotationProcessorsProvider
+      }
+    }
   }
 
   /**
@@ -450,6 +1161,32 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
     }
   }
 
+  /**
+   * Namer of checksum task for maven publications
+   */
+  static final Namer<MavenPublication> CHECKSUM_MAVEN_PUBLICATION_NAMER = new Namer<MavenPublication>() {
+    @Override
+    String determineName(MavenPublication mavenPublication)  {
+      "checksum${ mavenPublication.name.capitalize() }Publication"
+    }
+  }
+
+  /**
+   * Algorithms of checksums published as sidecar artifacts.
+   * MD5 and SHA-1 checksums are written by repositories themselves
+   */
+  public static final List<String> SIDECAR_CHECKSUM_ALGORITHMS = Collections.unmodifiableList(['SHA-256', 'SHA-512'])
+
+  /**
+   * Gradle version since which maven-publish plugin
+   * writes SHA-256 and SHA-512 checksums itself
+   */
+  private static final String MAVEN_PUBLISH_SHA512_MINIMUM_GRADLE_VERSION = '6.0'
+
+  private static boolean isChecksumArtifact(MavenArtifact artifact) {
+    SIDECAR_CHECKSUM_ALGORITHMS.any { String algorithm -> artifact.extension?.endsWith(".${ Checksums.getExtension(algorithm) }") }
+  }
+
   /**
    * Name of sourcesJar task
    */
@@ -493,10 +1230,10 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
     mainPublication
   }
 
-  private TaskProvider<Jar> defaultSourcesJarProvider
+  private TaskProvider<IncrementalJar> defaultSourcesJarProvider
 
   @PackageScope
-  TaskProvider<Jar> getDefaultSourcesJarProvider() {
+  TaskProvider<IncrementalJar> getDefaultSourcesJarProvider() {
     this.@defaultSourcesJarProvider
   }
 
@@ -507,10 +1244,10 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
     this.@sourcesJar
   }
 
-  private TaskProvider<Jar> defaultJavadocJarProvider
+  private TaskProvider<IncrementalJar> defaultJavadocJarProvider
 
   @PackageScope
-  TaskProvider<Jar> getDefaultJavadocJarProvider() {
+  TaskProvider<IncrementalJar> getDefaultJavadocJarProvider() {
     this.@defaultJavadocJarProvider
   }
 
@@ -525,7 +1262,7 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
   private void configureArtifacts() {
     this.@mainPublicationName = project.objects.property(String).convention(MAVEN_JAVA_PUBLICATION_NAME)
 
-    this.@defaultSourcesJarProvider = project.tasks.register(SOURCES_JAR_TASK_NAME, Jar) { Jar defaultSourceJar ->
+    this.@defaultSourcesJarProvider = project.tasks.register(SOURCES_JAR_TASK_NAME, IncrementalJar) { IncrementalJar defaultSourceJar ->
       defaultSourceJar.with {
         from project.convention.getPlugin(JavaPluginConvention).sourceSets.getByName(MAIN_SOURCE_SET_NAME).allSource
         // dependsOn
@@ -534,7 +1271,7 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
     }
     this.@sourcesJar = project.objects.property(Jar).convention(defaultSourcesJarProvider)
 
-    this.@defaultJavadocJarProvider = project.tasks.register(JAVADOC_JAR_TASK_NAME, Jar) { Jar defaultJavadocJar ->
+    this.@defaultJavadocJarProvider = project.tasks.register(JAVADOC_JAR_TASK_NAME, IncrementalJar) { IncrementalJar defaultJavadocJar ->
       defaultJavadocJar.archiveClassifier.set JAVADOC_JAR_ARTIFACT_CLASSIFIER
     }
     this.@javadocJar = project.objects.property(Jar).convention(defaultJavadocJarProvider)
@@ -559,6 +1296,56 @@ final class JvmBasePlugin extends AbstractProjectPlugin implements PropertyChang
       sign project.configurations.getByName('archives' /* Hardcoded in BasePlugin */)
       sign project.extensions.getByType(PublishingExtension).publications
     }
+
+    configureChecksums()
+  }
+
+  /**
+   * Adds checksum task for each maven publication.
+   * When Gradle doesn't write SHA-256 and SHA-512 checksums itself,
+   * computed sidecar files are added to publications as artifacts,
+   * so that repositories and GitHub releases get them
+   * without hashing artifacts again
+   */
+  private void configureChecksums() {
+    PublicationContainer publications = project.extensions.getByType(PublishingExtension).publications
+    publications.withType(MavenPublication).configureEach { MavenPublication mavenPublication ->
+      project.tasks.register(CHECKSUM_MAVEN_PUBLICATION_NAMER.determineName(mavenPublication), Checksums) { Checksums checksums ->
+        checksums.with {
+          description = "Computes checksums of artifacts of $mavenPublication.name publication"
+          artifacts.from {
+            mavenPublication.artifacts.findAll { MavenArtifact artifact -> !isChecksumArtifact(artifact) }*.file
+          }
+          dependsOn {
+            mavenPublication.artifacts.findAll { MavenArtifact artifact -> !isChecksumArtifact(artifact) }
+          }
+          destinationDir.set new File(project.buildDir, "checksums/$mavenPublication.name")
+        }
+      }
+    }
+
+    if (GradleVersion.current() < GradleVersion.version(MAVEN_PUBLISH_SHA512_MINIMUM_GRADLE_VERSION)) {
+      // Artifacts are added in afterEvaluate, so this should be run after them
+      project.afterEvaluate {
+        publications.withType(MavenPublication) { MavenPublication mavenPublication ->
+          TaskProvider<Checksums> checksumsProvider = project.tasks.withType(Checksums).named(CHECKSUM_MAVEN_PUBLICATION_NAMER.determineName(mavenPublication))
+          File checksumsDir = new File(project.buildDir, "checksums/$mavenPublication.name")
+          new ArrayList<MavenArtifact>(mavenPublication.artifacts).each { MavenArtifact artifact ->
+            if (isChecksumArtifact(artifact)) {
+              return
+            }
+            SIDECAR_CHECKSUM_ALGORITHMS.each { String algorithm ->
+              String extension = Checksums.getExtension(algorithm)
+              mavenPublication.artifact(new File(checksumsDir, "${ artifact.file.name }.$extension")) { MavenArtifact sidecar ->
+                sidecar.classifier = artifact.classifier
+                sidecar.extension = "${ artifact.extension }.$extension"
+                sidecar.builtBy checksumsProvider
+              }
+            }
+          }
+        }
+      }
+    }
   }
 
   private void configureArtifactory() {
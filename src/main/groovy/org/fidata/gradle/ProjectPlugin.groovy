@@ -21,13 +21,17 @@
  */
 package org.fidata.gradle
 
-import static com.dorongold.gradle.tasktree.TaskTreePlugin.TASK_TREE_TASK_NAME
+import static java.nio.charset.StandardCharsets.UTF_8
 import static org.ajoberstar.gradle.git.release.base.BaseReleasePlugin.RELEASE_TASK_NAME
 import static org.fidata.gpg.GpgUtils.getGpgHome
 import static org.fidata.utils.VersionUtils.SNAPSHOT_SUFFIX
 import static org.fidata.utils.VersionUtils.isPreReleaseVersion
 import static org.gradle.api.Project.DEFAULT_BUILD_DIR_NAME
+import static org.gradle.api.plugins.ProjectReportsPlugin.DEPENDENCY_REPORT
+import static org.gradle.api.plugins.ProjectReportsPlugin.HTML_DEPENDENCY_REPORT
 import static org.gradle.api.plugins.ProjectReportsPlugin.PROJECT_REPORT
+import static org.gradle.api.plugins.ProjectReportsPlugin.PROPERTY_REPORT
+import static org.gradle.api.plugins.ProjectReportsPlugin.TASK_REPORT
 import static org.gradle.initialization.DefaultSettings.DEFAULT_BUILD_SRC_DIR
 import static org.gradle.internal.FileUtils.toSafeFileName
 import static org.gradle.language.base.plugins.LifecycleBasePlugin.ASSEMBLE_TASK_NAME
@@ -56,34 +60,58 @@ import java.nio.file.Path
 import java.nio.file.Paths
 import java.util.regex.Matcher
 import org.ajoberstar.gradle.git.publish.GitPublishExtension
-import org.ajoberstar.grgit.Grgit
 import org.ajoberstar.grgit.auth.AuthConfig
 import org.fidata.gradle.internal.AbstractProjectPlugin
+import org.fidata.gradle.tasks.AggregateDependencyUpdates
+import org.fidata.gradle.tasks.BuildMetrics
 import org.fidata.gradle.tasks.CodeNarcTaskConvention
+import org.fidata.gradle.tasks.ExplainCacheMisses
+import org.fidata.gradle.tasks.IncrementalJar
 import org.fidata.gradle.tasks.InputsOutputs
 import org.fidata.gradle.tasks.NoJekyll
+import org.fidata.gradle.tasks.PrefetchDependencies
+import org.fidata.gradle.tasks.PrefetchProjectDependencies
 import org.fidata.gradle.tasks.ResignGitCommit
+import org.fidata.gradle.tasks.VerifyReproducibleArchive
+import org.fidata.gradle.utils.BuildMetricsRecorder
+import org.fidata.gradle.utils.BuildTraceRecorder
+import org.fidata.gradle.utils.DependencyDownloadRecorder
 import org.fidata.gradle.utils.PathDirector
 import org.fidata.gradle.utils.PluginDependeesUtils
+import org.fidata.gradle.utils.RecompilationRecorder
 import org.fidata.gradle.utils.ReportPathDirectorException
+import org.fidata.gradle.utils.ShallowGitPublishRepository
+import org.fidata.gradle.utils.TaskInputsRecorder
+import org.fidata.gradle.utils.GitStatusService
+import org.fidata.gradle.utils.VersionInferenceCache
 import org.gradle.api.Project
 import org.gradle.api.Task
 import org.gradle.api.artifacts.ComponentSelection
 import org.gradle.api.artifacts.ResolutionStrategy
 import org.gradle.api.artifacts.repositories.MavenArtifactRepository
+import org.gradle.api.execution.TaskExecutionGraph
 import org.gradle.api.file.ConfigurableFileTree
+import org.gradle.api.file.CopySpec
+import org.gradle.api.file.FileCopyDetails
 import org.gradle.api.file.FileTreeElement
+import org.gradle.api.internal.GradleInternal
 import org.gradle.api.plugins.ProjectReportsPluginConvention
 import org.gradle.api.plugins.quality.CodeNarc
 import org.gradle.api.plugins.quality.CodeNarcExtension
 import org.gradle.api.plugins.quality.Pmd
+import org.gradle.api.provider.Provider
 import org.gradle.api.reporting.ReportingExtension
 import org.gradle.api.reporting.components.ComponentReport
 import org.gradle.api.reporting.dependencies.HtmlDependencyReportTask
 import org.gradle.api.reporting.dependents.DependentComponentsReport
 import org.gradle.api.reporting.model.ModelReport
+import org.gradle.api.specs.Spec
 import org.gradle.api.tasks.TaskCollection
 import org.gradle.api.tasks.TaskProvider
+import org.gradle.api.tasks.bundling.AbstractArchiveTask
+import org.gradle.api.tasks.bundling.Jar
+import org.gradle.api.tasks.bundling.Tar
+import org.gradle.api.tasks.bundling.Zip
 import org.gradle.api.tasks.diagnostics.BuildEnvironmentReportTask
 import org.gradle.api.tasks.diagnostics.DependencyInsightReportTask
 import org.gradle.api.tasks.diagnostics.DependencyReportTask
@@ -92,8 +120,12 @@ import org.gradle.api.tasks.diagnostics.PropertyReportTask
 import org.gradle.api.tasks.diagnostics.TaskReportTask
 import org.gradle.api.tasks.testing.Test
 import org.gradle.api.tasks.wrapper.Wrapper
+import org.gradle.internal.operations.BuildOperationListenerManager
+import org.gradle.process.ExecResult
+import org.gradle.process.ExecSpec
 import org.gradle.tooling.UnsupportedVersionException
 import org.gradle.util.GradleVersion
+import org.gradle.util.NameMatcher
 import org.jfrog.gradle.plugin.artifactory.dsl.ArtifactoryPluginConvention
 
 /**
@@ -176,6 +208,8 @@ final class ProjectPlugin extends AbstractProjectPlugin {
 
     if (!isBuildSrc && project == project.rootProject) {
       configureGit()
+
+      configureVersionInference()
     }
 
     configureLifecycle()
@@ -192,6 +226,8 @@ final class ProjectPlugin extends AbstractProjectPlugin {
 
     configureDiagnostics()
 
+    configureArchives()
+
     if (!isBuildSrc) {
       configureArtifacts()
 
@@ -208,6 +244,18 @@ final class ProjectPlugin extends AbstractProjectPlugin {
     System.setProperty AuthConfig.PASSWORD_OPTION, project./*rootProject.*/extensions.extraProperties['gitPassword'].toString()
   }
 
+  /**
+   * Name of property determining whether to cache inferred version between builds.
+   * True by default
+   */
+  public static final String VERSION_INFERENCE_CACHE_PROPERTY_NAME = 'versionInferenceCache'
+
+  private void configureVersionInference() {
+    if (!project.extensions.extraProperties.has(VERSION_INFERENCE_CACHE_PROPERTY_NAME) || project.extensions.extraProperties[VERSION_INFERENCE_CACHE_PROPERTY_NAME].toString().toBoolean()) {
+      new VersionInferenceCache(project, new File(project.gradle.startParameter.projectCacheDir ?: new File(project.rootDir, '.gradle'), VersionInferenceCache.DEFAULT_CACHE_FILE_NAME)).apply()
+    }
+  }
+
   /**
    * Release task group name
    */
@@ -268,20 +316,71 @@ final class ProjectPlugin extends AbstractProjectPlugin {
     }
   }
 
+  /**
+   * ID of com.github.ben-manes.versions plugin
+   */
+  public static final String VERSIONS_PLUGIN_ID = 'com.github.ben-manes.versions'
+
+  /**
+   * Name of dependencyUpdates task
+   */
+  public static final String DEPENDENCY_UPDATES_TASK_NAME = 'dependencyUpdates' /* Hardcoded in VersionsPlugin */
+
+  /**
+   * Name of aggregateDependencyUpdates task
+   */
+  public static final String AGGREGATE_DEPENDENCY_UPDATES_TASK_NAME = 'aggregateDependencyUpdates'
+
+  /**
+   * Names of tasks provided by org.fidata.prerequisites plugin
+   * which require com.github.ben-manes.versions plugin
+   */
+  static final Set<String> OUTDATED_TASK_NAMES = ImmutableSet.of(
+    'outdatedDependencies',
+    'outdatedPrerequisites',
+  )
+
   private void configurePrerequisitesLifecycle() {
-    project.tasks.withType(DependencyUpdatesTask).configureEach { DependencyUpdatesTask dependencyUpdates ->
-      dependencyUpdates.group = null
-      dependencyUpdates.revision = 'release'
-      dependencyUpdates.outputFormatter = 'xml'
-      dependencyUpdates.outputDir = project.convention.getPlugin(ProjectConvention).getXmlReportDir(Paths.get('dependencyUpdates')).toString()
-      dependencyUpdates.resolutionStrategy = { ResolutionStrategy resolutionStrategy ->
-        resolutionStrategy.componentSelection.all { ComponentSelection selection ->
-          if (dependencyUpdates.revision == 'release' && isPreReleaseVersion(selection.candidate.version)) {
-            selection.reject 'Pre-release version'
+    project.pluginManager.withPlugin(VERSIONS_PLUGIN_ID) {
+      project.tasks.withType(DependencyUpdatesTask).configureEach { DependencyUpdatesTask dependencyUpdates ->
+        dependencyUpdates.group = null
+        dependencyUpdates.revision = 'release'
+        dependencyUpdates.outputFormatter = 'xml'
+        dependencyUpdates.outputDir = project.convention.getPlugin(ProjectConvention).getXmlReportDir(Paths.get('dependencyUpdates')).toString()
+        dependencyUpdates.resolutionStrategy = { ResolutionStrategy resolutionStrategy ->
+          resolutionStrategy.componentSelection.all { ComponentSelection selection ->
+            if (dependencyUpdates.revision == 'release' && isPreReleaseVersion(selection.candidate.version)) {
+              selection.reject 'Pre-release version'
+            }
           }
         }
       }
     }
+    applyPluginLazily VERSIONS_PLUGIN_ID, ImmutableSet.of(DEPENDENCY_UPDATES_TASK_NAME), OUTDATED_TASK_NAMES
+
+    if (project == project.rootProject) {
+      project.tasks.register(AGGREGATE_DEPENDENCY_UPDATES_TASK_NAME, AggregateDependencyUpdates) { AggregateDependencyUpdates aggregateDependencyUpdates ->
+        aggregateDependencyUpdates.with {
+          group = DIAGNOSTICS_TASK_GROUP_NAME
+          description = 'Reports available updates of dependencies declared in all projects'
+          outputFile.set new File(project.convention.getPlugin(ProjectConvention).getXmlReportDir(Paths.get('dependencyUpdates')), DEFAULT_OUTPUT_FILE_NAME)
+        }
+        /*
+         * WORKAROUND:
+         * Without that we get error:
+         * [Static type checking] - Cannot call <T extends org.gradle.api.Task>
+         * org.gradle.api.tasks.TaskContainer#register(java.lang.String, java.lang.Class <T>, org.gradle.api.Action
+         * <java.lang.Object extends java.lang.Object>) with arguments [java.lang.String, java.lang.Class
+         * <org.fidata.gradle.tasks.AggregateDependencyUpdates>, groovy.lang.Closure <java.io.File>]
+         * <grv87 2018-07-31>
+         */
+        null
+      }
+    }
+
+    if (project == project.rootProject) {
+      configureDependencyPrefetch()
+    }
 
     project.tasks.withType(Wrapper).configureEach { Wrapper wrapper ->
       wrapper.with {
@@ -292,6 +391,58 @@ final class ProjectPlugin extends AbstractProjectPlugin {
     }
   }
 
+  /**
+   * Name of prefetchDependencies task
+   */
+  public static final String PREFETCH_DEPENDENCIES_TASK_NAME = 'prefetchDependencies'
+
+  /**
+   * Name of prefetchProjectDependencies task
+   */
+  public static final String PREFETCH_PROJECT_DEPENDENCIES_TASK_NAME = 'prefetchProjectDependencies'
+
+  /*
+   * CAVEAT:
+   * Configurations are resolved in tasks of their own projects,
+   * so that Gradle runs resolutions of different projects concurrently
+   * (with --parallel, up to --max-workers)
+   * on its own threads holding proper project locks.
+   * Resolution from threads not managed by Gradle is deprecated
+   */
+  private void configureDependencyPrefetch() {
+    DependencyDownloadRecorder recorder = new DependencyDownloadRecorder(((GradleInternal)project.gradle).services.get(BuildOperationListenerManager))
+    project.gradle.addListener recorder
+
+    project.allprojects { Project p ->
+      p.tasks.register(PREFETCH_PROJECT_DEPENDENCIES_TASK_NAME, PrefetchProjectDependencies) { PrefetchProjectDependencies prefetchProjectDependencies ->
+        prefetchProjectDependencies.description = 'Resolves all resolvable configurations of the project and downloads their artifacts'
+        prefetchProjectDependencies.recorder.set recorder
+      }
+    }
+
+    project.tasks.register(PREFETCH_DEPENDENCIES_TASK_NAME, PrefetchDependencies) { PrefetchDependencies prefetchDependencies ->
+      prefetchDependencies.with {
+        group = DIAGNOSTICS_TASK_GROUP_NAME
+        description = 'Resolves all resolvable configurations of all projects, downloads their artifacts and reports bytes and time per repository'
+        reportFile.set new File(project.convention.getPlugin(ProjectConvention).txtReportsDir, 'prefetchDependencies.txt')
+        dependsOn project.provider { ->
+          project.allprojects.collect { Project p -> p.tasks.named(PREFETCH_PROJECT_DEPENDENCIES_TASK_NAME) }
+        }
+      }
+      prefetchDependencies.recorder.set recorder
+    }
+
+    String prefetchDependenciesPath = "$project.path$PREFETCH_DEPENDENCIES_TASK_NAME"
+    project.gradle.taskGraph.whenReady { TaskExecutionGraph taskGraph ->
+      if (taskGraph.hasTask(prefetchDependenciesPath)) {
+        if (!project.gradle.startParameter.parallelProjectExecutionEnabled && project.allprojects.size() > 1) {
+          project.logger.lifecycle('{}: configurations of different projects are resolved concurrently only with --parallel', prefetchDependenciesPath)
+        }
+        recorder.start project.allprojects
+      }
+    }
+  }
+
   /**
    * URL of FIDATA Artifactory
    */
@@ -352,21 +503,7 @@ final class ProjectPlugin extends AbstractProjectPlugin {
            * SNAPSHOT documentation for other branches should be removed manually
            */
           preserve.exclude { FileTreeElement fileTreeElement ->
-            Matcher m = SNAPSHOT_SUFFIX.matcher(fileTreeElement.relativePath.segments[0])
-            if (!m) {
-              return false
-            }
-            String dirVersion = m.replaceFirst('')
-            String projectVersion = project.version.toString() - SNAPSHOT_SUFFIX
-            try {
-              return Version.valueOf(dirVersion).preReleaseVersion == Version.valueOf(projectVersion).preReleaseVersion
-            } catch (IllegalArgumentException | ParseException e) {
-              /*
-               * These exceptions caught mean that the directory name is not a valid semver version.
-               * So, we don't exclude such directory from preserves (in other words, it is preserved)
-               */
-              return false
-            }
+            isObsoleteSnapshotDir(fileTreeElement.relativePath.segments[0])
           }
           commitMessage.set COMMIT_MESSAGE_TEMPLATE.make(
             type: 'docs',
@@ -376,7 +513,11 @@ final class ProjectPlugin extends AbstractProjectPlugin {
         }
       }
 
-      boolean repoClean = ((Grgit) project./*rootProject.*/extensions.extraProperties.get('grgit')).status().clean
+      /*
+       * Status of big repository is slow to get,
+       * so it is checked only when these tasks are actually executed
+       */
+      GitStatusService gitStatus = GitStatusService.getInstance(project)
 
       TaskProvider<Task> gitPublishCommitProvider = project.tasks.named(/* WORKAROUND: GitPublishPlugin.COMMIT_TASK has package scope <grv87 2018-06-23> */ 'gitPublishCommit')
       TaskProvider<NoJekyll> noJekyllProvider = project.tasks.register(NO_JEKYLL_TASK_NAME, NoJekyll) { NoJekyll noJekyll ->
@@ -403,9 +544,9 @@ final class ProjectPlugin extends AbstractProjectPlugin {
        */
       ResignGitCommit.registerTask(project, gitPublishCommitProvider) { ResignGitCommit resignGitPublishCommit ->
         resignGitPublishCommit.with {
-          enabled = repoClean
           description = 'Amend git publish commit adding sign to it'
           workingDir.set project.extensions.getByType(GitPublishExtension).repoDir
+          onlyIf { gitStatus.clean }
           onlyIf { gitPublishCommitProvider.get().didWork }
         }
         /*
@@ -421,18 +562,139 @@ final class ProjectPlugin extends AbstractProjectPlugin {
       }
       gitPublishCommitProvider.configure { Task gitPublishCommit ->
         gitPublishCommit.with {
-          enabled = repoClean
+          onlyIf { gitStatus.clean }
           dependsOn noJekyllProvider
         }
       }
 
       TaskProvider<Task> gitPublishPushProvider = project.tasks.named(/* WORKAROUND: GitPublishPlugin.PUSH_TASK has package scope <grv87 2018-06-23> */ 'gitPublishPush')
       gitPublishPushProvider.configure { Task gitPublishPush ->
-        gitPublishPush.enabled = repoClean
+        gitPublishPush.onlyIf { gitStatus.clean }
       }
       project.tasks.named(RELEASE_TASK_NAME).configure { Task release ->
         release.dependsOn gitPublishPushProvider
       }
+
+      if (project.extensions.extraProperties.has(SHALLOW_GIT_PUBLISH_PROPERTY_NAME) && project.extensions.extraProperties[SHALLOW_GIT_PUBLISH_PROPERTY_NAME].toString().toBoolean()) {
+        configureShallowGitPublish gitPublishCommitProvider, gitPublishPushProvider
+      }
+    }
+  }
+
+  /**
+   * Name of property determining whether to publish documentation
+   * using shallow and sparse local repository kept between builds.
+   * False by default
+   */
+  public static final String SHALLOW_GIT_PUBLISH_PROPERTY_NAME = 'shallowGitPublish'
+
+  /**
+   * Name of property with name of author of documentation commits
+   * made by shallow git publishing.
+   * By default {@code user.name} from git config of the project repository is used
+   */
+  public static final String GIT_AUTHOR_NAME_PROPERTY_NAME = 'gitAuthorName'
+
+  /**
+   * Name of property with email of author of documentation commits
+   * made by shallow git publishing.
+   * By default {@code user.email} from git config of the project repository is used
+   */
+  public static final String GIT_AUTHOR_EMAIL_PROPERTY_NAME = 'gitAuthorEmail'
+
+  /**
+   * Determines git author identity
+   * @param propertyName name of project property overriding the value
+   * @param configKey git config key
+   * @param defaultValue value used when neither property nor config key is set
+   * @return provider of the value
+   */
+  private Provider<String> getGitAuthorIdentity(String propertyName, String configKey, Closure<String> defaultValue) {
+    project.provider {
+      if (project.extensions.extraProperties.has(propertyName)) {
+        return project.extensions.extraProperties[propertyName].toString()
+      }
+      ByteArrayOutputStream output = new ByteArrayOutputStream()
+      ExecResult result = project.exec { ExecSpec execSpec ->
+        execSpec.workingDir project.rootDir
+        execSpec.executable 'git'
+        execSpec.args 'config', '--get', configKey
+        execSpec.ignoreExitValue = true
+        execSpec.standardOutput = output
+      }
+      String value = result.exitValue == 0 ? new String(output.toByteArray(), UTF_8).trim() : ''
+      /*
+       * Fall back to the same identity as JGit,
+       * used by git-publish plugin, does
+       */
+      value ?: defaultValue.call()
+    }
+  }
+
+  /**
+   * Determines whether top-level directory of gh-pages branch
+   * contains SNAPSHOT documentation that should be replaced
+   * with documentation of the current version
+   * @param dirName directory name
+   * @return whether directory should not be preserved
+   */
+  private boolean isObsoleteSnapshotDir(String dirName) {
+    Matcher m = SNAPSHOT_SUFFIX.matcher(dirName)
+    if (!m) {
+      return false
+    }
+    String dirVersion = m.replaceFirst('')
+    String projectVersion = project.version.toString() - SNAPSHOT_SUFFIX
+    try {
+      return Version.valueOf(dirVersion).preReleaseVersion == Version.valueOf(projectVersion).preReleaseVersion
+    } catch (IllegalArgumentException | ParseException e) {
+      /*
+       * These exceptions caught mean that the directory name is not a valid semver version.
+       * So, we don't exclude such directory from preserves (in other words, it is preserved)
+       */
+      return false
+    }
+  }
+
+  /*
+   * CAVEAT:
+   * git-publish tasks are kept (so that dependencies and resigning work as before),
+   * but their actions are replaced with the ones using git command line client
+   */
+  private void configureShallowGitPublish(TaskProvider<Task> gitPublishCommitProvider, TaskProvider<Task> gitPublishPushProvider) {
+    GitPublishExtension gitPublishExtension = project.extensions.getByType(GitPublishExtension)
+    gitPublishExtension.repoDir.set new File(project.gradle.startParameter.projectCacheDir ?: new File(project.rootDir, '.gradle'), 'gitPublish')
+    ShallowGitPublishRepository repository = new ShallowGitPublishRepository(
+      project,
+      gitPublishExtension.repoDir.get().asFile,
+      project.extensions.extraProperties.has('gitUsername') ? project.extensions.extraProperties['gitUsername'].toString() : null,
+      project.extensions.extraProperties.has('gitPassword') ? project.extensions.extraProperties['gitPassword'].toString() : null,
+      getGitAuthorIdentity(GIT_AUTHOR_NAME_PROPERTY_NAME, 'user.name') { System.getProperty('user.name') },
+      getGitAuthorIdentity(GIT_AUTHOR_EMAIL_PROPERTY_NAME, 'user.email') { "${ System.getProperty('user.name') }@${ InetAddress.localHost.hostName }".toString() }
+    )
+
+    project.tasks.named(/* WORKAROUND: GitPublishPlugin.RESET_TASK has package scope <grv87 2018-06-23> */ 'gitPublishReset').configure { Task gitPublishReset ->
+      gitPublishReset.actions.clear()
+      gitPublishReset.doLast {
+        repository.reset gitPublishExtension.repoUri.get(), gitPublishExtension.branch.get(), [project.version.toString()], new Spec<String>() {
+          @Override
+          boolean isSatisfiedBy(String dirName) {
+            isObsoleteSnapshotDir(dirName)
+          }
+        }
+      }
+    }
+    gitPublishCommitProvider.configure { Task gitPublishCommit ->
+      gitPublishCommit.actions.clear()
+      gitPublishCommit.doLast {
+        gitPublishCommit.didWork = repository.commit(gitPublishExtension.commitMessage.get())
+      }
+    }
+    gitPublishPushProvider.configure { Task gitPublishPush ->
+      gitPublishPush.actions.clear()
+      gitPublishPush.doLast {
+        repository.push gitPublishExtension.branch.get()
+      }
     }
   }
 
@@ -581,6 +843,131 @@ final class ProjectPlugin extends AbstractProjectPlugin {
    */
   public static final String INPUTS_OUTPUTS_TASK_NAME = 'inputsOutputs'
 
+  /**
+   * Name of property determining whether to record build execution trace.
+   * False by default
+   */
+  public static final String BUILD_TRACE_PROPERTY_NAME = 'buildTrace'
+
+  /**
+   * Name of property determining whether to record snapshot of task inputs.
+   * False by default
+   */
+  public static final String RECORD_TASK_INPUTS_PROPERTY_NAME = 'recordTaskInputs'
+
+  /**
+   * Name of property with path to baseline task inputs snapshot
+   */
+  public static final String TASK_INPUTS_BASELINE_PROPERTY_NAME = 'taskInputsBaseline'
+
+  /**
+   * Name of property with path to current task inputs snapshot.
+   * By default snapshot recorded by the previous build is used
+   */
+  public static final String TASK_INPUTS_CURRENT_PROPERTY_NAME = 'taskInputsCurrent'
+
+  /**
+   * Name of explainCacheMisses task
+   */
+  public static final String EXPLAIN_CACHE_MISSES_TASK_NAME = 'explainCacheMisses'
+
+  /**
+   * Name of property determining whether to record build metrics.
+   * True by default
+   */
+  public static final String RECORD_BUILD_METRICS_PROPERTY_NAME = 'recordBuildMetrics'
+
+  /**
+   * Name of property with path to build metrics store.
+   * By default store is kept in project cache directory,
+   * so that it survives {@code clean}
+   */
+  public static final String BUILD_METRICS_STORE_PROPERTY_NAME = 'buildMetricsStore'
+
+  /**
+   * Name of buildMetrics task
+   */
+  public static final String BUILD_METRICS_TASK_NAME = 'buildMetrics'
+
+  /**
+   * Name of property determining whether to record
+   * full and incremental recompilations of JavaCompile tasks.
+   * False by default
+   */
+  public static final String RECORD_RECOMPILATIONS_PROPERTY_NAME = 'recordRecompilations'
+
+  /**
+   * ID of project-report plugin
+   */
+  public static final String PROJECT_REPORT_PLUGIN_ID = 'org.gradle.project-report'
+
+  /**
+   * Names of tasks provided by project-report plugin
+   */
+  static final Set<String> PROJECT_REPORT_TASK_NAMES = ImmutableSet.of(
+    PROJECT_REPORT,
+    TASK_REPORT,
+    PROPERTY_REPORT,
+    DEPENDENCY_REPORT,
+    HTML_DEPENDENCY_REPORT,
+  )
+
+  /**
+   * ID of com.dorongold.task-tree plugin
+   */
+  public static final String TASK_TREE_PLUGIN_ID = 'com.dorongold.task-tree'
+
+  /**
+   * Name of taskTree task
+   */
+  public static final String TASK_TREE_TASK_NAME = 'taskTree' /* TaskTreePlugin.TASK_TREE_TASK_NAME. Not imported to avoid loading plugin classes */
+
+  /**
+   * Determines whether any of specified tasks is requested in the command line.
+   * Task paths and abbreviated (camel case) task names are supported.
+   * Task paths are not resolved to projects, so the task with matching name
+   * in any project is considered as requested
+   *
+   * @param taskNames names of tasks
+   * @return whether any of these tasks is requested
+   */
+  @PackageScope
+  boolean isAnyTaskRequested(Set<String> taskNames) {
+    NameMatcher nameMatcher = new NameMatcher()
+    project.gradle.startParameter.taskNames.any { String requestedTask ->
+      String requestedTaskName = requestedTask.substring(requestedTask.lastIndexOf(Project.PATH_SEPARATOR) + 1)
+      // Ambiguous abbreviation matches several tasks, find returns null then
+      nameMatcher.find(requestedTaskName, taskNames) != null || !nameMatcher.matches.empty
+    }
+  }
+
+  /**
+   * Applies plugin only when one of its tasks is requested.
+   * Otherwise adds task rule which applies the plugin
+   * when any of its tasks is looked up by name,
+   * e.g. when other task in the task graph depends on it.
+   * Rule is listed in {@code tasks} report.
+   * Plugin configuration should be made inside {@code pluginManager.withPlugin} block
+   *
+   * @param pluginId ID of the plugin
+   * @param taskNames names of tasks provided by the plugin
+   * @param dependentTaskNames names of other tasks that require the plugin
+   */
+  private void applyPluginLazily(String pluginId, Set<String> taskNames, Set<String> dependentTaskNames = ImmutableSet.of()) {
+    if (project.pluginManager.hasPlugin(pluginId)) {
+      return
+    }
+    if (isAnyTaskRequested(taskNames) || isAnyTaskRequested(dependentTaskNames)) {
+      project.pluginManager.apply pluginId
+      return
+    }
+    project.tasks.addRule("Pattern: ${ taskNames.join(', ') }: applies $pluginId plugin providing the task".toString()) { String taskName ->
+      if (taskNames.contains(taskName) && !project.pluginManager.hasPlugin(pluginId)) {
+        project.pluginManager.apply pluginId
+      }
+    }
+  }
+
   /*
    * WORKAROUND:
    * Groovy error. Usage of `destination =` instead of setDestination leads to error:
@@ -591,7 +978,13 @@ final class ProjectPlugin extends AbstractProjectPlugin {
   @SuppressWarnings('UnnecessarySetter')
   private void configureDiagnostics() {
     ProjectConvention projectConvention = project.convention.getPlugin(ProjectConvention)
-    project.convention.getPlugin(ProjectReportsPluginConvention).projectReportDirName = projectConvention.getTxtReportDir(Paths.get('project')).toString()
+    project.pluginManager.withPlugin(PROJECT_REPORT_PLUGIN_ID) {
+      project.convention.getPlugin(ProjectReportsPluginConvention).projectReportDirName = projectConvention.getTxtReportDir(Paths.get('project')).toString()
+      project.tasks.named(PROJECT_REPORT).configure { Task projectReport ->
+        projectReport.group = DIAGNOSTICS_TASK_GROUP_NAME
+      }
+    }
+    applyPluginLazily PROJECT_REPORT_PLUGIN_ID, PROJECT_REPORT_TASK_NAMES
 
     project.tasks.withType(BuildEnvironmentReportTask).configureEach { BuildEnvironmentReportTask buildEnvironmentReport ->
       buildEnvironmentReport.group = DIAGNOSTICS_TASK_GROUP_NAME
@@ -626,8 +1019,9 @@ final class ProjectPlugin extends AbstractProjectPlugin {
     project.tasks.withType(TaskReportTask).configureEach { TaskReportTask taskReport ->
       taskReport.group = DIAGNOSTICS_TASK_GROUP_NAME
     }
-    project.tasks.named(PROJECT_REPORT).configure { Task projectReport ->
-      projectReport.group = DIAGNOSTICS_TASK_GROUP_NAME
+
+    if (project == project.rootProject && project.extensions.extraProperties.has(BUILD_TRACE_PROPERTY_NAME) && project.extensions.extraProperties[BUILD_TRACE_PROPERTY_NAME].toString().toBoolean()) {
+      project.gradle.addListener new BuildTraceRecorder(new File(projectConvention.jsonReportsDir, BuildTraceRecorder.DEFAULT_OUTPUT_FILE_NAME), project)
     }
 
     project.tasks.register(INPUTS_OUTPUTS_TASK_NAME, InputsOutputs) { InputsOutputs inputsOutputs ->
@@ -638,10 +1032,52 @@ final class ProjectPlugin extends AbstractProjectPlugin {
       }
     }
 
-    project.tasks.withType(TaskTreeTask).named(TASK_TREE_TASK_NAME).configure { TaskTreeTask taskTree ->
-      taskTree.group = DIAGNOSTICS_TASK_GROUP_NAME
+    if (project == project.rootProject) {
+      File taskInputsFile = new File(projectConvention.reportsDir, TaskInputsRecorder.DEFAULT_OUTPUT_FILE_NAME)
+      if (project.extensions.extraProperties.has(RECORD_TASK_INPUTS_PROPERTY_NAME) && project.extensions.extraProperties[RECORD_TASK_INPUTS_PROPERTY_NAME].toString().toBoolean()) {
+        project.gradle.addListener new TaskInputsRecorder(taskInputsFile, project.rootDir, project.gradle.gradleUserHomeDir)
+      }
+
+      project.tasks.register(EXPLAIN_CACHE_MISSES_TASK_NAME, ExplainCacheMisses) { ExplainCacheMisses explainCacheMisses ->
+        explainCacheMisses.with {
+          group = DIAGNOSTICS_TASK_GROUP_NAME
+          description = 'Reports which inputs differ for tasks that were executed instead of being taken from build cache'
+          if (project.extensions.extraProperties.has(TASK_INPUTS_BASELINE_PROPERTY_NAME)) {
+            baselineSnapshotFile.set project.file(project.extensions.extraProperties[TASK_INPUTS_BASELINE_PROPERTY_NAME])
+          }
+          currentSnapshotFile.set project.extensions.extraProperties.has(TASK_INPUTS_CURRENT_PROPERTY_NAME) ? project.file(project.extensions.extraProperties[TASK_INPUTS_CURRENT_PROPERTY_NAME]) : taskInputsFile
+          reportFile.set new File(projectConvention.txtReportsDir, 'cacheMisses.txt')
+        }
+      }
+
+      File buildMetricsStoreFile = project.extensions.extraProperties.has(BUILD_METRICS_STORE_PROPERTY_NAME) ?
+        project.file(project.extensions.extraProperties[BUILD_METRICS_STORE_PROPERTY_NAME]) :
+        new File(project.gradle.startParameter.projectCacheDir ?: new File(project.rootDir, '.gradle'), BuildMetricsRecorder.DEFAULT_STORE_FILE_NAME)
+      if (!project.extensions.extraProperties.has(RECORD_BUILD_METRICS_PROPERTY_NAME) || project.extensions.extraProperties[RECORD_BUILD_METRICS_PROPERTY_NAME].toString().toBoolean()) {
+        project.gradle.addListener new BuildMetricsRecorder(buildMetricsStoreFile, project)
+      }
+
+      if (project.extensions.extraProperties.has(RECORD_RECOMPILATIONS_PROPERTY_NAME) && project.extensions.extraProperties[RECORD_RECOMPILATIONS_PROPERTY_NAME].toString().toBoolean()) {
+        project.gradle.addListener new RecompilationRecorder(new File(project.gradle.startParameter.projectCacheDir ?: new File(project.rootDir, '.gradle'), RecompilationRecorder.DEFAULT_STORE_FILE_NAME))
+      }
+
+      project.tasks.register(BUILD_METRICS_TASK_NAME, BuildMetrics) { BuildMetrics buildMetrics ->
+        buildMetrics.with {
+          group = DIAGNOSTICS_TASK_GROUP_NAME
+          description = 'Renders trends of build metrics and flags regressions of the latest build'
+          storeFile.set buildMetricsStoreFile
+          reportFile.set new File(projectConvention.txtReportsDir, 'buildMetrics.txt')
+        }
+      }
     }
 
+    project.pluginManager.withPlugin(TASK_TREE_PLUGIN_ID) {
+      project.tasks.withType(TaskTreeTask).named(TASK_TREE_TASK_NAME).configure { TaskTreeTask taskTree ->
+        taskTree.group = DIAGNOSTICS_TASK_GROUP_NAME
+      }
+    }
+    applyPluginLazily TASK_TREE_PLUGIN_ID, ImmutableSet.of(TASK_TREE_TASK_NAME)
+
     /*
      * WORKAROUND:
      * cz.malohlava plugin doesn't work with Gradle 5
@@ -663,6 +1099,102 @@ final class ProjectPlugin extends AbstractProjectPlugin {
     }*/
   }
 
+  /**
+   * Name of verifyReproducibleArchives task
+   */
+  public static final String VERIFY_REPRODUCIBLE_ARCHIVES_TASK_NAME = 'verifyReproducibleArchives'
+
+  /**
+   * Suffix of names of tasks building archive once again
+   * to verify its reproducibility
+   */
+  public static final String REBUILD_ARCHIVE_TASK_NAME_SUFFIX = 'Rebuild'
+
+  /**
+   * Suffix of names of tasks verifying reproducibility of archive
+   */
+  public static final String VERIFY_REPRODUCIBLE_ARCHIVE_TASK_NAME_SUFFIX = 'VerifyReproducible'
+
+  private void configureArchives() {
+    project.tasks.withType(AbstractArchiveTask).configureEach { AbstractArchiveTask archive ->
+      archive.with {
+        preserveFileTimestamps = false
+        reproducibleFileOrder = true
+        dirMode = 0755
+        eachFile { FileCopyDetails fileCopyDetails ->
+          fileCopyDetails.mode = (fileCopyDetails.mode & 0100) != 0 ? 0755 : 0644
+        }
+      }
+    }
+
+    TaskProvider<Task> verifyReproducibleArchivesProvider = project.tasks.register(VERIFY_REPRODUCIBLE_ARCHIVES_TASK_NAME) { Task verifyReproducibleArchives ->
+      verifyReproducibleArchives.with {
+        group = VERIFICATION_GROUP
+        description = 'Builds all archives once again and verifies they are bit-identical'
+      }
+    }
+    /*
+     * CAVEAT:
+     * Rebuild tasks are registered only when verifyReproducibleArchives task
+     * is requested in the command line, so that archive tasks are not realized
+     * in ordinary builds
+     */
+    if (isAnyTaskRequested(ImmutableSet.of(VERIFY_REPRODUCIBLE_ARCHIVES_TASK_NAME))) {
+      project.tasks.withType(AbstractArchiveTask).matching { AbstractArchiveTask archive -> !archive.name.endsWith(REBUILD_ARCHIVE_TASK_NAME_SUFFIX) }.all { AbstractArchiveTask archive ->
+        TaskProvider<VerifyReproducibleArchive> verifyReproducibleArchiveProvider = registerReproducibilityVerification(archive)
+        verifyReproducibleArchivesProvider.configure { Task verifyReproducibleArchives ->
+          verifyReproducibleArchives.dependsOn verifyReproducibleArchiveProvider
+        }
+      }
+    }
+  }
+
+  private TaskProvider<VerifyReproducibleArchive> registerReproducibilityVerification(AbstractArchiveTask archive) {
+    /*
+     * Gradle instantiates tasks as generated subclasses
+     * of their declared types
+     */
+    Class<?> archiveType = archive.class
+    while (archiveType.name.endsWith('_Decorated')) {
+      archiveType = archiveType.superclass
+    }
+    TaskProvider<? extends AbstractArchiveTask> rebuildProvider = project.tasks.register("${ archive.name }$REBUILD_ARCHIVE_TASK_NAME_SUFFIX", (Class<? extends AbstractArchiveTask>)archiveType) { AbstractArchiveTask rebuild ->
+      rebuild.with((CopySpec)archive)
+      rebuild.with {
+        description = "Builds the same archive as $archive.path task once again"
+        destinationDirectory.set project.layout.buildDirectory.dir("tmp/$name")
+        archiveFileName.set archive.archiveFileName
+        duplicatesStrategy = archive.duplicatesStrategy
+        mustRunAfter archive
+        outputs.upToDateWhen { false }
+      }
+      if (Zip.isInstance(rebuild)) {
+        ((Zip)rebuild).with {
+          entryCompression = ((Zip)archive).entryCompression
+          zip64 = ((Zip)archive).zip64
+        }
+      }
+      if (Jar.isInstance(rebuild)) {
+        ((Jar)rebuild).manifest = ((Jar)archive).manifest
+      }
+      if (IncrementalJar.isInstance(rebuild)) {
+        // Rebuilt archive should be built from scratch
+        ((IncrementalJar)rebuild).incremental.set false
+      }
+      if (Tar.isInstance(rebuild)) {
+        ((Tar)rebuild).compression = ((Tar)archive).compression
+      }
+    }
+    project.tasks.register("${ archive.name }$VERIFY_REPRODUCIBLE_ARCHIVE_TASK_NAME_SUFFIX", VerifyReproducibleArchive) { VerifyReproducibleArchive verifyReproducibleArchive ->
+      verifyReproducibleArchive.with {
+        description = "Verifies that archive built by $archive.path task is reproducible"
+        dependsOn archive, rebuildProvider
+        archiveFile.set archive.archiveFile
+        rebuiltArchiveFile.set rebuildProvider.flatMap { AbstractArchiveTask rebuild -> rebuild.archiveFile }
+      }
+    }
+  }
+
   // TODO: CodeNarc bug
   @SuppressWarnings('UnnecessaryGetter')
   private void configureArtifacts() {
@@ -0,0 +1,372 @@
+/*
+ * AggregateDependencyUpdates Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import static org.fidata.utils.VersionUtils.isPreReleaseVersion
+import groovy.transform.CompileStatic
+import groovy.transform.Immutable
+import groovy.transform.Sortable
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import javax.xml.parsers.DocumentBuilderFactory
+import javax.xml.stream.XMLOutputFactory
+import javax.xml.stream.XMLStreamWriter
+import org.gradle.api.DefaultTask
+import org.gradle.api.Project
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.artifacts.Dependency
+import org.gradle.api.artifacts.ExternalModuleDependency
+import org.gradle.api.artifacts.repositories.ArtifactRepository
+import org.gradle.api.artifacts.repositories.MavenArtifactRepository
+import org.gradle.api.artifacts.repositories.PasswordCredentials
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.Version
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelector
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.TaskAction
+import org.w3c.dom.Document
+import org.w3c.dom.NodeList
+import org.xml.sax.SAXException
+
+/**
+ * Reports available updates of external module dependencies
+ * declared in all projects of the build.
+ *
+ * Unlike {@code dependencyUpdates} task provided by {@code com.github.ben-manes.versions} plugin
+ * this task runs once for the whole build.
+ * Each (group, module) pair is queried only once,
+ * repositories are queried concurrently,
+ * and fetched {@code maven-metadata.xml} files are cached between builds.
+ *
+ * Only Maven repositories are supported
+ */
+@CompileStatic
+class AggregateDependencyUpdates extends DefaultTask {
+  /**
+   * AggregateDependencyUpdates default output file name
+   */
+  public static final String DEFAULT_OUTPUT_FILE_NAME = 'aggregate.xml'
+
+  /**
+   * Revision of versions to look for.
+   * When it is {@code release} (by default), pre-release versions are rejected.
+   * Any other value turns off filtering
+   */
+  @Input
+  final Property<String> revision = project.objects.property(String).convention('release')
+
+  /**
+   * Maximum number of concurrent requests to repositories.
+   * By default it is equal to {@code --max-workers}
+   */
+  @Internal
+  final Property<Integer> maxParallelism = project.objects.property(Integer).convention(project.gradle.startParameter.maxWorkerCount)
+
+  /**
+   * Time in milliseconds while cached metadata is considered fresh.
+   * Default is 24 hours.
+   * In offline mode cached metadata is used regardless of its age
+   */
+  @Internal
+  final Property<Long> cacheTimeToLive = project.objects.property(Long).convention(24L * 60 * 60 * 1000)
+
+  /**
+   * Directory where fetched module metadata is cached between builds.
+   * By default it is inside Gradle user home
+   */
+  @Internal
+  final DirectoryProperty cacheDir = project.objects.directoryProperty()
+
+  /**
+   * Output file
+   */
+  @OutputFile
+  final RegularFileProperty outputFile = project.objects.fileProperty()
+
+  AggregateDependencyUpdates() {
+    cacheDir.set new File(project.gradle.gradleUserHomeDir, 'caches/fidata/dependency-updates')
+    outputs.upToDateWhen { false }
+  }
+
+  /**
+   * Module coordinates
+   */
+  @Immutable
+  @Sortable
+  static final class ModuleId {
+    String group
+    String name
+
+    @Override
+    String toString() {
+      "$group:$name"
+    }
+  }
+
+  /**
+   * Repository to query
+   */
+  @Immutable
+  static final class Repository {
+    String url
+    String username
+    String password
+  }
+
+  private static final VersionParser VERSION_PARSER = new VersionParser()
+
+  private static final DefaultVersionComparator VERSION_COMPARATOR = new DefaultVersionComparator()
+
+  private static final DefaultVersionSelectorScheme VERSION_SELECTOR_SCHEME = new DefaultVersionSelectorScheme(VERSION_COMPARATOR, VERSION_PARSER)
+
+  /**
+   * Generates a report
+   */
+  @TaskAction
+  void generate() {
+    SortedMap<ModuleId, SortedMap<String, SortedSet<String>>> declaredVersions = collectDeclaredVersions()
+    List<Repository> repositories = collectRepositories()
+    logger.info('aggregateDependencyUpdates: {} unique modules, {} repositories', declaredVersions.size(), repositories.size())
+
+    Map<ModuleId, String> latestVersions = [:]
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, maxParallelism.get()))
+    try {
+      Map<ModuleId, Future<String>> futures = [:]
+      for (ModuleId moduleId in declaredVersions.keySet()) {
+        futures[moduleId] = executor.submit((Callable<String>){ -> findLatestVersion(moduleId, repositories) })
+      }
+      futures.each { ModuleId moduleId, Future<String> future ->
+        latestVersions[moduleId] = future.get()
+      }
+    } finally {
+      executor.shutdownNow()
+    }
+
+    writeReport declaredVersions, latestVersions
+  }
+
+  /**
+   * Collects declared versions of external module dependencies across all projects
+   * @return map of module IDs to maps of declared versions to sets of project paths
+   */
+  private SortedMap<ModuleId, SortedMap<String, SortedSet<String>>> collectDeclaredVersions() {
+    SortedMap<ModuleId, SortedMap<String, SortedSet<String>>> result = new TreeMap<>()
+    for (Project p in project.rootProject.allprojects) {
+      for (Configuration configuration in p.configurations) {
+        for (Dependency dependency in configuration.dependencies) {
+          if (ExternalModuleDependency.isInstance(dependency) && dependency.group && dependency.version) {
+            ModuleId moduleId = new ModuleId(dependency.group, dependency.name)
+            result.get(moduleId, new TreeMap<String, SortedSet<String>>()).get(dependency.version, new TreeSet<String>()).add(p.path)
+          }
+        }
+      }
+    }
+    result
+  }
+
+  /**
+   * Collects Maven repositories across all projects
+   * @return list of unique repositories
+   */
+  private List<Repository> collectRepositories() {
+    Map<String, Repository> result = new LinkedHashMap<>()
+    for (Project p in project.rootProject.allprojects) {
+      for (ArtifactRepository repository in p.repositories) {
+        if (MavenArtifactRepository.isInstance(repository)) {
+          MavenArtifactRepository mavenRepository = (MavenArtifactRepository)repository
+          String url = mavenRepository.url.toString()
+          if (!url.endsWith('/')) {
+            url += '/'
+          }
+          PasswordCredentials credentials = mavenRepository.getCredentials(PasswordCredentials)
+          result.putIfAbsent url, new Repository(url, credentials.username, credentials.password)
+        }
+      }
+    }
+    new ArrayList<>(result.values())
+  }
+
+  /**
+   * Finds the latest version of the module across all repositories
+   * @param moduleId module to look for
+   * @param repositories repositories to query
+   * @return the latest version, or null if no acceptable versions were found
+   */
+  private String findLatestVersion(ModuleId moduleId, List<Repository> repositories) {
+    boolean rejectPreReleases = revision.get() == 'release'
+    Set<String> versions = (Set<String>)repositories.collectMany(new HashSet<String>()) { Repository repository -> fetchVersions(moduleId, repository) }
+    selectLatestVersion(versions, rejectPreReleases)
+  }
+
+  /**
+   * Selects the latest version using Gradle version ordering
+   * @param versions candidate versions
+   * @param rejectPreReleases whether pre-release versions should be rejected
+   * @return the latest version, or null if there are no acceptable candidates
+   */
+  static String selectLatestVersion(Collection<String> versions, boolean rejectPreReleases) {
+    Collection<String> candidates = rejectPreReleases ? versions.findAll { String version -> !isPreReleaseVersion(version) } : versions
+    candidates.max { String a, String b -> VERSION_COMPARATOR.compare(VERSION_PARSER.transform(a), VERSION_PARSER.transform(b)) }
+  }
+
+  /**
+   * Fetches list of module versions from repository,
+   * using cached metadata whenever possible
+   * @param moduleId module to look for
+   * @param repository repository to query
+   * @return list of versions. Empty when module is not found in the repository
+   */
+  private List<String> fetchVersions(ModuleId moduleId, Repository repository) {
+    String metadataUrl = "${ repository.url }${ moduleId.group.replace('.', '/') }/${ moduleId.name }/maven-metadata.xml"
+    File cacheFile = new File(cacheDir.get().asFile, "${ Integer.toHexString(metadataUrl.hashCode()) }-${ moduleId.name }.txt")
+    boolean offline = project.gradle.startParameter.offline
+    if (cacheFile.exists() && (offline || System.currentTimeMillis() - cacheFile.lastModified() < cacheTimeToLive.get())) {
+      List<String> lines = cacheFile.readLines(UTF_8.name())
+      if (lines && lines[0] == metadataUrl) {
+        return lines.tail()
+      }
+    }
+    if (offline) {
+      return []
+    }
+
+    List<String> versions
+    try {
+      URLConnection connection = new URL(metadataUrl).openConnection()
+      if (repository.username != null && repository.password != null) {
+        connection.setRequestProperty 'Authorization', "Basic ${ "${ repository.username }:${ repository.password }".getBytes(UTF_8).encodeBase64() }"
+      }
+      versions = connection.inputStream.withStream { InputStream inputStream ->
+        parseMavenMetadataVersions(inputStream)
+      }
+    } catch (FileNotFoundException ignored) {
+      versions = []
+    } catch (SAXException e) {
+      logger.warn('aggregateDependencyUpdates: malformed {}: {}', metadataUrl, e.toString())
+      return []
+    } catch (IOException e) {
+      logger.warn('aggregateDependencyUpdates: unable to fetch {}: {}', metadataUrl, e.toString())
+      return []
+    }
+
+    cacheFile.parentFile.mkdirs()
+    cacheFile.withPrintWriter(UTF_8.name()) { PrintWriter writer ->
+      writer.println metadataUrl
+      versions.each { String version -> writer.println version }
+    }
+    versions
+  }
+
+  /**
+   * Parses list of versions from {@code maven-metadata.xml}
+   * @param inputStream stream with metadata
+   * @return list of versions
+   * @throws SAXException when metadata is not well-formed XML
+   */
+  static List<String> parseMavenMetadataVersions(InputStream inputStream) throws SAXException {
+    Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(inputStream)
+    NodeList nodes = document.getElementsByTagName('version')
+    List<String> result = []
+    for (int i = 0; i < nodes.length; i++) {
+      result.add nodes.item(i).textContent.trim()
+    }
+    result
+  }
+
+  /**
+   * Status of dependency
+   */
+  enum Status {
+    CURRENT,
+    OUTDATED,
+    EXCEEDED,
+    UNRESOLVED,
+  }
+
+  /**
+   * Determines status of declared dependency version
+   * @param declaredVersion declared version. Could be a range or dynamic version
+   * @param latestVersion the latest available version
+   * @return status
+   */
+  static Status getStatus(String declaredVersion, String latestVersion) {
+    if (latestVersion == null) {
+      return Status.UNRESOLVED
+    }
+    VersionSelector selector = VERSION_SELECTOR_SCHEME.parseSelector(declaredVersion)
+    // Selectors like latest.release require module metadata and always resolve to the latest version
+    if (selector.requiresMetadata() || selector.accept(latestVersion)) {
+      return Status.CURRENT
+    }
+    if (selector.dynamic) {
+      return Status.OUTDATED
+    }
+    Version declared = VERSION_PARSER.transform(declaredVersion)
+    Version latest = VERSION_PARSER.transform(latestVersion)
+    VERSION_COMPARATOR.compare(declared, latest) < 0 ? Status.OUTDATED : Status.EXCEEDED
+  }
+
+  private void writeReport(SortedMap<ModuleId, SortedMap<String, SortedSet<String>>> declaredVersions, Map<ModuleId, String> latestVersions) {
+    File file = outputFile.get().asFile
+    file.parentFile.mkdirs()
+    Map<Status, Integer> counts = new EnumMap<>(Status)
+    file.withWriter(UTF_8.name()) { Writer writer ->
+      XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(writer)
+      xml.writeStartDocument UTF_8.name(), '1.0'
+      xml.writeStartElement 'response'
+      declaredVersions.each { ModuleId moduleId, SortedMap<String, SortedSet<String>> versions ->
+        String latestVersion = latestVersions[moduleId]
+        versions.each { String declaredVersion, SortedSet<String> projectPaths ->
+          Status status = getStatus(declaredVersion, latestVersion)
+          counts[status] = (counts[status] ?: 0) + 1
+          xml.writeStartElement 'dependency'
+          xml.writeAttribute 'status', status.name().toLowerCase(Locale.ROOT)
+          xml.writeAttribute 'group', moduleId.group
+          xml.writeAttribute 'name', moduleId.name
+          xml.writeAttribute 'version', declaredVersion
+          if (latestVersion != null) {
+            xml.writeAttribute 'latest', latestVersion
+          }
+          projectPaths.each { String projectPath ->
+            xml.writeEmptyElement 'project'
+            xml.writeAttribute 'path', projectPath
+          }
+          xml.writeEndElement()
+        }
+      }
+      xml.writeEndElement()
+      xml.writeEndDocument()
+      xml.close()
+    }
+    logger.lifecycle('Dependency updates: {} current, {} outdated, {} exceeded, {} unresolved. See the report at {}',
+      counts[Status.CURRENT] ?: 0, counts[Status.OUTDATED] ?: 0, counts[Status.EXCEEDED] ?: 0, counts[Status.UNRESOLVED] ?: 0, file)
+  }
+}
@@ -0,0 +1,186 @@
+#!/usr/bin/env groovy
+/*
+ * AuditAnnotationProcessors Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.transform.CompileStatic
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import org.fidata.gradle.utils.RecompilationRecorder
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.FileCollection
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.TaskAction
+import org.gradle.api.tasks.compile.JavaCompile
+
+/**
+ * Classifies annotation processors on processor path
+ * of each {@link JavaCompile} task of the project
+ * as isolating, aggregating, dynamic or non-incremental.
+ *
+ * Any non-incremental processor turns compilation into full recompilation.
+ * Report also includes counts of full and incremental recompilations
+ * recorded by {@link RecompilationRecorder}
+ */
+@CompileStatic
+class AuditAnnotationProcessors extends DefaultTask {
+  /**
+   * Location of annotation processor registration
+   */
+  public static final String PROCESSOR_SERVICE_FILE_NAME = 'META-INF/services/javax.annotation.processing.Processor'
+
+  /**
+   * Location of registration of incremental annotation processors
+   */
+  public static final String INCREMENTAL_PROCESSORS_FILE_NAME = 'META-INF/gradle/incremental.annotation.processors'
+
+  /**
+   * Kind of annotation processor
+   */
+  static enum Kind {
+    ISOLATING,
+    AGGREGATING,
+    DYNAMIC,
+    NON_INCREMENTAL
+  }
+
+  /**
+   * Whether to fail when there are non-incremental processors.
+   * Default is false
+   */
+  @Input
+  final Property<Boolean> failOnNonIncremental = project.objects.property(Boolean).convention(false)
+
+  /**
+   * Store of recompilation counts
+   */
+  @Internal
+  final RegularFileProperty recompilationsStoreFile = project.objects.fileProperty()
+
+  /**
+   * Report file
+   */
+  @OutputFile
+  final RegularFileProperty reportFile = project.objects.fileProperty()
+
+  AuditAnnotationProcessors() {
+    outputs.upToDateWhen { false }
+  }
+
+  /**
+   * Classifies annotation processors registered in processor path entry
+   * @param entry jar file or directory
+   * @return processor class names with their kinds
+   */
+  static SortedMap<String, Kind> classify(File entry) {
+    SortedMap<String, Kind> result = new TreeMap<>()
+    List<String> processors
+    List<String> incrementalProcessors
+    if (entry.directory) {
+      processors = readLines(new File(entry, PROCESSOR_SERVICE_FILE_NAME))
+      incrementalProcessors = readLines(new File(entry, INCREMENTAL_PROCESSORS_FILE_NAME))
+    } else if (entry.file) {
+      new ZipFile(entry).withCloseable { ZipFile zipFile ->
+        processors = readLines(zipFile, PROCESSOR_SERVICE_FILE_NAME)
+        incrementalProcessors = readLines(zipFile, INCREMENTAL_PROCESSORS_FILE_NAME)
+      }
+    } else {
+      return result
+    }
+    for (String processor in processors) {
+      result.put processor, Kind.NON_INCREMENTAL
+    }
+    for (String line in incrementalProcessors) {
+      List<String> parts = line.split(',', 2)*.trim()
+      if (parts.size() == 2 && result.containsKey(parts[0])) {
+        try {
+          result.put parts[0], Kind.valueOf(parts[1].toUpperCase())
+        } catch (IllegalArgumentException ignored) {
+          // Unknown kind is treated by Gradle as non-incremental
+        }
+      }
+    }
+    result
+  }
+
+  private static List<String> readLines(File file) {
+    file.file ? parseLines(file.getText(UTF_8.name())) : []
+  }
+
+  private static List<String> readLines(ZipFile zipFile, String name) {
+    ZipEntry zipEntry = zipFile.getEntry(name)
+    zipEntry != null ? parseLines(zipFile.getInputStream(zipEntry).getText(UTF_8.name())) : []
+  }
+
+  private static List<String> parseLines(String text) {
+    text.readLines().collect { String line ->
+      int commentIndex = line.indexOf('#')
+      (commentIndex >= 0 ? line.substring(0, commentIndex) : line).trim()
+    }.findAll { String line -> !line.empty }
+  }
+
+  /**
+   * Generates a report
+   */
+  @TaskAction
+  void audit() {
+    Properties recompilations = recompilationsStoreFile.present ? RecompilationRecorder.load(recompilationsStoreFile.get().asFile) : new Properties()
+    Set<String> nonIncremental = new TreeSet<>()
+    reportFile.get().asFile.withPrintWriter(UTF_8.name()) { PrintWriter writer ->
+      project.tasks.withType(JavaCompile).sort { JavaCompile javaCompile -> javaCompile.name }.each { JavaCompile javaCompile ->
+        writer.println javaCompile.path
+        writer.println "  recompilations: full ${ recompilations.getProperty(javaCompile.path + RecompilationRecorder.FULL_SUFFIX, '0') }, incremental ${ recompilations.getProperty(javaCompile.path + RecompilationRecorder.INCREMENTAL_SUFFIX, '0') }"
+        FileCollection processorPath = javaCompile.options.annotationProcessorPath
+        SortedMap<String, Kind> processors = new TreeMap<>()
+        if (processorPath != null) {
+          for (File entry in processorPath.files) {
+            processors.putAll classify(entry)
+          }
+        }
+        if (processors.isEmpty()) {
+          writer.println '  no annotation processors'
+        }
+        processors.each { String processor, Kind kind ->
+          writer.println "  ${ kind.name().toLowerCase().replace('_', '-') }: $processor"
+          if (kind == Kind.NON_INCREMENTAL) {
+            nonIncremental.add "$processor in $javaCompile.path".toString()
+          }
+        }
+      }
+    }
+
+    if (nonIncremental.empty) {
+      logger.info('All annotation processors are incremental. See {}', reportFile.get().asFile)
+      return
+    }
+    String message = "Non-incremental annotation processors cause full recompilation: ${ nonIncremental.join(', ') }. See ${ reportFile.get().asFile }"
+    if (failOnNonIncremental.get()) {
+      throw new GradleException(message)
+    }
+    logger.warn(message)
+  }
+}
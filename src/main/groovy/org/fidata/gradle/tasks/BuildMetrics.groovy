@@ -0,0 +1,321 @@
+#!/usr/bin/env groovy
+/*
+ * BuildMetrics Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.json.JsonSlurper
+import groovy.transform.CompileStatic
+import groovy.transform.Immutable
+import org.gradle.api.DefaultTask
+import org.gradle.api.Project
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.TaskAction
+import org.gradle.api.tasks.options.Option
+
+/**
+ * Renders trends of build metrics
+ * recorded by {@link org.fidata.gradle.utils.BuildMetricsRecorder}
+ * and flags regressions of the latest build.
+ *
+ * Latest build is compared with a rolling baseline
+ * of previous builds with the same requested tasks.
+ * Builds which requested this task only and failed builds are not analyzed.
+ * Other build could be chosen with {@link #analyzedTasks}.
+ * Metric is considered regressed
+ * when its z-score against the baseline exceeds {@link #threshold}
+ * and relative change exceeds {@link #minRelativeChange}
+ */
+@CompileStatic
+class BuildMetrics extends DefaultTask {
+  /**
+   * Metrics store
+   */
+  @Internal
+  final RegularFileProperty storeFile = project.objects.fileProperty()
+
+  /**
+   * Number of previous builds in the baseline.
+   * Default is 20
+   */
+  @Input
+  final Property<Integer> window = project.objects.property(Integer).convention(20)
+
+  /**
+   * Minimal number of builds in the baseline to detect regressions.
+   * Default is 5
+   */
+  @Input
+  final Property<Integer> minBaselineSize = project.objects.property(Integer).convention(5)
+
+  /**
+   * Z-score threshold.
+   * Default is 3
+   */
+  @Input
+  final Property<Double> threshold = project.objects.property(Double).convention(3.0d)
+
+  /**
+   * Minimal relative change, so that noise of very stable metrics is not flagged.
+   * Default is 0.1
+   */
+  @Input
+  final Property<Double> minRelativeChange = project.objects.property(Double).convention(0.1d)
+
+  /**
+   * Requested tasks of the build to analyze, space-separated.
+   * By default, the latest build is analyzed
+   */
+  @Input
+  @Optional
+  final Property<String> analyzedTasks = project.objects.property(String)
+
+  /**
+   * Sets requested tasks of the build to analyze
+   * @param analyzedTasks requested tasks, space-separated
+   */
+  @Option(option = 'tasks', description = 'Requested tasks of the build to analyze, space-separated. By default, the latest build is analyzed')
+  void setAnalyzedTasks(String analyzedTasks) {
+    this.analyzedTasks.set analyzedTasks
+  }
+
+  /**
+   * Report file
+   */
+  @OutputFile
+  final RegularFileProperty reportFile = project.objects.fileProperty()
+
+  BuildMetrics() {
+    outputs.upToDateWhen { false }
+  }
+
+  /**
+   * Trend of one metric
+   */
+  @Immutable
+  static final class Trend {
+    String metric
+    List<Double> baseline
+    double latest
+    double mean
+    double standardDeviation
+    double zScore
+    boolean regression
+  }
+
+  /**
+   * Metrics for which lower values are worse
+   */
+  static final Set<String> LOWER_IS_WORSE = Collections.unmodifiableSet(['cacheHitRate'].toSet())
+
+  /**
+   * Extracts numeric metrics from record
+   * @param record record from the store
+   * @return metrics by name
+   */
+  static Map<String, Double> getMetrics(Map<String, Object> record) {
+    Map<String, Double> result = new TreeMap<>()
+    putMetric result, 'buildMillis', record['buildMillis']
+    Map<String, Object> configurationMillis = (Map<String, Object>)record['configurationMillis'] ?: [:]
+    putMetric result, 'configurationMillis', configurationMillis.values().sum(0) { Object value -> ((Number)value).longValue() }
+    configurationMillis.each { String projectPath, Object value ->
+      putMetric result, "configurationMillis $projectPath", value
+    }
+    Map<String, Object> taskOutcomes = (Map<String, Object>)record['taskOutcomes'] ?: [:]
+    putMetric result, 'executedTasks', taskOutcomes['EXECUTED'] ?: 0
+    putMetric result, 'cacheHitRate', record['cacheHitRate']
+    Map<String, Object> tests = (Map<String, Object>)record['tests'] ?: [:]
+    putMetric result, 'testMillis', tests['millis']
+    putMetric result, 'sampledPeakHeapBytes', record['sampledPeakHeapBytes']
+    result
+  }
+
+  /**
+   * Determines whether build requested the given task only
+   * @param tasks requested tasks of the build with their options, space-separated
+   * @param taskName task name
+   * @return whether all requested tasks (names or paths) are the given task
+   */
+  static boolean isTaskOnly(String tasks, String taskName) {
+    boolean found = false
+    boolean optionValueExpected = false
+    for (String requestedTask in tasks.split(' ')) {
+      if (requestedTask.empty) {
+        continue
+      }
+      if (requestedTask.startsWith('-')) {
+        optionValueExpected = !requestedTask.contains('=')
+        continue
+      }
+      if (optionValueExpected) {
+        // Value of task option
+        optionValueExpected = false
+        continue
+      }
+      if (requestedTask.substring(requestedTask.lastIndexOf(Project.PATH_SEPARATOR) + 1) != taskName) {
+        return false
+      }
+      found = true
+    }
+    found
+  }
+
+  /**
+   * Determines whether record is of successful build.
+   * Failed builds are usually interrupted and so skew the baseline
+   * @param record record from the store
+   * @return whether build is not recorded as failed
+   */
+  static boolean isSuccessful(Map<String, Object> record) {
+    record['success'] != Boolean.FALSE
+  }
+
+  private static void putMetric(Map<String, Double> metrics, String name, Object value) {
+    if (value instanceof Number) {
+      metrics.put name, ((Number)value).doubleValue()
+    }
+  }
+
+  /**
+   * Analyzes trends of the latest record against baseline
+   * @param baseline previous records, oldest first
+   * @param latest latest record
+   * @param minBaselineSize minimal number of baseline values to detect regression
+   * @param threshold z-score threshold
+   * @param minRelativeChange minimal relative change
+   * @return trends
+   */
+  static List<Trend> analyze(List<Map<String, Object>> baseline, Map<String, Object> latest, int minBaselineSize, double threshold, double minRelativeChange) {
+    List<Map<String, Double>> baselineMetrics = baseline.collect { Map<String, Object> record -> getMetrics(record) }
+    getMetrics(latest).collect { String metric, Double latestValue ->
+      List<Double> values = baselineMetrics.findResults { Map<String, Double> metrics -> metrics[metric] }
+      double mean = values.empty ? Double.NaN : (double)values.sum(0d) / values.size()
+      double variance = values.size() < 2 ? 0d : (double)values.sum(0d) { Double value -> (value - mean) * (value - mean) } / (values.size() - 1)
+      double standardDeviation = Math.sqrt(variance)
+      double delta = LOWER_IS_WORSE.contains(metric) ? mean - latestValue : latestValue - mean
+      double zScore = standardDeviation > 0d ? delta / standardDeviation : (delta > 0d ? Double.POSITIVE_INFINITY : 0d)
+      boolean regression = values.size() >= minBaselineSize && zScore > threshold && mean != 0d && delta / Math.abs(mean) > minRelativeChange
+      new Trend(metric, values, latestValue, mean, standardDeviation, zScore, regression)
+    }
+  }
+
+  private static final String SPARK_CHARS = '▁▂▃▄▅▆▇█'
+
+  /**
+   * Renders values as a sparkline
+   * @param values values
+   * @return sparkline
+   */
+  static String sparkline(List<Double> values) {
+    if (values.empty) {
+      return ''
+    }
+    double min = values.min()
+    double max = values.max()
+    StringBuilder result = new StringBuilder()
+    for (Double value in values) {
+      int index = max > min ? (int)Math.round((value - min) / (max - min) * (SPARK_CHARS.length() - 1)) : 0
+      result.append SPARK_CHARS.charAt(index)
+    }
+    result.toString()
+  }
+
+  /**
+   * Renders the report
+   */
+  @TaskAction
+  void render() {
+    File store = storeFile.get().asFile
+    File report = reportFile.get().asFile
+    if (!store.file) {
+      report.setText "No build metrics recorded yet in $store\n", UTF_8.name()
+      logger.lifecycle('No build metrics recorded yet')
+      return
+    }
+
+    /*
+     * Store is read line by line.
+     * Only the last records for each set of requested tasks are kept in memory
+     */
+    Map<String, LinkedList<Map<String, Object>>> histories = [:]
+    Map<String, Object> latest = null
+    JsonSlurper jsonSlurper = new JsonSlurper()
+    store.eachLine(UTF_8.name()) { String line ->
+      if (line.trim().empty) {
+        return
+      }
+      Map<String, Object> record = (Map<String, Object>)jsonSlurper.parseText(line)
+      if (!isSuccessful(record)) {
+        return
+      }
+      String tasks = record['tasks'].toString()
+      if (isTaskOnly(tasks, name) || analyzedTasks.present && tasks != analyzedTasks.get()) {
+        return
+      }
+      LinkedList<Map<String, Object>> history = histories.get(tasks)
+      if (history == null) {
+        history = new LinkedList<>()
+        histories.put tasks, history
+      }
+      history.addLast record
+      if (history.size() > window.get() + 1) {
+        history.removeFirst()
+      }
+      latest = record
+    }
+    if (latest == null) {
+      report.setText "No build metrics recorded yet in $store\n", UTF_8.name()
+      return
+    }
+
+    List<Map<String, Object>> history = histories[latest['tasks'].toString()]
+    List<Map<String, Object>> baseline = history.subList(0, history.size() - 1)
+    List<Trend> trends = analyze(baseline, latest, minBaselineSize.get(), threshold.get(), minRelativeChange.get())
+    List<Trend> regressions = trends.findAll { Trend trend -> trend.regression }
+
+    report.withPrintWriter(UTF_8.name()) { PrintWriter writer ->
+      writer.println "Requested tasks: ${ latest['tasks'] ?: '(default)' }"
+      writer.println "Baseline: ${ baseline.size() } previous builds"
+      writer.println()
+      for (Trend trend in trends) {
+        writer.printf('%-40s %-22s latest %14.2f  mean %14.2f  z %7.2f%s%n',
+          trend.metric,
+          sparkline(trend.baseline + [trend.latest]),
+          trend.latest,
+          trend.mean,
+          trend.zScore,
+          trend.regression ? '  REGRESSION' : ''
+        )
+      }
+    }
+
+    if (regressions.empty) {
+      logger.lifecycle('No build metrics regressions. See {}', report)
+    } else {
+      logger.warn('Build metrics regressions: {}. See {}', regressions*.metric.join(', '), report)
+    }
+  }
+}
@@ -0,0 +1,198 @@
+#!/usr/bin/env groovy
+/*
+ * Checksums Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.transform.CompileStatic
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+import java.security.MessageDigest
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import org.gradle.api.DefaultTask
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.provider.ListProperty
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Computes checksums of artifacts with several algorithms.
+ *
+ * Each file is read once, all digests are fed in the same pass.
+ * Files are processed concurrently.
+ *
+ * For each artifact and algorithm sidecar file
+ * {@code <artifact file name>.<algorithm extension>} is written
+ * into {@link #destinationDir}.
+ * All checksums are also written into {@link #CHECKSUMS_FILE_NAME} file there,
+ * and could be got with {@link #getChecksums}
+ * so that consumers don't have to compute them again
+ */
+@CacheableTask
+@CompileStatic
+class Checksums extends DefaultTask {
+  /**
+   * Name of file with all checksums
+   */
+  public static final String CHECKSUMS_FILE_NAME = 'checksums.properties'
+
+  /**
+   * Default algorithms
+   */
+  public static final List<String> DEFAULT_ALGORITHMS = Collections.unmodifiableList(['MD5', 'SHA-1', 'SHA-256', 'SHA-512'])
+
+  private static final int BUFFER_SIZE = 1024 * 1024
+
+  /**
+   * Artifacts
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.NAME_ONLY)
+  final ConfigurableFileCollection artifacts = project.files()
+
+  /**
+   * Digest algorithms, as understood by {@link MessageDigest}
+   */
+  @Input
+  final ListProperty<String> algorithms = project.objects.listProperty(String).convention(DEFAULT_ALGORITHMS)
+
+  /**
+   * Maximum number of files processed concurrently.
+   * By default it is equal to {@code --max-workers}
+   */
+  @Internal
+  final Property<Integer> maxParallelism = project.objects.property(Integer).convention(project.gradle.startParameter.maxWorkerCount)
+
+  /**
+   * Directory for sidecar files and {@link #CHECKSUMS_FILE_NAME} file
+   */
+  @OutputDirectory
+  final DirectoryProperty destinationDir = project.objects.directoryProperty()
+
+  /**
+   * Gets extension of sidecar file for algorithm,
+   * e.g. {@code sha256} for {@code SHA-256}
+   * @param algorithm algorithm
+   * @return extension
+   */
+  static String getExtension(String algorithm) {
+    algorithm.toLowerCase().replace('-', '')
+  }
+
+  /**
+   * Gets sidecar file
+   * @param artifact artifact file
+   * @param algorithm algorithm
+   * @return sidecar file inside {@link #destinationDir}
+   */
+  File getSidecarFile(File artifact, String algorithm) {
+    new File(destinationDir.get().asFile, "${ artifact.name }.${ getExtension(algorithm) }")
+  }
+
+  /**
+   * Gets checksums computed by the last execution of this task
+   * @param artifact artifact file
+   * @return hex-encoded checksums by algorithm
+   */
+  Map<String, String> getChecksums(File artifact) {
+    Properties properties = new Properties()
+    new File(destinationDir.get().asFile, CHECKSUMS_FILE_NAME).withReader(UTF_8.name()) { Reader reader ->
+      properties.load reader
+    }
+    (Map<String, String>)algorithms.get().collectEntries { String algorithm ->
+      [(algorithm): properties.getProperty("${ artifact.name }.$algorithm".toString())]
+    }
+  }
+
+  /**
+   * Computes checksums of file in one pass
+   * @param file file
+   * @param algorithms algorithms
+   * @return hex-encoded checksums by algorithm
+   */
+  static Map<String, String> computeChecksums(File file, List<String> algorithms) {
+    List<MessageDigest> digests = algorithms.collect { String algorithm -> MessageDigest.getInstance(algorithm) }
+    ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE)
+    FileChannel.open(file.toPath(), StandardOpenOption.READ).withCloseable { FileChannel channel ->
+      while (channel.read(buffer) >= 0) {
+        buffer.flip()
+        for (MessageDigest digest in digests) {
+          buffer.position 0
+          digest.update buffer
+        }
+        buffer.clear()
+      }
+    }
+    Map<String, String> result = new LinkedHashMap<>()
+    algorithms.eachWithIndex { String algorithm, int i ->
+      result.put algorithm, digests[i].digest().encodeHex().toString()
+    }
+    result
+  }
+
+  /**
+   * Computes checksums
+   */
+  @TaskAction
+  void compute() {
+    File dir = destinationDir.get().asFile
+    project.delete dir
+    dir.mkdirs()
+
+    List<String> algorithmList = algorithms.get()
+    List<File> files = artifacts.files.findAll { File file -> file.file }.sort { File file -> file.name }
+    SortedMap<String, String> checksums = new TreeMap<>()
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, maxParallelism.get()))
+    try {
+      Map<File, Future<Map<String, String>>> futures = new LinkedHashMap<>()
+      files.each { File file ->
+        futures[file] = executor.submit((Callable<Map<String, String>>){ -> computeChecksums(file, algorithmList) })
+      }
+      futures.each { File file, Future<Map<String, String>> future ->
+        future.get().each { String algorithm, String checksum ->
+          getSidecarFile(file, algorithm).setText checksum, UTF_8.name()
+          checksums.put "${ file.name }.$algorithm".toString(), checksum
+        }
+      }
+    } finally {
+      executor.shutdownNow()
+    }
+
+    // Properties#store writes timestamp, so the file is written manually to be reproducible
+    new File(dir, CHECKSUMS_FILE_NAME).withPrintWriter(UTF_8.name()) { PrintWriter writer ->
+      checksums.each { String key, String checksum ->
+        writer.println "$key=$checksum"
+      }
+    }
+  }
+}
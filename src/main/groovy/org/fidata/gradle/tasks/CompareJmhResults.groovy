@@ -0,0 +1,176 @@
+#!/usr/bin/env groovy
+/*
+ * CompareJmhResults Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.json.JsonSlurper
+import groovy.transform.CompileStatic
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFile
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Compares JMH results in JSON format against a stored baseline
+ * and fails when any benchmark regresses beyond tolerance.
+ *
+ * Benchmarks are matched by name, mode and parameters.
+ * For throughput mode greater score is better,
+ * for all other modes lower score is better.
+ * Benchmarks absent in the baseline are reported but not considered regressions
+ */
+@CompileStatic
+class CompareJmhResults extends DefaultTask {
+  /**
+   * JMH mode in which greater score is better
+   */
+  public static final String THROUGHPUT_MODE = 'thrpt'
+
+  /**
+   * Results of the current run
+   */
+  @InputFile
+  @PathSensitive(PathSensitivity.NONE)
+  final RegularFileProperty resultsFile = project.objects.fileProperty()
+
+  /**
+   * Stored baseline.
+   * When it doesn't exist the task is skipped
+   */
+  @Internal
+  final RegularFileProperty baselineFile = project.objects.fileProperty()
+
+  /**
+   * Maximum allowed relative change of score in the worse direction.
+   * Default is {@code 0.1}, i.e. 10 %
+   */
+  @Input
+  final Property<Double> tolerance = project.objects.property(Double).convention(0.1d)
+
+  /**
+   * Text report
+   */
+  @OutputFile
+  final RegularFileProperty reportFile = project.objects.fileProperty()
+
+  CompareJmhResults() {
+    onlyIf {
+      baselineFile.get().asFile.exists()
+    }
+    outputs.upToDateWhen { false }
+  }
+
+  /**
+   * Builds a key identifying benchmark across runs
+   * @param result result of a single benchmark as parsed from JMH JSON output
+   * @return key
+   */
+  static String getBenchmarkKey(Map<String, Object> result) {
+    String key = "${ result['benchmark'] } (${ result['mode'] })"
+    Map<String, Object> params = (Map<String, Object>)result['params']
+    if (params) {
+      key += ' ' + params.sort().collect { String name, Object value -> "$name=$value" }.join(', ')
+    }
+    key
+  }
+
+  private static Map<String, Map<String, Object>> indexResults(List<Map<String, Object>> results) {
+    Map<String, Map<String, Object>> index = new TreeMap<>()
+    results.each { Map<String, Object> result ->
+      index[getBenchmarkKey(result)] = result
+    }
+    index
+  }
+
+  private static double getScore(Map<String, Object> result) {
+    ((Number)((Map<String, Object>)result['primaryMetric'])['score']).doubleValue()
+  }
+
+  /**
+   * Finds regressed benchmarks
+   * @param results results of the current run
+   * @param baseline baseline results
+   * @param tolerance maximum allowed relative change of score in the worse direction
+   * @return map from benchmark key to relative change of score.
+   *         Positive change means the benchmark got worse
+   */
+  static Map<String, Double> findRegressions(List<Map<String, Object>> results, List<Map<String, Object>> baseline, double tolerance) {
+    Map<String, Map<String, Object>> baselineIndex = indexResults(baseline)
+    Map<String, Double> regressions = new TreeMap<>()
+    indexResults(results).each { String key, Map<String, Object> result ->
+      Map<String, Object> baselineResult = baselineIndex[key]
+      if (baselineResult == null) {
+        return
+      }
+      double baselineScore = getScore(baselineResult)
+      if (baselineScore == 0d) {
+        return
+      }
+      double change = (getScore(result) - baselineScore) / baselineScore
+      if (result['mode'] == THROUGHPUT_MODE) {
+        change = -change
+      }
+      if (change > tolerance) {
+        regressions[key] = change
+      }
+    }
+    regressions
+  }
+
+  private static List<Map<String, Object>> readResults(File file) {
+    (List<Map<String, Object>>)new JsonSlurper().parse(file, UTF_8.name())
+  }
+
+  /**
+   * Compares results
+   */
+  @TaskAction
+  void compare() {
+    List<Map<String, Object>> results = readResults(resultsFile.get().asFile)
+    List<Map<String, Object>> baseline = readResults(baselineFile.get().asFile)
+    Map<String, Double> regressions = findRegressions(results, baseline, tolerance.get())
+    Set<String> newBenchmarks = indexResults(results).keySet() - indexResults(baseline).keySet()
+
+    File report = reportFile.get().asFile
+    report.parentFile.mkdirs()
+    report.withWriter(UTF_8.name()) { Writer writer ->
+      writer.write "Tolerance: ${ String.format(Locale.ROOT, '%.1f', tolerance.get() * 100) } %\n"
+      regressions.each { String key, Double change ->
+        writer.write "REGRESSED ${ String.format(Locale.ROOT, '%+.1f', change * 100) } %: $key\n"
+      }
+      newBenchmarks.each { String key ->
+        writer.write "NOT IN BASELINE: $key\n"
+      }
+    }
+
+    if (!regressions.isEmpty()) {
+      throw new GradleException("${ regressions.size() } benchmark(s) regressed beyond tolerance. See the report at: ${ report.toURI() }")
+    }
+  }
+}
@@ -0,0 +1,290 @@
+#!/usr/bin/env groovy
+/*
+ * ComputeApiHash Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.transform.CompileStatic
+import groovy.transform.PackageScope
+import java.security.MessageDigest
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+import org.fidata.gradle.utils.ClassFile
+import org.gradle.api.DefaultTask
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.FileVisitDetails
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.CompileClasspath
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Computes hash of public and protected API and its documentation.
+ *
+ * Hash covers:
+ * <ul>
+ *   <li>signatures, constants and annotations of public and protected
+ *   classes, fields and methods read from class files</li>
+ *   <li>doc comments of Java and Groovy source files</li>
+ *   <li>other files in source directories
+ *   (e.g. {@code package.html} and {@code doc-files})</li>
+ *   <li>names of classpath entries</li>
+ * </ul>
+ * so it is not changed by changes of implementation only
+ */
+@CacheableTask
+@CompileStatic
+class ComputeApiHash extends DefaultTask {
+  private static final int ACC_API = ClassFile.ACC_PUBLIC | ClassFile.ACC_PROTECTED
+
+  private static final String GENERATED_CLOSURE_INTERFACE_NAME = 'org/codehaus/groovy/runtime/GeneratedClosure'
+
+  private static final Pattern DOC_COMMENT_PATTERN = ~/(?s)\/\*\*.*?\*\//
+
+  private static final Set<String> SOURCE_FILE_EXTENSIONS = Collections.unmodifiableSet(new HashSet<String>(['.java', '.groovy']))
+
+  private static final Set<String> API_ATTRIBUTE_NAMES = Collections.unmodifiableSet(new HashSet<String>([
+    'Signature',
+    'ConstantValue',
+    'Exceptions',
+    'Deprecated',
+    'AnnotationDefault',
+    'RuntimeVisibleAnnotations',
+    'RuntimeInvisibleAnnotations',
+    'RuntimeVisibleParameterAnnotations',
+    'RuntimeInvisibleParameterAnnotations',
+  ]))
+
+  /**
+   * Directories with compiled classes.
+   * They are normalized by Gradle to ABI,
+   * so the task is not run when implementation of classes changes only
+   */
+  @InputFiles
+  @CompileClasspath
+  final ConfigurableFileCollection classesDirs = project.files()
+
+  /**
+   * Documented sources
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  final ConfigurableFileCollection source = project.files()
+
+  /**
+   * Classpath of documentation tasks
+   */
+  @Internal
+  final ConfigurableFileCollection classpath = project.files()
+
+  /**
+   * Names of classpath entries.
+   * Added, removed or upgraded dependencies change the hash,
+   * while rebuilds of the same dependencies don't
+   */
+  @Input
+  List<String> getClasspathNames() {
+    classpath.files*.name.sort()
+  }
+
+  /**
+   * File to write hex-encoded hash to
+   */
+  @OutputFile
+  final RegularFileProperty hashFile = project.objects.fileProperty()
+
+  /**
+   * Gets canonical description of public and protected API of class
+   * @param classFile class file
+   * @return lines of description, or empty list if class is not part of API
+   */
+  @PackageScope
+  static List<String> describeApi(ClassFile classFile) {
+    if ((classFile.accessFlags & ClassFile.ACC_PUBLIC) == 0 || (classFile.accessFlags & ClassFile.ACC_SYNTHETIC) != 0 || classFile.interfaceNames.contains(GENERATED_CLOSURE_INTERFACE_NAME)) {
+      return []
+    }
+    List<String> result = []
+    result.add "class ${ classFile.className } ${ classFile.accessFlags & ~0x0020 /* ACC_SUPER */ } extends ${ classFile.superClassName } implements ${ classFile.interfaceNames.sort(false).join(',') } ${ describeAttributes(classFile, classFile.attributes) }"
+    [fields: classFile.fields, methods: classFile.methods].each { String kind, List<ClassFile.Member> members ->
+      members.findAll { ClassFile.Member member ->
+        (member.accessFlags & ACC_API) != 0 &&
+          (member.accessFlags & ClassFile.ACC_SYNTHETIC) == 0 &&
+          !(kind == 'methods' && (member.accessFlags & ClassFile.ACC_BRIDGE) != 0) &&
+          // Groovy internals
+          !member.name.startsWith('$') && !member.name.startsWith('__')
+      }.collect { ClassFile.Member member ->
+        "  $kind ${ member.name } ${ member.descriptor } ${ member.accessFlags } ${ describeAttributes(classFile, member.attributes) }".toString()
+      }.sort().each { String line ->
+        result.add line
+      }
+    }
+    result
+  }
+
+  private static String describeAttributes(ClassFile classFile, List<ClassFile.Attribute> attributes) {
+    attributes.findAll { ClassFile.Attribute attribute -> API_ATTRIBUTE_NAMES.contains(attribute.name) }.collect { ClassFile.Attribute attribute ->
+      DataInputStream inputStream = attribute.open()
+      String value
+      switch (attribute.name) {
+        case 'Signature':
+          value = classFile.utf8[inputStream.readUnsignedShort()]
+          break
+        case 'ConstantValue':
+          value = String.valueOf(classFile.values[inputStream.readUnsignedShort()])
+          break
+        case 'Exceptions':
+          int count = inputStream.readUnsignedShort()
+          value = (0..<count).collect { classFile.getClassName(inputStream.readUnsignedShort()) }.sort().join(',')
+          break
+        case 'AnnotationDefault':
+          value = describeElementValue(classFile, inputStream)
+          break
+        case 'RuntimeVisibleParameterAnnotations':
+        case 'RuntimeInvisibleParameterAnnotations':
+          int parametersCount = inputStream.readUnsignedByte()
+          value = (0..<parametersCount).collect { describeAnnotations(classFile, inputStream) }.join(';')
+          break
+        case 'RuntimeVisibleAnnotations':
+        case 'RuntimeInvisibleAnnotations':
+          value = describeAnnotations(classFile, inputStream)
+          break
+        default:
+          value = ''
+      }
+      "${ attribute.name }=$value".toString()
+    }.sort().join(' ')
+  }
+
+  private static String describeAnnotations(ClassFile classFile, DataInputStream inputStream) {
+    int count = inputStream.readUnsignedShort()
+    (0..<count).collect { describeAnnotation(classFile, inputStream) }.sort().join(',')
+  }
+
+  private static String describeAnnotation(ClassFile classFile, DataInputStream inputStream) {
+    String type = classFile.utf8[inputStream.readUnsignedShort()]
+    int count = inputStream.readUnsignedShort()
+    List<String> elements = (0..<count).collect {
+      "${ classFile.utf8[inputStream.readUnsignedShort()] }=${ describeElementValue(classFile, inputStream) }".toString()
+    }
+    "@$type(${ elements.sort().join(',') })"
+  }
+
+  private static String describeElementValue(ClassFile classFile, DataInputStream inputStream) {
+    char tag = (char)inputStream.readUnsignedByte()
+    switch (tag) {
+      case 'e':
+        return "${ classFile.utf8[inputStream.readUnsignedShort()] }.${ classFile.utf8[inputStream.readUnsignedShort()] }"
+      case 'c':
+        return "${ classFile.utf8[inputStream.readUnsignedShort()] }.class"
+      case '@':
+        return describeAnnotation(classFile, inputStream)
+      case '[':
+        int count = inputStream.readUnsignedShort()
+        return "[${ (0..<count).collect { describeElementValue(classFile, inputStream) }.join(',') }]"
+      case 's':
+        return classFile.utf8[inputStream.readUnsignedShort()]
+      default:
+        return String.valueOf(classFile.values[inputStream.readUnsignedShort()])
+    }
+  }
+
+  /**
+   * Extracts doc comments from source
+   * @param text source text
+   * @return doc comments
+   */
+  @PackageScope
+  static List<String> extractDocComments(String text) {
+    List<String> result = []
+    Matcher matcher = DOC_COMMENT_PATTERN.matcher(text)
+    while (matcher.find()) {
+      result.add matcher.group()
+    }
+    result
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update value.getBytes(UTF_8)
+    digest.update((byte)0)
+  }
+
+  /**
+   * Computes hash
+   */
+  @TaskAction
+  void computeHash() {
+    MessageDigest digest = MessageDigest.getInstance('SHA-256')
+
+    classpathNames.each { String name ->
+      update digest, "classpath $name"
+    }
+
+    SortedMap<String, File> classFiles = new TreeMap<>()
+    classesDirs.asFileTree.visit { FileVisitDetails details ->
+      if (!details.directory && details.name.endsWith('.class')) {
+        classFiles.put details.relativePath.pathString, details.file
+      }
+    }
+    classFiles.each { String path, File file ->
+      ClassFile classFile
+      try {
+        classFile = ClassFile.read(file.bytes)
+      } catch (IOException e) {
+        throw new IOException("Unable to read class file $file", e)
+      }
+      if (classFile != null) {
+        describeApi(classFile).each { String line ->
+          update digest, line
+        }
+      }
+    }
+
+    SortedMap<String, File> sourceFiles = new TreeMap<>()
+    source.asFileTree.visit { FileVisitDetails details ->
+      if (!details.directory) {
+        sourceFiles.put details.relativePath.pathString, details.file
+      }
+    }
+    sourceFiles.each { String path, File file ->
+      String extension = file.name.lastIndexOf('.') >= 0 ? file.name.substring(file.name.lastIndexOf('.')) : ''
+      if (SOURCE_FILE_EXTENSIONS.contains(extension)) {
+        List<String> docComments = extractDocComments(file.getText(UTF_8.name()))
+        if (!docComments.empty) {
+          update digest, "source $path"
+          docComments.each { String docComment ->
+            update digest, docComment
+          }
+        }
+      } else {
+        update digest, "file $path"
+        digest.update file.bytes
+      }
+    }
+
+    hashFile.get().asFile.setText digest.digest().encodeHex().toString(), UTF_8.name()
+  }
+}
@@ -0,0 +1,131 @@
+#!/usr/bin/env groovy
+/*
+ * ExplainCacheMisses Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.transform.CompileStatic
+import org.fidata.gradle.utils.TaskInputsSnapshot
+import org.gradle.api.DefaultTask
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.tasks.InputFile
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Compares two task inputs snapshots
+ * and reports which inputs differ for every task
+ * that was executed in current build instead of being taken from build cache.
+ *
+ * Snapshots are read one task record at a time,
+ * so memory usage doesn't depend on the number of tasks
+ */
+@CompileStatic
+class ExplainCacheMisses extends DefaultTask {
+  /**
+   * Outcome of task which was executed
+   */
+  public static final String EXECUTED_OUTCOME = 'EXECUTED'
+
+  /**
+   * Snapshot of baseline build, e.g. of CI run
+   */
+  @InputFile
+  @PathSensitive(PathSensitivity.NONE)
+  final RegularFileProperty baselineSnapshotFile = project.objects.fileProperty()
+
+  /**
+   * Snapshot of current build, e.g. of local run
+   */
+  @InputFile
+  @PathSensitive(PathSensitivity.NONE)
+  final RegularFileProperty currentSnapshotFile = project.objects.fileProperty()
+
+  /**
+   * Report file
+   */
+  @OutputFile
+  final RegularFileProperty reportFile = project.objects.fileProperty()
+
+  ExplainCacheMisses() {
+    outputs.upToDateWhen { false }
+  }
+
+  /**
+   * Generates a report
+   */
+  @TaskAction
+  void explain() {
+    int misses = 0
+    new DataInputStream(new BufferedInputStream(new FileInputStream(baselineSnapshotFile.get().asFile))).withStream { DataInputStream baseline ->
+      new DataInputStream(new BufferedInputStream(new FileInputStream(currentSnapshotFile.get().asFile))).withStream { DataInputStream current ->
+        reportFile.get().asFile.withPrintWriter(UTF_8.name()) { PrintWriter writer ->
+          misses = explain(baseline, current, writer)
+        }
+      }
+    }
+    logger.lifecycle('{} cache misses explained in {}', misses, reportFile.get().asFile)
+  }
+
+  /**
+   * Compares snapshots by merging their records
+   * @param baseline baseline snapshot
+   * @param current current snapshot
+   * @param writer writer to write report to
+   * @return number of cache misses
+   */
+  static int explain(DataInput baseline, DataInput current, PrintWriter writer) {
+    TaskInputsSnapshot.readHeader baseline
+    TaskInputsSnapshot.readHeader current
+    int misses = 0
+    TaskInputsSnapshot.TaskRecord baselineRecord = TaskInputsSnapshot.readRecord(baseline)
+    TaskInputsSnapshot.TaskRecord currentRecord
+    while ((currentRecord = TaskInputsSnapshot.readRecord(current)) != null) {
+      while (baselineRecord != null && baselineRecord.path < currentRecord.path) {
+        baselineRecord = TaskInputsSnapshot.readRecord(baseline)
+      }
+      if (currentRecord.outcome != EXECUTED_OUTCOME) {
+        continue
+      }
+      misses++
+      writer.println currentRecord.path
+      if (baselineRecord == null || baselineRecord.path != currentRecord.path) {
+        writer.println '  not found in baseline'
+        continue
+      }
+      List<TaskInputsSnapshot.Difference> propertyDifferences = TaskInputsSnapshot.compare(baselineRecord.properties, currentRecord.properties)
+      List<TaskInputsSnapshot.Difference> fileDifferences = TaskInputsSnapshot.compare(baselineRecord.files, currentRecord.files)
+      if (propertyDifferences.empty && fileDifferences.empty) {
+        writer.println "  inputs are identical (outcome in baseline: $baselineRecord.outcome)"
+        continue
+      }
+      for (TaskInputsSnapshot.Difference difference in propertyDifferences) {
+        writer.println "  property $difference.name: ${ difference.change.name().toLowerCase() }"
+      }
+      for (TaskInputsSnapshot.Difference difference in fileDifferences) {
+        writer.println "  file $difference.name: ${ difference.change.name().toLowerCase() }"
+      }
+    }
+    misses
+  }
+}
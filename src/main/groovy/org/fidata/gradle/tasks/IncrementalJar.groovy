@@ -0,0 +1,230 @@
+#!/usr/bin/env groovy
+/*
+ * IncrementalJar Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1
+import groovy.transform.CompileStatic
+import java.util.zip.CRC32
+import java.util.zip.ZipEntry
+import org.apache.commons.compress.archivers.zip.UnixStat
+import org.apache.commons.compress.archivers.zip.Zip64Mode
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream
+import org.apache.commons.compress.archivers.zip.ZipFile
+import org.gradle.api.GradleException
+import org.gradle.api.file.FileCopyDetails
+import org.gradle.api.internal.file.archive.ZipCopyAction
+import org.gradle.api.internal.file.copy.CopyAction
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream
+import org.gradle.api.internal.file.copy.CopyActionProcessingStreamAction
+import org.gradle.api.internal.file.copy.FileCopyDetailsInternal
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.WorkResult
+import org.gradle.api.tasks.WorkResults
+import org.gradle.api.tasks.bundling.Jar
+import org.gradle.api.tasks.bundling.ZipEntryCompression
+
+/**
+ * Jar that is updated in place.
+ *
+ * Previous archive is kept, and compressed data of entries
+ * which content didn't change is copied from it verbatim,
+ * without recompression.
+ * Only added and changed entries are compressed.
+ * Unchanged files are still read once to compute their CRC
+ * which is compared with the one of the previous entry.
+ *
+ * Result is identical to the archive built from scratch.
+ * Previous archive is reused only if it was written by this task
+ * with the same settings on the same JVM,
+ * since other compressor could produce different compressed data
+ */
+@CompileStatic
+class IncrementalJar extends Jar {
+  private static final String STATE_FILE_NAME = 'incrementalJar.properties'
+
+  private static final String ARCHIVE_LENGTH_KEY = 'archive.length'
+
+  private static final String ARCHIVE_LAST_MODIFIED_KEY = 'archive.lastModified'
+
+  private static final int BUFFER_SIZE = 64 * 1024
+
+  /**
+   * Whether to reuse previous archive.
+   * Default is true
+   */
+  @Internal
+  final Property<Boolean> incremental = project.objects.property(Boolean).convention(true)
+
+  private int reusedEntries
+
+  private int compressedEntries
+
+  /**
+   * @return number of entries copied from previous archive
+   *         by the last execution
+   */
+  @Internal
+  int getReusedEntries() {
+    reusedEntries
+  }
+
+  /**
+   * @return number of entries compressed by the last execution
+   */
+  @Internal
+  int getCompressedEntries() {
+    compressedEntries
+  }
+
+  @Override
+  protected CopyAction createCopyAction() {
+    new CopyAction() {
+      @Override
+      WorkResult execute(CopyActionProcessingStream stream) {
+        writeArchive stream
+      }
+    }
+  }
+
+  /**
+   * Settings affecting compressed data and headers of entries.
+   * Previous archive can't be reused if any of them changed
+   */
+  private Properties getSettings() {
+    Properties settings = new Properties()
+    settings.setProperty 'java.vendor', System.getProperty('java.vendor')
+    settings.setProperty 'java.version', System.getProperty('java.version')
+    settings.setProperty 'entryCompression', entryCompression.name()
+    settings.setProperty 'zip64', zip64.toString()
+    settings.setProperty 'metadataCharset', metadataCharset
+    settings
+  }
+
+  private boolean isReusable(File archive, File stateFile, Properties settings) {
+    if (!archive.file || !stateFile.file) {
+      return false
+    }
+    Properties state = new Properties()
+    stateFile.withReader(ISO_8859_1.name()) { Reader reader ->
+      state.load reader
+    }
+    settings.stringPropertyNames().every { String key -> state.getProperty(key) == settings.getProperty(key) } &&
+      state.getProperty(ARCHIVE_LENGTH_KEY) == archive.length().toString() &&
+      state.getProperty(ARCHIVE_LAST_MODIFIED_KEY) == archive.lastModified().toString()
+  }
+
+  private static long crc(FileCopyDetails details) {
+    CRC32 crc = new CRC32()
+    byte[] buffer = new byte[BUFFER_SIZE]
+    details.open().withCloseable { InputStream inputStream ->
+      int length
+      while ((length = inputStream.read(buffer)) >= 0) {
+        crc.update buffer, 0, length
+      }
+    }
+    crc.value
+  }
+
+  /**
+   * Writes archive reusing entries of previous one
+   * @param stream files to write
+   * @return work result
+   */
+  protected WorkResult writeArchive(CopyActionProcessingStream stream) {
+    File archive = archiveFile.get().asFile
+    File stateFile = new File(temporaryDir, STATE_FILE_NAME)
+    Properties settings = getSettings()
+    File previous = null
+    if (incremental.get() && isReusable(archive, stateFile, settings)) {
+      previous = new File(temporaryDir, "previous-$archive.name")
+      previous.delete()
+      if (!archive.renameTo(previous)) {
+        previous = null
+      }
+    }
+    stateFile.delete()
+
+    int method = entryCompression == ZipEntryCompression.STORED ? ZipEntry.STORED : ZipEntry.DEFLATED
+    long time = preserveFileTimestamps ? -1L : ZipCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES
+    int reused = 0
+    int compressed = 0
+    try {
+      ZipFile previousZip = previous != null ? new ZipFile(previous, metadataCharset) : null
+      try {
+        new ZipArchiveOutputStream(archive).withCloseable { ZipArchiveOutputStream outputStream ->
+          outputStream.encoding = metadataCharset
+          outputStream.useZip64 = zip64 ? Zip64Mode.AsNeeded : Zip64Mode.Never
+          outputStream.method = method
+          stream.process({ FileCopyDetailsInternal details ->
+            String path = details.relativePath.pathString
+            if (details.directory) {
+              ZipArchiveEntry entry = new ZipArchiveEntry("$path/")
+              entry.time = time >= 0L ? time : details.lastModified
+              entry.unixMode = UnixStat.DIR_FLAG | details.mode
+              outputStream.putArchiveEntry entry
+              outputStream.closeArchiveEntry()
+              return
+            }
+            ZipArchiveEntry entry = new ZipArchiveEntry(path)
+            entry.time = time >= 0L ? time : details.lastModified
+            entry.unixMode = UnixStat.FILE_FLAG | details.mode
+            entry.method = method
+            ZipArchiveEntry previousEntry = previousZip?.getEntry(path)
+            if (previousEntry != null && previousEntry.method == method && previousEntry.size == details.size && previousEntry.crc == crc(details)) {
+              entry.crc = previousEntry.crc
+              entry.size = previousEntry.size
+              entry.compressedSize = previousEntry.compressedSize
+              previousZip.getRawInputStream(previousEntry).withCloseable { InputStream rawInputStream ->
+                outputStream.addRawArchiveEntry entry, rawInputStream
+              }
+              reused++
+            } else {
+              entry.size = details.size
+              outputStream.putArchiveEntry entry
+              details.copyTo outputStream
+              outputStream.closeArchiveEntry()
+              compressed++
+            }
+          } as CopyActionProcessingStreamAction)
+        }
+      } finally {
+        previousZip?.close()
+      }
+    } catch (IOException e) {
+      throw new GradleException("Could not create ZIP '$archive'", e)
+    } finally {
+      previous?.delete()
+    }
+
+    settings.setProperty ARCHIVE_LENGTH_KEY, archive.length().toString()
+    settings.setProperty ARCHIVE_LAST_MODIFIED_KEY, archive.lastModified().toString()
+    stateFile.withWriter(ISO_8859_1.name()) { Writer writer ->
+      settings.store writer, null
+    }
+    reusedEntries = reused
+    compressedEntries = compressed
+    logger.info('{}: {} entries copied from previous archive, {} entries compressed', archive, reused, compressed)
+    WorkResults.didWork(true)
+  }
+}
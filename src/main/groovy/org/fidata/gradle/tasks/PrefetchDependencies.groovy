@@ -0,0 +1,88 @@
+/*
+ * PrefetchDependencies Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+package org.fidata.gradle.tasks
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.transform.CompileStatic
+import org.fidata.gradle.utils.DependencyDownloadRecorder
+import org.gradle.api.DefaultTask
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Reports statistics of dependency prefetch
+ * made by {@link PrefetchProjectDependencies} tasks of all projects:
+ * bytes and time per repository and resolved configurations
+ */
+@CompileStatic
+class PrefetchDependencies extends DefaultTask {
+  /**
+   * Recorder with statistics
+   */
+  @Internal
+  final Property<DependencyDownloadRecorder> recorder = project.objects.property(DependencyDownloadRecorder)
+
+  /**
+   * Report file
+   */
+  @OutputFile
+  final RegularFileProperty reportFile = project.objects.fileProperty()
+
+  PrefetchDependencies() {
+    outputs.upToDateWhen { false }
+  }
+
+  /**
+   * Generates a report
+   */
+  @TaskAction
+  void generate() {
+    Map<String, String> repositoryNames = recorder.get().repositories.collectEntries { DependencyDownloadRecorder.Repository repository ->
+      [(repository.url): repository.name]
+    }
+    Map<String, DependencyDownloadRecorder.RepositoryStatistics> repositoryStatistics = recorder.get().repositoryStatistics
+    List<DependencyDownloadRecorder.ConfigurationStatistics> configurationStatistics = recorder.get().configurationStatistics
+    int failedCount = configurationStatistics.count { DependencyDownloadRecorder.ConfigurationStatistics statistics -> !statistics.failures.empty }.intValue()
+    long totalBytes = (long)repositoryStatistics.values().sum(0L) { DependencyDownloadRecorder.RepositoryStatistics statistics -> statistics.bytes }
+
+    File file = reportFile.get().asFile
+    file.parentFile.mkdirs()
+    file.withPrintWriter(UTF_8.name()) { PrintWriter writer ->
+      writer.println 'Repositories:'
+      repositoryStatistics.each { String url, DependencyDownloadRecorder.RepositoryStatistics statistics ->
+        writer.println "  ${ repositoryNames[url] ?: url } ($url): ${ statistics.requests } requests, ${ statistics.bytes } bytes, ${ statistics.millis } ms"
+      }
+      writer.println "Configurations (${ configurationStatistics.size() }, $failedCount failed):"
+      configurationStatistics.each { DependencyDownloadRecorder.ConfigurationStatistics statistics ->
+        writer.println "  ${ statistics.projectPath == ':' ? '' : statistics.projectPath }:${ statistics.name }: ${ statistics.artifacts } artifacts, ${ statistics.bytes } bytes, ${ statistics.millis } ms"
+        statistics.failures.each { String failure ->
+          writer.println "    FAILED: $failure"
+        }
+      }
+    }
+    logger.lifecycle('Prefetched {} configurations ({} failed), {} bytes from {} repositories. See the report at {}',
+      configurationStatistics.size(), failedCount, totalBytes, repositoryStatistics.size(), file)
+  }
+}
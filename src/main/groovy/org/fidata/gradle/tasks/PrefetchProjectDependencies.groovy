@@ -0,0 +1,109 @@
+/*
+ * PrefetchProjectDependencies Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+package org.fidata.gradle.tasks
+
+import groovy.transform.CompileStatic
+import org.fidata.gradle.utils.DependencyDownloadRecorder
+import org.gradle.api.DefaultTask
+import org.gradle.api.artifacts.ArtifactCollection
+import org.gradle.api.artifacts.ArtifactView
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.artifacts.component.ComponentIdentifier
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier
+import org.gradle.api.artifacts.result.ResolvedArtifactResult
+import org.gradle.api.provider.Property
+import org.gradle.api.specs.Spec
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Resolves all resolvable configurations of the project,
+ * including buildscript classpath,
+ * and downloads all their external artifacts.
+ *
+ * Configurations of the project are resolved one by one.
+ * Tasks of different projects run concurrently
+ * when parallel project execution is enabled,
+ * up to {@code --max-workers}
+ */
+@CompileStatic
+class PrefetchProjectDependencies extends DefaultTask {
+  /**
+   * Recorder to record statistics with
+   */
+  @Internal
+  final Property<DependencyDownloadRecorder> recorder = project.objects.property(DependencyDownloadRecorder)
+
+  PrefetchProjectDependencies() {
+    outputs.upToDateWhen { false }
+  }
+
+  /**
+   * Gets resolvable configurations of the project
+   * @return buildscript configurations and project configurations
+   */
+  @Internal
+  List<Configuration> getResolvableConfigurations() {
+    (project.buildscript.configurations.toList() + project.configurations.toList()).findAll { Configuration configuration -> configuration.canBeResolved }
+  }
+
+  /**
+   * Resolves configurations
+   */
+  @TaskAction
+  void prefetch() {
+    resolvableConfigurations.each { Configuration configuration ->
+      long start = System.currentTimeMillis()
+      int artifactsCount = 0
+      long bytes = 0L
+      List<String> failures = []
+      try {
+        ArtifactCollection artifacts = configuration.incoming.artifactView { ArtifactView.ViewConfiguration viewConfiguration ->
+          viewConfiguration.lenient true
+          // Artifacts of other projects are built, not downloaded
+          viewConfiguration.componentFilter({ ComponentIdentifier componentIdentifier -> ModuleComponentIdentifier.isInstance(componentIdentifier) } as Spec<ComponentIdentifier>)
+        }.artifacts
+        artifacts.artifacts.each { ResolvedArtifactResult artifact ->
+          artifactsCount++
+          bytes += artifact.file.length()
+          recorder.get().recordArtifact artifact.file
+        }
+        artifacts.failures.each { Throwable failure ->
+          failures.add failure.toString()
+        }
+      } catch (Exception e) {
+        failures.add e.toString()
+      }
+      failures.each { String failure ->
+        logger.warn('{}: unable to prefetch configuration {}: {}', path, configuration.name, failure)
+      }
+      recorder.get().recordConfiguration new DependencyDownloadRecorder.ConfigurationStatistics(
+        projectPath: project.path,
+        name: configuration.name,
+        artifacts: artifactsCount,
+        bytes: bytes,
+        millis: System.currentTimeMillis() - start,
+        failures: failures
+      )
+    }
+  }
+}
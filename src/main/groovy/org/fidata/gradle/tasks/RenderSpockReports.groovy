@@ -0,0 +1,275 @@
+#!/usr/bin/env groovy
+/*
+ * RenderSpockReports Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+import groovy.transform.CompileDynamic
+import groovy.transform.CompileStatic
+import groovy.xml.MarkupBuilder
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import org.gradle.api.DefaultTask
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.file.FileTree
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.SkipWhenEmpty
+import org.gradle.api.tasks.TaskAction
+import org.gradle.api.tasks.util.PatternFilterable
+
+/**
+ * Renders HTML reports and aggregated JSON report
+ * from per-spec JSON reports written by spock-reports
+ * during test execution.
+ *
+ * CAVEAT:
+ * HTML is rendered by this task, not by spock-reports templates,
+ * since they require live Spock runtime objects.
+ * So reports are reduced: spec narrative, statistics,
+ * feature results, blocks and errors only,
+ * without styles, titles, issue links and output
+ *
+ * Specs are rendered concurrently
+ */
+@CacheableTask
+@CompileStatic
+class RenderSpockReports extends DefaultTask {
+  /**
+   * Name of aggregated JSON report file, the same as used by spock-reports
+   */
+  public static final String AGGREGATED_REPORT_FILE_NAME = 'aggregated_report.json'
+
+  /**
+   * Name of HTML summary report file
+   */
+  public static final String INDEX_FILE_NAME = 'index.html'
+
+  /**
+   * Extension of per-spec JSON reports
+   */
+  public static final String SPEC_REPORT_FILE_EXTENSION = 'json'
+
+  /**
+   * Directory with per-spec JSON reports
+   */
+  @Internal
+  final DirectoryProperty specReportsDir = project.objects.directoryProperty()
+
+  /**
+   * Directory for HTML reports
+   */
+  @OutputDirectory
+  final DirectoryProperty htmlReportDir = project.objects.directoryProperty()
+
+  /**
+   * Directory for aggregated JSON report
+   */
+  @OutputDirectory
+  final DirectoryProperty jsonReportDir = project.objects.directoryProperty()
+
+  /**
+   * Maximum number of specs rendered concurrently.
+   * By default it is equal to {@code --max-workers}
+   */
+  @Internal
+  final Property<Integer> maxParallelism = project.objects.property(Integer).convention(project.gradle.startParameter.maxWorkerCount)
+
+  /**
+   * Per-spec JSON reports
+   * @return per-spec JSON reports
+   */
+  @InputFiles
+  @SkipWhenEmpty
+  @PathSensitive(PathSensitivity.RELATIVE)
+  FileTree getSpecReports() {
+    project.fileTree(specReportsDir) { PatternFilterable patternFilterable ->
+      patternFilterable.include "*.$SPEC_REPORT_FILE_EXTENSION"
+    }
+  }
+
+  /**
+   * Renders reports
+   */
+  @TaskAction
+  void render() {
+    File htmlDir = htmlReportDir.get().asFile
+    File jsonDir = jsonReportDir.get().asFile
+    project.delete htmlDir, jsonDir
+    htmlDir.mkdirs()
+    jsonDir.mkdirs()
+
+    List<File> specReportFiles = specReports.files.sort { File file -> file.name }
+    SortedMap<String, Map<String, Object>> aggregated = new TreeMap<>()
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, maxParallelism.get()))
+    try {
+      List<Future<Map<String, Object>>> futures = specReportFiles.collect { File specReportFile ->
+        executor.submit((Callable<Map<String, Object>>){ ->
+          Map<String, Object> spec = (Map<String, Object>)new JsonSlurper().parse(specReportFile, UTF_8.name())
+          new File(htmlDir, "${ spec['name'] }.html").withWriter(UTF_8.name()) { Writer writer ->
+            renderSpec spec, writer
+          }
+          spec
+        })
+      }
+      for (Future<Map<String, Object>> future in futures) {
+        Map<String, Object> spec = future.get()
+        List<Map<String, Object>> features = (List<Map<String, Object>>)spec['features']
+        aggregated[spec['name'].toString()] = [
+          executedFeatures: features.findAll { Map<String, Object> feature -> !feature['ignored'] }*.getAt('name'),
+          ignoredFeatures: features.findAll { Map<String, Object> feature -> feature['ignored'] }*.getAt('name'),
+          stats: spec['stats'],
+        ]
+      }
+    } finally {
+      executor.shutdownNow()
+    }
+
+    new File(jsonDir, AGGREGATED_REPORT_FILE_NAME).setText JsonOutput.toJson(aggregated), UTF_8.name()
+    new File(htmlDir, INDEX_FILE_NAME).withWriter(UTF_8.name()) { Writer writer ->
+      renderIndex aggregated, writer
+    }
+  }
+
+  /**
+   * Renders HTML report of one spec
+   * @param spec spec report
+   * @param writer writer to write HTML to
+   */
+  @CompileDynamic
+  static void renderSpec(Map<String, Object> spec, Writer writer) {
+    writer.write '<!DOCTYPE html>\n'
+    new MarkupBuilder(writer).html {
+      head {
+        meta charset: 'utf-8'
+        title "Report for ${ spec.name }"
+      }
+      body {
+        h1 "Report for ${ spec.name }"
+        p {
+          a href: INDEX_FILE_NAME, '<< Back'
+        }
+        if (spec.narrative) {
+          pre spec.narrative
+        }
+        renderStats delegate, spec.stats
+        h2 'Features'
+        for (Map<String, Object> feature in spec.features) {
+          div(class: "feature ${ feature.result.toString().toLowerCase() }") {
+            h3 "${ feature.name } (${ feature.result })"
+            if (feature.blocks) {
+              table {
+                for (Map<String, Object> block in feature.blocks) {
+                  tr {
+                    td block.kind
+                    td block.text ?: '----'
+                  }
+                }
+              }
+            }
+            for (Map<String, Object> problem in feature.problems) {
+              if (problem.dataValues) {
+                p "Data values: ${ problem.dataValues.join(', ') }"
+              }
+              for (String error in problem.errors) {
+                pre error
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Renders HTML summary report
+   * @param aggregated aggregated report
+   * @param writer writer to write HTML to
+   */
+  @CompileDynamic
+  static void renderIndex(Map<String, Map<String, Object>> aggregated, Writer writer) {
+    writer.write '<!DOCTYPE html>\n'
+    new MarkupBuilder(writer).html {
+      head {
+        meta charset: 'utf-8'
+        title 'Specification run results'
+      }
+      body {
+        h1 'Specification run results'
+        table {
+          tr {
+            th 'Name'
+            th 'Features'
+            th 'Ignored'
+            th 'Failures'
+            th 'Errors'
+            th 'Success rate'
+            th 'Time'
+          }
+          aggregated.each { String name, Map<String, Object> spec ->
+            tr {
+              td {
+                a href: "${ name }.html", name
+              }
+              td spec.executedFeatures.size()
+              td spec.ignoredFeatures.size()
+              td spec.stats?.failures
+              td spec.stats?.errors
+              td spec.stats?.successRate
+              td spec.stats?.time
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @CompileDynamic
+  private static void renderStats(Object builder, Object stats) {
+    builder.table {
+      tr {
+        th 'Total runs'
+        th 'Failures'
+        th 'Errors'
+        th 'Skipped'
+        th 'Success rate'
+        th 'Time'
+      }
+      tr {
+        td stats?.totalRuns
+        td stats?.failures
+        td stats?.errors
+        td stats?.skipped
+        td stats?.successRate
+        td stats?.time
+      }
+    }
+  }
+}
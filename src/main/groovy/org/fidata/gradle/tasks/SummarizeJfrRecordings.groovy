@@ -0,0 +1,220 @@
+#!/usr/bin/env groovy
+/*
+ * SummarizeJfrRecordings Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.json.JsonOutput
+import groovy.transform.CompileDynamic
+import groovy.transform.CompileStatic
+import java.nio.file.Path
+import java.time.Duration
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.file.FileTree
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.SkipWhenEmpty
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Summarizes Java Flight Recorder recordings:
+ * hot methods, allocation sites and GC pauses.
+ *
+ * Recordings are read with {@code jdk.jfr.consumer} API
+ * of the JVM running the build,
+ * so it requires JDK 11 or later (or JDK 8u262 or later)
+ */
+@CompileStatic
+class SummarizeJfrRecordings extends DefaultTask {
+  /**
+   * Directory with recordings
+   */
+  @Internal
+  final DirectoryProperty recordingsDir = project.objects.directoryProperty()
+
+  /**
+   * Number of top entries in each section of summary.
+   * Default is 20
+   */
+  @Input
+  final Property<Integer> top = project.objects.property(Integer).convention(20)
+
+  /**
+   * Text summary
+   */
+  @OutputFile
+  final RegularFileProperty txtReportFile = project.objects.fileProperty()
+
+  /**
+   * JSON summary
+   */
+  @OutputFile
+  final RegularFileProperty jsonReportFile = project.objects.fileProperty()
+
+  /**
+   * @return recordings
+   */
+  @InputFiles
+  @SkipWhenEmpty
+  @PathSensitive(PathSensitivity.NONE)
+  FileTree getRecordings() {
+    project.fileTree(dir: recordingsDir, include: '**/*.jfr')
+  }
+
+  /**
+   * Summary of recordings
+   */
+  private static final class Summary {
+    int recordings
+    final Map<String, Long> executionSamples = new HashMap<String, Long>().withDefault { 0L }
+    final Map<String, Long> allocatedBytes = new HashMap<String, Long>().withDefault { 0L }
+    long gcCount
+    long gcTotalPauseNanos
+    long gcLongestPauseNanos
+    final Map<String, Long> gcCountByName = new TreeMap<String, Long>().withDefault { 0L }
+  }
+
+  private static final String UNKNOWN_FRAME = '<unknown>'
+
+  /*
+   * jdk.jfr API is not available at compile time on JDK 8,
+   * so recordings are read dynamically
+   */
+  @CompileDynamic
+  private static void readRecording(Path path, Summary summary) {
+    Class<?> recordingFileClass
+    try {
+      recordingFileClass = Class.forName('jdk.jfr.consumer.RecordingFile')
+    } catch (ClassNotFoundException e) {
+      throw new GradleException("Reading of JFR recordings requires JDK 11 or later. Current JVM: ${ System.getProperty('java.version') }", e)
+    }
+    def recordingFile = recordingFileClass.getConstructor(Path).newInstance(path)
+    try {
+      while (recordingFile.hasMoreEvents()) {
+        def event = recordingFile.readEvent()
+        switch (event.eventType.name) {
+          case 'jdk.ExecutionSample':
+            summary.executionSamples[topFrame(event)]++
+            break
+          case 'jdk.ObjectAllocationInNewTLAB':
+            summary.allocatedBytes[topFrame(event)] += event.getLong('tlabSize')
+            break
+          case 'jdk.ObjectAllocationOutsideTLAB':
+            summary.allocatedBytes[topFrame(event)] += event.getLong('allocationSize')
+            break
+          case 'jdk.ObjectAllocationSample':
+            summary.allocatedBytes[topFrame(event)] += event.getLong('weight')
+            break
+          case 'jdk.GarbageCollection':
+            summary.gcCount++
+            summary.gcCountByName[event.getString('name')]++
+            summary.gcTotalPauseNanos += ((Duration)event.getDuration('sumOfPauses')).toNanos()
+            summary.gcLongestPauseNanos = Math.max(summary.gcLongestPauseNanos, ((Duration)event.getDuration('longestPause')).toNanos())
+            break
+        }
+      }
+    } finally {
+      recordingFile.close()
+    }
+    summary.recordings++
+  }
+
+  @CompileDynamic
+  private static String topFrame(event) {
+    def frames = event.stackTrace?.frames
+    if (!frames) {
+      return UNKNOWN_FRAME
+    }
+    def method = frames[0].method
+    "${ method.type.name }.${ method.name }"
+  }
+
+  private static List<Map<String, Object>> topEntries(Map<String, Long> values, String valueName, int count) {
+    values.entrySet().sort { Map.Entry<String, Long> a, Map.Entry<String, Long> b -> b.value <=> a.value ?: a.key <=> b.key }.take(count).collect { Map.Entry<String, Long> entry ->
+      [name: entry.key, (valueName): entry.value]
+    }
+  }
+
+  /**
+   * Summarizes recordings
+   * @param files recording files
+   * @param top number of top entries in each section of summary
+   * @return summary in the form written to JSON report
+   */
+  static Map<String, Object> summarizeRecordings(Iterable<File> files, int top) {
+    Summary summary = new Summary()
+    files.sort(false).each { File file ->
+      readRecording file.toPath(), summary
+    }
+
+    [
+      recordings: summary.recordings,
+      executionSamples: (long)summary.executionSamples.values().sum(0L),
+      hotMethods: topEntries(summary.executionSamples, 'samples', top),
+      allocationSites: topEntries(summary.allocatedBytes, 'bytes', top),
+      gc: [
+        count: summary.gcCount,
+        totalPauseMillis: summary.gcTotalPauseNanos.intdiv(1000000L),
+        longestPauseMillis: summary.gcLongestPauseNanos.intdiv(1000000L),
+        countByName: summary.gcCountByName,
+      ],
+    ]
+  }
+
+  /**
+   * Summarizes recordings and writes reports
+   */
+  @TaskAction
+  void summarize() {
+    Map<String, Object> result = summarizeRecordings(recordings.files, top.get())
+
+    File jsonReport = jsonReportFile.get().asFile
+    jsonReport.parentFile.mkdirs()
+    jsonReport.setText JsonOutput.prettyPrint(JsonOutput.toJson(result)), UTF_8.name()
+
+    Map<String, Object> gc = (Map<String, Object>)result['gc']
+    File txtReport = txtReportFile.get().asFile
+    txtReport.parentFile.mkdirs()
+    txtReport.withWriter(UTF_8.name()) { Writer writer ->
+      writer.write "Recordings: ${ result['recordings'] }\n"
+      writer.write "\nHot methods (of ${ result['executionSamples'] } execution samples):\n"
+      ((List<Map<String, Object>>)result['hotMethods']).each { Map<String, Object> entry ->
+        writer.write String.format(Locale.ROOT, '%10d  %s%n', entry['samples'], entry['name'])
+      }
+      writer.write '\nAllocation sites (bytes):\n'
+      ((List<Map<String, Object>>)result['allocationSites']).each { Map<String, Object> entry ->
+        writer.write String.format(Locale.ROOT, '%14d  %s%n', entry['bytes'], entry['name'])
+      }
+      writer.write "\nGC: ${ gc['count'] } collections, total pause ${ gc['totalPauseMillis'] } ms, longest pause ${ gc['longestPauseMillis'] } ms\n"
+      ((Map<String, Long>)gc['countByName']).each { String name, Long count ->
+        writer.write String.format(Locale.ROOT, '%10d  %s%n', count, name)
+      }
+    }
+  }
+}
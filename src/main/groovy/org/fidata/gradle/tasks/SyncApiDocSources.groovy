@@ -0,0 +1,81 @@
+#!/usr/bin/env groovy
+/*
+ * SyncApiDocSources Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import groovy.transform.CompileStatic
+import org.gradle.api.DefaultTask
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.CopySpec
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.file.DuplicatesStrategy
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.tasks.InputFile
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Copies documented sources to the directory
+ * used as source of documentation tasks.
+ *
+ * The only input of this task is a hash computed by {@link ComputeApiHash}.
+ * So sources are copied only when public API or its documentation changed,
+ * and documentation tasks stay up-to-date
+ * when implementation changes only
+ */
+@CompileStatic
+class SyncApiDocSources extends DefaultTask {
+  /**
+   * File with hash of public API and its documentation
+   */
+  @InputFile
+  @PathSensitive(PathSensitivity.NONE)
+  final RegularFileProperty apiHashFile = project.objects.fileProperty()
+
+  /**
+   * Documented sources.
+   * When the same relative path is found in several source directories,
+   * the first one wins
+   */
+  @Internal
+  final ConfigurableFileCollection source = project.files()
+
+  /**
+   * Directory to copy sources to
+   */
+  @OutputDirectory
+  final DirectoryProperty destinationDir = project.objects.directoryProperty()
+
+  /**
+   * Copies sources
+   */
+  @TaskAction
+  void sync() {
+    project.sync { CopySpec copySpec ->
+      copySpec.from source
+      copySpec.into destinationDir.get().asFile
+      copySpec.duplicatesStrategy = DuplicatesStrategy.EXCLUDE
+    }
+  }
+}
@@ -0,0 +1,318 @@
+#!/usr/bin/env groovy
+/*
+ * TestImpactAnalysis Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.transform.CompileStatic
+import groovy.util.slurpersupport.GPathResult
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import org.fidata.gradle.utils.ClassDependencyIndex
+import org.gradle.api.DefaultTask
+import org.gradle.api.Project
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.TaskAction
+import org.gradle.api.tasks.testing.Test
+import org.gradle.api.tasks.testing.TestFilter
+import org.gradle.process.ExecSpec
+
+/**
+ * Selects test classes affected by changes
+ * and sets filter of test task to run only them.
+ *
+ * Changes are determined either against {@link #baseRef} git ref,
+ * or, when it is not set, against the state of the last successful run
+ * of the test task.
+ * Test classes transitively depending on changed classes
+ * (according to {@link ClassDependencyIndex})
+ * and test classes failed in the previous run are selected.
+ *
+ * All tests are run when there is no state of the previous successful run,
+ * or when any of {@link #environmentFiles}
+ * or any of {@link #indirectClassesDirs} changed.
+ *
+ * Include patterns of test filter are OR'ed,
+ * so selected tests can't narrow down filter set
+ * in build script or with {@code --tests} option.
+ * Such filter is kept as is, and state of the run is not recorded
+ */
+@CompileStatic
+class TestImpactAnalysis extends DefaultTask {
+  private static final String INDEX_FILE_NAME = 'index.txt'
+
+  private static final String BASELINE_INDEX_FILE_NAME = 'baseline-index.txt'
+
+  private static final String BASELINE_ENVIRONMENT_FILE_NAME = 'baseline-environment.txt'
+
+  private static final String ENVIRONMENT_FILE_NAME = 'environment.txt'
+
+  private static final List<String> BUILD_SCRIPT_SUFFIXES = ['.gradle', '.gradle.kts', 'gradle.properties', 'gradle-wrapper.properties']
+
+  /**
+   * Test task
+   */
+  @Internal
+  final Property<Test> test = project.objects.property(Test)
+
+  /**
+   * Directories with classes to analyze: main and test ones
+   */
+  @Internal
+  final ConfigurableFileCollection classesDirs = project.files()
+
+  /**
+   * Directories with test classes
+   */
+  @Internal
+  final ConfigurableFileCollection testClassesDirs = project.files()
+
+  /**
+   * Directories with classes used by tests indirectly,
+   * e.g. in other process via Gradle TestKit.
+   * Changes of any of them cause all tests to run
+   */
+  @Internal
+  final ConfigurableFileCollection indirectClassesDirs = project.files()
+
+  /**
+   * Source directories of analyzed classes
+   */
+  @Internal
+  final ConfigurableFileCollection sourceDirs = project.files()
+
+  /**
+   * Files which change could affect any test:
+   * build scripts, resources,
+   * classpath entries not covered by the index.
+   * Changes of any of them cause all tests to run
+   */
+  @Internal
+  final ConfigurableFileCollection environmentFiles = project.files()
+
+  /**
+   * Git ref to determine changes against.
+   * When not set, changes are determined since the last successful run
+   */
+  @Internal
+  final Property<String> baseRef = project.objects.property(String)
+
+  /**
+   * Directory to store index and state of the last successful run in
+   */
+  @Internal
+  final DirectoryProperty stateDir = project.objects.directoryProperty()
+
+  /**
+   * Report file listing changes and selected tests
+   */
+  @OutputFile
+  final RegularFileProperty reportFile = project.objects.fileProperty()
+
+  private boolean noTestsAffected = false
+
+  /**
+   * Whether analysis found no affected tests,
+   * so that test task could be skipped
+   */
+  @Internal
+  boolean getNoTestsAffected() {
+    this.@noTestsAffected
+  }
+
+  private boolean filtered = false
+
+  TestImpactAnalysis() {
+    outputs.upToDateWhen { false }
+  }
+
+  private File getStateFile(String name) {
+    stateDir.file(name).get().asFile
+  }
+
+  private String getEnvironmentFingerprint() {
+    StringBuilder result = new StringBuilder()
+    environmentFiles.asFileTree.files.sort { File file -> file.absolutePath }.each { File file ->
+      result.append(file.absolutePath).append('\t').append(file.length()).append('\t').append(file.lastModified()).append('\n')
+    }
+    result.toString()
+  }
+
+  private List<String> git(String... args) {
+    ByteArrayOutputStream standardOutput = new ByteArrayOutputStream()
+    project.exec { ExecSpec execSpec ->
+      execSpec.workingDir project.rootDir
+      execSpec.executable 'git'
+      execSpec.args args
+      execSpec.standardOutput = standardOutput
+    }
+    standardOutput.toString(UTF_8.name()).readLines().findAll { String line -> !line.empty }
+  }
+
+  /**
+   * Determines whether changed file could affect any test
+   * @param file changed file
+   * @return true if file is a build script or resource,
+   *         or belongs to other project
+   */
+  private boolean isEnvironmentFile(File file) {
+    BUILD_SCRIPT_SUFFIXES.any { String suffix -> file.name.endsWith(suffix) } ||
+      environmentFiles.files.any { File environmentFile -> file.toPath().startsWith(environmentFile.toPath()) } ||
+      project.rootProject.allprojects.any { Project otherProject ->
+        otherProject != project &&
+          !project.projectDir.toPath().startsWith(otherProject.projectDir.toPath()) &&
+          file.toPath().startsWith(otherProject.projectDir.toPath())
+      }
+  }
+
+  private Set<String> getFailedTestClasses() {
+    Set<String> result = new TreeSet<>()
+    File xmlReportsDir = test.get().reports.junitXml.destination
+    if (xmlReportsDir?.directory) {
+      xmlReportsDir.eachFileMatch(~/^TEST-.+\.xml$/) { File file ->
+        GPathResult testSuite = new XmlSlurper().parse(file)
+        if (testSuite.getProperty('@failures').toString().toInteger() > 0 || testSuite.getProperty('@errors').toString().toInteger() > 0) {
+          result.add testSuite.getProperty('@name').toString()
+        }
+      }
+    }
+    result
+  }
+
+  /**
+   * Determines whether test filter has include patterns
+   * @param filter test filter
+   * @return true if include patterns are set in build script
+   *         or with {@code --tests} option
+   */
+  static boolean hasIncludePatterns(TestFilter filter) {
+    !filter.includePatterns.empty || filter instanceof DefaultTestFilter && !((DefaultTestFilter)filter).commandLineIncludePatterns.empty
+  }
+
+  /**
+   * Selects affected tests
+   */
+  @TaskAction
+  void analyze() {
+    ClassDependencyIndex index = ClassDependencyIndex.load(getStateFile(INDEX_FILE_NAME))
+    index.update classesDirs.files
+    index.store getStateFile(INDEX_FILE_NAME)
+    String environment = getEnvironmentFingerprint()
+    getStateFile(ENVIRONMENT_FILE_NAME).setText environment, UTF_8.name()
+
+    Set<String> testClasses = new TreeSet<>()
+    testClassesDirs.files.each { File testClassesDir ->
+      testClasses.addAll ClassDependencyIndex.getClassNames(testClassesDir)
+    }
+    Set<String> indirectClasses = new TreeSet<>()
+    indirectClassesDirs.files.each { File indirectClassesDir ->
+      indirectClasses.addAll ClassDependencyIndex.getClassNames(indirectClassesDir)
+    }
+
+    String fullRunReason = null
+    Set<String> changedClasses = new TreeSet<>()
+    this.@filtered = hasIncludePatterns(test.get().filter)
+    if (this.@filtered) {
+      fullRunReason = 'test filter is already set'
+    } else if (baseRef.present) {
+      List<File> changedFiles = (git('diff', '--name-only', '--relative', baseRef.get()) + git('ls-files', '--others', '--exclude-standard')).collect { String path -> new File(project.rootDir, path) }
+      Set<String> changedSourcePaths = new TreeSet<>()
+      for (File changedFile in changedFiles) {
+        if (isEnvironmentFile(changedFile)) {
+          fullRunReason = "$changedFile changed since $baseRef.orNull"
+          break
+        }
+        File sourceDir = sourceDirs.files.find { File dir -> changedFile.toPath().startsWith(dir.toPath()) }
+        if (sourceDir != null) {
+          changedSourcePaths.add sourceDir.toPath().relativize(changedFile.toPath()).toString().replace(File.separatorChar, '/' as char)
+        }
+      }
+      changedClasses.addAll index.getClassesBySourcePaths(changedSourcePaths)
+    } else if (!getStateFile(BASELINE_INDEX_FILE_NAME).file || !getStateFile(BASELINE_ENVIRONMENT_FILE_NAME).file) {
+      fullRunReason = 'there is no successful run recorded'
+    } else if (getStateFile(BASELINE_ENVIRONMENT_FILE_NAME).getText(UTF_8.name()) != environment) {
+      fullRunReason = 'build scripts, resources or classpath changed since the last successful run'
+    } else {
+      changedClasses.addAll index.getChangedClasses(ClassDependencyIndex.load(getStateFile(BASELINE_INDEX_FILE_NAME)))
+    }
+    if (fullRunReason == null && changedClasses.any { String className -> indirectClasses.contains(className) }) {
+      fullRunReason = 'classes used by tests indirectly changed'
+    }
+
+    Set<String> selectedTests = new TreeSet<>()
+    Set<String> failedTests = new TreeSet<>(getFailedTestClasses().findAll { String className -> testClasses.contains(className) })
+    if (fullRunReason == null) {
+      selectedTests.addAll index.getDependents(changedClasses).findAll { String className -> testClasses.contains(className) }
+      selectedTests.addAll failedTests
+      test.get().filter.with {
+        // Selected classes could be helpers without tests
+        failOnNoMatchingTests = false
+        selectedTests.each { String className ->
+          includeTestsMatching className
+        }
+      }
+      this.@noTestsAffected = selectedTests.empty
+    }
+
+    File report = reportFile.get().asFile
+    report.parentFile.mkdirs()
+    report.withPrintWriter(UTF_8.name()) { PrintWriter writer ->
+      if (fullRunReason != null) {
+        writer.println "All tests are run: $fullRunReason"
+        return
+      }
+      writer.println "Changed classes (${ changedClasses.size() }):"
+      changedClasses.each { String className -> writer.println "  $className" }
+      writer.println "Tests failed in the previous run (${ failedTests.size() }):"
+      failedTests.each { String className -> writer.println "  $className" }
+      writer.println "Selected tests (${ selectedTests.size() } of ${ testClasses.size() }):"
+      selectedTests.each { String className -> writer.println "  $className" }
+    }
+    if (fullRunReason != null) {
+      logger.lifecycle('{}: all tests are run, {}', test.get().path, fullRunReason)
+    } else {
+      logger.lifecycle('{}: {} of {} test classes affected by changes. See {}', test.get().path, selectedTests.size(), testClasses.size(), report)
+    }
+  }
+
+  /**
+   * Records state of successful run of test task.
+   * Should be called when test task succeeded
+   */
+  void recordSuccessfulRun() {
+    if (this.@filtered) {
+      // Tests excluded by filter are not known to pass
+      return
+    }
+    File indexFile = getStateFile(INDEX_FILE_NAME)
+    File environmentFile = getStateFile(ENVIRONMENT_FILE_NAME)
+    if (indexFile.file && environmentFile.file) {
+      Files.copy indexFile.toPath(), getStateFile(BASELINE_INDEX_FILE_NAME).toPath(), StandardCopyOption.REPLACE_EXISTING
+      Files.copy environmentFile.toPath(), getStateFile(BASELINE_ENVIRONMENT_FILE_NAME).toPath(), StandardCopyOption.REPLACE_EXISTING
+    }
+  }
+}
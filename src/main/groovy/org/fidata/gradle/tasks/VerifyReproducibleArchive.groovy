@@ -0,0 +1,105 @@
+#!/usr/bin/env groovy
+/*
+ * VerifyReproducibleArchive Gradle task class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import groovy.transform.CompileStatic
+import groovy.transform.PackageScope
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.tasks.InputFile
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Verifies that archive is reproducible,
+ * i.e. that it is bit-identical to the same archive built once again
+ */
+@CompileStatic
+class VerifyReproducibleArchive extends DefaultTask {
+  /**
+   * Archive built by original task
+   */
+  @InputFile
+  @PathSensitive(PathSensitivity.NONE)
+  final RegularFileProperty archiveFile = project.objects.fileProperty()
+
+  /**
+   * The same archive built once again
+   */
+  @InputFile
+  @PathSensitive(PathSensitivity.NONE)
+  final RegularFileProperty rebuiltArchiveFile = project.objects.fileProperty()
+
+  VerifyReproducibleArchive() {
+    outputs.upToDateWhen { false }
+  }
+
+  private static final int BUFFER_SIZE = 64 * 1024
+
+  /**
+   * Finds the first differing byte of two files
+   * @param file1 first file
+   * @param file2 second file
+   * @return offset of the first differing byte, or -1 if files are identical
+   */
+  @PackageScope
+  static long findFirstDifference(File file1, File file2) {
+    InputStream inputStream1 = new BufferedInputStream(new FileInputStream(file1), BUFFER_SIZE)
+    try {
+      InputStream inputStream2 = new BufferedInputStream(new FileInputStream(file2), BUFFER_SIZE)
+      try {
+        long offset = 0L
+        while (true) {
+          int byte1 = inputStream1.read()
+          int byte2 = inputStream2.read()
+          if (byte1 != byte2) {
+            return offset
+          }
+          if (byte1 == -1) {
+            return -1L
+          }
+          offset++
+        }
+      } finally {
+        inputStream2.close()
+      }
+    } finally {
+      inputStream1.close()
+    }
+  }
+
+  /**
+   * Compares archives
+   */
+  @TaskAction
+  void verify() {
+    File archive = archiveFile.get().asFile
+    File rebuiltArchive = rebuiltArchiveFile.get().asFile
+    long difference = findFirstDifference(archive, rebuiltArchive)
+    if (difference >= 0) {
+      throw new GradleException("Archive $archive is not reproducible: it differs from $rebuiltArchive starting at byte $difference")
+    }
+    logger.info 'Archive {} is reproducible', archive
+  }
+}
@@ -0,0 +1,296 @@
+#!/usr/bin/env groovy
+/*
+ * BuildMetricsRecorder class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.json.JsonException
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+import groovy.transform.CompileStatic
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryMXBean
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import org.gradle.BuildAdapter
+import org.gradle.BuildResult
+import org.gradle.api.Project
+import org.gradle.api.ProjectEvaluationListener
+import org.gradle.api.ProjectState
+import org.gradle.api.Task
+import org.gradle.api.execution.TaskExecutionListener
+import org.gradle.api.tasks.TaskState
+import org.gradle.api.tasks.testing.TestDescriptor
+import org.gradle.api.tasks.testing.TestListener
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.util.GradleVersion
+
+/**
+ * Collects build metrics and appends them as one JSON line
+ * to the metrics store when the build is finished.
+ *
+ * Record holds configuration time per project,
+ * task counts by outcome, build cache hit rate,
+ * test counts and durations and peak heap usage of the daemon.
+ * Heap usage is sampled after evaluation of each project,
+ * after execution of each task and when the build is finished,
+ * so short peaks between samples are not seen.
+ *
+ * Store is trimmed after each append
+ * so that it keeps only the last records for each set of requested tasks
+ */
+@CompileStatic
+final class BuildMetricsRecorder extends BuildAdapter implements TaskExecutionListener, ProjectEvaluationListener, TestListener {
+  /**
+   * Default store file name
+   */
+  public static final String DEFAULT_STORE_FILE_NAME = 'buildMetrics.jsonl'
+
+  /**
+   * Default maximal number of records kept for each set of requested tasks
+   */
+  public static final int DEFAULT_MAX_RECORDS_PER_TASKS = 100
+
+  /**
+   * Outcome of tasks taken from build cache
+   */
+  public static final String FROM_CACHE_OUTCOME = 'FROM-CACHE'
+
+  /**
+   * Outcome of executed tasks
+   */
+  public static final String EXECUTED_OUTCOME = 'EXECUTED'
+
+  private final File storeFile
+
+  private final int maxRecordsPerTasks
+
+  private final String requestedTasks
+
+  private final long startNanos = System.nanoTime()
+
+  private final Map<Object, Long> startTimes = new ConcurrentHashMap<>()
+
+  private final Map<String, Long> configurationMillis = new ConcurrentHashMap<>()
+
+  private final Map<String, AtomicLong> taskOutcomes = new ConcurrentHashMap<>()
+
+  private final AtomicLong testCount = new AtomicLong()
+
+  private final AtomicLong failedTestCount = new AtomicLong()
+
+  private final AtomicLong skippedTestCount = new AtomicLong()
+
+  private final AtomicLong testMillis = new AtomicLong()
+
+  private final MemoryMXBean memory = ManagementFactory.memoryMXBean
+
+  private final AtomicLong sampledPeakHeapBytes = new AtomicLong()
+
+  /**
+   * Creates a new recorder.
+   * Instance should be added to {@link org.gradle.api.invocation.Gradle} as a listener
+   *
+   * @param storeFile file to append record to
+   * @param rootProject root project. Its evaluation is considered started
+   *        at the moment of creation of this instance
+   * @param maxRecordsPerTasks maximal number of records kept in the store
+   *        for each set of requested tasks
+   */
+  BuildMetricsRecorder(File storeFile, Project rootProject, int maxRecordsPerTasks = DEFAULT_MAX_RECORDS_PER_TASKS) {
+    this.storeFile = storeFile
+    this.maxRecordsPerTasks = maxRecordsPerTasks
+    requestedTasks = rootProject.gradle.startParameter.taskNames.join(' ')
+    startTimes.put rootProject, startNanos
+    sampleHeap()
+  }
+
+  /*
+   * Sum of peaks of separate heap pools is not a heap peak,
+   * since pools reach their peaks at different times.
+   * So used heap is sampled as a whole
+   */
+  private void sampleHeap() {
+    long used = memory.heapMemoryUsage.used
+    long peak = sampledPeakHeapBytes.get()
+    while (used > peak && !sampledPeakHeapBytes.compareAndSet(peak, used)) {
+      peak = sampledPeakHeapBytes.get()
+    }
+  }
+
+  @Override
+  void beforeEvaluate(Project project) {
+    startTimes.put project, System.nanoTime()
+  }
+
+  @Override
+  void afterEvaluate(Project project, ProjectState state) {
+    Long start = startTimes.remove(project)
+    configurationMillis.put project.path, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - (start != null ? start : startNanos))
+    sampleHeap()
+  }
+
+  @Override
+  void beforeExecute(Task task) {
+    // Nothing to do
+  }
+
+  @Override
+  void afterExecute(Task task, TaskState state) {
+    String outcome = BuildTraceRecorder.getOutcome(state)
+    AtomicLong count = taskOutcomes.get(outcome)
+    if (count == null) {
+      taskOutcomes.putIfAbsent outcome, new AtomicLong()
+      count = taskOutcomes.get(outcome)
+    }
+    count.incrementAndGet()
+    sampleHeap()
+  }
+
+  @Override
+  void beforeSuite(TestDescriptor suite) {
+    // Nothing to do
+  }
+
+  @Override
+  void afterSuite(TestDescriptor suite, TestResult result) {
+    // Nothing to do
+  }
+
+  @Override
+  void beforeTest(TestDescriptor testDescriptor) {
+    // Nothing to do
+  }
+
+  @Override
+  void afterTest(TestDescriptor testDescriptor, TestResult result) {
+    testCount.incrementAndGet()
+    switch (result.resultType) {
+      case TestResult.ResultType.FAILURE:
+        failedTestCount.incrementAndGet()
+        break
+      case TestResult.ResultType.SKIPPED:
+        skippedTestCount.incrementAndGet()
+        break
+    }
+    testMillis.addAndGet result.endTime - result.startTime
+  }
+
+  /**
+   * Calculates build cache hit rate
+   * @param taskOutcomes task counts by outcome
+   * @return ratio of tasks taken from cache to tasks taken from cache or executed,
+   *         or null if there were no such tasks
+   */
+  static Double getCacheHitRate(Map<String, Long> taskOutcomes) {
+    long fromCache = taskOutcomes.getOrDefault(FROM_CACHE_OUTCOME, 0L)
+    long executed = taskOutcomes.getOrDefault(EXECUTED_OUTCOME, 0L)
+    fromCache + executed > 0 ? (double)fromCache / (fromCache + executed) : null
+  }
+
+  @Override
+  void buildFinished(BuildResult result) {
+    result.gradle?.removeListener this
+    sampleHeap()
+    Map<String, Long> outcomes = (Map<String, Long>)taskOutcomes.collectEntries { String outcome, AtomicLong count -> [(outcome): count.get()] }
+    Map<String, Object> record = [
+      timestamp: System.currentTimeMillis(),
+      tasks: requestedTasks,
+      gradleVersion: GradleVersion.current().version,
+      success: result.failure == null,
+      buildMillis: TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+      configurationMillis: new TreeMap<String, Long>(configurationMillis),
+      taskOutcomes: new TreeMap<String, Long>(outcomes),
+      cacheHitRate: getCacheHitRate(outcomes),
+      tests: [
+        count: testCount.get(),
+        failed: failedTestCount.get(),
+        skipped: skippedTestCount.get(),
+        millis: testMillis.get(),
+      ],
+      sampledPeakHeapBytes: sampledPeakHeapBytes.get(),
+    ]
+    storeFile.parentFile.mkdirs()
+    storeFile.withWriterAppend(UTF_8.name()) { Writer writer ->
+      writer.write JsonOutput.toJson(record)
+      writer.write '\n'
+    }
+    trimStore()
+  }
+
+  /**
+   * Selects the last records for each set of requested tasks.
+   * Blank and malformed lines are dropped
+   * @param lines lines of the store, oldest first
+   * @param maxRecordsPerTasks maximal number of records kept for each set of requested tasks
+   * @return kept lines, oldest first
+   */
+  static List<String> trimRecords(List<String> lines, int maxRecordsPerTasks) {
+    Map<String, Integer> counts = [:]
+    JsonSlurper jsonSlurper = new JsonSlurper()
+    List<String> result = []
+    for (String line in lines.reverse()) {
+      if (line.trim().empty) {
+        continue
+      }
+      Object record
+      try {
+        record = jsonSlurper.parseText(line)
+      } catch (JsonException ignored) {
+        continue
+      }
+      if (!(record instanceof Map)) {
+        continue
+      }
+      String tasks = ((Map)record)['tasks'].toString()
+      int count = counts.getOrDefault(tasks, 0)
+      if (count < maxRecordsPerTasks) {
+        counts.put tasks, count + 1
+        result.add line
+      }
+    }
+    result.reverse()
+  }
+
+  /*
+   * Store is rewritten only when something is dropped.
+   * Temporary file is moved over the store,
+   * so the store is not left truncated if the build is killed
+   */
+  private void trimStore() {
+    List<String> lines = storeFile.readLines(UTF_8.name())
+    List<String> keptLines = trimRecords(lines, maxRecordsPerTasks)
+    if (keptLines.size() == lines.size()) {
+      return
+    }
+    File tempFile = File.createTempFile(storeFile.name, '.tmp', storeFile.parentFile)
+    tempFile.withWriter(UTF_8.name()) { Writer writer ->
+      for (String line in keptLines) {
+        writer.write line
+        writer.write '\n'
+      }
+    }
+    Files.move tempFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING
+  }
+}
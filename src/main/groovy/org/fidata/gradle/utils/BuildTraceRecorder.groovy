@@ -0,0 +1,194 @@
+#!/usr/bin/env groovy
+/*
+ * BuildTraceRecorder class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.json.JsonOutput
+import groovy.transform.CompileStatic
+import groovy.transform.Immutable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import org.gradle.BuildAdapter
+import org.gradle.BuildResult
+import org.gradle.api.Project
+import org.gradle.api.ProjectEvaluationListener
+import org.gradle.api.ProjectState
+import org.gradle.api.Task
+import org.gradle.api.execution.TaskExecutionListener
+import org.gradle.api.tasks.TaskState
+
+/**
+ * Records build execution timeline
+ * and writes it in Chrome trace format
+ * (supported by {@code chrome://tracing} and Perfetto UI)
+ * when the build is finished.
+ *
+ * Listeners only put small immutable events into a lock-free queue.
+ * Serialization and file writing are done once, after the build is finished
+ */
+@CompileStatic
+final class BuildTraceRecorder extends BuildAdapter implements TaskExecutionListener, ProjectEvaluationListener {
+  /**
+   * Default output file name
+   */
+  public static final String DEFAULT_OUTPUT_FILE_NAME = 'buildTrace.json'
+
+  /**
+   * Lane for configuration phase events
+   */
+  private static final int CONFIGURATION_LANE = 0
+
+  @Immutable
+  private static final class Event {
+    String name
+    String category
+    long start
+    long duration
+    int lane
+    Map<String, String> args
+  }
+
+  private final File outputFile
+
+  private final long startNanos = System.nanoTime()
+
+  private final Queue<Event> events = new ConcurrentLinkedQueue<>()
+
+  private final Map<Object, Long> startTimes = new ConcurrentHashMap<>()
+
+  private final Map<Long, Integer> lanes = new ConcurrentHashMap<>()
+
+  private final Map<Integer, String> laneNames = new ConcurrentHashMap<>([(CONFIGURATION_LANE): 'Configuration'])
+
+  private final AtomicInteger laneCounter = new AtomicInteger(CONFIGURATION_LANE)
+
+  /**
+   * Creates a new recorder.
+   * Instance should be added to {@link org.gradle.api.invocation.Gradle} as a listener
+   *
+   * @param outputFile file to write trace to
+   * @param rootProject root project. Its evaluation is considered started
+   *        at the moment of creation of this instance
+   */
+  BuildTraceRecorder(File outputFile, Project rootProject) {
+    this.outputFile = outputFile
+    startTimes.put rootProject, startNanos
+  }
+
+  private long now() {
+    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos)
+  }
+
+  private long sinceStart(Object key) {
+    Long start = startTimes.remove(key)
+    TimeUnit.NANOSECONDS.toMicros((start != null ? start : startNanos) - startNanos)
+  }
+
+  private int currentLane() {
+    Thread thread = Thread.currentThread()
+    Integer lane = lanes.get(thread.id)
+    if (lane == null) {
+      lane = laneCounter.incrementAndGet()
+      lanes.put thread.id, lane
+      laneNames.put lane, thread.name
+    }
+    lane
+  }
+
+  @Override
+  void beforeEvaluate(Project project) {
+    startTimes.put project, System.nanoTime()
+  }
+
+  @Override
+  void afterEvaluate(Project project, ProjectState state) {
+    long start = sinceStart(project)
+    events.add new Event(project.path, 'configuration', start, now() - start, CONFIGURATION_LANE, [
+      outcome: state.failure != null ? 'FAILED' : 'EXECUTED',
+    ])
+  }
+
+  @Override
+  void beforeExecute(Task task) {
+    startTimes.put task, System.nanoTime()
+  }
+
+  @Override
+  void afterExecute(Task task, TaskState state) {
+    long start = sinceStart(task)
+    events.add new Event(task.path, 'task', start, now() - start, currentLane(), [
+      outcome: getOutcome(state),
+      type: task.class.name - ~/_Decorated$/,
+    ])
+  }
+
+  /**
+   * Determines task outcome
+   * @param state task state
+   * @return outcome in the same form as in the console output
+   */
+  static String getOutcome(TaskState state) {
+    if (state.failure != null) {
+      return 'FAILED'
+    }
+    if (state.skipped || state.upToDate) {
+      return state.skipMessage ?: 'SKIPPED' // UP-TO-DATE, FROM-CACHE, NO-SOURCE, SKIPPED
+    }
+    state.didWork ? 'EXECUTED' : 'UP-TO-DATE'
+  }
+
+  @Override
+  void buildFinished(BuildResult result) {
+    result.gradle?.removeListener this
+    outputFile.parentFile.mkdirs()
+    outputFile.withWriter(UTF_8.name()) { Writer writer ->
+      writer.write '{"traceEvents":[\n'
+      boolean first = true
+      laneNames.each { Integer lane, String laneName ->
+        first = writeEvent(writer, first, [name: 'thread_name', ph: 'M', pid: 1, tid: lane, args: [name: laneName]])
+      }
+      for (Event event in events) {
+        first = writeEvent(writer, first, [
+          name: event.name,
+          cat: event.category,
+          ph: 'X',
+          ts: event.start,
+          dur: event.duration,
+          pid: 1,
+          tid: event.lane,
+          args: event.args,
+        ])
+      }
+      writer.write '\n],"displayTimeUnit":"ms"}\n'
+    }
+  }
+
+  private static boolean writeEvent(Writer writer, boolean first, Map<String, Object> event) {
+    if (!first) {
+      writer.write ',\n'
+    }
+    writer.write JsonOutput.toJson(event)
+    false
+  }
+}
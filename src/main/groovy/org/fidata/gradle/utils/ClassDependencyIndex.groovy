@@ -0,0 +1,291 @@
+#!/usr/bin/env groovy
+/*
+ * ClassDependencyIndex class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.transform.CompileStatic
+import groovy.transform.Immutable
+import java.security.MessageDigest
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+/**
+ * Class-level dependency index of compiled classes.
+ *
+ * Dependencies of each class are read from constant pool of its class file:
+ * referenced classes and all type descriptors and generic signatures.
+ * Index is updated incrementally:
+ * only class files which size or modification time changed are read again.
+ *
+ * CAVEAT:
+ * Compile-time constants are inlined by compilers
+ * and leave no reference to the class declaring them
+ */
+@CompileStatic
+final class ClassDependencyIndex {
+  /**
+   * Indexed class
+   */
+  @Immutable
+  static final class Entry {
+    /**
+     * Size of class file
+     */
+    long length
+
+    /**
+     * Modification time of class file
+     */
+    long lastModified
+
+    /**
+     * Hex-encoded SHA-1 hash of class file
+     */
+    String hash
+
+    /**
+     * Path of source file relative to source root,
+     * or empty string if class file has no {@code SourceFile} attribute
+     */
+    String sourcePath
+
+    /**
+     * Names of classes this class depends on
+     */
+    Set<String> dependencies
+  }
+
+  private static final String CLASS_FILE_EXTENSION = '.class'
+
+  private static final Pattern DESCRIPTOR_PATTERN = ~/L([^;<>\s]+)[;<]/
+
+  private static final String FIELD_SEPARATOR = '\t'
+
+  private static final String DEPENDENCY_SEPARATOR = ','
+
+  /**
+   * Indexed classes by class name
+   */
+  final SortedMap<String, Entry> entries = new TreeMap<>()
+
+  /**
+   * Loads index
+   * @param file index file
+   * @return index, or empty index if file doesn't exist
+   */
+  static ClassDependencyIndex load(File file) {
+    ClassDependencyIndex index = new ClassDependencyIndex()
+    if (file.file) {
+      file.eachLine(UTF_8.name()) { String line ->
+        List<String> fields = line.split(FIELD_SEPARATOR, -1).toList()
+        index.entries.put fields[0], new Entry(
+          length: fields[1].toLong(),
+          lastModified: fields[2].toLong(),
+          hash: fields[3],
+          sourcePath: fields[4],
+          dependencies: fields[5].empty ? Collections.<String>emptySet() : new TreeSet<String>(fields[5].split(DEPENDENCY_SEPARATOR).toList())
+        )
+      }
+    }
+    index
+  }
+
+  /**
+   * Stores index
+   * @param file index file
+   */
+  void store(File file) {
+    file.parentFile.mkdirs()
+    file.withPrintWriter(UTF_8.name()) { PrintWriter writer ->
+      entries.each { String className, Entry entry ->
+        writer.println([className, entry.length, entry.lastModified, entry.hash, entry.sourcePath, entry.dependencies.join(DEPENDENCY_SEPARATOR)].join(FIELD_SEPARATOR))
+      }
+    }
+  }
+
+  /**
+   * Updates index with class files found in directories.
+   * Classes not found anymore are removed
+   * @param classesDirs directories with class files
+   */
+  void update(Iterable<File> classesDirs) {
+    Set<String> found = new HashSet<>()
+    for (File classesDir in classesDirs) {
+      if (!classesDir.directory) {
+        continue
+      }
+      classesDir.eachFileRecurse { File file ->
+        if (!file.name.endsWith(CLASS_FILE_EXTENSION)) {
+          return
+        }
+        String className = getClassName(classesDir, file)
+        found.add className
+        Entry entry = entries[className]
+        if (entry?.length != file.length() || entry?.lastModified != file.lastModified()) {
+          entries.put className, analyze(file)
+        }
+      }
+    }
+    entries.keySet().retainAll found
+    // Dependencies on classes outside the index are not needed
+    entries.entrySet().each { Map.Entry<String, Entry> mapEntry ->
+      Entry entry = mapEntry.value
+      if (!found.containsAll(entry.dependencies)) {
+        mapEntry.value = new Entry(
+          length: entry.length,
+          lastModified: entry.lastModified,
+          hash: entry.hash,
+          sourcePath: entry.sourcePath,
+          dependencies: new TreeSet<String>(entry.dependencies.findAll { String dependency -> found.contains(dependency) })
+        )
+      }
+    }
+  }
+
+  /**
+   * Gets names of classes in directory
+   * @param classesDir directory with class files
+   * @return class names
+   */
+  static Set<String> getClassNames(File classesDir) {
+    Set<String> result = new TreeSet<>()
+    if (classesDir.directory) {
+      classesDir.eachFileRecurse { File file ->
+        if (file.name.endsWith(CLASS_FILE_EXTENSION)) {
+          result.add getClassName(classesDir, file)
+        }
+      }
+    }
+    result
+  }
+
+  private static String getClassName(File classesDir, File file) {
+    String path = classesDir.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/' as char)
+    path.substring(0, path.length() - CLASS_FILE_EXTENSION.length()).replace('/', '.')
+  }
+
+  /**
+   * Gets classes which are added, removed or changed in comparison with other index
+   * @param other other index
+   * @return class names
+   */
+  Set<String> getChangedClasses(ClassDependencyIndex other) {
+    Set<String> result = new TreeSet<>()
+    entries.each { String className, Entry entry ->
+      if (other.entries[className]?.hash != entry.hash) {
+        result.add className
+      }
+    }
+    result.addAll other.entries.keySet().findAll { String className -> !entries.containsKey(className) }
+    result
+  }
+
+  /**
+   * Gets classes compiled from source files
+   * @param sourcePaths paths of source files relative to source roots
+   * @return class names
+   */
+  Set<String> getClassesBySourcePaths(Set<String> sourcePaths) {
+    new TreeSet<String>(entries.findAll { String className, Entry entry -> sourcePaths.contains(entry.sourcePath) }.keySet())
+  }
+
+  /**
+   * Gets classes which transitively depend on any of given classes,
+   * including given classes themselves
+   * @param classNames class names
+   * @return class names
+   */
+  Set<String> getDependents(Set<String> classNames) {
+    Map<String, Set<String>> dependents = new HashMap<>()
+    entries.each { String className, Entry entry ->
+      for (String dependency in entry.dependencies) {
+        Set<String> set = dependents[dependency]
+        if (set == null) {
+          set = new HashSet<>()
+          dependents.put dependency, set
+        }
+        set.add className
+      }
+    }
+    Set<String> result = new TreeSet<>(classNames)
+    Deque<String> queue = new ArrayDeque<>(classNames)
+    while (!queue.empty) {
+      String className = queue.poll()
+      for (String dependent in dependents[className] ?: Collections.<String>emptySet()) {
+        if (result.add(dependent)) {
+          queue.add dependent
+        }
+      }
+    }
+    result
+  }
+
+  /**
+   * Reads class file
+   * @param file class file
+   * @return index entry
+   */
+  static Entry analyze(File file) {
+    byte[] bytes = file.bytes
+    Set<String> dependencies = new TreeSet<>()
+    String sourcePath = ''
+    ClassFile classFile
+    try {
+      classFile = ClassFile.read(bytes)
+    } catch (IOException e) {
+      throw new IOException("Unable to read class file $file", e)
+    }
+    if (classFile != null) {
+      ClassFile.Attribute sourceFileAttribute = classFile.attributes.find { ClassFile.Attribute attribute -> attribute.name == 'SourceFile' }
+      if (sourceFileAttribute != null) {
+        String sourceFile = classFile.utf8[sourceFileAttribute.open().readUnsignedShort()]
+        int packageEnd = classFile.className != null ? classFile.className.lastIndexOf('/') : -1
+        sourcePath = packageEnd >= 0 ? "${ classFile.className.substring(0, packageEnd + 1) }$sourceFile" : sourceFile
+      }
+
+      for (Integer classNameIndex in classFile.classNameIndexes.values()) {
+        String name = classFile.utf8[classNameIndex]
+        if (name != null && !name.startsWith('[')) {
+          dependencies.add name.replace('/', '.')
+        }
+      }
+      for (String string in classFile.utf8) {
+        if (string != null) {
+          Matcher matcher = DESCRIPTOR_PATTERN.matcher(string)
+          while (matcher.find()) {
+            dependencies.add matcher.group(1).replace('/', '.')
+          }
+        }
+      }
+      if (classFile.className != null) {
+        dependencies.remove classFile.className.replace('/', '.')
+      }
+    }
+    new Entry(
+      length: file.length(),
+      lastModified: file.lastModified(),
+      hash: MessageDigest.getInstance('SHA-1').digest(bytes).encodeHex().toString(),
+      sourcePath: sourcePath,
+      dependencies: dependencies
+    )
+  }
+}
@@ -0,0 +1,280 @@
+#!/usr/bin/env groovy
+/*
+ * ClassFile class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import groovy.transform.CompileStatic
+
+/**
+ * Minimal reader of JVM class files.
+ *
+ * Reads constant pool, class header, fields, methods and attributes.
+ * Attributes are kept unparsed
+ */
+@CompileStatic
+final class ClassFile {
+  /**
+   * {@code ACC_PUBLIC} access flag
+   */
+  public static final int ACC_PUBLIC = 0x0001
+
+  /**
+   * {@code ACC_PROTECTED} access flag
+   */
+  public static final int ACC_PROTECTED = 0x0004
+
+  /**
+   * {@code ACC_BRIDGE} access flag of methods
+   */
+  public static final int ACC_BRIDGE = 0x0040
+
+  /**
+   * {@code ACC_SYNTHETIC} access flag
+   */
+  public static final int ACC_SYNTHETIC = 0x1000
+
+  private static final int MAGIC = 0xCAFEBABE
+
+  /**
+   * Attribute
+   */
+  static final class Attribute {
+    /**
+     * Name
+     */
+    final String name
+
+    /**
+     * Unparsed content
+     */
+    final byte[] info
+
+    Attribute(String name, byte[] info) {
+      this.name = name
+      this.info = info
+    }
+
+    /**
+     * Gets stream to parse content
+     * @return stream
+     */
+    DataInputStream open() {
+      new DataInputStream(new ByteArrayInputStream(info))
+    }
+  }
+
+  /**
+   * Field or method
+   */
+  static final class Member {
+    /**
+     * Access flags
+     */
+    final int accessFlags
+
+    /**
+     * Name
+     */
+    final String name
+
+    /**
+     * Descriptor
+     */
+    final String descriptor
+
+    /**
+     * Attributes
+     */
+    final List<Attribute> attributes
+
+    Member(int accessFlags, String name, String descriptor, List<Attribute> attributes) {
+      this.accessFlags = accessFlags
+      this.name = name
+      this.descriptor = descriptor
+      this.attributes = attributes
+    }
+  }
+
+  /**
+   * Strings of {@code CONSTANT_Utf8} entries by constant pool index
+   */
+  final String[] utf8
+
+  /**
+   * Values of {@code CONSTANT_Integer}, {@code CONSTANT_Float},
+   * {@code CONSTANT_Long}, {@code CONSTANT_Double}
+   * and {@code CONSTANT_String} entries by constant pool index
+   */
+  final Object[] values
+
+  /**
+   * Indexes of names of {@code CONSTANT_Class} entries by constant pool index
+   */
+  final Map<Integer, Integer> classNameIndexes = new LinkedHashMap<>()
+
+  /**
+   * Access flags of the class
+   */
+  final int accessFlags
+
+  /**
+   * Internal name of the class
+   */
+  final String className
+
+  /**
+   * Internal name of the superclass, or null for {@code java.lang.Object}
+   */
+  final String superClassName
+
+  /**
+   * Internal names of implemented interfaces
+   */
+  final List<String> interfaceNames = []
+
+  /**
+   * Fields
+   */
+  final List<Member> fields
+
+  /**
+   * Methods
+   */
+  final List<Member> methods
+
+  /**
+   * Attributes of the class
+   */
+  final List<Attribute> attributes
+
+  /**
+   * Reads class file
+   * @param bytes content of class file
+   * @return parsed class file, or null if content is not a class file
+   * @throws IOException if class file is malformed
+   */
+  static ClassFile read(byte[] bytes) throws IOException {
+    DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(bytes))
+    inputStream.readInt() == MAGIC ? new ClassFile(inputStream) : null
+  }
+
+  private ClassFile(DataInputStream inputStream) throws IOException {
+    inputStream.skipBytes 4 // minor_version and major_version
+    int constantPoolCount = inputStream.readUnsignedShort()
+    utf8 = new String[constantPoolCount]
+    values = new Object[constantPoolCount]
+    Map<Integer, Integer> stringIndexes = [:]
+    for (int i = 1; i < constantPoolCount; i++) {
+      int tag = inputStream.readUnsignedByte()
+      switch (tag) {
+        case 1: // Utf8
+          utf8[i] = inputStream.readUTF()
+          break
+        case 3: // Integer
+          values[i] = inputStream.readInt()
+          break
+        case 4: // Float
+          values[i] = inputStream.readFloat()
+          break
+        case 5: // Long
+          values[i] = inputStream.readLong()
+          i++
+          break
+        case 6: // Double
+          values[i] = inputStream.readDouble()
+          i++
+          break
+        case 7: // Class
+          classNameIndexes.put i, inputStream.readUnsignedShort()
+          break
+        case 8: // String
+          stringIndexes.put i, inputStream.readUnsignedShort()
+          break
+        case 9: // Fieldref
+        case 10: // Methodref
+        case 11: // InterfaceMethodref
+        case 12: // NameAndType
+        case 17: // Dynamic
+        case 18: // InvokeDynamic
+          inputStream.skipBytes 4
+          break
+        case 15: // MethodHandle
+          inputStream.skipBytes 3
+          break
+        case 16: // MethodType
+        case 19: // Module
+        case 20: // Package
+          inputStream.skipBytes 2
+          break
+        default:
+          throw new IOException("Unknown constant pool tag $tag")
+      }
+    }
+    stringIndexes.each { Integer index, Integer utf8Index ->
+      values[index] = utf8[utf8Index]
+    }
+
+    accessFlags = inputStream.readUnsignedShort()
+    className = getClassName(inputStream.readUnsignedShort())
+    superClassName = getClassName(inputStream.readUnsignedShort())
+    int interfacesCount = inputStream.readUnsignedShort()
+    interfacesCount.times {
+      interfaceNames.add getClassName(inputStream.readUnsignedShort())
+    }
+    fields = readMembers(inputStream)
+    methods = readMembers(inputStream)
+    attributes = readAttributes(inputStream)
+  }
+
+  /**
+   * Gets class name by constant pool index
+   * @param index index of {@code CONSTANT_Class} entry, or 0
+   * @return internal name of the class, or null if index is 0
+   */
+  String getClassName(int index) {
+    Integer nameIndex = classNameIndexes[index]
+    nameIndex != null ? utf8[nameIndex] : null
+  }
+
+  private List<Member> readMembers(DataInputStream inputStream) {
+    List<Member> result = []
+    int count = inputStream.readUnsignedShort()
+    count.times {
+      int memberAccessFlags = inputStream.readUnsignedShort()
+      String name = utf8[inputStream.readUnsignedShort()]
+      String descriptor = utf8[inputStream.readUnsignedShort()]
+      result.add new Member(memberAccessFlags, name, descriptor, readAttributes(inputStream))
+    }
+    result
+  }
+
+  private List<Attribute> readAttributes(DataInputStream inputStream) {
+    List<Attribute> result = []
+    int count = inputStream.readUnsignedShort()
+    count.times {
+      String name = utf8[inputStream.readUnsignedShort()]
+      byte[] info = new byte[inputStream.readInt()]
+      inputStream.readFully info
+      result.add new Attribute(name, info)
+    }
+    result
+  }
+}
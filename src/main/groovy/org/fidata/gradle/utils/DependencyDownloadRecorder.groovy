@@ -0,0 +1,287 @@
+#!/usr/bin/env groovy
+/*
+ * DependencyDownloadRecorder class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import groovy.transform.CompileStatic
+import groovy.transform.Immutable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import org.gradle.BuildAdapter
+import org.gradle.BuildResult
+import org.gradle.api.Project
+import org.gradle.api.artifacts.repositories.ArtifactRepository
+import org.gradle.api.artifacts.repositories.FlatDirectoryArtifactRepository
+import org.gradle.api.artifacts.repositories.IvyArtifactRepository
+import org.gradle.api.artifacts.repositories.MavenArtifactRepository
+import org.gradle.internal.operations.BuildOperationDescriptor
+import org.gradle.internal.operations.BuildOperationListener
+import org.gradle.internal.operations.BuildOperationListenerManager
+import org.gradle.internal.operations.OperationFinishEvent
+import org.gradle.internal.operations.OperationIdentifier
+import org.gradle.internal.operations.OperationProgressEvent
+import org.gradle.internal.operations.OperationStartEvent
+import org.gradle.internal.resource.ExternalResourceReadBuildOperationType
+
+/**
+ * Collects statistics of dependency prefetch:
+ * resolved configurations, and bytes and time per repository.
+ *
+ * Downloads from remote repositories are recorded
+ * from Gradle build operations
+ * while the recorder is started.
+ * Artifacts of local file repositories are not downloaded
+ * but used in place, so they are recorded by their sizes
+ */
+@CompileStatic
+final class DependencyDownloadRecorder extends BuildAdapter implements BuildOperationListener {
+  /**
+   * Repository
+   */
+  @Immutable
+  static final class Repository {
+    /**
+     * Name
+     */
+    String name
+
+    /**
+     * URL, or URI of directory for flat directory repository
+     */
+    String url
+
+    /**
+     * Whether repository is in local file system
+     */
+    boolean local
+  }
+
+  /**
+   * Statistics of repository
+   */
+  static final class RepositoryStatistics {
+    /**
+     * Number of downloads, or number of used artifacts for local repository
+     */
+    int requests
+
+    /**
+     * Number of bytes
+     */
+    long bytes
+
+    /**
+     * Sum of durations of downloads in milliseconds
+     */
+    long millis
+  }
+
+  /**
+   * Statistics of resolved configuration
+   */
+  @Immutable
+  static final class ConfigurationStatistics {
+    /**
+     * Project path
+     */
+    String projectPath
+
+    /**
+     * Configuration name
+     */
+    String name
+
+    /**
+     * Number of external artifacts
+     */
+    int artifacts
+
+    /**
+     * Total size of external artifacts in bytes
+     */
+    long bytes
+
+    /**
+     * Duration of resolution in milliseconds
+     */
+    long millis
+
+    /**
+     * Resolution failures
+     */
+    List<String> failures
+  }
+
+  private final BuildOperationListenerManager buildOperationListenerManager
+
+  private volatile List<Repository> repositories = []
+
+  private volatile boolean started = false
+
+  private final Map<String, RepositoryStatistics> repositoryStatistics = new ConcurrentHashMap<>()
+
+  private final Queue<ConfigurationStatistics> configurationStatistics = new ConcurrentLinkedQueue<>()
+
+  /**
+   * Creates a new recorder.
+   * Instance should be added to {@link org.gradle.api.invocation.Gradle} as a listener
+   *
+   * @param buildOperationListenerManager manager to listen for downloads with
+   */
+  DependencyDownloadRecorder(BuildOperationListenerManager buildOperationListenerManager) {
+    this.buildOperationListenerManager = buildOperationListenerManager
+  }
+
+  /**
+   * Starts recording of downloads
+   * @param projects projects which repositories and buildscript repositories
+   *        are used to attribute downloads
+   */
+  synchronized void start(Iterable<Project> projects) {
+    Map<String, Repository> result = new LinkedHashMap<>()
+    projects.each { Project project ->
+      (project.buildscript.repositories.toList() + project.repositories.toList()).each { ArtifactRepository repository ->
+        List<URI> urls
+        if (MavenArtifactRepository.isInstance(repository)) {
+          urls = [((MavenArtifactRepository)repository).url]
+        } else if (IvyArtifactRepository.isInstance(repository)) {
+          urls = [((IvyArtifactRepository)repository).url]
+        } else if (FlatDirectoryArtifactRepository.isInstance(repository)) {
+          urls = ((FlatDirectoryArtifactRepository)repository).dirs.collect { File dir -> dir.toURI() }
+        } else {
+          urls = []
+        }
+        urls.findAll { URI url -> url != null }.each { URI url ->
+          String urlString = url.toString()
+          if (!urlString.endsWith('/')) {
+            urlString += '/'
+          }
+          result.putIfAbsent urlString, new Repository(repository.name, urlString, url.scheme == 'file')
+        }
+      }
+    }
+    // The longest URL matches first
+    repositories = result.values().sort(false) { Repository repository -> -repository.url.length() }
+    if (!started) {
+      buildOperationListenerManager.addListener this
+      started = true
+    }
+  }
+
+  /**
+   * Gets repositories used to attribute downloads
+   * @return repositories
+   */
+  List<Repository> getRepositories() {
+    repositories
+  }
+
+  private String findRepositoryKey(String location) {
+    Repository repository = repositories.find { Repository candidate -> location.startsWith(candidate.url) }
+    if (repository != null) {
+      return repository.url
+    }
+    URI uri = URI.create(location)
+    "${ uri.scheme }://${ uri.rawAuthority ?: '' }/"
+  }
+
+  private void record(String key, int requests, long bytes, long millis) {
+    RepositoryStatistics statistics = repositoryStatistics.computeIfAbsent(key) { String k -> new RepositoryStatistics() }
+    synchronized (statistics) {
+      statistics.requests += requests
+      statistics.bytes += bytes
+      statistics.millis += millis
+    }
+  }
+
+  /**
+   * Records artifact used by resolved configuration.
+   * Only artifacts of local repositories are recorded,
+   * artifacts of remote repositories are recorded when downloaded
+   * @param file artifact file
+   */
+  void recordArtifact(File file) {
+    String location = file.toURI().toString()
+    Repository repository = repositories.find { Repository candidate -> candidate.local && location.startsWith(candidate.url) }
+    if (repository != null) {
+      record repository.url, 1, file.length(), 0L
+    }
+  }
+
+  /**
+   * Records resolved configuration
+   * @param statistics statistics of configuration
+   */
+  void recordConfiguration(ConfigurationStatistics statistics) {
+    configurationStatistics.add statistics
+  }
+
+  /**
+   * Gets statistics of repositories
+   * @return map of repository URLs to statistics
+   */
+  Map<String, RepositoryStatistics> getRepositoryStatistics() {
+    new TreeMap<String, RepositoryStatistics>(repositoryStatistics)
+  }
+
+  /**
+   * Gets statistics of resolved configurations
+   * @return statistics sorted by project path and configuration name
+   */
+  List<ConfigurationStatistics> getConfigurationStatistics() {
+    configurationStatistics.toList().sort { ConfigurationStatistics statistics -> "${ statistics.projectPath }\t${ statistics.name }".toString() }
+  }
+
+  @Override
+  void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+    // Do nothing
+  }
+
+  @Override
+  void progress(OperationIdentifier operationIdentifier, OperationProgressEvent progressEvent) {
+    // Do nothing
+  }
+
+  @Override
+  void finished(BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
+    if (!ExternalResourceReadBuildOperationType.Details.isInstance(buildOperation.details)) {
+      return
+    }
+    String location = ((ExternalResourceReadBuildOperationType.Details)buildOperation.details).location
+    // Local files are not downloaded, see recordArtifact
+    if (location.startsWith('file:')) {
+      return
+    }
+    long bytes = ExternalResourceReadBuildOperationType.Result.isInstance(finishEvent.result) ? ((ExternalResourceReadBuildOperationType.Result)finishEvent.result).bytesRead : 0L
+    record findRepositoryKey(location), 1, bytes, finishEvent.endTime - finishEvent.startTime
+  }
+
+  @Override
+  void buildFinished(BuildResult result) {
+    result.gradle?.removeListener this
+    synchronized (this) {
+      if (started) {
+        buildOperationListenerManager.removeListener this
+        started = false
+      }
+    }
+  }
+}
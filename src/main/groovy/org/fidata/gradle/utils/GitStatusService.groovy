@@ -0,0 +1,108 @@
+#!/usr/bin/env groovy
+/*
+ * GitStatusService class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import groovy.transform.CompileDynamic
+import groovy.transform.CompileStatic
+import org.ajoberstar.grgit.Grgit
+import org.ajoberstar.grgit.Status
+import org.gradle.api.Project
+import org.gradle.api.plugins.ExtraPropertiesExtension
+
+/**
+ * Provides status of git working tree of the root project,
+ * shared by all consumers in the build.
+ *
+ * Status is computed on the first query only.
+ * Later queries return cached status
+ * while modification time and size of git index are not changed.
+ *
+ * CAVEAT:
+ * Index is not changed by unstaged edits of tracked files.
+ * So such edits made while the build is running
+ * (after the first query) are not noticed
+ */
+@CompileStatic
+final class GitStatusService {
+  /**
+   * Name of root project extra property holding the instance
+   */
+  public static final String EXTRA_PROPERTY_NAME = 'fidataGitStatusService'
+
+  private final Grgit grgit
+
+  private File indexFile
+
+  private String cachedIndexKey
+
+  private Status cachedStatus
+
+  private GitStatusService(Grgit grgit) {
+    this.grgit = grgit
+  }
+
+  /**
+   * Gets the instance shared in the build
+   * @param project any project of the build.
+   *        Root project should have {@code grgit} extra property
+   * @return shared instance
+   */
+  static GitStatusService getInstance(Project project) {
+    ExtraPropertiesExtension extraProperties = project.rootProject.extensions.extraProperties
+    synchronized (extraProperties) {
+      if (!extraProperties.has(EXTRA_PROPERTY_NAME)) {
+        extraProperties.set EXTRA_PROPERTY_NAME, new GitStatusService((Grgit)extraProperties.get('grgit'))
+      }
+      (GitStatusService)extraProperties.get(EXTRA_PROPERTY_NAME)
+    }
+  }
+
+  @CompileDynamic
+  private File getIndexFile() {
+    if (this.@indexFile == null) {
+      this.@indexFile = grgit.repository.jgit.repository.indexFile
+    }
+    this.@indexFile
+  }
+
+  /**
+   * Gets status of working tree
+   * @return status
+   */
+  synchronized Status getStatus() {
+    File index = getIndexFile()
+    String indexKey = "${ index.lastModified() }:${ index.length() }"
+    if (cachedStatus == null || indexKey != cachedIndexKey) {
+      cachedStatus = grgit.status()
+      cachedIndexKey = indexKey
+    }
+    cachedStatus
+  }
+
+  /**
+   * Determines whether working tree is clean
+   * @return true if there are no changes
+   */
+  boolean isClean() {
+    status.clean
+  }
+}
@@ -0,0 +1,162 @@
+#!/usr/bin/env groovy
+/*
+ * RecompilationRecorder class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.transform.CompileStatic
+import java.util.concurrent.ConcurrentHashMap
+import org.gradle.BuildAdapter
+import org.gradle.BuildResult
+import org.gradle.api.Task
+import org.gradle.api.execution.TaskExecutionListener
+import org.gradle.api.tasks.TaskState
+import org.gradle.api.tasks.compile.JavaCompile
+
+/**
+ * Counts full and incremental recompilations
+ * of each {@link JavaCompile} task across builds.
+ *
+ * Recompilation is considered full
+ * when all class files in destination directory
+ * were written by the task execution,
+ * i.e. are new or have modification time
+ * different from the one before execution.
+ * Counts are stored in properties file when the build is finished
+ */
+@CompileStatic
+final class RecompilationRecorder extends BuildAdapter implements TaskExecutionListener {
+  /**
+   * Default store file name
+   */
+  public static final String DEFAULT_STORE_FILE_NAME = 'recompilations.properties'
+
+  /**
+   * Suffix of key with number of full recompilations
+   */
+  public static final String FULL_SUFFIX = '.full'
+
+  /**
+   * Suffix of key with number of incremental recompilations
+   */
+  public static final String INCREMENTAL_SUFFIX = '.incremental'
+
+  private static final String CLASS_FILE_EXTENSION = '.class'
+
+  private final File storeFile
+
+  private final Map<Task, Map<String, Long>> snapshots = new ConcurrentHashMap<>()
+
+  private final Map<String, Boolean> recompilations = new ConcurrentHashMap<>()
+
+  /**
+   * Creates a new recorder.
+   * Instance should be added to {@link org.gradle.api.invocation.Gradle} as a listener
+   *
+   * @param storeFile file to store counts in
+   */
+  RecompilationRecorder(File storeFile) {
+    this.storeFile = storeFile
+  }
+
+  /**
+   * Reads modification times of class files
+   * @param destinationDir destination directory of compile task
+   * @return modification times by paths
+   */
+  static Map<String, Long> snapshotClassFiles(File destinationDir) {
+    Map<String, Long> result = [:]
+    if (destinationDir?.directory) {
+      destinationDir.eachFileRecurse { File file ->
+        if (file.name.endsWith(CLASS_FILE_EXTENSION)) {
+          result.put file.path, file.lastModified()
+        }
+      }
+    }
+    result
+  }
+
+  /**
+   * Determines whether all class files were written since snapshot
+   * @param before snapshot taken before execution
+   * @param after snapshot taken after execution
+   * @return whether all class files existing after execution
+   *         are new or have different modification time,
+   *         or null if there are no class files
+   */
+  static Boolean isFullRecompilation(Map<String, Long> before, Map<String, Long> after) {
+    if (after.isEmpty()) {
+      return null
+    }
+    after.every { String path, Long lastModified -> before.get(path) != lastModified }
+  }
+
+  @Override
+  void beforeExecute(Task task) {
+    if (JavaCompile.isInstance(task)) {
+      snapshots.put task, snapshotClassFiles(((JavaCompile)task).destinationDir)
+    }
+  }
+
+  @Override
+  void afterExecute(Task task, TaskState state) {
+    Map<String, Long> before = snapshots.remove(task)
+    if (before == null || !state.didWork || state.skipped || state.failure != null) {
+      return
+    }
+    Boolean full = isFullRecompilation(before, snapshotClassFiles(((JavaCompile)task).destinationDir))
+    if (full != null) {
+      recompilations.put task.path, full
+    }
+  }
+
+  /**
+   * Loads counts
+   * @param storeFile store file
+   * @return counts, or empty properties if store file doesn't exist
+   */
+  static Properties load(File storeFile) {
+    Properties properties = new Properties()
+    if (storeFile.file) {
+      storeFile.withReader(UTF_8.name()) { Reader reader ->
+        properties.load reader
+      }
+    }
+    properties
+  }
+
+  @Override
+  void buildFinished(BuildResult result) {
+    result.gradle?.removeListener this
+    if (recompilations.isEmpty()) {
+      return
+    }
+    Properties properties = load(storeFile)
+    recompilations.each { String taskPath, Boolean full ->
+      String key = taskPath + (full ? FULL_SUFFIX : INCREMENTAL_SUFFIX)
+      properties.setProperty key, (properties.getProperty(key, '0').toLong() + 1).toString()
+    }
+    storeFile.parentFile.mkdirs()
+    storeFile.withWriter(UTF_8.name()) { Writer writer ->
+      properties.store writer, 'Full and incremental recompilations of JavaCompile tasks'
+    }
+  }
+}
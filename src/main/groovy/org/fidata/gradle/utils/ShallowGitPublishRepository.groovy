@@ -0,0 +1,230 @@
+#!/usr/bin/env groovy
+/*
+ * ShallowGitPublishRepository class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.transform.CompileStatic
+import groovy.transform.PackageScope
+import org.gradle.api.GradleException
+import org.gradle.api.Project
+import org.gradle.api.provider.Provider
+import org.gradle.api.specs.Spec
+import org.gradle.process.ExecResult
+import org.gradle.process.ExecSpec
+
+/**
+ * Local repository for publishing documentation
+ * which fetches only the tip of the publish branch
+ * and checks out only top-level files
+ * and directories that are going to be changed.
+ *
+ * Repository is kept between builds, so only new objects are fetched.
+ *
+ * All operations are made with git command line client
+ * since JGit supports neither sparse checkout nor shallow repositories.
+ * Credentials, if provided, are passed to git through a credential helper
+ * reading them from the environment
+ */
+@CompileStatic
+final class ShallowGitPublishRepository {
+  private static final String REMOTE_NAME = 'origin'
+
+  /**
+   * Exit code of {@code git ls-remote --exit-code}
+   * when no matching refs are found
+   */
+  private static final int LS_REMOTE_NO_MATCHING_REFS_EXIT_CODE = 2
+
+  private static final String USERNAME_ENV_VAR = 'FIDATA_GIT_USERNAME'
+
+  private static final String PASSWORD_ENV_VAR = 'FIDATA_GIT_PASSWORD'
+
+  private static final String CREDENTIAL_HELPER = "!f() { echo username=\$$USERNAME_ENV_VAR; echo password=\$$PASSWORD_ENV_VAR; }; f"
+
+  private final Project project
+
+  private final File repoDir
+
+  private final String username
+
+  private final String password
+
+  private final Provider<String> authorName
+
+  private final Provider<String> authorEmail
+
+  /**
+   * Creates a new instance
+   * @param project project used to run git
+   * @param repoDir repository directory. It is created if it doesn't exist
+   * @param username git username, or null
+   * @param password git password, or null
+   * @param authorName name of author and committer of commits
+   * @param authorEmail email of author and committer of commits
+   */
+  @SuppressWarnings('ParameterCount')
+  ShallowGitPublishRepository(Project project, File repoDir, String username, String password, Provider<String> authorName, Provider<String> authorEmail) {
+    this.project = project
+    this.repoDir = repoDir
+    this.username = username
+    this.password = password
+    this.authorName = authorName
+    this.authorEmail = authorEmail
+  }
+
+  /**
+   * Fetches the tip of the branch
+   * and resets working tree to it,
+   * checking out only top-level files, {@code dirsToCheckout}
+   * and directories accepted by {@code dirsToRemove}
+   * @param repoUri URI of remote repository
+   * @param branch branch name
+   * @param dirsToCheckout names of top-level directories that are going to be written
+   * @param dirsToRemove spec accepting names of top-level directories that are going to be removed
+   */
+  void reset(String repoUri, String branch, Collection<String> dirsToCheckout, Spec<String> dirsToRemove) {
+    if (!new File(repoDir, '.git').directory) {
+      repoDir.mkdirs()
+      git 'init', '--quiet'
+      git 'remote', 'add', REMOTE_NAME, repoUri
+    } else {
+      git 'remote', 'set-url', REMOTE_NAME, repoUri
+    }
+    git 'config', 'core.sparseCheckout', 'true'
+
+    String localRef = "refs/heads/$branch".toString()
+    String remoteRef = "refs/remotes/$REMOTE_NAME/$branch".toString()
+    /*
+     * Absence of the branch should be distinguished from network,
+     * authentication and server errors. Otherwise publish commit
+     * would be made on top of stale local branch without other directories
+     * and would remove them from remote branch on fast-forward push
+     */
+    int lsRemoteExitValue = git(true, new ByteArrayOutputStream(), 'ls-remote', '--quiet', '--exit-code', '--heads', REMOTE_NAME, localRef).exitValue
+    if (lsRemoteExitValue == LS_REMOTE_NO_MATCHING_REFS_EXIT_CODE) {
+      project.logger.info('ShallowGitPublishRepository: branch {} not found in {}, creating orphan branch', branch, repoUri)
+      writeSparseCheckout(['/*'])
+      git 'symbolic-ref', 'HEAD', localRef
+      // Branch could be left by previous builds. New branch should have no history
+      git 'update-ref', '-d', localRef
+      git 'update-ref', '-d', remoteRef
+      git true, null, 'rm', '-r', '--quiet', '--cached', '--ignore-unmatch', '.'
+      git 'clean', '-fdx', '--quiet'
+      return
+    }
+    if (lsRemoteExitValue != 0) {
+      throw new GradleException("Unable to list branches of $repoUri: git ls-remote exited with code $lsRemoteExitValue")
+    }
+
+    /*
+     * CAVEAT:
+     * Servers not supporting partial clone ignore filter with a warning
+     * and send all blobs of the tip commit
+     */
+    git 'fetch', '--quiet', '--depth=1', '--filter=blob:none', REMOTE_NAME, "+$localRef:$remoteRef".toString()
+
+    List<String> dirs = listTopLevelDirs(remoteRef)
+    writeSparseCheckout(getSparseCheckoutPatterns(dirs, dirsToCheckout, dirsToRemove))
+    git 'checkout', '--quiet', '--force', '-B', branch, remoteRef
+    git 'reset', '--quiet', '--hard', remoteRef
+    git 'clean', '-fdx', '--quiet'
+    // Reapply sparse checkout patterns which could change since the previous build
+    git 'read-tree', '-mu', 'HEAD'
+  }
+
+  /**
+   * Commits all changes in checked out part of working tree
+   * @param message commit message
+   * @return whether there were changes to commit
+   */
+  boolean commit(String message) {
+    git 'add', '--all'
+    if (git(true, null, 'diff', '--cached', '--quiet').exitValue == 0) {
+      return false
+    }
+    /*
+     * Repository is created by the build
+     * and identity could be not configured globally
+     */
+    git '-c', "user.name=${ authorName.get() }".toString(), '-c', "user.email=${ authorEmail.get() }".toString(), 'commit', '--quiet', '--no-gpg-sign', '--message', message
+    true
+  }
+
+  /**
+   * Pushes branch to remote repository
+   * @param branch branch name
+   */
+  void push(String branch) {
+    git 'push', '--quiet', REMOTE_NAME, "refs/heads/$branch:refs/heads/$branch".toString()
+  }
+
+  /**
+   * Determines sparse checkout patterns
+   * @param dirs names of all top-level directories in the branch
+   * @param dirsToCheckout names of top-level directories that are going to be written
+   * @param dirsToRemove spec accepting names of top-level directories that are going to be removed
+   * @return sparse checkout patterns
+   */
+  @PackageScope
+  static List<String> getSparseCheckoutPatterns(List<String> dirs, Collection<String> dirsToCheckout, Spec<String> dirsToRemove) {
+    List<String> result = ['/*', '!/*/']
+    for (String dir in dirs) {
+      if (dirsToCheckout.contains(dir) || dirsToRemove.isSatisfiedBy(dir)) {
+        result.add "/$dir/".toString()
+      }
+    }
+    result
+  }
+
+  private List<String> listTopLevelDirs(String ref) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream()
+    git false, output, 'ls-tree', '-d', '--name-only', ref
+    new String(output.toByteArray(), UTF_8).readLines().findAll { String line -> !line.empty }
+  }
+
+  private void writeSparseCheckout(List<String> patterns) {
+    File sparseCheckoutFile = new File(repoDir, '.git/info/sparse-checkout')
+    sparseCheckoutFile.parentFile.mkdirs()
+    sparseCheckoutFile.setText patterns.join('\n') + '\n', UTF_8.name()
+  }
+
+  private ExecResult git(String... gitArgs) {
+    git false, null, gitArgs
+  }
+
+  private ExecResult git(boolean ignoreExitValue, OutputStream standardOutput, String... gitArgs) {
+    project.exec { ExecSpec execSpec ->
+      execSpec.workingDir repoDir
+      execSpec.executable 'git'
+      if (username != null) {
+        execSpec.environment USERNAME_ENV_VAR, username
+        execSpec.environment PASSWORD_ENV_VAR, password ?: ''
+        execSpec.args '-c', 'credential.helper=', '-c', "credential.helper=$CREDENTIAL_HELPER".toString()
+      }
+      execSpec.args gitArgs
+      execSpec.ignoreExitValue = ignoreExitValue
+      if (standardOutput != null) {
+        execSpec.standardOutput = standardOutput
+      }
+    }
+  }
+}
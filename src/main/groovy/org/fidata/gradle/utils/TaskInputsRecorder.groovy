@@ -0,0 +1,267 @@
+#!/usr/bin/env groovy
+/*
+ * TaskInputsRecorder class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.transform.CompileStatic
+import groovy.transform.Immutable
+import groovy.transform.PackageScope
+import java.nio.ByteBuffer
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import org.gradle.BuildAdapter
+import org.gradle.BuildResult
+import org.gradle.api.Task
+import org.gradle.api.execution.TaskExecutionListener
+import org.gradle.api.tasks.TaskState
+
+/**
+ * Records hashes of input properties and fingerprints of input files
+ * of all tasks having both inputs and outputs,
+ * i.e. of all candidates for build cache,
+ * and writes them as {@link TaskInputsSnapshot} when the build is finished.
+ *
+ * Records are spilled to a temporary file as soon as task is executed,
+ * only their offsets are kept in memory
+ */
+@CompileStatic
+final class TaskInputsRecorder extends BuildAdapter implements TaskExecutionListener {
+  /**
+   * Default output file name
+   */
+  public static final String DEFAULT_OUTPUT_FILE_NAME = 'taskInputs.bin'
+
+  /**
+   * Name of pseudo-property holding task implementation type
+   */
+  public static final String TASK_TYPE_PROPERTY_NAME = '$type'
+
+  private static final int BUFFER_SIZE = 64 * 1024
+
+  private final File outputFile
+
+  private final File rootDir
+
+  private final File gradleUserHomeDir
+
+  private final File spillFile
+
+  private final RandomAccessFile spill
+
+  private final NavigableMap<String, long[]> offsets = new TreeMap<>()
+
+  private final Map<Task, TaskInputsSnapshot.TaskRecord> pending = new ConcurrentHashMap<>()
+
+  @Immutable
+  private static final class FileHash {
+    long length
+    long lastModified
+    long hash
+  }
+
+  private final Map<File, FileHash> fileHashes = new ConcurrentHashMap<>()
+
+  /**
+   * Creates a new recorder.
+   * Instance should be added to {@link org.gradle.api.invocation.Gradle} as a listener
+   *
+   * @param outputFile file to write snapshot to
+   * @param rootDir root project directory. Paths of files inside it are recorded relative to it
+   * @param gradleUserHomeDir Gradle user home directory. Paths of files inside it are recorded relative to it
+   */
+  TaskInputsRecorder(File outputFile, File rootDir, File gradleUserHomeDir) {
+    this.outputFile = outputFile
+    this.rootDir = rootDir
+    this.gradleUserHomeDir = gradleUserHomeDir
+    spillFile = File.createTempFile('taskInputs', '.bin')
+    spillFile.deleteOnExit()
+    spill = new RandomAccessFile(spillFile, 'rw')
+  }
+
+  @Override
+  void beforeExecute(Task task) {
+    if (!task.inputs.hasInputs || !task.outputs.hasOutput) {
+      return
+    }
+    /*
+     * Inputs are hashed before execution,
+     * i.e. in the same state as when build cache key is calculated
+     */
+    List<TaskInputsSnapshot.Entry> properties = [new TaskInputsSnapshot.Entry(TASK_TYPE_PROPERTY_NAME, hashString(task.class.name - ~/_Decorated$/))]
+    task.inputs.properties.each { String name, Object value ->
+      properties.add new TaskInputsSnapshot.Entry(name, hashValue(value))
+    }
+    properties.sort { TaskInputsSnapshot.Entry entry -> entry.name }
+    List<TaskInputsSnapshot.Entry> files = []
+    for (File file in task.inputs.files.asFileTree) {
+      files.add new TaskInputsSnapshot.Entry(normalizePath(file), hashFile(file))
+    }
+    files.sort { TaskInputsSnapshot.Entry entry -> entry.name }
+    pending.put task, new TaskInputsSnapshot.TaskRecord(task.path, '', properties, files)
+  }
+
+  @Override
+  void afterExecute(Task task, TaskState state) {
+    TaskInputsSnapshot.TaskRecord record = pending.remove(task)
+    if (record == null) {
+      return
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+    new DataOutputStream(bytes).withStream { DataOutputStream output ->
+      TaskInputsSnapshot.writeRecord output, new TaskInputsSnapshot.TaskRecord(record.path, BuildTraceRecorder.getOutcome(state), record.properties, record.files)
+    }
+    synchronized (spill) {
+      long offset = spill.length()
+      spill.seek offset
+      spill.write bytes.toByteArray()
+      offsets.put record.path, [offset, (long)bytes.size()] as long[]
+    }
+  }
+
+  @Override
+  void buildFinished(BuildResult result) {
+    result.gradle?.removeListener this
+    outputFile.parentFile.mkdirs()
+    try {
+      new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile), BUFFER_SIZE)).withStream { DataOutputStream output ->
+        TaskInputsSnapshot.writeHeader output
+        byte[] buffer = new byte[BUFFER_SIZE]
+        offsets.each { String path, long[] offsetAndLength ->
+          spill.seek offsetAndLength[0]
+          int length = (int)offsetAndLength[1]
+          if (buffer.length < length) {
+            buffer = new byte[length]
+          }
+          spill.readFully buffer, 0, length
+          output.write buffer, 0, length
+        }
+        TaskInputsSnapshot.writeEnd output
+      }
+    } finally {
+      spill.close()
+      spillFile.delete()
+    }
+  }
+
+  /**
+   * Normalizes path of input file,
+   * so that snapshots made on different machines could be compared
+   * @param file input file
+   * @return path relative to root project directory or Gradle user home
+   */
+  @PackageScope
+  String normalizePath(File file) {
+    String path = file.absolutePath
+    String rootPath = rootDir.absolutePath + File.separator
+    if (path.startsWith(rootPath)) {
+      return path.substring(rootPath.length()).replace(File.separatorChar, '/' as char)
+    }
+    String gradleUserHomePath = gradleUserHomeDir.absolutePath + File.separator
+    if (path.startsWith(gradleUserHomePath)) {
+      return '$GRADLE_USER_HOME/' + path.substring(gradleUserHomePath.length()).replace(File.separatorChar, '/' as char)
+    }
+    path.replace(File.separatorChar, '/' as char)
+  }
+
+  private long hashFile(File file) {
+    long length = file.length()
+    long lastModified = file.lastModified()
+    FileHash fileHash = fileHashes.get(file)
+    if (fileHash == null || fileHash.length != length || fileHash.lastModified != lastModified) {
+      MessageDigest digest = MessageDigest.getInstance('MD5')
+      byte[] buffer = new byte[BUFFER_SIZE]
+      file.withInputStream { InputStream inputStream ->
+        int count
+        while ((count = inputStream.read(buffer)) != -1) {
+          digest.update buffer, 0, count
+        }
+      }
+      fileHash = new FileHash(length, lastModified, toLong(digest.digest()))
+      fileHashes.put file, fileHash
+    }
+    fileHash.hash
+  }
+
+  /**
+   * Hashes value of input property.
+   * Values of well-known types are hashed by their canonical string form,
+   * other serializable values - by their serialized form
+   * @param value value
+   * @return hash
+   */
+  @PackageScope
+  long hashValue(Object value) {
+    MessageDigest digest = MessageDigest.getInstance('MD5')
+    updateDigest digest, value
+    toLong(digest.digest())
+  }
+
+  private void updateDigest(MessageDigest digest, Object value) {
+    if (value == null) {
+      digest.update 'null'.getBytes(UTF_8)
+    } else if (value instanceof CharSequence || value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Enum) {
+      digest.update "${ value.class.name }:$value".getBytes(UTF_8)
+    } else if (value instanceof File) {
+      digest.update "file:${ normalizePath((File)value) }".getBytes(UTF_8)
+    } else if (value instanceof Map) {
+      digest.update 'map['.getBytes(UTF_8)
+      new TreeMap<String, Object>(((Map<Object, Object>)value).collectEntries { Object key, Object entryValue -> [(key.toString()): entryValue] }).each { String key, Object entryValue ->
+        updateDigest digest, key
+        updateDigest digest, entryValue
+      }
+      digest.update ']'.getBytes(UTF_8)
+    } else if (value instanceof Set) {
+      // Iteration order of sets is not stable, so hashes of elements are sorted
+      digest.update 'set['.getBytes(UTF_8)
+      List<Long> elementHashes = ((Set<Object>)value).collect { Object element -> hashValue(element) }.sort()
+      ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES)
+      for (Long elementHash in elementHashes) {
+        buffer.clear()
+        buffer.putLong elementHash
+        digest.update buffer.array()
+      }
+      digest.update ']'.getBytes(UTF_8)
+    } else if (value instanceof Iterable) {
+      digest.update 'list['.getBytes(UTF_8)
+      for (Object element in (Iterable)value) {
+        updateDigest digest, element
+      }
+      digest.update ']'.getBytes(UTF_8)
+    } else if (value instanceof Serializable) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+      new ObjectOutputStream(bytes).withStream { ObjectOutputStream output ->
+        output.writeObject value
+      }
+      digest.update bytes.toByteArray()
+    } else {
+      digest.update "${ value.class.name }:$value".getBytes(UTF_8)
+    }
+  }
+
+  private static long hashString(String value) {
+    toLong(MessageDigest.getInstance('MD5').digest(value.getBytes(UTF_8)))
+  }
+
+  private static long toLong(byte[] digest) {
+    ByteBuffer.wrap(digest).long
+  }
+}
@@ -0,0 +1,226 @@
+#!/usr/bin/env groovy
+/*
+ * TaskInputsSnapshot class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import groovy.transform.CompileStatic
+import groovy.transform.Immutable
+
+/**
+ * Binary snapshot of task inputs.
+ *
+ * Snapshot is a sequence of task records sorted by task path.
+ * Entries inside each record are sorted by name.
+ * So two snapshots could be compared by merging,
+ * reading one record at a time
+ */
+@CompileStatic
+final class TaskInputsSnapshot {
+  /**
+   * Magic number at the start of snapshot file
+   */
+  public static final int MAGIC = 0x46544953 // FTIS
+
+  /**
+   * Version of snapshot format
+   */
+  public static final int FORMAT_VERSION = 1
+
+  private static final byte RECORD_MARKER = 1
+
+  private static final byte END_MARKER = 0
+
+  /**
+   * Named hash
+   */
+  @Immutable
+  static final class Entry {
+    /**
+     * Name of input property, or normalized path of input file
+     */
+    String name
+    /**
+     * Hash of value or file content
+     */
+    long hash
+  }
+
+  /**
+   * Inputs of one task
+   */
+  @Immutable
+  static final class TaskRecord {
+    /**
+     * Task path
+     */
+    String path
+    /**
+     * Task outcome in the same form as in the console output
+     */
+    String outcome
+    /**
+     * Hashes of input property values, sorted by property name
+     */
+    List<Entry> properties
+    /**
+     * Fingerprints of input files, sorted by normalized path
+     */
+    List<Entry> files
+  }
+
+  /**
+   * Writes snapshot header
+   * @param output output to write to
+   */
+  static void writeHeader(DataOutput output) {
+    output.writeInt MAGIC
+    output.writeInt FORMAT_VERSION
+  }
+
+  /**
+   * Writes task record
+   * @param output output to write to
+   * @param record record to write
+   */
+  static void writeRecord(DataOutput output, TaskRecord record) {
+    output.writeByte RECORD_MARKER
+    output.writeUTF record.path
+    output.writeUTF record.outcome
+    writeEntries output, record.properties
+    writeEntries output, record.files
+  }
+
+  private static void writeEntries(DataOutput output, List<Entry> entries) {
+    output.writeInt entries.size()
+    for (Entry entry in entries) {
+      output.writeUTF entry.name
+      output.writeLong entry.hash
+    }
+  }
+
+  /**
+   * Writes end marker
+   * @param output output to write to
+   */
+  static void writeEnd(DataOutput output) {
+    output.writeByte END_MARKER
+  }
+
+  /**
+   * Reads snapshot header
+   * @param input input to read from
+   * @throws IOException when input is not a snapshot of supported version
+   */
+  static void readHeader(DataInput input) throws IOException {
+    if (input.readInt() != MAGIC) {
+      throw new IOException('Not a task inputs snapshot')
+    }
+    int formatVersion = input.readInt()
+    if (formatVersion != FORMAT_VERSION) {
+      throw new IOException("Unsupported task inputs snapshot format version: $formatVersion")
+    }
+  }
+
+  /**
+   * Reads next task record
+   * @param input input to read from
+   * @return task record, or null when there are no more records
+   */
+  static TaskRecord readRecord(DataInput input) throws IOException {
+    if (input.readByte() == END_MARKER) {
+      return null
+    }
+    String path = input.readUTF()
+    String outcome = input.readUTF()
+    List<Entry> properties = readEntries(input)
+    List<Entry> files = readEntries(input)
+    new TaskRecord(path, outcome, properties, files)
+  }
+
+  private static List<Entry> readEntries(DataInput input) {
+    int size = input.readInt()
+    List<Entry> result = new ArrayList<>(size)
+    size.times {
+      String name = input.readUTF()
+      long hash = input.readLong()
+      result.add new Entry(name, hash)
+    }
+    result
+  }
+
+  /**
+   * Kind of difference between entries
+   */
+  static enum Change {
+    ADDED,
+    REMOVED,
+    CHANGED,
+  }
+
+  /**
+   * Difference between entries of two records
+   */
+  @Immutable
+  static final class Difference {
+    /**
+     * Name of entry
+     */
+    String name
+    /**
+     * Kind of difference
+     */
+    Change change
+  }
+
+  /**
+   * Compares two sorted lists of entries by merging
+   * @param baseline baseline entries
+   * @param current current entries
+   * @return differences
+   */
+  static List<Difference> compare(List<Entry> baseline, List<Entry> current) {
+    List<Difference> result = []
+    int i = 0
+    int j = 0
+    while (i < baseline.size() || j < current.size()) {
+      int order = i >= baseline.size() ? 1 : j >= current.size() ? -1 : baseline[i].name <=> current[j].name
+      if (order < 0) {
+        result.add new Difference(baseline[i].name, Change.REMOVED)
+        i++
+      } else if (order > 0) {
+        result.add new Difference(current[j].name, Change.ADDED)
+        j++
+      } else {
+        if (baseline[i].hash != current[j].hash) {
+          result.add new Difference(current[j].name, Change.CHANGED)
+        }
+        i++
+        j++
+      }
+    }
+    result
+  }
+
+  // Suppress default constructor for noninstantiability
+  private TaskInputsSnapshot() {
+    throw new UnsupportedOperationException()
+  }
+}
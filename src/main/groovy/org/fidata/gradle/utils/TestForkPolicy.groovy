@@ -0,0 +1,186 @@
+#!/usr/bin/env groovy
+/*
+ * TestForkPolicy class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import groovy.transform.CompileStatic
+import groovy.transform.Immutable
+import java.lang.management.ManagementFactory
+import java.lang.management.OperatingSystemMXBean
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+/**
+ * Derives number of test forks, their heap size and {@code forkEvery}
+ * from available processors and physical memory
+ */
+@CompileStatic
+final class TestForkPolicy {
+  /**
+   * Memory left for OS and other processes, in megabytes
+   */
+  public static final long OS_RESERVED_MEMORY_MB = 1024L
+
+  private static final Pattern MEMORY_SIZE_PATTERN = ~/^(\d{1,15})([kKmMgGtT]?)$/
+
+  /**
+   * Kind of tests, with their resource requirements
+   */
+  @Immutable
+  static final class Profile {
+    /**
+     * Profile name. Used as a prefix of overriding project properties
+     */
+    String name
+    /**
+     * Default heap size of a fork, in megabytes
+     */
+    long heapMb
+    /**
+     * Memory used by a fork in addition to its heap, in megabytes.
+     * Includes metaspace, code cache, and processes spawned by tests,
+     * e.g. TestKit daemons
+     */
+    long overheadMb
+    /**
+     * Processors consumed by a single fork
+     */
+    int processorsPerFork
+    /**
+     * Default number of test classes after which fork is restarted.
+     * 0 means never
+     */
+    long forkEvery
+  }
+
+  /**
+   * Unit tests
+   */
+  public static final Profile UNIT = new Profile('unitTest', 512L, 256L, 1, 0L)
+
+  /**
+   * Functional tests using TestKit.
+   * Each fork spawns a TestKit daemon
+   */
+  public static final Profile FUNCTIONAL = new Profile('functionalTest', 1024L, 1024L, 2, 0L)
+
+  /**
+   * Compatibility tests against several Gradle versions.
+   * Each fork may spawn several TestKit daemons,
+   * so forks are restarted to release memory leaked by Gradle class loaders
+   */
+  public static final Profile COMPAT = new Profile('compatTest', 1024L, 1536L, 2, 10L)
+
+  /**
+   * Policy decision
+   */
+  @Immutable
+  static final class Decision {
+    int maxParallelForks
+    long heapMb
+    long forkEvery
+    String reason
+
+    /**
+     * @return heap size in the form accepted by {@code -Xmx}
+     */
+    String getMaxHeapSize() {
+      "${ heapMb }m"
+    }
+  }
+
+  /**
+   * Decides fork settings
+   * @param profile tests profile
+   * @param availableProcessors number of available processors
+   * @param physicalMemoryMb physical memory, in megabytes. 0 if unknown
+   * @param reservedMemoryMb memory used by Gradle itself and OS, in megabytes
+   * @param heapMb heap size of a fork, in megabytes. Null to use default from profile
+   * @param maxParallelForks overridden number of forks. Null to derive
+   * @param forkEvery overridden {@code forkEvery}. Null to use default from profile
+   * @return decision
+   */
+  @SuppressWarnings('ParameterCount')
+  static Decision decide(Profile profile, int availableProcessors, long physicalMemoryMb, long reservedMemoryMb, Long heapMb = null, Integer maxParallelForks = null, Long forkEvery = null) {
+    long forkHeapMb = heapMb != null ? heapMb : profile.heapMb
+    long forkFootprintMb = forkHeapMb + profile.overheadMb
+    int byProcessors = Math.max(1, availableProcessors.intdiv(profile.processorsPerFork).intValue())
+    int byMemory = physicalMemoryMb > 0L ? (int)Math.max(1L, Math.min((long)Integer.MAX_VALUE, (physicalMemoryMb - reservedMemoryMb).intdiv(forkFootprintMb).longValue())) : byProcessors
+
+    int forks
+    String reason
+    if (maxParallelForks != null) {
+      forks = Math.max(1, maxParallelForks)
+      reason = 'overridden'
+    } else if (byMemory < byProcessors) {
+      forks = byMemory
+      reason = "limited by memory: ${ physicalMemoryMb } MB physical, ${ reservedMemoryMb } MB reserved, ${ forkFootprintMb } MB per fork"
+    } else {
+      forks = byProcessors
+      reason = "limited by processors: ${ availableProcessors } available, ${ profile.processorsPerFork } per fork"
+    }
+
+    new Decision(forks, forkHeapMb, forkEvery != null ? forkEvery : profile.forkEvery, reason)
+  }
+
+  /**
+   * Parses memory size in the form accepted by {@code -Xmx},
+   * e.g. {@code 512m} or {@code 2g}
+   * @param value memory size
+   * @return memory size in megabytes
+   * @throws IllegalArgumentException when value can't be parsed
+   */
+  static long parseMemorySizeMb(String value) throws IllegalArgumentException {
+    Matcher m = MEMORY_SIZE_PATTERN.matcher(value.trim())
+    if (!m.matches()) {
+      throw new IllegalArgumentException("Invalid memory size: '$value'")
+    }
+    long number = Long.parseLong(m.group(1))
+    switch (m.group(2).toLowerCase(Locale.ROOT)) {
+      case 'k':
+        return number.intdiv(1024L).longValue()
+      case 'm':
+        return number
+      case 'g':
+        return number * 1024L
+      case 't':
+        return number * 1024L * 1024L
+      default:
+        return number.intdiv(1024L * 1024L).longValue()
+    }
+  }
+
+  /**
+   * Gets physical memory size
+   * @return physical memory size, in megabytes. 0 if it can't be determined
+   */
+  static long getPhysicalMemoryMb() {
+    OperatingSystemMXBean operatingSystemMXBean = ManagementFactory.operatingSystemMXBean
+    if (operatingSystemMXBean instanceof com.sun.management.OperatingSystemMXBean) {
+      return ((com.sun.management.OperatingSystemMXBean)operatingSystemMXBean).totalPhysicalMemorySize.intdiv(1024L * 1024L).longValue()
+    }
+    0L
+  }
+
+  private TestForkPolicy() {
+    throw new UnsupportedOperationException()
+  }
+}
@@ -0,0 +1,245 @@
+#!/usr/bin/env groovy
+/*
+ * TestOutputCapture class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import static org.gradle.internal.FileUtils.toSafeFileName
+import groovy.transform.CompileStatic
+import groovy.transform.PackageScope
+import java.security.MessageDigest
+import java.util.zip.GZIPOutputStream
+import org.gradle.api.logging.Logger
+import org.gradle.api.tasks.testing.TestDescriptor
+import org.gradle.api.tasks.testing.TestListener
+import org.gradle.api.tasks.testing.TestOutputEvent
+import org.gradle.api.tasks.testing.TestOutputListener
+import org.gradle.api.tasks.testing.TestResult
+
+/**
+ * Streams standard output and error of each test
+ * into its own gzip-compressed file.
+ *
+ * Only the tail of output of each test is kept in memory.
+ * When test fails, this tail and truncated exception messages
+ * are logged together with the link to the full log.
+ * Full log also contains stack traces of exceptions
+ */
+@CompileStatic
+final class TestOutputCapture implements TestListener, TestOutputListener {
+  /**
+   * Default maximum size of excerpt in characters
+   */
+  public static final int DEFAULT_EXCERPT_SIZE = 4096
+
+  /**
+   * Extension of log files
+   */
+  public static final String LOG_FILE_EXTENSION = '.log.gz'
+
+  /**
+   * Maximum length of log file name without extension.
+   * Longer names are truncated and suffixed with hash of the full name
+   * so that they fit into file name limit of common file systems
+   * (255 bytes) and still don't collide
+   */
+  public static final int MAX_LOG_FILE_NAME_LENGTH = 200
+
+  private static final int NAME_HASH_LENGTH = 16
+
+  private static final String TRUNCATION_MARK = '[...]'
+
+  private final File outputDir
+
+  private final int excerptSize
+
+  private final Logger logger
+
+  /**
+   * Log of test being run
+   */
+  private static final class Log {
+    final File file
+
+    final Writer writer
+
+    final StringBuilder tail = new StringBuilder()
+
+    Log(File file) {
+      this.file = file
+      file.parentFile.mkdirs()
+      this.writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), UTF_8)
+    }
+  }
+
+  private final Map<TestDescriptor, Log> logs = new HashMap<>()
+
+  /**
+   * Creates a new capture.
+   * Instance should be added to {@link org.gradle.api.tasks.testing.Test} task
+   * both as test listener and test output listener
+   *
+   * @param outputDir directory to write logs into
+   * @param excerptSize maximum size of excerpt in characters
+   * @param logger logger to log excerpts with
+   */
+  TestOutputCapture(File outputDir, int excerptSize, Logger logger) {
+    this.outputDir = outputDir
+    this.excerptSize = excerptSize
+    this.logger = logger
+  }
+
+  /**
+   * Gets log file of test
+   * @param outputDir directory with logs
+   * @param testDescriptor test
+   * @return log file. Logs of tests are grouped in directories by class,
+   *         output of class itself is written alongside the directory
+   */
+  static File getLogFile(File outputDir, TestDescriptor testDescriptor) {
+    String className = testDescriptor.className
+    if (className == null) {
+      return new File(outputDir, toLogFileName(testDescriptor.name) + LOG_FILE_EXTENSION)
+    }
+    if (testDescriptor.composite || testDescriptor.name == className) {
+      return new File(outputDir, toLogFileName(className) + LOG_FILE_EXTENSION)
+    }
+    new File(new File(outputDir, toLogFileName(className)), toLogFileName(testDescriptor.name) + LOG_FILE_EXTENSION)
+  }
+
+  /**
+   * Converts test or class name to log file name
+   * @param name test or class name
+   * @return name escaped by {@link org.gradle.internal.FileUtils#toSafeFileName(java.lang.String)}.
+   *         If it is longer than {@link #MAX_LOG_FILE_NAME_LENGTH},
+   *         it is truncated and suffixed with hash of the full name
+   */
+  @PackageScope
+  static String toLogFileName(String name) {
+    String safeName = toSafeFileName(name)
+    if (safeName.length() <= MAX_LOG_FILE_NAME_LENGTH) {
+      return safeName
+    }
+    String hash = MessageDigest.getInstance('SHA-256').digest(name.getBytes(UTF_8)).encodeHex().toString()
+    "${ safeName.substring(0, MAX_LOG_FILE_NAME_LENGTH - NAME_HASH_LENGTH - 1) }-${ hash.substring(0, NAME_HASH_LENGTH) }".toString()
+  }
+
+  /**
+   * Truncates text to its tail
+   * @param text text
+   * @param maxSize maximum size in characters
+   * @return text if it is not longer than maxSize,
+   *         otherwise the last maxSize characters starting from a line boundary
+   *         when there is one
+   */
+  @PackageScope
+  static String truncateHead(String text, int maxSize) {
+    if (text.length() <= maxSize) {
+      return text
+    }
+    String result = text.substring(text.length() - maxSize)
+    int lineStart = result.indexOf('\n')
+    lineStart >= 0 && lineStart < result.length() - 1 ? "$TRUNCATION_MARK\n${ result.substring(lineStart + 1) }" : "$TRUNCATION_MARK$result"
+  }
+
+  /**
+   * Truncates text to its head
+   * @param text text
+   * @param maxSize maximum size in characters
+   * @return text if it is not longer than maxSize,
+   *         otherwise the first maxSize characters
+   */
+  @PackageScope
+  static String truncateTail(String text, int maxSize) {
+    text.length() <= maxSize ? text : "${ text.substring(0, maxSize) }$TRUNCATION_MARK"
+  }
+
+  @Override
+  synchronized void onOutput(TestDescriptor testDescriptor, TestOutputEvent outputEvent) {
+    Log log = logs[testDescriptor]
+    if (log == null) {
+      log = new Log(getLogFile(outputDir, testDescriptor))
+      logs.put testDescriptor, log
+    }
+    String message = outputEvent.message
+    log.writer.write message
+    log.tail.append message
+    // Keep tail bounded while avoiding trimming on each event
+    if (log.tail.length() > 2 * excerptSize) {
+      log.tail.delete 0, log.tail.length() - excerptSize
+    }
+  }
+
+  @Override
+  void beforeSuite(TestDescriptor suite) {
+    // Do nothing
+  }
+
+  @Override
+  synchronized void afterSuite(TestDescriptor suite, TestResult result) {
+    finish suite, result
+  }
+
+  @Override
+  void beforeTest(TestDescriptor testDescriptor) {
+    // Do nothing
+  }
+
+  @Override
+  synchronized void afterTest(TestDescriptor testDescriptor, TestResult result) {
+    finish testDescriptor, result
+  }
+
+  private void finish(TestDescriptor testDescriptor, TestResult result) {
+    Log log = logs.remove(testDescriptor)
+    boolean failed = result.resultType == TestResult.ResultType.FAILURE && !result.exceptions.empty
+    if (failed && log == null) {
+      log = new Log(getLogFile(outputDir, testDescriptor))
+    }
+    if (log == null) {
+      return
+    }
+    if (failed) {
+      log.writer.write '\n'
+      result.exceptions.each { Throwable exception ->
+        PrintWriter printWriter = new PrintWriter(log.writer)
+        exception.printStackTrace printWriter
+        printWriter.flush()
+      }
+    }
+    log.writer.close()
+    if (failed) {
+      StringBuilder excerpt = new StringBuilder()
+      result.exceptions.each { Throwable exception ->
+        excerpt.append(truncateTail(exception.toString(), excerptSize)).append('\n')
+      }
+      String output = truncateHead(log.tail.toString(), excerptSize)
+      if (!output.empty) {
+        excerpt.append('Output:\n').append(output)
+        if (!output.endsWith('\n')) {
+          excerpt.append('\n')
+        }
+      }
+      excerpt.append('Full log: ').append(log.file.toURI())
+      logger.lifecycle('\n{} > {} FAILED\n{}', testDescriptor.className ?: '', testDescriptor.name, excerpt)
+    }
+  }
+}
@@ -0,0 +1,170 @@
+#!/usr/bin/env groovy
+/*
+ * VersionInferenceCache class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.transform.CompileDynamic
+import groovy.transform.CompileStatic
+import java.security.MessageDigest
+import org.ajoberstar.gradle.git.release.base.ReleaseVersion
+import org.ajoberstar.grgit.Grgit
+import org.gradle.api.Project
+
+/**
+ * Persists version inferred by gradle-git release plugin
+ * keyed by repository state:
+ * HEAD commit, tag refs, current branch, working tree cleanliness
+ * and release project properties.
+ *
+ * When repository state is not changed since the previous build,
+ * inferred version is set from the cache
+ * and walking of tags and commits is skipped entirely.
+ * Otherwise, version is inferred as usual once per build
+ * (by shared {@code DelayedVersion} instance) and stored
+ * after all projects are evaluated.
+ *
+ * Cleanliness is required in the key
+ * since release strategies check it.
+ * Working tree status is got by {@link GitStatusService},
+ * so it is read once per build and shared with other consumers
+ */
+@CompileStatic
+final class VersionInferenceCache {
+  /**
+   * Default cache file name
+   */
+  public static final String DEFAULT_CACHE_FILE_NAME = 'versionInference.properties'
+
+  private static final String KEY = 'key'
+
+  private static final String VERSION = 'version'
+
+  private static final String PREVIOUS_VERSION = 'previousVersion'
+
+  private static final String CREATE_TAG = 'createTag'
+
+  private static final String RELEASE_PROPERTY_PREFIX = 'release.'
+
+  private final Project project
+
+  private final File cacheFile
+
+  /**
+   * Creates a new instance
+   * @param rootProject root project with gradle-git release plugin applied
+   * @param cacheFile file to persist inferred version in
+   */
+  VersionInferenceCache(Project rootProject, File cacheFile) {
+    this.project = rootProject
+    this.cacheFile = cacheFile
+  }
+
+  /**
+   * Sets inferred version from the cache if repository state is not changed,
+   * otherwise stores inferred version after all projects are evaluated
+   */
+  void apply() {
+    String key
+    try {
+      key = computeKey()
+    } catch (Exception e) {
+      // E.g. repository has no commits yet
+      project.logger.info('VersionInferenceCache: unable to determine repository state, cache is not used', e)
+      return
+    }
+
+    Properties cached = load()
+    if (cached?.getProperty(KEY) == key) {
+      project.logger.info('VersionInferenceCache: using cached version {}', cached.getProperty(VERSION))
+      setInferredVersion new ReleaseVersion(cached.getProperty(VERSION), cached.getProperty(PREVIOUS_VERSION) ?: null, cached.getProperty(CREATE_TAG).toBoolean())
+      return
+    }
+
+    project.gradle.projectsEvaluated {
+      ReleaseVersion inferredVersion = getInferredVersion()
+      store key, inferredVersion
+    }
+  }
+
+  /**
+   * Computes key of repository state
+   * @return hex-encoded hash of repository state
+   */
+  @CompileDynamic
+  private String computeKey() {
+    Grgit grgit = (Grgit)project.extensions.extraProperties.get('grgit')
+    org.eclipse.jgit.lib.Repository repository = grgit.repository.jgit.repository
+    MessageDigest digest = MessageDigest.getInstance('SHA-256')
+    List<String> parts = []
+    parts.add "head=${ repository.resolve('HEAD').name() }"
+    parts.add "branch=${ repository.fullBranch }"
+    new TreeMap<String, org.eclipse.jgit.lib.Ref>(repository.refDatabase.getRefs(org.eclipse.jgit.lib.Constants.R_TAGS)).each { String name, org.eclipse.jgit.lib.Ref ref ->
+      parts.add "tag=$name:${ ref.objectId.name() }"
+    }
+    parts.add "clean=${ GitStatusService.getInstance(project).clean }"
+    // Version strategies could change with the plugin
+    parts.add "plugin=${ VersionInferenceCache.package.implementationVersion }"
+    new TreeMap<String, String>(project.gradle.startParameter.projectProperties).each { String name, String value ->
+      if (name.startsWith(RELEASE_PROPERTY_PREFIX)) {
+        parts.add "property=$name:$value"
+      }
+    }
+    for (String part in parts) {
+      digest.update part.getBytes(UTF_8)
+      digest.update((byte)0)
+    }
+    digest.digest().encodeHex().toString()
+  }
+
+  @CompileDynamic
+  private void setInferredVersion(ReleaseVersion inferredVersion) {
+    project.version.inferredVersion = inferredVersion
+  }
+
+  @CompileDynamic
+  private ReleaseVersion getInferredVersion() {
+    project.version.inferredVersion
+  }
+
+  private Properties load() {
+    if (!cacheFile.file) {
+      return null
+    }
+    Properties properties = new Properties()
+    cacheFile.withReader(UTF_8.name()) { Reader reader ->
+      properties.load reader
+    }
+    properties
+  }
+
+  private void store(String key, ReleaseVersion inferredVersion) {
+    Properties properties = new Properties()
+    properties.setProperty KEY, key
+    properties.setProperty VERSION, inferredVersion.version
+    properties.setProperty PREVIOUS_VERSION, inferredVersion.previousVersion ?: ''
+    properties.setProperty CREATE_TAG, inferredVersion.createTag.toString()
+    cacheFile.parentFile.mkdirs()
+    cacheFile.withWriter(UTF_8.name()) { Writer writer ->
+      properties.store writer, 'Version inferred by gradle-git release plugin'
+    }
+  }
+}
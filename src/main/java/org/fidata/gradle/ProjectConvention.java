@@ -27,13 +27,13 @@ import java.util.concurrent.Callable;
 import lombok.Getter;
 import org.codehaus.groovy.runtime.DefaultGroovyMethods;
 import org.fidata.gradle.internal.AbstractExtension;
+import org.fidata.gradle.internal.SpdxLicenseIndex;
 import org.fidata.gradle.utils.PathDirector;
 import org.gradle.api.Project;
 import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.spdx.rdfparser.license.AnyLicenseInfo;
 import org.spdx.rdfparser.license.LicenseInfoFactory;
-import org.spdx.rdfparser.license.SpdxNoneLicense;
 import org.spdx.spdxspreadsheet.InvalidLicenseStringException;
 
 /**
@@ -45,6 +45,7 @@ public final class ProjectConvention extends AbstractExtension {
   private static final String XML = "xml";
   private static final String JSON = "json";
   private static final String TXT = "txt";
+  private static final String JFR = "jfr";
 
   /**
    * Returns list of tags for the project.
@@ -59,31 +60,68 @@ public final class ProjectConvention extends AbstractExtension {
    *
    * @return SPDX identifier of the project license
    */
-  public String getLicense() {
-    return spdxLicenseInfo.toString();
-  }
+  @Getter
+  private String license = SpdxLicenseIndex.NONE;
 
   /**
    * Sets the project license from SPDX indentifier.
    *
+   * License expression is parsed and validated
+   * against SPDX License List index shipped with the plugin.
+   * Full SPDX model is not loaded until {@link #getSpdxLicenseInfo()} is called
+   *
    * @param newValue SPDX license identifier
    */
   public void setLicense(final String newValue) {
+    final SpdxLicenseIndex spdxLicenseIndex = SpdxLicenseIndex.getInstance();
+    /*
+     * CAVEAT:
+     * Index is generated by the main build only.
+     * When plugin is compiled by buildSrc, full SPDX model is used
+     */
+    if (spdxLicenseIndex == null) {
+      try {
+        setSpdxLicenseInfoInternal(LicenseInfoFactory.parseSPDXLicenseString(newValue));
+      } catch (final InvalidLicenseStringException exception) {
+        throw new IllegalArgumentException(String.format("Parsing license expression %s with SPDX failed", DefaultGroovyMethods.inspect(newValue)), exception);
+      }
+      return;
+    }
+    final SpdxLicenseIndex.Expression expression;
     try {
-      setSpdxLicenseInfoInternal(LicenseInfoFactory.parseSPDXLicenseString(newValue));
-    } catch (final InvalidLicenseStringException exception) {
+      expression = spdxLicenseIndex.parse(newValue);
+    } catch (final IllegalArgumentException exception) {
       throw new IllegalArgumentException(String.format("Parsing license expression %s with SPDX failed", DefaultGroovyMethods.inspect(newValue)), exception);
     }
+    if (!expression.getValidationErrors().isEmpty()) {
+      throw new IllegalArgumentException(String.format("License %s is not valid (for own developments). Validation errors: %s", DefaultGroovyMethods.inspect(newValue), DefaultGroovyMethods.toListString(expression.getValidationErrors())));
+    }
+    final String oldValue = license;
+    license = expression.getNormalized();
+    spdxLicenseInfo = null;
+    // Values are unknown until full SPDX model is loaded
+    getPropertyChangeSupport().firePropertyChange("spdxLicenseInfo", null, null);
+    getPropertyChangeSupport().firePropertyChange("license", oldValue, license);
   }
 
-  private AnyLicenseInfo spdxLicenseInfo = new SpdxNoneLicense();
+  private AnyLicenseInfo spdxLicenseInfo; // null until full SPDX model is loaded
 
   /**
    * Returns SPDX info on the project license.
    *
+   * When license was set with {@link #setLicense(String)},
+   * full SPDX model is loaded on the first call
+   *
    * @return SPDX info on the project license
    */
   public AnyLicenseInfo getSpdxLicenseInfo() {
+    if (spdxLicenseInfo == null) {
+      try {
+        spdxLicenseInfo = LicenseInfoFactory.parseSPDXLicenseString(license);
+      } catch (final InvalidLicenseStringException exception) {
+        throw new IllegalStateException(String.format("Parsing license expression %s with SPDX failed", DefaultGroovyMethods.inspect(license)), exception);
+      }
+    }
     return spdxLicenseInfo.clone();
   }
 
@@ -102,9 +140,11 @@ public final class ProjectConvention extends AbstractExtension {
       throw new IllegalArgumentException(String.format("License %s is not valid (for own developments). Validation errors: %s", DefaultGroovyMethods.inspect(newValue), DefaultGroovyMethods.toListString(validationErrors)));
     }
     final AnyLicenseInfo oldValue = spdxLicenseInfo;
+    final String oldLicense = license;
     spdxLicenseInfo = newValue;
+    license = newValue.toString();
     getPropertyChangeSupport().firePropertyChange("spdxLicenseInfo", oldValue, newValue);
-    getPropertyChangeSupport().firePropertyChange("license", oldValue.toString(), newValue.toString());
+    getPropertyChangeSupport().firePropertyChange("license", oldLicense, license);
   }
 
   private final boolean isBuildSrc;
@@ -185,6 +225,14 @@ public final class ProjectConvention extends AbstractExtension {
   @Getter
   private final File txtReportsDir;
 
+  /**
+   * Returns output directory for Java Flight Recorder recordings.
+   *
+   * @return output directory for Java Flight Recorder recordings
+   */
+  @Getter
+  private final File jfrReportsDir;
+
   private File getReportsDirForFormat(final Project project, final String format) {
     File result = new File(reportsDir, format);
     if (project != project.getRootProject()) {
@@ -220,6 +268,7 @@ public final class ProjectConvention extends AbstractExtension {
     xmlReportsDir = getReportsDirForFormat(project, XML);
     jsonReportsDir = getReportsDirForFormat(project, JSON);
     txtReportsDir = getReportsDirForFormat(project, TXT);
+    jfrReportsDir = getReportsDirForFormat(project, JFR);
   }
 
   /**
@@ -534,6 +583,20 @@ public final class ProjectConvention extends AbstractExtension {
     return txtReportsDir.toPath().resolve(getFileNameWithExtension(pathDirector, object, TXT)).toFile();
   }
 
+  /**
+   * Returns directory
+   * inside standard directory for Java Flight Recorder recordings.
+   *
+   * @param pathDirector Path director. Path provided by {@code pathDirector}
+   *                     is resolved relatively to the root of standard directory
+   * @param object The object to determine path for. It is passed to {@code pathDirector}
+   * @param <T> Type of object
+   * @return Directory resolved to the root of standard directory
+   */
+  public <T> File getJfrReportDir(final PathDirector<T> pathDirector, final T object) {
+    return jfrReportsDir.toPath().resolve(pathDirector.determinePath(object)).toFile();
+  }
+
   private <T> Path getFileNameWithExtension(final PathDirector<T> pathDirector, final T object, final String extension) {
     final Path filenameWithoutExtension = pathDirector.determinePath(object);
     return filenameWithoutExtension.resolveSibling(filenameWithoutExtension.getFileName().toString() + "." + extension);
@@ -139,9 +139,26 @@ public final class RootProjectConvention extends AbstractExtension {
        * <grv87 2018-08-01>
        */
       isRelease = project.provider(new Callable<Boolean>() {
+        /*
+         * Provider is queried many times during configuration,
+         * while version doesn't change after it is inferred.
+         * Before release plugin sets project version
+         * (e.g. it is still `unspecified`), answer is not memoized
+         */
+        private Boolean value;
+
         @Override
-        public Boolean call() {
-          return !SNAPSHOT_SUFFIX.matcher(project.getVersion().toString()).find();
+        public synchronized Boolean call() {
+          if (value != null) {
+            return value;
+          }
+          final Object version = project.getVersion();
+          final boolean result = !SNAPSHOT_SUFFIX.matcher(version.toString()).find();
+          if (version instanceof ReleasePluginExtension.DelayedVersion) {
+            // toString above has inferred the version
+            value = result;
+          }
+          return result;
         }
       });
 
@@ -0,0 +1,448 @@
+/*
+ * SpdxLicenseIndex class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.internal;
+
+import groovy.transform.Internal;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Compact index of SPDX License List.
+ *
+ * Index is generated at build time from the pinned SPDX License List
+ * and is shipped as a resource.
+ * It allows to parse and validate license expressions
+ * without loading full SPDX model and without network access.
+ *
+ * Index format is line-based, fields are separated with tabs:
+ * <pre>
+ * V  &lt;license list version&gt;
+ * L  &lt;license id&gt;  &lt;flags&gt;  &lt;name&gt;
+ * E  &lt;exception id&gt;  &lt;flags&gt;  &lt;name&gt;
+ * </pre>
+ * Flags are: {@code o} - OSI approved, {@code f} - FSF libre,
+ * {@code d} - deprecated, {@code -} - none.
+ * Lines starting with {@code #} are comments
+ */
+@Internal
+public final class SpdxLicenseIndex {
+  /**
+   * Name of index resource, relative to this class
+   */
+  public static final String RESOURCE_NAME = "spdx-license-index.txt";
+
+  /**
+   * Identifier for no license
+   */
+  public static final String NONE = "NONE";
+
+  /**
+   * Identifier for unknown license
+   */
+  public static final String NOASSERTION = "NOASSERTION";
+
+  private static final String VERSION_RECORD = "V";
+  private static final String LICENSE_RECORD = "L";
+  private static final String EXCEPTION_RECORD = "E";
+  private static final String FIELD_SEPARATOR = "\t";
+  private static final int FIELD_COUNT = 4;
+
+  /**
+   * Entry of the index.
+   */
+  @Getter
+  @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+  public static final class Entry {
+    /**
+     * Returns SPDX identifier.
+     *
+     * @return SPDX identifier
+     */
+    private final String id;
+
+    /**
+     * Returns full name.
+     *
+     * @return full name
+     */
+    private final String name;
+
+    /**
+     * Returns whether license is OSI approved.
+     *
+     * @return whether license is OSI approved
+     */
+    private final boolean osiApproved;
+
+    /**
+     * Returns whether license is FSF libre.
+     *
+     * @return whether license is FSF libre
+     */
+    private final boolean fsfLibre;
+
+    /**
+     * Returns whether identifier is deprecated.
+     *
+     * @return whether identifier is deprecated
+     */
+    private final boolean deprecated;
+  }
+
+  /**
+   * Result of license expression parsing.
+   */
+  @Getter
+  @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+  public static final class Expression {
+    /**
+     * Returns normalized expression.
+     * Identifiers have the case from SPDX License List,
+     * operators are in upper case
+     *
+     * @return normalized expression
+     */
+    private final String normalized;
+
+    /**
+     * Returns validation errors.
+     *
+     * @return validation errors
+     */
+    private final List<String> validationErrors;
+  }
+
+  /**
+   * Returns version of SPDX License List this index was generated from.
+   *
+   * @return version of SPDX License List
+   */
+  @Getter
+  private final String licenseListVersion;
+
+  private final Map<String, Entry> licenses;
+
+  private final Map<String, Entry> exceptions;
+
+  private SpdxLicenseIndex(final String licenseListVersion, final Map<String, Entry> licenses, final Map<String, Entry> exceptions) {
+    this.licenseListVersion = licenseListVersion;
+    this.licenses = Collections.unmodifiableMap(licenses);
+    this.exceptions = Collections.unmodifiableMap(exceptions);
+  }
+
+  /**
+   * Reads index.
+   *
+   * @param reader reader to read index from
+   * @return index
+   * @throws IOException when reading fails
+   */
+  public static SpdxLicenseIndex read(final Reader reader) throws IOException {
+    String licenseListVersion = null;
+    final Map<String, Entry> licenses = new HashMap<>();
+    final Map<String, Entry> exceptions = new HashMap<>();
+    final BufferedReader bufferedReader = new BufferedReader(reader);
+    String line;
+    while ((line = bufferedReader.readLine()) != null) {
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      final String[] fields = line.split(FIELD_SEPARATOR, FIELD_COUNT);
+      switch (fields[0]) {
+        case VERSION_RECORD:
+          licenseListVersion = fields[1];
+          break;
+        case LICENSE_RECORD:
+          licenses.put(key(fields[1]), readEntry(fields));
+          break;
+        case EXCEPTION_RECORD:
+          exceptions.put(key(fields[1]), readEntry(fields));
+          break;
+        default:
+          throw new IOException(String.format("Unknown record type in SPDX license index: %s", line));
+      }
+    }
+    return new SpdxLicenseIndex(licenseListVersion, licenses, exceptions);
+  }
+
+  private static Entry readEntry(final String[] fields) throws IOException {
+    if (fields.length != FIELD_COUNT) {
+      throw new IOException(String.format("Malformed record in SPDX license index: %s", String.join(FIELD_SEPARATOR, fields)));
+    }
+    final String flags = fields[2];
+    return new Entry(fields[1], fields[3], flags.indexOf('o') >= 0, flags.indexOf('f') >= 0, flags.indexOf('d') >= 0);
+  }
+
+  /**
+   * Formats index record.
+   * Used to generate index at build time
+   *
+   * @param exception whether record is for license exception
+   * @param id SPDX identifier
+   * @param name full name
+   * @param osiApproved whether license is OSI approved
+   * @param fsfLibre whether license is FSF libre
+   * @param deprecated whether identifier is deprecated
+   * @return index record
+   */
+  public static String formatRecord(final boolean exception, final String id, final String name, final boolean osiApproved, final boolean fsfLibre, final boolean deprecated) {
+    final StringBuilder flags = new StringBuilder();
+    if (osiApproved) {
+      flags.append('o');
+    }
+    if (fsfLibre) {
+      flags.append('f');
+    }
+    if (deprecated) {
+      flags.append('d');
+    }
+    if (flags.length() == 0) {
+      flags.append('-');
+    }
+    return String.join(FIELD_SEPARATOR, exception ? EXCEPTION_RECORD : LICENSE_RECORD, id, flags, name.replaceAll("\\s+", " ").trim());
+  }
+
+  /**
+   * Formats index version record.
+   * Used to generate index at build time
+   *
+   * @param licenseListVersion version of SPDX License List
+   * @return index record
+   */
+  public static String formatVersionRecord(final String licenseListVersion) {
+    return String.join(FIELD_SEPARATOR, VERSION_RECORD, licenseListVersion);
+  }
+
+  /**
+   * Holder of index instance loaded from resource
+   */
+  private static final class InstanceHolder {
+    static final SpdxLicenseIndex INSTANCE = load();
+
+    private static SpdxLicenseIndex load() {
+      final InputStream inputStream = SpdxLicenseIndex.class.getResourceAsStream(RESOURCE_NAME);
+      if (inputStream == null) {
+        return null;
+      }
+      try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+        return read(reader);
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Returns index shipped with the plugin.
+   *
+   * @return index shipped with the plugin,
+   *   or null if plugin was built without it (e.g. in buildSrc)
+   */
+  public static SpdxLicenseIndex getInstance() {
+    return InstanceHolder.INSTANCE;
+  }
+
+  /**
+   * Returns license entry.
+   *
+   * @param id SPDX license identifier, case-insensitive
+   * @return license entry, or null if license is not in the list
+   */
+  public Entry getLicense(final String id) {
+    return licenses.get(key(id));
+  }
+
+  /**
+   * Returns license exception entry.
+   *
+   * @param id SPDX license exception identifier, case-insensitive
+   * @return license exception entry, or null if exception is not in the list
+   */
+  public Entry getException(final String id) {
+    return exceptions.get(key(id));
+  }
+
+  private static String key(final String id) {
+    return id.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Parses and validates SPDX license expression.
+   *
+   * @param expression SPDX license expression
+   * @return parsed expression
+   * @throws IllegalArgumentException when expression is malformed
+   *   or contains unknown identifiers
+   */
+  public Expression parse(final String expression) {
+    if (expression == null) {
+      throw new IllegalArgumentException("License expression is null");
+    }
+    final String trimmed = expression.trim();
+    if (NONE.equalsIgnoreCase(trimmed) || NOASSERTION.equalsIgnoreCase(trimmed)) {
+      return new Expression(trimmed.toUpperCase(Locale.ROOT), Collections.<String>emptyList());
+    }
+    final Parser parser = new Parser(tokenize(trimmed));
+    final String normalized = parser.parseExpression();
+    return new Expression(normalized, Collections.unmodifiableList(parser.validationErrors));
+  }
+
+  private static final Pattern TOKEN_DELIMITER = Pattern.compile("\\s+|(?=[()])|(?<=[()])");
+
+  private static List<String> tokenize(final String expression) {
+    final List<String> result = new ArrayList<>();
+    for (final String token : TOKEN_DELIMITER.split(expression)) {
+      if (!token.isEmpty()) {
+        result.add(token);
+      }
+    }
+    if (result.isEmpty()) {
+      throw new IllegalArgumentException("License expression is empty");
+    }
+    return result;
+  }
+
+  private static final Pattern LICENSE_REF = Pattern.compile("(DocumentRef-[A-Za-z0-9.\\-]+:)?LicenseRef-[A-Za-z0-9.\\-]+");
+
+  private static final String AND = "AND";
+  private static final String OR = "OR";
+  private static final String WITH = "WITH";
+  private static final String OPENING_PARENTHESIS = "(";
+  private static final String CLOSING_PARENTHESIS = ")";
+
+  /**
+   * Recursive descent parser.
+   * Operator precedence is: {@code WITH}, {@code AND}, {@code OR}
+   */
+  private final class Parser {
+    private final List<String> tokens;
+    private int position; // 0 by default
+    private final List<String> validationErrors = new ArrayList<>();
+
+    Parser(final List<String> tokens) {
+      this.tokens = tokens;
+    }
+
+    String parseExpression() {
+      final String result = parseOr();
+      if (position < tokens.size()) {
+        throw new IllegalArgumentException(String.format("Unexpected token: %s", tokens.get(position)));
+      }
+      return result;
+    }
+
+    private String parseOr() {
+      final StringBuilder result = new StringBuilder(parseAnd());
+      while (accept(OR)) {
+        result.append(' ').append(OR).append(' ').append(parseAnd());
+      }
+      return result.toString();
+    }
+
+    private String parseAnd() {
+      final StringBuilder result = new StringBuilder(parseWith());
+      while (accept(AND)) {
+        result.append(' ').append(AND).append(' ').append(parseWith());
+      }
+      return result.toString();
+    }
+
+    private String parseWith() {
+      final String license = parsePrimary();
+      if (accept(WITH)) {
+        return license + ' ' + WITH + ' ' + parseException(next());
+      }
+      return license;
+    }
+
+    private String parsePrimary() {
+      final String token = next();
+      if (OPENING_PARENTHESIS.equals(token)) {
+        final String inner = parseOr();
+        if (!CLOSING_PARENTHESIS.equals(next())) {
+          throw new IllegalArgumentException("Missing closing parenthesis");
+        }
+        return inner.indexOf(' ') >= 0 ? OPENING_PARENTHESIS + inner + CLOSING_PARENTHESIS : inner;
+      }
+      return parseLicense(token);
+    }
+
+    private String parseLicense(final String token) {
+      if (CLOSING_PARENTHESIS.equals(token)) {
+        throw new IllegalArgumentException("Unexpected closing parenthesis");
+      }
+      if (LICENSE_REF.matcher(token).matches()) {
+        return token;
+      }
+      final boolean orLater = token.endsWith("+");
+      final String id = orLater ? token.substring(0, token.length() - 1) : token;
+      final Entry entry = getLicense(id);
+      if (entry == null) {
+        throw new IllegalArgumentException(String.format("Unknown license identifier: %s", token));
+      }
+      if (entry.getDeprecated()) {
+        validationErrors.add(String.format("License identifier %s is deprecated", entry.getId()));
+      }
+      return orLater ? entry.getId() + '+' : entry.getId();
+    }
+
+    private String parseException(final String token) {
+      final Entry entry = getException(token);
+      if (entry == null) {
+        throw new IllegalArgumentException(String.format("Unknown license exception identifier: %s", token));
+      }
+      if (entry.getDeprecated()) {
+        validationErrors.add(String.format("License exception identifier %s is deprecated", entry.getId()));
+      }
+      return entry.getId();
+    }
+
+    private boolean accept(final String operator) {
+      if (position < tokens.size() && operator.equalsIgnoreCase(tokens.get(position))) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private String next() {
+      if (position >= tokens.size()) {
+        throw new IllegalArgumentException("Unexpected end of license expression");
+      }
+      return tokens.get(position++);
+    }
+  }
+}
@@ -0,0 +1,217 @@
+#!/usr/bin/env groovy
+/*
+ * Configuration performance specification
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import static org.fidata.testfixtures.TestFixtures.initEmptyGitRepository
+import static org.fidata.testfixtures.gradle.SharedTestKit.createRunner
+import static org.fidata.testfixtures.gradle.SharedTestKit.warmUp
+import com.google.common.collect.ImmutableMap
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Measures configuration phase of synthetic multi-project builds
+ * applying plugins under test.
+ *
+ * Results are written in JSON format
+ * to the file set by {@code org.fidata.performanceTest.resultsFile} system property
+ */
+class ConfigurationPerformanceSpec extends Specification {
+  // fields
+  static final Map<String, String> EXTRA_PROPERTIES = ImmutableMap.copyOf([
+    'artifactoryUser'    : 'dummyArtifactoryUser',
+    'artifactoryPassword': 'dummyArtifactoryPassword',
+    'gitUsername': 'dummyGitUser',
+    'gitPassword': 'dummyGitPassword',
+    'ghToken': 'dummyGhToken',
+    'gpgKeyId': 'ABCD1234',
+  ])
+
+  /**
+   * Plugins applied to subprojects, in round-robin
+   */
+  static final List<List<String>> SUBPROJECT_PLUGINS = [
+    ['org.fidata.project.java'],
+    ['org.fidata.project.groovy'],
+    ['org.fidata.project.groovy', 'org.fidata.plugin'],
+  ]
+
+  static final List<Integer> SIZES = System.getProperty('org.fidata.performanceTest.sizes', '10,100,500').split(',')*.trim()*.toInteger()
+
+  static final int WARM_UP_RUNS = 1
+
+  static final int MEASURED_RUNS = Integer.getInteger('org.fidata.performanceTest.runs', 3)
+
+  static final String METRICS_FILE_PROPERTY_NAME = 'fidataPerformanceTestMetricsFile'
+
+  /*
+   * Init script is evaluated before settings,
+   * so configuration time includes settings and all projects
+   */
+  static final String METRICS_INIT_SCRIPT = """\
+    long configurationStart = System.nanoTime()
+    gradle.projectsEvaluated { Gradle gradle ->
+      long configurationNanos = System.nanoTime() - configurationStart
+      int taskCount = gradle.rootProject.allprojects.sum { Project project -> project.tasks.names.size() }
+      System.gc()
+      long heapUsedBytes = java.lang.management.ManagementFactory.memoryMXBean.heapMemoryUsage.used
+      new File(gradle.startParameter.projectProperties['$METRICS_FILE_PROPERTY_NAME']).text = groovy.json.JsonOutput.toJson([
+        configurationMillis: configurationNanos.intdiv(1000000L),
+        taskCount: taskCount,
+        heapUsedBytes: heapUsedBytes,
+      ])
+    }
+  """.stripIndent()
+
+  @Shared
+  File workDir = File.createTempDir('performanceTest', '-builds')
+
+  @Shared
+  Map<Integer, File> builds = [:]
+
+  @Shared
+  List<Map<String, Object>> results = []
+
+  // fixture methods
+
+  // run before the first feature method
+  void setupSpec() {
+    warmUp()
+  }
+
+  // run before every feature method
+  // void setup() { }
+
+  // run after every feature method
+  // void cleanup() { }
+
+  // run after the last feature method
+  void cleanupSpec() {
+    String resultsFileName = System.getProperty('org.fidata.performanceTest.resultsFile')
+    if (resultsFileName != null) {
+      File resultsFile = new File(resultsFileName)
+      resultsFile.parentFile.mkdirs()
+      resultsFile.setText JsonOutput.prettyPrint(JsonOutput.toJson([
+        pluginVersion: System.getProperty('org.fidata.performanceTest.pluginVersion'),
+        javaVersion: System.getProperty('java.version'),
+        availableProcessors: Runtime.runtime.availableProcessors(),
+        results: results,
+      ])), UTF_8.name()
+    }
+    workDir.deleteDir()
+  }
+
+  // feature methods
+
+  @Unroll
+  void 'measures #scenario scenario with #size subprojects'() {
+    given: 'synthetic build with #size subprojects'
+    File projectDir = getBuild(size)
+    File initScript = new File(workDir, 'metrics.gradle')
+    initScript.text = METRICS_INIT_SCRIPT
+    File metricsFile = new File(workDir, "metrics-$scenario-${ size }.json")
+
+    when: 'scenario is run several times'
+    /*
+     * Warm-up runs are online and fill dependency cache.
+     * Measured runs are offline, so that network doesn't affect results
+     */
+    List<Map<String, Object>> runs = (1..WARM_UP_RUNS + MEASURED_RUNS).collect { int run ->
+      createRunner(projectDir)
+        .withArguments(arguments + ['--init-script', initScript.absolutePath, "-P$METRICS_FILE_PROPERTY_NAME=$metricsFile.absolutePath".toString(), '--stacktrace'] + (run > WARM_UP_RUNS ? ['--offline'] : []))
+        .build()
+      (Map<String, Object>)new JsonSlurper().parse(metricsFile, UTF_8.name())
+    }.drop(WARM_UP_RUNS)
+
+    then: 'metrics are collected'
+    runs.size() == MEASURED_RUNS
+
+    and: 'results are recorded'
+    List<Long> configurationMillis = runs.collect { Map<String, Object> run -> ((Number)run['configurationMillis']).longValue() }.sort()
+    results << [
+      scenario: scenario,
+      subprojects: size,
+      arguments: arguments,
+      configurationMillisMedian: configurationMillis[configurationMillis.size().intdiv(2)],
+      configurationMillis: configurationMillis,
+      taskCount: runs.last()['taskCount'],
+      heapUsedBytesMax: runs.collect { Map<String, Object> run -> ((Number)run['heapUsedBytes']).longValue() }.max(),
+    ]
+
+    where:
+    [size, scenarioAndArguments] << [SIZES, [
+      help: ['help'],
+      // Approximation of IDE sync: all tasks are realized
+      ideSync: ['tasks', '--all'],
+      lint: ['lint', '--dry-run'],
+      release: ['release', '--dry-run'],
+    ].entrySet()].combinations()
+    scenario = ((Map.Entry<String, List<String>>)scenarioAndArguments).key
+    arguments = ((Map.Entry<String, List<String>>)scenarioAndArguments).value
+  }
+
+  // helper methods
+
+  private File getBuild(int size) {
+    File projectDir = builds[size]
+    if (projectDir != null) {
+      return projectDir
+    }
+    projectDir = new File(workDir, "build-$size")
+    assert projectDir.mkdirs()
+    initEmptyGitRepository projectDir
+
+    new File(projectDir, 'settings.gradle').withPrintWriter(UTF_8.name()) { PrintWriter printWriter ->
+      printWriter.println "rootProject.name = 'synthetic-$size'"
+      (0..<size).each { int i ->
+        printWriter.println "include 'sub$i'"
+      }
+    }
+    new File(projectDir, 'build.gradle').text = '''\
+      plugins {
+        id 'org.fidata.project'
+      }
+    '''.stripIndent()
+    new File(projectDir, 'gradle.properties').withPrintWriter(UTF_8.name()) { PrintWriter printWriter ->
+      EXTRA_PROPERTIES.each { String key, String value ->
+        printWriter.println "$key=$value"
+      }
+    }
+    (0..<size).each { int i ->
+      File subprojectDir = new File(projectDir, "sub$i")
+      assert subprojectDir.mkdir()
+      new File(subprojectDir, 'build.gradle').withPrintWriter(UTF_8.name()) { PrintWriter printWriter ->
+        printWriter.println 'plugins {'
+        SUBPROJECT_PLUGINS[i % SUBPROJECT_PLUGINS.size()].each { String pluginId ->
+          printWriter.println "  id '$pluginId'"
+        }
+        printWriter.println '}'
+      }
+    }
+
+    builds[size] = projectDir
+  }
+}
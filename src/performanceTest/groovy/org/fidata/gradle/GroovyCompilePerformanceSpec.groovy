@@ -0,0 +1,248 @@
+#!/usr/bin/env groovy
+/*
+ * Groovy compilation performance specification
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import static org.fidata.gradle.GroovyBasePlugin.GROOVY_COMPILATION_AVOIDANCE_FEATURE_NAME
+import static org.fidata.gradle.GroovyBasePlugin.GROOVY_COMPILE_PERFORMANCE_PROPERTY_NAME
+import static org.fidata.testfixtures.TestFixtures.initEmptyGitRepository
+import static org.fidata.testfixtures.gradle.SharedTestKit.createRunner
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+import org.gradle.testkit.runner.GradleRunner
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Measures Groovy compilation of synthetic multi-module build
+ * after ABI-compatible change in the module all other modules depend on,
+ * with and without Groovy compilation performance profile.
+ *
+ * Results are written in JSON format
+ * to {@code groovyCompile.json} file
+ * next to the file set by {@code org.fidata.performanceTest.resultsFile} system property
+ */
+class GroovyCompilePerformanceSpec extends Specification {
+  // fields
+  static final Map<String, String> EXTRA_PROPERTIES = ConfigurationPerformanceSpec.EXTRA_PROPERTIES
+
+  /**
+   * Gradle version to run builds with.
+   * It should support Groovy compilation avoidance
+   */
+  static final String GRADLE_VERSION = System.getProperty('org.fidata.performanceTest.groovyCompileGradleVersion', '5.6.4')
+
+  static final int MODULES = Integer.getInteger('org.fidata.performanceTest.groovyCompileModules', 10)
+
+  static final int CLASSES_PER_MODULE = 20
+
+  static final int MEASURED_RUNS = Integer.getInteger('org.fidata.performanceTest.runs', 3)
+
+  static final String METRICS_FILE_PROPERTY_NAME = 'fidataPerformanceTestMetricsFile'
+
+  static final String METRICS_INIT_SCRIPT = """\
+    import java.util.concurrent.ConcurrentHashMap
+    import java.util.concurrent.atomic.AtomicInteger
+    import java.util.concurrent.atomic.AtomicLong
+
+    Map<Task, Long> starts = new ConcurrentHashMap<>()
+    AtomicLong compileNanos = new AtomicLong()
+    AtomicInteger executedTasks = new AtomicInteger()
+    gradle.taskGraph.beforeTask { Task task ->
+      starts[task] = System.nanoTime()
+    }
+    gradle.taskGraph.afterTask { Task task, TaskState state ->
+      if (task instanceof GroovyCompile && state.didWork) {
+        compileNanos.addAndGet System.nanoTime() - starts[task]
+        executedTasks.incrementAndGet()
+      }
+    }
+    gradle.buildFinished {
+      new File(gradle.startParameter.projectProperties['$METRICS_FILE_PROPERTY_NAME']).text = groovy.json.JsonOutput.toJson([
+        compileMillis: compileNanos.get().intdiv(1000000L),
+        executedTasks: executedTasks.get(),
+      ])
+    }
+  """.stripIndent()
+
+  @Shared
+  File workDir = File.createTempDir('performanceTest', '-groovyCompile')
+
+  @Shared
+  List<Map<String, Object>> results = []
+
+  // fixture methods
+
+  // run before the first feature method
+  // void setupSpec() { }
+
+  // run before every feature method
+  // void setup() { }
+
+  // run after every feature method
+  // void cleanup() { }
+
+  // run after the last feature method
+  void cleanupSpec() {
+    String resultsFileName = System.getProperty('org.fidata.performanceTest.resultsFile')
+    if (resultsFileName != null) {
+      File resultsFile = new File(new File(resultsFileName).parentFile, 'groovyCompile.json')
+      resultsFile.parentFile.mkdirs()
+      resultsFile.setText JsonOutput.prettyPrint(JsonOutput.toJson([
+        pluginVersion: System.getProperty('org.fidata.performanceTest.pluginVersion'),
+        gradleVersion: GRADLE_VERSION,
+        javaVersion: System.getProperty('java.version'),
+        availableProcessors: Runtime.runtime.availableProcessors(),
+        results: results,
+      ])), UTF_8.name()
+    }
+    workDir.deleteDir()
+  }
+
+  // feature methods
+
+  @Unroll
+  void 'measures ABI-compatible change with #profile profile'() {
+    given: 'synthetic build'
+    File projectDir = createBuild(profile)
+    File initScript = new File(workDir, 'groovyCompileMetrics.gradle')
+    initScript.text = METRICS_INIT_SCRIPT
+    File metricsFile = new File(workDir, "groovyCompileMetrics-${ profile }.json")
+    List<String> arguments = ['classes', '--init-script', initScript.absolutePath, "-P$METRICS_FILE_PROPERTY_NAME=$metricsFile.absolutePath".toString(), "-P$GROOVY_COMPILE_PERFORMANCE_PROPERTY_NAME=$enabled".toString(), '--stacktrace']
+
+    and: 'initial build, online to fill dependency cache'
+    runner(projectDir, arguments).build()
+
+    when: 'core module implementation is changed several times'
+    List<Map<String, Object>> runs = (1..MEASURED_RUNS).collect { int run ->
+      writeCoreClass projectDir, run
+      runner(projectDir, arguments + ['--offline']).build()
+      (Map<String, Object>)new JsonSlurper().parse(metricsFile, UTF_8.name())
+    }
+
+    then: 'metrics are collected'
+    runs.size() == MEASURED_RUNS
+
+    and: 'results are recorded'
+    List<Long> compileMillis = runs.collect { Map<String, Object> run -> ((Number)run['compileMillis']).longValue() }.sort()
+    results << [
+      profile: profile,
+      modules: MODULES,
+      classesPerModule: CLASSES_PER_MODULE,
+      compileMillisMedian: compileMillis[compileMillis.size().intdiv(2)],
+      compileMillis: compileMillis,
+      executedCompileTasks: runs.collect { Map<String, Object> run -> run['executedTasks'] },
+    ]
+
+    where:
+    profile       | enabled
+    'default'     | false
+    'performance' | true
+  }
+
+  // helper methods
+
+  private static GradleRunner runner(File projectDir, List<String> arguments) {
+    createRunner(projectDir)
+      .withGradleVersion(GRADLE_VERSION)
+      .withArguments(arguments)
+  }
+
+  private File createBuild(String profile) {
+    File projectDir = new File(workDir, "build-$profile")
+    assert projectDir.mkdirs()
+    initEmptyGitRepository projectDir
+
+    new File(projectDir, 'settings.gradle').withPrintWriter(UTF_8.name()) { PrintWriter printWriter ->
+      printWriter.println "rootProject.name = 'synthetic-groovy-$profile'"
+      printWriter.println "if (startParameter.projectProperties['$GROOVY_COMPILE_PERFORMANCE_PROPERTY_NAME'] == 'true') {"
+      printWriter.println "  enableFeaturePreview('$GROOVY_COMPILATION_AVOIDANCE_FEATURE_NAME')"
+      printWriter.println '}'
+      printWriter.println "include 'core'"
+      (0..<MODULES).each { int i ->
+        printWriter.println "include 'module$i'"
+      }
+    }
+    new File(projectDir, 'build.gradle').text = '''\
+      plugins {
+        id 'org.fidata.project'
+      }
+    '''.stripIndent()
+    new File(projectDir, 'gradle.properties').withPrintWriter(UTF_8.name()) { PrintWriter printWriter ->
+      EXTRA_PROPERTIES.each { String key, String value ->
+        printWriter.println "$key=$value"
+      }
+    }
+
+    writeModule projectDir, 'core', null
+    writeCoreClass projectDir, 0
+    (0..<MODULES).each { int i ->
+      writeModule projectDir, "module$i", 'core'
+    }
+    projectDir
+  }
+
+  private static void writeModule(File projectDir, String name, String dependency) {
+    File moduleDir = new File(projectDir, name)
+    File sourceDir = new File(moduleDir, "src/main/groovy/org/example/$name")
+    assert sourceDir.mkdirs()
+    new File(moduleDir, 'build.gradle').withPrintWriter(UTF_8.name()) { PrintWriter printWriter ->
+      printWriter.println 'plugins {'
+      printWriter.println "  id 'org.fidata.project.groovy'"
+      printWriter.println '}'
+      if (dependency != null) {
+        printWriter.println 'dependencies {'
+        printWriter.println "  implementation project(':$dependency')"
+        printWriter.println '}'
+      }
+    }
+    (0..<CLASSES_PER_MODULE).each { int i ->
+      new File(sourceDir, "Class${ i }.groovy").text = """\
+        package org.example.$name
+
+        @groovy.transform.CompileStatic
+        class Class$i {
+          int compute(int value) {
+            ${ dependency != null ? "new org.example.${ dependency }.Core().compute(value) + $i" : "value + $i" }
+          }
+        }
+      """.stripIndent()
+    }
+  }
+
+  /**
+   * Writes core class. Its ABI doesn't depend on {@code revision}
+   */
+  private static void writeCoreClass(File projectDir, int revision) {
+    new File(projectDir, 'core/src/main/groovy/org/example/core/Core.groovy').text = """\
+      package org.example.core
+
+      @groovy.transform.CompileStatic
+      class Core {
+        int compute(int value) {
+          value * ${ revision + 2 }
+        }
+      }
+    """.stripIndent()
+  }
+}
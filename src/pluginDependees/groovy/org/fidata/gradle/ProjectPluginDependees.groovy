@@ -46,9 +46,15 @@ final class ProjectPluginDependees {
       version: '[4, 6[',
       enabledForBuildSrc: false,
     ),
+    /*
+     * CAVEAT:
+     * Applied lazily by ProjectPlugin,
+     * only when one of its tasks is requested
+     */
     'com.github.ben-manes.versions': new PluginDependee(
       configurationName: 'implementation',
       version: '[0, 1[',
+      enabled: false,
     ),
     'com.jfrog.artifactory': new PluginDependee(
       configurationName: 'implementation',
@@ -87,10 +93,18 @@ final class ProjectPluginDependees {
     ),
     'org.gradle.reporting-base': new PluginDependee(),
     'org.gradle.codenarc': new PluginDependee(),
-    'org.gradle.project-report': new PluginDependee(),
+    /*
+     * CAVEAT:
+     * Diagnostics plugins are applied lazily by ProjectPlugin,
+     * only when one of their tasks is requested
+     */
+    'org.gradle.project-report': new PluginDependee(
+      enabled: false,
+    ),
     'com.dorongold.task-tree': new PluginDependee(
       configurationName: 'implementation',
       version: '[1, 2[',
+      enabled: false,
     ),
     /*
      * WORKAROUND:
@@ -0,0 +1,116 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for SpdxLicenseIndex class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.internal
+
+import groovy.transform.CompileStatic
+import org.junit.runner.RunWith
+import org.junit.Test
+import junitparams.JUnitParamsRunner
+import junitparams.Parameters
+import junitparams.naming.TestCaseName
+
+/**
+ * Unit tests for {@link SpdxLicenseIndex} class
+ */
+@RunWith(JUnitParamsRunner)
+@CompileStatic
+class SpdxLicenseIndexTest {
+  private static final SpdxLicenseIndex INDEX = SpdxLicenseIndex.read(new StringReader([
+    '# Test index',
+    SpdxLicenseIndex.formatVersionRecord('3.5'),
+    SpdxLicenseIndex.formatRecord(false, 'Apache-2.0', 'Apache License 2.0', true, true, false),
+    SpdxLicenseIndex.formatRecord(false, 'MIT', 'MIT License', true, true, false),
+    SpdxLicenseIndex.formatRecord(false, 'GPL-2.0', 'GNU General Public License v2.0 only', true, true, true),
+    SpdxLicenseIndex.formatRecord(false, 'GPL-2.0-only', 'GNU General Public License v2.0 only', true, true, false),
+    SpdxLicenseIndex.formatRecord(false, 'LGPL-3.0-or-later', 'GNU Lesser General Public License v3.0 or later', true, true, false),
+    SpdxLicenseIndex.formatRecord(true, 'Classpath-exception-2.0', 'Classpath exception 2.0', false, false, false),
+  ].join('\n')))
+
+  /**
+   * Test method for {@link SpdxLicenseIndex#read(java.io.Reader)}.
+   */
+  @Test
+  void testRead() {
+    assert '3.5' == INDEX.licenseListVersion
+    SpdxLicenseIndex.Entry entry = INDEX.getLicense('apache-2.0')
+    assert 'Apache-2.0' == entry.id
+    assert 'Apache License 2.0' == entry.name
+    assert entry.osiApproved
+    assert !entry.deprecated
+    assert INDEX.getException('Classpath-exception-2.0') != null
+    assert INDEX.getLicense('Classpath-exception-2.0') == null
+  }
+
+  /**
+   * Test method for {@link SpdxLicenseIndex#parse(java.lang.String)}.
+   */
+  @Test
+  @Parameters
+  @TestCaseName('{index}: parse({0}) == {1}')
+  void testParse(final String expression, final String expectedNormalized, final int expectedValidationErrors) {
+    SpdxLicenseIndex.Expression result = INDEX.parse(expression)
+    assert expectedNormalized == result.normalized
+    assert expectedValidationErrors == result.validationErrors.size()
+  }
+
+  static Object[] parametersForTestParse() {
+    [
+      ['NONE'                                        , 'NONE'                                      , 0],
+      ['noassertion'                                 , 'NOASSERTION'                               , 0],
+      ['Apache-2.0'                                  , 'Apache-2.0'                                , 0],
+      ['apache-2.0'                                  , 'Apache-2.0'                                , 0],
+      ['Apache-2.0+'                                 , 'Apache-2.0+'                               , 0],
+      ['MIT or Apache-2.0'                           , 'MIT OR Apache-2.0'                         , 0],
+      ['(MIT OR Apache-2.0) AND LGPL-3.0-or-later'   , '(MIT OR Apache-2.0) AND LGPL-3.0-or-later' , 0],
+      ['((MIT))'                                     , 'MIT'                                       , 0],
+      ['GPL-2.0-only WITH Classpath-exception-2.0'   , 'GPL-2.0-only WITH Classpath-exception-2.0' , 0],
+      ['LicenseRef-Proprietary'                      , 'LicenseRef-Proprietary'                    , 0],
+      ['DocumentRef-spdx-tool-1.2:LicenseRef-MIT-Style-2', 'DocumentRef-spdx-tool-1.2:LicenseRef-MIT-Style-2', 0],
+      ['GPL-2.0'                                     , 'GPL-2.0'                                   , 1],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test method for {@link SpdxLicenseIndex#parse(java.lang.String)}
+   * with malformed expressions.
+   */
+  @Test(expected = IllegalArgumentException)
+  @Parameters
+  @TestCaseName('{index}: parse({0}) throws IllegalArgumentException')
+  void testParseMalformed(final String expression) {
+    INDEX.parse(expression)
+  }
+
+  static Object[] parametersForTestParseMalformed() {
+    [
+      [''],
+      ['   '],
+      ['Apache2.0'],
+      ['MIT AND'],
+      ['MIT Apache-2.0'],
+      ['(MIT'],
+      ['MIT)'],
+      ['MIT WITH Apache-2.0'],
+      ['Classpath-exception-2.0'],
+    ]*.toArray().toArray()
+  }
+}
@@ -0,0 +1,151 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for AggregateDependencyUpdates class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.transform.CompileStatic
+import junitparams.JUnitParamsRunner
+import junitparams.Parameters
+import junitparams.naming.TestCaseName
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.xml.sax.SAXException
+
+/**
+ * Unit tests for {@link AggregateDependencyUpdates} class
+ */
+@RunWith(JUnitParamsRunner)
+@CompileStatic
+class AggregateDependencyUpdatesTest {
+  /**
+   * Test method for {@link AggregateDependencyUpdates#selectLatestVersion(java.util.Collection, boolean)}
+   */
+  @Test
+  @Parameters
+  @TestCaseName('selectLatestVersion({0}, {1}) == {2}')
+  void testSelectLatestVersion(final List<String> versions, final boolean rejectPreReleases, final String expected) {
+    assert expected == AggregateDependencyUpdates.selectLatestVersion(versions, rejectPreReleases)
+  }
+
+  /**
+   * Versions are ordered by Gradle rules, not lexicographically
+   */
+  static Object[] parametersForTestSelectLatestVersion() {
+    [
+      [['1.0.0', '1.10.0', '1.2.0'], true, '1.10.0'],
+      [['1.0.0', '2.0.0-rc1'], true, '1.0.0'],
+      [['1.0.0', '2.0.0-rc1'], false, '2.0.0-rc1'],
+      [['1.0.0-rc1', '1.0.0'], false, '1.0.0'],
+      [['1.0.0', '1.1.0-SNAPSHOT', '1.1.0.Alpha2'], true, '1.0.0'],
+      [['2.0.0.Final', '1.0.0'], true, '2.0.0.Final'],
+      [['2.0.0-SNAPSHOT'], true, null],
+      [[], true, null],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test method for {@link AggregateDependencyUpdates#parseMavenMetadataVersions(java.io.InputStream)}
+   */
+  @Test
+  @Parameters
+  @TestCaseName('parseMavenMetadataVersions({0}) == {1}')
+  void testParseMavenMetadataVersions(final String metadata, final List<String> expected) {
+    assert expected == AggregateDependencyUpdates.parseMavenMetadataVersions(new ByteArrayInputStream(metadata.getBytes(UTF_8)))
+  }
+
+  static Object[] parametersForTestParseMavenMetadataVersions() {
+    [
+      [
+        '''\
+          <?xml version="1.0" encoding="UTF-8"?>
+          <metadata>
+            <groupId>com.example</groupId>
+            <artifactId>foo</artifactId>
+            <versioning>
+              <latest>1.1.0</latest>
+              <release>1.1.0</release>
+              <versions>
+                <version>1.0.0</version>
+                <version> 1.1.0 </version>
+              </versions>
+            </versioning>
+          </metadata>
+        '''.stripIndent().trim(),
+        ['1.0.0', '1.1.0']
+      ],
+      [
+        '<metadata><groupId>com.example</groupId><artifactId>foo</artifactId></metadata>',
+        []
+      ],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test method for {@link AggregateDependencyUpdates#parseMavenMetadataVersions(java.io.InputStream)}.
+   * Malformed metadata is reported with exception
+   * which is logged by the task
+   */
+  @Test(expected = SAXException)
+  @Parameters
+  @TestCaseName('parseMavenMetadataVersions({0}) throws SAXException')
+  void testParseMalformedMavenMetadataVersions(final String metadata) {
+    AggregateDependencyUpdates.parseMavenMetadataVersions(new ByteArrayInputStream(metadata.getBytes(UTF_8)))
+  }
+
+  static Object[] parametersForTestParseMalformedMavenMetadataVersions() {
+    [
+      ['<metadata><versioning><versions><version>1.0.0</versions></versioning></metadata>'],
+      ['<html>Not found'],
+      [''],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test method for {@link AggregateDependencyUpdates#getStatus(java.lang.String, java.lang.String)}
+   */
+  @Test
+  @Parameters
+  @TestCaseName('getStatus({0}, {1}) == {2}')
+  void testGetStatus(final String declaredVersion, final String latestVersion, final AggregateDependencyUpdates.Status expected) {
+    assert expected == AggregateDependencyUpdates.getStatus(declaredVersion, latestVersion)
+  }
+
+  static Object[] parametersForTestGetStatus() {
+    [
+      ['1.0.0', null, AggregateDependencyUpdates.Status.UNRESOLVED],
+      ['1.0.0', '1.0.0', AggregateDependencyUpdates.Status.CURRENT],
+      ['1.0.0', '1.10.0', AggregateDependencyUpdates.Status.OUTDATED],
+      ['2.0.0', '1.10.0', AggregateDependencyUpdates.Status.EXCEEDED],
+      ['1.0.0-rc1', '1.0.0', AggregateDependencyUpdates.Status.OUTDATED],
+      // Ranges
+      ['[1.0,2.0)', '1.5.0', AggregateDependencyUpdates.Status.CURRENT],
+      ['[1.0,2.0)', '2.1.0', AggregateDependencyUpdates.Status.OUTDATED],
+      ['[1.0,)', '3.0.0', AggregateDependencyUpdates.Status.CURRENT],
+      // Dynamic versions
+      ['1.+', '1.5.0', AggregateDependencyUpdates.Status.CURRENT],
+      ['1.+', '2.0.0', AggregateDependencyUpdates.Status.OUTDATED],
+      ['+', '2.0.0', AggregateDependencyUpdates.Status.CURRENT],
+      ['latest.release', '2.0.0', AggregateDependencyUpdates.Status.CURRENT],
+      ['1.+', null, AggregateDependencyUpdates.Status.UNRESOLVED],
+    ]*.toArray().toArray()
+  }
+}
@@ -0,0 +1,112 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for AuditAnnotationProcessors class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import static java.nio.charset.StandardCharsets.UTF_8
+import groovy.transform.CompileStatic
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+import org.junit.runner.RunWith
+import org.junit.Test
+import junitparams.JUnitParamsRunner
+
+/**
+ * Unit tests for {@link AuditAnnotationProcessors} class
+ */
+@RunWith(JUnitParamsRunner)
+@CompileStatic
+class AuditAnnotationProcessorsTest {
+  private static final String PROCESSORS = '''\
+    # Registered processors
+    org.example.IsolatingProcessor
+    org.example.AggregatingProcessor
+    org.example.DynamicProcessor
+    org.example.LegacyProcessor
+  '''.stripIndent()
+
+  private static final String INCREMENTAL_PROCESSORS = '''\
+    org.example.IsolatingProcessor,isolating
+    org.example.AggregatingProcessor,AGGREGATING
+    org.example.DynamicProcessor,dynamic
+    org.example.UnregisteredProcessor,isolating
+  '''.stripIndent()
+
+  private static final Map<String, AuditAnnotationProcessors.Kind> EXPECTED = [
+    'org.example.AggregatingProcessor': AuditAnnotationProcessors.Kind.AGGREGATING,
+    'org.example.DynamicProcessor': AuditAnnotationProcessors.Kind.DYNAMIC,
+    'org.example.IsolatingProcessor': AuditAnnotationProcessors.Kind.ISOLATING,
+    'org.example.LegacyProcessor': AuditAnnotationProcessors.Kind.NON_INCREMENTAL,
+  ]
+
+  /**
+   * Test method for {@link AuditAnnotationProcessors#classify(java.io.File)}
+   * with jar file
+   */
+  @Test
+  void testClassifyJar() {
+    File jar = File.createTempFile('processors', '.jar')
+    try {
+      new ZipOutputStream(new FileOutputStream(jar)).withCloseable { ZipOutputStream zipOutputStream ->
+        zipOutputStream.putNextEntry new ZipEntry(AuditAnnotationProcessors.PROCESSOR_SERVICE_FILE_NAME)
+        zipOutputStream.write PROCESSORS.getBytes(UTF_8)
+        zipOutputStream.putNextEntry new ZipEntry(AuditAnnotationProcessors.INCREMENTAL_PROCESSORS_FILE_NAME)
+        zipOutputStream.write INCREMENTAL_PROCESSORS.getBytes(UTF_8)
+      }
+      assert EXPECTED == AuditAnnotationProcessors.classify(jar)
+    } finally {
+      jar.delete()
+    }
+  }
+
+  /**
+   * Test method for {@link AuditAnnotationProcessors#classify(java.io.File)}
+   * with directory
+   */
+  @Test
+  void testClassifyDirectory() {
+    File dir = File.createTempDir()
+    try {
+      File servicesFile = new File(dir, AuditAnnotationProcessors.PROCESSOR_SERVICE_FILE_NAME)
+      servicesFile.parentFile.mkdirs()
+      servicesFile.setText PROCESSORS, UTF_8.name()
+      File incrementalFile = new File(dir, AuditAnnotationProcessors.INCREMENTAL_PROCESSORS_FILE_NAME)
+      incrementalFile.parentFile.mkdirs()
+      incrementalFile.setText INCREMENTAL_PROCESSORS, UTF_8.name()
+      assert EXPECTED == AuditAnnotationProcessors.classify(dir)
+    } finally {
+      dir.deleteDir()
+    }
+  }
+
+  /**
+   * Test that entries without processors are classified as empty
+   */
+  @Test
+  void testClassifyWithoutProcessors() {
+    File dir = File.createTempDir()
+    try {
+      assert AuditAnnotationProcessors.classify(dir).isEmpty()
+    } finally {
+      dir.deleteDir()
+    }
+  }
+}
@@ -0,0 +1,128 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for BuildMetrics class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import groovy.transform.CompileStatic
+import org.junit.runner.RunWith
+import org.junit.Test
+import junitparams.JUnitParamsRunner
+import junitparams.Parameters
+import junitparams.naming.TestCaseName
+
+/**
+ * Unit tests for {@link BuildMetrics} class
+ */
+@RunWith(JUnitParamsRunner)
+@CompileStatic
+class BuildMetricsTest {
+  private static final List<Double> BASELINE = [100d, 102d, 98d, 101d, 99d, 100d]
+
+  private static Map<String, Object> record(String metric, double value) {
+    (Map<String, Object>)[(metric): value]
+  }
+
+  /**
+   * Test method for {@link BuildMetrics#analyze(java.util.List, java.util.Map, int, double, double)}.
+   */
+  @Test
+  @Parameters
+  @TestCaseName('{index}: {0} {1} -> {2} is regression == {3}')
+  void testAnalyze(final String metric, final List<Double> baseline, final double latest, final boolean expectedResult) {
+    List<BuildMetrics.Trend> trends = BuildMetrics.analyze(
+      baseline.collect { Double value -> record(metric, value) },
+      record(metric, latest),
+      5, 3d, 0.1d
+    )
+    assert expectedResult == trends.find { BuildMetrics.Trend trend -> trend.metric == metric }.regression
+  }
+
+  static Object[] parametersForTestAnalyze() {
+    [
+      ['buildMillis'  , BASELINE          , 101d, false],
+      ['buildMillis'  , BASELINE          , 130d, true],
+      ['buildMillis'  , BASELINE          , 70d , false],
+      ['buildMillis'  , BASELINE.take(4)  , 130d, false],
+      ['buildMillis'  , [100d] * 6        , 105d, false],
+      ['buildMillis'  , [100d] * 6        , 120d, true],
+      ['cacheHitRate' , [0.9d] * 6        , 0.5d, true],
+      ['cacheHitRate' , [0.5d] * 6        , 0.9d, false],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test method for {@link BuildMetrics#isTaskOnly(java.lang.String, java.lang.String)}.
+   */
+  @Test
+  @Parameters
+  @TestCaseName('{index}: isTaskOnly({0}) == {1}')
+  void testIsTaskOnly(final String tasks, final boolean expectedResult) {
+    assert expectedResult == BuildMetrics.isTaskOnly(tasks, 'buildMetrics')
+  }
+
+  static Object[] parametersForTestIsTaskOnly() {
+    [
+      ['buildMetrics'                , true],
+      [':buildMetrics'               , true],
+      ['buildMetrics --tasks build'  , true],
+      ['buildMetrics --tasks=build'  , true],
+      ['build buildMetrics'          , false],
+      ['buildMetricsReport'          , false],
+      ['build'                       , false],
+      [''                            , false],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test method for {@link BuildMetrics#isSuccessful(java.util.Map)}.
+   */
+  @Test
+  @Parameters
+  @TestCaseName('{index}: isSuccessful({0}) == {1}')
+  void testIsSuccessful(final Map<String, Object> record, final boolean expectedResult) {
+    assert expectedResult == BuildMetrics.isSuccessful(record)
+  }
+
+  static Object[] parametersForTestIsSuccessful() {
+    [
+      [[success: true]      , true],
+      [[success: false]     , false],
+      [[buildMillis: 100]   , true],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test method for {@link BuildMetrics#getMetrics(java.util.Map)}.
+   */
+  @Test
+  void testGetMetrics() {
+    Map<String, Double> metrics = BuildMetrics.getMetrics((Map<String, Object>)[
+      configurationMillis: [':': 100, ':sub': 50],
+      taskOutcomes: [EXECUTED: 3, 'UP-TO-DATE': 7],
+      tests: [count: 10, millis: 1000],
+    ])
+    assert 150d == metrics['configurationMillis']
+    assert 50d == metrics['configurationMillis :sub']
+    assert 3d == metrics['executedTasks']
+    assert 1000d == metrics['testMillis']
+    assert !metrics.containsKey('cacheHitRate')
+  }
+}
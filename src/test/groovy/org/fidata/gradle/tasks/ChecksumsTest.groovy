@@ -0,0 +1,92 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for Checksums class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import groovy.transform.CompileStatic
+import java.security.MessageDigest
+import junitparams.JUnitParamsRunner
+import junitparams.Parameters
+import junitparams.naming.TestCaseName
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Unit tests for {@link Checksums} class
+ */
+@RunWith(JUnitParamsRunner)
+@CompileStatic
+class ChecksumsTest {
+  /**
+   * Test method for {@link Checksums#computeChecksums(java.io.File, java.util.List)}.
+   * Checksums computed in one pass should be equal
+   * to the ones computed separately
+   */
+  @Test
+  @Parameters
+  @TestCaseName('computeChecksums of {0}-byte file')
+  void testComputeChecksums(final int size) {
+    byte[] content = new byte[size]
+    new Random(size).nextBytes content
+    File file = File.createTempFile('artifact', '.bin')
+    try {
+      file.bytes = content
+      Map<String, String> expected = Checksums.DEFAULT_ALGORITHMS.collectEntries { String algorithm ->
+        [(algorithm): MessageDigest.getInstance(algorithm).digest(content).encodeHex().toString()]
+      }
+      assert expected == Checksums.computeChecksums(file, Checksums.DEFAULT_ALGORITHMS)
+    } finally {
+      file.delete()
+    }
+  }
+
+  /**
+   * Sizes include empty file
+   * and files larger than read buffer
+   */
+  static Object[] parametersForTestComputeChecksums() {
+    [
+      [0],
+      [1],
+      [1024 * 1024],
+      [3 * 1024 * 1024 + 17],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test method for {@link Checksums#getExtension(java.lang.String)}
+   */
+  @Test
+  @Parameters
+  @TestCaseName('getExtension({0}) == {1}')
+  void testGetExtension(final String algorithm, final String expected) {
+    assert expected == Checksums.getExtension(algorithm)
+  }
+
+  static Object[] parametersForTestGetExtension() {
+    [
+      ['MD5', 'md5'],
+      ['SHA-1', 'sha1'],
+      ['SHA-256', 'sha256'],
+      ['SHA-512', 'sha512'],
+    ]*.toArray().toArray()
+  }
+}
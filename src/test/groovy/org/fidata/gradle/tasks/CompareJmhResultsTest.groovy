@@ -0,0 +1,80 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for CompareJmhResults class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import groovy.transform.CompileStatic
+import org.junit.runner.RunWith
+import org.junit.Test
+import junitparams.JUnitParamsRunner
+import junitparams.Parameters
+import junitparams.naming.TestCaseName
+
+/**
+ * Unit tests for {@link CompareJmhResults} class
+ */
+@RunWith(JUnitParamsRunner)
+@CompileStatic
+class CompareJmhResultsTest {
+  private static Map<String, Object> result(String mode, double score, Map<String, Object> params = null) {
+    [
+      benchmark: 'org.example.Benchmark.run',
+      mode: mode,
+      params: params,
+      primaryMetric: [score: score],
+    ]
+  }
+
+  /**
+   * Test method for {@link CompareJmhResults#findRegressions(java.util.List, java.util.List, double)}.
+   */
+  @Test
+  @Parameters
+  @TestCaseName('{index}: {0} {1} -> {2} is regression == {3}')
+  void testFindRegressions(final String mode, final double baselineScore, final double score, final boolean expectedResult) {
+    assert expectedResult == !CompareJmhResults.findRegressions([result(mode, score)], [result(mode, baselineScore)], 0.1d).isEmpty()
+  }
+
+  static Object[] parametersForTestFindRegressions() {
+    [
+      ['thrpt', 100d, 100d, false],
+      ['thrpt', 100d, 95d , false],
+      ['thrpt', 100d, 85d , true],
+      ['thrpt', 100d, 200d, false],
+      ['avgt' , 100d, 105d, false],
+      ['avgt' , 100d, 115d, true],
+      ['avgt' , 100d, 50d , false],
+      ['ss'   , 100d, 115d, true],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test that benchmarks with different parameters are not matched
+   */
+  @Test
+  void testParamsAreMatched() {
+    assert CompareJmhResults.findRegressions(
+      [result('avgt', 200d, [size: '10'])],
+      [result('avgt', 100d, [size: '100'])],
+      0.1d
+    ).isEmpty()
+  }
+}
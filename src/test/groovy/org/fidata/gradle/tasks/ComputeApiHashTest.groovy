@@ -0,0 +1,118 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for ComputeApiHash class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import groovy.transform.CompileStatic
+import groovy.transform.PackageScope
+import junitparams.JUnitParamsRunner
+import junitparams.Parameters
+import junitparams.naming.TestCaseName
+import org.fidata.gradle.utils.ClassFile
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Unit tests for {@link ComputeApiHash} class
+ */
+@RunWith(JUnitParamsRunner)
+@CompileStatic
+class ComputeApiHashTest {
+  /**
+   * Test method for {@link ComputeApiHash#extractDocComments(java.lang.String)}
+   */
+  @Test
+  @Parameters
+  @TestCaseName('extractDocComments({0}) == {1}')
+  void testExtractDocComments(final String text, final List<String> expected) {
+    assert expected == ComputeApiHash.extractDocComments(text)
+  }
+
+  static Object[] parametersForTestExtractDocComments() {
+    [
+      ['class A {}', []],
+      ['/* Not a doc comment */ class A {}', []],
+      ['/** Doc */ class A { /** Method\n * doc\n */ void m() { int i = 0 /* comment */ } }', ['/** Doc */', '/** Method\n * doc\n */']],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Class to describe
+   */
+  static class Api {
+    /**
+     * Public constant
+     */
+    public static final String CONSTANT = 'value'
+
+    private int field
+
+    /**
+     * Public method
+     */
+    @Deprecated
+    void publicMethod() throws IOException {
+      privateMethod()
+    }
+
+    private void privateMethod() {
+      field++
+    }
+  }
+
+  /**
+   * Class which is not part of API
+   */
+  @PackageScope
+  static class NotApi {
+    /**
+     * Public method of non-public class
+     */
+    void publicMethod() { }
+  }
+
+  private static ClassFile readClassFile(Class<?> clazz) {
+    ClassFile.read(clazz.getResourceAsStream("/${ clazz.name.replace('.', '/') }.class".toString()).bytes)
+  }
+
+  /**
+   * Test method for {@link ComputeApiHash#describeApi(org.fidata.gradle.utils.ClassFile)}.
+   * Public members should be described with their attributes,
+   * private ones should not
+   */
+  @Test
+  void testDescribeApi() {
+    List<String> description = ComputeApiHash.describeApi(readClassFile(Api))
+    assert description[0].startsWith('class org/fidata/gradle/tasks/ComputeApiHashTest$Api ')
+    assert description.any { String line -> line.startsWith('  fields CONSTANT Ljava/lang/String; ') }
+    assert description.any { String line -> line.startsWith('  methods publicMethod ()V ') && line.contains('@Ljava/lang/Deprecated;') && line.contains('Exceptions=java/io/IOException') }
+    assert !description.any { String line -> line.contains('privateMethod') || line.contains(' field ') }
+  }
+
+  /**
+   * Test method for {@link ComputeApiHash#describeApi(org.fidata.gradle.utils.ClassFile)}.
+   * Non-public classes should not be described
+   */
+  @Test
+  void testDescribeApiOfNonPublicClass() {
+    assert ComputeApiHash.describeApi(readClassFile(NotApi)).empty
+  }
+}
@@ -0,0 +1,86 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for ExplainCacheMisses class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import groovy.transform.CompileStatic
+import org.fidata.gradle.utils.TaskInputsSnapshot
+import org.junit.runner.RunWith
+import org.junit.Test
+import junitparams.JUnitParamsRunner
+
+/**
+ * Unit tests for {@link ExplainCacheMisses} class
+ */
+@RunWith(JUnitParamsRunner)
+@CompileStatic
+class ExplainCacheMissesTest {
+  private static TaskInputsSnapshot.TaskRecord record(String path, String outcome, Map<String, Long> properties, Map<String, Long> files) {
+    new TaskInputsSnapshot.TaskRecord(
+      path,
+      outcome,
+      properties.collect { String name, Long hash -> new TaskInputsSnapshot.Entry(name, hash) },
+      files.collect { String name, Long hash -> new TaskInputsSnapshot.Entry(name, hash) }
+    )
+  }
+
+  private static DataInput snapshot(List<TaskInputsSnapshot.TaskRecord> records) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+    DataOutputStream output = new DataOutputStream(bytes)
+    TaskInputsSnapshot.writeHeader output
+    for (TaskInputsSnapshot.TaskRecord record in records) {
+      TaskInputsSnapshot.writeRecord output, record
+    }
+    TaskInputsSnapshot.writeEnd output
+    new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))
+  }
+
+  /**
+   * Test method for {@link ExplainCacheMisses#explain(java.io.DataInput, java.io.DataInput, java.io.PrintWriter)}.
+   */
+  @Test
+  void testExplain() {
+    DataInput baseline = snapshot([
+      record(':a:compileJava', 'FROM-CACHE', ['$type': 1L, 'options.encoding': 2L], ['a/src/A.java': 3L]),
+      record(':b:compileJava', 'EXECUTED', ['$type': 1L], ['b/src/B.java': 4L, 'b/src/C.java': 5L]),
+      record(':c:jar', 'EXECUTED', ['$type': 6L], [:]),
+    ])
+    DataInput current = snapshot([
+      record(':a:compileJava', 'EXECUTED', ['$type': 1L, 'options.encoding': 7L], ['a/src/A.java': 3L]),
+      record(':b:compileJava', 'EXECUTED', ['$type': 1L], ['b/src/B.java': 8L, 'b/src/D.java': 9L]),
+      record(':b:jar', 'EXECUTED', ['$type': 6L], [:]),
+      record(':c:jar', 'FROM-CACHE', ['$type': 6L], [:]),
+    ])
+    StringWriter report = new StringWriter()
+    int misses = ExplainCacheMisses.explain(baseline, current, new PrintWriter(report))
+    assert 3 == misses
+    assert report.toString().readLines() == [
+      ':a:compileJava',
+      '  property options.encoding: changed',
+      ':b:compileJava',
+      '  file b/src/B.java: changed',
+      '  file b/src/C.java: removed',
+      '  file b/src/D.java: added',
+      ':b:jar',
+      '  not found in baseline',
+    ]
+  }
+}
@@ -0,0 +1,95 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for RenderSpockReports class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import groovy.json.JsonSlurper
+import groovy.transform.CompileStatic
+import org.junit.Test
+
+/**
+ * Unit tests for {@link RenderSpockReports} class
+ */
+@CompileStatic
+class RenderSpockReportsTest {
+  private static final String SPEC_REPORT = '''\
+    {
+      "name": "org.example.ExampleSpec",
+      "narrative": "As a user <I want> examples",
+      "stats": {"totalRuns": 2, "failures": 1, "errors": 0, "skipped": 0, "successRate": 0.5, "time": 12},
+      "features": [
+        {
+          "name": "passes",
+          "result": "PASS",
+          "ignored": false,
+          "blocks": [{"kind": "given", "text": "something"}, {"kind": "expect", "text": ""}],
+          "problems": []
+        },
+        {
+          "name": "fails",
+          "result": "FAIL",
+          "ignored": false,
+          "blocks": [],
+          "problems": [{"dataValues": ["1", "2"], "errors": ["Condition not satisfied"]}]
+        }
+      ]
+    }
+  '''.stripIndent()
+
+  /**
+   * Test method for {@link RenderSpockReports#renderSpec(java.util.Map, java.io.Writer)}
+   */
+  @Test
+  void testRenderSpec() {
+    StringWriter writer = new StringWriter()
+    RenderSpockReports.renderSpec((Map<String, Object>)new JsonSlurper().parseText(SPEC_REPORT), writer)
+    String html = writer.toString()
+    assert html.startsWith('<!DOCTYPE html>\n')
+    assert html.contains('<title>Report for org.example.ExampleSpec</title>')
+    assert html.contains('<pre>As a user &lt;I want&gt; examples</pre>')
+    assert html.contains("<div class='feature pass'>")
+    assert html.contains('<h3>fails (FAIL)</h3>')
+    assert html.contains('<td>given</td>')
+    assert html.contains('<td>----</td>')
+    assert html.contains('<p>Data values: 1, 2</p>')
+    assert html.contains('<pre>Condition not satisfied</pre>')
+  }
+
+  /**
+   * Test method for {@link RenderSpockReports#renderIndex(java.util.Map, java.io.Writer)}
+   */
+  @Test
+  void testRenderIndex() {
+    StringWriter writer = new StringWriter()
+    RenderSpockReports.renderIndex((Map<String, Map<String, Object>>)[
+      'org.example.ExampleSpec': [
+        executedFeatures: ['passes', 'fails'],
+        ignoredFeatures: [],
+        stats: [failures: 1, errors: 0, successRate: 0.5, time: 12],
+      ],
+    ], writer)
+    String html = writer.toString()
+    assert html.startsWith('<!DOCTYPE html>\n')
+    assert html.contains("<a href='org.example.ExampleSpec.html'>org.example.ExampleSpec</a>")
+    assert html.contains('<td>2</td>')
+    assert html.contains('<td>0.5</td>')
+  }
+}
@@ -0,0 +1,98 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for SummarizeJfrRecordings class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import static org.junit.Assume.assumeTrue
+import groovy.transform.CompileDynamic
+import groovy.transform.CompileStatic
+import java.nio.file.Path
+import org.junit.Test
+
+/**
+ * Unit tests for {@link SummarizeJfrRecordings} class
+ */
+@CompileStatic
+class SummarizeJfrRecordingsTest {
+  /*
+   * jdk.jfr API is not available at compile time on JDK 8,
+   * so recording is made dynamically
+   */
+  @CompileDynamic
+  private static void record(Path path) {
+    def recording = Class.forName('jdk.jfr.Recording').newInstance()
+    try {
+      recording.enable 'jdk.GarbageCollection'
+      recording.start()
+      System.gc()
+      recording.stop()
+      recording.dump path
+    } finally {
+      recording.close()
+    }
+  }
+
+  private static boolean isJfrAvailable() {
+    try {
+      Class.forName('jdk.jfr.consumer.RecordingFile')
+      true
+    } catch (ClassNotFoundException ignored) {
+      false
+    }
+  }
+
+  /**
+   * Test method for {@link SummarizeJfrRecordings#summarizeRecordings(java.lang.Iterable, int)}
+   * with recordings generated by the JVM running the test
+   */
+  @Test
+  void testSummarizeRecordings() {
+    assumeTrue 'JFR API is available', jfrAvailable
+    File dir = File.createTempDir()
+    try {
+      List<File> files = ['fork-1.jfr', 'fork-2.jfr'].collect { String fileName -> new File(dir, fileName) }
+      files.each { File file -> record file.toPath() }
+
+      Map<String, Object> result = SummarizeJfrRecordings.summarizeRecordings(files, 5)
+
+      assert 2 == result['recordings']
+      Map<String, Object> gc = (Map<String, Object>)result['gc']
+      assert 2L <= (long)gc['count']
+      assert (long)gc['count'] == (long)((Map<String, Long>)gc['countByName']).values().sum(0L)
+      assert (long)gc['longestPauseMillis'] <= (long)gc['totalPauseMillis']
+      assert ((List)result['hotMethods']).size() <= 5
+    } finally {
+      dir.deleteDir()
+    }
+  }
+
+  /**
+   * Test that no recordings give empty summary
+   */
+  @Test
+  void testSummarizeNoRecordings() {
+    Map<String, Object> result = SummarizeJfrRecordings.summarizeRecordings(Collections.<File>emptyList(), 5)
+    assert 0 == result['recordings']
+    assert 0L == result['executionSamples']
+    assert ((List)result['hotMethods']).empty
+    assert 0L == ((Map<String, Object>)result['gc'])['count']
+  }
+}
@@ -0,0 +1,62 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for TestImpactAnalysis class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.tasks
+
+import groovy.transform.CompileStatic
+import junitparams.JUnitParamsRunner
+import junitparams.Parameters
+import junitparams.naming.TestCaseName
+import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Unit tests for {@link TestImpactAnalysis} class
+ */
+@RunWith(JUnitParamsRunner)
+@CompileStatic
+class TestImpactAnalysisTest {
+  /**
+   * Test method for {@link TestImpactAnalysis#hasIncludePatterns(org.gradle.api.tasks.testing.TestFilter)}
+   */
+  @Test
+  @Parameters
+  @TestCaseName('hasIncludePatterns({0}, {1}) == {2}')
+  void testHasIncludePatterns(final List<String> includePatterns, final List<String> commandLineIncludePatterns, final boolean expected) {
+    DefaultTestFilter filter = new DefaultTestFilter()
+    filter.setIncludePatterns includePatterns as String[]
+    filter.setCommandLineIncludePatterns commandLineIncludePatterns
+    assert expected == TestImpactAnalysis.hasIncludePatterns(filter)
+  }
+
+  /**
+   * Patterns set with {@code --tests} option are stored separately
+   */
+  static Object[] parametersForTestHasIncludePatterns() {
+    [
+      [[], [], false],
+      [['com.example.FooTest'], [], true],
+      [[], ['com.example.BarTest'], true],
+      [['com.example.FooTest'], ['com.example.BarTest'], true],
+    ]*.toArray().toArray()
+  }
+}
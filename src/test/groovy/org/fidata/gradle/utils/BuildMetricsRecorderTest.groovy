@@ -0,0 +1,60 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for BuildMetricsRecorder class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import groovy.transform.CompileStatic
+import org.junit.runner.RunWith
+import org.junit.Test
+import junitparams.JUnitParamsRunner
+import junitparams.Parameters
+import junitparams.naming.TestCaseName
+
+/**
+ * Unit tests for {@link BuildMetricsRecorder} class
+ */
+@RunWith(JUnitParamsRunner)
+@CompileStatic
+class BuildMetricsRecorderTest {
+  private static String record(String tasks, int buildMillis) {
+    "{\"tasks\":\"$tasks\",\"buildMillis\":$buildMillis}".toString()
+  }
+
+  /**
+   * Test method for {@link BuildMetricsRecorder#trimRecords(java.util.List, int)}.
+   */
+  @Test
+  @Parameters
+  @TestCaseName('{index}: trimRecords({0}, {1}) == {2}')
+  void testTrimRecords(final List<String> lines, final int maxRecordsPerTasks, final List<String> expectedResult) {
+    assert expectedResult == BuildMetricsRecorder.trimRecords(lines, maxRecordsPerTasks)
+  }
+
+  static Object[] parametersForTestTrimRecords() {
+    [
+      [[record('build', 1), record('build', 2)]                                   , 2, [record('build', 1), record('build', 2)]],
+      [[record('build', 1), record('build', 2), record('build', 3)]               , 2, [record('build', 2), record('build', 3)]],
+      [[record('build', 1), record('check', 2), record('build', 3), record('check', 4)], 1, [record('build', 3), record('check', 4)]],
+      [[record('check', 1), record('build', 2), record('build', 3)]               , 1, [record('check', 1), record('build', 3)]],
+      [[record('build', 1), '', '{malformed', record('build', 2)]                 , 2, [record('build', 1), record('build', 2)]],
+    ]*.toArray().toArray()
+  }
+}
@@ -0,0 +1,124 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for ClassDependencyIndex class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import groovy.transform.CompileStatic
+import junitparams.JUnitParamsRunner
+import junitparams.Parameters
+import junitparams.naming.TestCaseName
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Unit tests for {@link ClassDependencyIndex} class
+ */
+@RunWith(JUnitParamsRunner)
+@CompileStatic
+class ClassDependencyIndexTest {
+  private static ClassDependencyIndex.Entry entry(String hash, List<String> dependencies) {
+    new ClassDependencyIndex.Entry(
+      length: 1L,
+      lastModified: 1L,
+      hash: hash,
+      sourcePath: '',
+      dependencies: new TreeSet<String>(dependencies)
+    )
+  }
+
+  /**
+   * a.A <- b.B <- c.CTest
+   * a.A <- d.DTest
+   * e.E <- e.ETest
+   */
+  private static ClassDependencyIndex createIndex() {
+    ClassDependencyIndex index = new ClassDependencyIndex()
+    index.entries.put 'a.A', entry('1', [])
+    index.entries.put 'b.B', entry('2', ['a.A'])
+    index.entries.put 'c.CTest', entry('3', ['b.B'])
+    index.entries.put 'd.DTest', entry('4', ['a.A'])
+    index.entries.put 'e.E', entry('5', [])
+    index.entries.put 'e.ETest', entry('6', ['e.E'])
+    index
+  }
+
+  /**
+   * Test method for {@link ClassDependencyIndex#getDependents(java.util.Set)}
+   */
+  @Test
+  @Parameters
+  @TestCaseName('getDependents({0}) == {1}')
+  void testGetDependents(final List<String> changed, final List<String> expected) {
+    assert new TreeSet<String>(expected) == createIndex().getDependents(new TreeSet<String>(changed))
+  }
+
+  static Object[] parametersForTestGetDependents() {
+    [
+      [[], []],
+      [['a.A'], ['a.A', 'b.B', 'c.CTest', 'd.DTest']],
+      [['b.B'], ['b.B', 'c.CTest']],
+      [['e.ETest'], ['e.ETest']],
+      [['removed.Class'], ['removed.Class']],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test method for {@link ClassDependencyIndex#getChangedClasses(org.fidata.gradle.utils.ClassDependencyIndex)}
+   */
+  @Test
+  void testGetChangedClasses() {
+    ClassDependencyIndex baseline = createIndex()
+    ClassDependencyIndex current = createIndex()
+    current.entries.put 'b.B', entry('changed', ['a.A'])
+    current.entries.remove 'e.E'
+    current.entries.put 'f.F', entry('7', [])
+    assert new TreeSet<String>(['b.B', 'e.E', 'f.F']) == current.getChangedClasses(baseline)
+  }
+
+  /**
+   * Test that index is stored and loaded without changes
+   */
+  @Test
+  void testStoreLoad() {
+    File file = File.createTempFile('index', '.txt')
+    try {
+      ClassDependencyIndex index = createIndex()
+      index.store file
+      assert index.entries == ClassDependencyIndex.load(file).entries
+    } finally {
+      file.delete()
+    }
+  }
+
+  /**
+   * Test method for {@link ClassDependencyIndex#analyze(java.io.File)}
+   * with class file of this plugin
+   */
+  @Test
+  void testAnalyze() {
+    File classFile = new File(ClassDependencyIndex.getResource('ClassDependencyIndex.class').toURI())
+    ClassDependencyIndex.Entry entry = ClassDependencyIndex.analyze(classFile)
+    assert 'org/fidata/gradle/utils/ClassDependencyIndex.groovy' == entry.sourcePath
+    assert entry.dependencies.contains('org.fidata.gradle.utils.ClassDependencyIndex$Entry')
+    assert entry.dependencies.contains('java.security.MessageDigest')
+    assert !entry.dependencies.contains('org.fidata.gradle.utils.ClassDependencyIndex')
+  }
+}
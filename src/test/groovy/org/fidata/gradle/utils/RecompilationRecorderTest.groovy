@@ -0,0 +1,60 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for RecompilationRecorder class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import groovy.transform.CompileStatic
+import junitparams.JUnitParamsRunner
+import junitparams.Parameters
+import junitparams.naming.TestCaseName
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Unit tests for {@link RecompilationRecorder} class
+ */
+@RunWith(JUnitParamsRunner)
+@CompileStatic
+class RecompilationRecorderTest {
+  /**
+   * Test method for {@link RecompilationRecorder#isFullRecompilation(java.util.Map, java.util.Map)}
+   */
+  @Test
+  @Parameters
+  @TestCaseName('{index}: isFullRecompilation({0}, {1}) == {2}')
+  void testIsFullRecompilation(final Map<String, Long> before, final Map<String, Long> after, final Boolean expectedResult) {
+    assert expectedResult == RecompilationRecorder.isFullRecompilation(before, after)
+  }
+
+  static Object[] parametersForTestIsFullRecompilation() {
+    [
+      // First compilation
+      [[:]                                , ['A.class': 1000L, 'B.class': 1000L], true],
+      // All files rewritten within the same second as before
+      [['A.class': 1000L, 'B.class': 1000L], ['A.class': 1500L, 'B.class': 1500L], true],
+      [['A.class': 1000L, 'B.class': 1000L], ['A.class': 2000L, 'B.class': 1000L], false],
+      // Removed class
+      [['A.class': 1000L, 'B.class': 1000L], ['A.class': 1000L]                 , false],
+      [['A.class': 1000L]                 , ['A.class': 1000L, 'B.class': 2000L], false],
+      [['A.class': 1000L]                 , [:]                                 , null],
+    ]*.toArray().toArray()
+  }
+}
@@ -0,0 +1,90 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for TestForkPolicy class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import groovy.transform.CompileStatic
+import org.junit.runner.RunWith
+import org.junit.Test
+import junitparams.JUnitParamsRunner
+import junitparams.Parameters
+import junitparams.naming.TestCaseName
+
+/**
+ * Unit tests for {@link TestForkPolicy} class
+ */
+@RunWith(JUnitParamsRunner)
+@CompileStatic
+class TestForkPolicyTest {
+  /**
+   * Test method for {@link TestForkPolicy#decide}.
+   */
+  @Test
+  @Parameters
+  @TestCaseName('{index}: {0} on {1} processors and {2} MB == {3} forks')
+  void testDecide(final TestForkPolicy.Profile profile, final int availableProcessors, final long physicalMemoryMb, final int expectedForks) {
+    assert expectedForks == TestForkPolicy.decide(profile, availableProcessors, physicalMemoryMb, 1536L).maxParallelForks
+  }
+
+  static Object[] parametersForTestDecide() {
+    [
+      // 4-core laptop
+      [TestForkPolicy.UNIT      , 4 , 16384L, 4],
+      [TestForkPolicy.FUNCTIONAL, 4 , 16384L, 2],
+      // 64-core CI agent with 32 GB
+      [TestForkPolicy.UNIT      , 64, 32768L, 40],
+      [TestForkPolicy.FUNCTIONAL, 64, 32768L, 15],
+      [TestForkPolicy.COMPAT    , 64, 32768L, 12],
+      // Unknown memory
+      [TestForkPolicy.FUNCTIONAL, 8 , 0L    , 4],
+      // Not enough memory at all
+      [TestForkPolicy.COMPAT    , 8 , 1024L , 1],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test method for {@link TestForkPolicy#parseMemorySizeMb(java.lang.String)}.
+   */
+  @Test
+  @Parameters
+  @TestCaseName('{index}: parseMemorySizeMb({0}) == {1}')
+  void testParseMemorySizeMb(final String value, final long expectedResult) {
+    assert expectedResult == TestForkPolicy.parseMemorySizeMb(value)
+  }
+
+  static Object[] parametersForTestParseMemorySizeMb() {
+    [
+      ['512m'      , 512L],
+      ['512M'      , 512L],
+      ['2g'        , 2048L],
+      ['1048576k'  , 1024L],
+      ['1073741824', 1024L],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test that invalid memory size is rejected
+   */
+  @Test(expected = IllegalArgumentException)
+  void testParseInvalidMemorySize() {
+    TestForkPolicy.parseMemorySizeMb('lots')
+  }
+}
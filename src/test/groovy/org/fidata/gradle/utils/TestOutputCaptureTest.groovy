@@ -0,0 +1,128 @@
+#!/usr/bin/env groovy
+/*
+ * Unit tests for TestOutputCapture class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.gradle.utils
+
+import groovy.transform.CompileStatic
+import junitparams.JUnitParamsRunner
+import junitparams.Parameters
+import junitparams.naming.TestCaseName
+import org.gradle.api.internal.tasks.testing.DefaultTestClassDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestDescriptor
+import org.gradle.api.tasks.testing.TestDescriptor
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Unit tests for {@link TestOutputCapture} class
+ */
+@RunWith(JUnitParamsRunner)
+@CompileStatic
+class TestOutputCaptureTest {
+  /**
+   * Test method for {@link TestOutputCapture#truncateHead(java.lang.String, int)}
+   */
+  @Test
+  @Parameters
+  @TestCaseName('truncateHead({0}, {1}) == {2}')
+  void testTruncateHead(final String text, final int maxSize, final String expected) {
+    assert expected == TestOutputCapture.truncateHead(text, maxSize)
+  }
+
+  static Object[] parametersForTestTruncateHead() {
+    [
+      ['short', 10, 'short'],
+      ['line1\nline2\nline3\n', 8, '[...]\nline3\n'],
+      ['0123456789', 4, '[...]6789'],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test method for {@link TestOutputCapture#truncateTail(java.lang.String, int)}
+   */
+  @Test
+  @Parameters
+  @TestCaseName('truncateTail({0}, {1}) == {2}')
+  void testTruncateTail(final String text, final int maxSize, final String expected) {
+    assert expected == TestOutputCapture.truncateTail(text, maxSize)
+  }
+
+  static Object[] parametersForTestTruncateTail() {
+    [
+      ['short', 10, 'short'],
+      ['0123456789', 4, '0123[...]'],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test method for {@link TestOutputCapture#getLogFile(java.io.File, org.gradle.api.tasks.testing.TestDescriptor)}
+   */
+  @Test
+  @Parameters
+  @TestCaseName('getLogFile({0}) == {1}')
+  void testGetLogFile(final TestDescriptor testDescriptor, final String expected) {
+    File outputDir = new File('output')
+    assert new File(outputDir, expected) == TestOutputCapture.getLogFile(outputDir, testDescriptor)
+  }
+
+  /**
+   * Names are escaped by {@link org.gradle.internal.FileUtils#toSafeFileName(java.lang.String)}
+   */
+  static Object[] parametersForTestGetLogFile() {
+    [
+      [new DefaultTestDescriptor(1, 'com.example.FooSpec', 'does something'), 'com.example.FooSpec/does#20something.log.gz'],
+      [new DefaultTestClassDescriptor(2, 'com.example.FooSpec'), 'com.example.FooSpec.log.gz'],
+      [new DefaultTestDescriptor(3, null, 'Gradle Test Executor 1'), 'Gradle#20Test#20Executor#201.log.gz'],
+    ]*.toArray().toArray()
+  }
+
+  /**
+   * Test method for {@link TestOutputCapture#toLogFileName(java.lang.String)}.
+   * Long names should be capped and should not collide
+   * when they differ only after the cap
+   */
+  @Test
+  void testToLogFileNameOfLongNames() {
+    String prefix = 'does something' * 20
+    String name1 = TestOutputCapture.toLogFileName(prefix + ' first')
+    String name2 = TestOutputCapture.toLogFileName(prefix + ' second')
+    assert name1.length() == TestOutputCapture.MAX_LOG_FILE_NAME_LENGTH
+    assert name2.length() == TestOutputCapture.MAX_LOG_FILE_NAME_LENGTH
+    assert name1 != name2
+    assert name1.startsWith('does#20something')
+    assert name1 == TestOutputCapture.toLogFileName(prefix + ' first')
+  }
+
+  /**
+   * Test method for {@link TestOutputCapture#getLogFile(java.io.File, org.gradle.api.tasks.testing.TestDescriptor)}.
+   * Logs of tests with long names sharing a prefix should be written to different files
+   */
+  @Test
+  void testGetLogFileOfLongNames() {
+    File outputDir = new File('output')
+    String prefix = 'x' * (TestOutputCapture.MAX_LOG_FILE_NAME_LENGTH * 2)
+    File file1 = TestOutputCapture.getLogFile(outputDir, new DefaultTestDescriptor(1, 'com.example.FooSpec', prefix + '1'))
+    File file2 = TestOutputCapture.getLogFile(outputDir, new DefaultTestDescriptor(2, 'com.example.FooSpec', prefix + '2'))
+    assert file1 != file2
+    assert file1.parentFile == new File(outputDir, 'com.example.FooSpec')
+    assert file1.name.length() == TestOutputCapture.MAX_LOG_FILE_NAME_LENGTH + TestOutputCapture.LOG_FILE_EXTENSION.length()
+  }
+}
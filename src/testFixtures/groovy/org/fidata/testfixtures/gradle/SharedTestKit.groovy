@@ -0,0 +1,107 @@
+#!/usr/bin/env groovy
+/*
+ * SharedTestKit class
+ * Copyright ©  Basil Peace
+ *
+ * This file is part of gradle-base-plugins.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.fidata.testfixtures.gradle
+
+import groovy.transform.CompileStatic
+import org.gradle.testkit.runner.GradleRunner
+
+/**
+ * Creates {@link GradleRunner} instances sharing one TestKit directory.
+ *
+ * TestKit reuses idle daemons started with the same TestKit directory,
+ * Gradle version and JVM arguments,
+ * so all feature methods of all specs in a fork run in one warm daemon.
+ * The directory is kept between builds
+ * (by default it is inside project cache dir),
+ * so downloaded distributions and dependency caches are kept too
+ */
+@CompileStatic
+final class SharedTestKit {
+  /**
+   * Name of system property pointing to shared TestKit directory.
+   * It is set by {@code org.fidata.plugin} plugin
+   */
+  public static final String TEST_KIT_DIR_SYSTEM_PROPERTY_NAME = 'org.fidata.testKitDir'
+
+  /**
+   * Name of system property with Gradle version to run compatibility tests with.
+   * It is set by Stutter plugin
+   */
+  public static final String COMPAT_GRADLE_VERSION_SYSTEM_PROPERTY_NAME = 'compat.gradle.version'
+
+  /**
+   * @return shared TestKit directory, or null if it is not configured
+   */
+  static File getTestKitDir() {
+    String testKitDir = System.getProperty(TEST_KIT_DIR_SYSTEM_PROPERTY_NAME)
+    testKitDir != null ? new File(testKitDir) : null
+  }
+
+  /**
+   * Creates a runner using shared TestKit directory and plugin under test.
+   * When tests are run by compatibility test task,
+   * Gradle version is set accordingly
+   * @param projectDir project directory
+   * @return runner
+   */
+  static GradleRunner createRunner(File projectDir) {
+    GradleRunner runner = GradleRunner.create()
+      .withProjectDir(projectDir)
+      .withPluginClasspath()
+    File testKitDir = testKitDir
+    if (testKitDir != null) {
+      runner.withTestKitDir testKitDir
+    }
+    String gradleVersion = System.getProperty(COMPAT_GRADLE_VERSION_SYSTEM_PROPERTY_NAME)
+    if (gradleVersion != null) {
+      runner.withGradleVersion gradleVersion
+    }
+    runner
+  }
+
+  private static boolean warm = false
+
+  /**
+   * Starts a daemon in shared TestKit directory by running an empty build.
+   * Only the first call in a fork does the work.
+   * Should be called from {@code setupSpec}
+   * so that daemon startup time is not attributed to the first feature method
+   */
+  static synchronized void warmUp() {
+    if (warm) {
+      return
+    }
+    File projectDir = File.createTempDir('testKit', '-warmUp')
+    try {
+      new File(projectDir, 'settings.gradle').text = ''
+      createRunner(projectDir).withArguments('help', '--quiet').build()
+    } finally {
+      projectDir.deleteDir()
+    }
+    warm = true
+  }
+
+  // Suppress default constructor for noninstantiability
+  private SharedTestKit() {
+    throw new UnsupportedOperationException()
+  }
+}